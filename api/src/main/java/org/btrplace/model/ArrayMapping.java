@@ -0,0 +1,731 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.model;
+
+import gnu.trove.set.hash.THashSet;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.IntFunction;
+
+/**
+ * A {@link Mapping} backed by arrays indexed by the element identifiers.
+ * <p>
+ * The state of the nodes and the ready VMs are stored in bitsets. The state and the location of the VMs
+ * are stored in arrays. The VMs hosted by a node are chained in an intrusive linked list, so adding,
+ * moving or removing a VM is made in O(1). The implementation is then adapted to dense identifiers,
+ * such as the one provided by a {@link DefaultElementBuilder}. The elements given to the mapping are
+ * kept in tables indexed by their identifiers, so the getters return them without allocating new ones.
+ * <p>
+ * {@link #copy()} is made in O(1): the copy shares the arrays with the original mapping until one of
+ * them is modified. The first modification then copies the arrays.
+ * <p>
+ * The sets returned by the getters are read-only views. The views returned by
+ * {@link #getOnlineNodes()}, {@link #getOfflineNodes()}, {@link #getReadyVMs()},
+ * {@link #getRunningVMs(Node)} and {@link #getSleepingVMs(Node)} follow the modifications of the mapping.
+ * Like for {@link DefaultMapping}, the mapping must not be modified while iterating over one of these views.
+ *
+ * @author Fabien Hermenier
+ */
+public class ArrayMapping extends AbstractMapping implements Versioned {
+
+    private static final byte NONE = -1;
+
+    private static final byte RUNNING = 0;
+
+    private static final byte SLEEPING = 1;
+
+    private static final byte READY = 2;
+
+    private static final int NIL = -1;
+
+    private State st;
+
+    /**
+     * {@code false} iff the state may be shared with another mapping.
+     */
+    private boolean owner;
+
+    /**
+     * The number of modifications.
+     */
+    private long version;
+
+    /**
+     * Make a new empty mapping.
+     */
+    public ArrayMapping() {
+        this(new State(), true);
+    }
+
+    private ArrayMapping(State s, boolean owner) {
+        st = s;
+        this.owner = owner;
+    }
+
+    /**
+     * Get the state to modify it.
+     */
+    private State write() {
+        version++;
+        if (!owner) {
+            st = st.copy();
+            owner = true;
+        }
+        return st;
+    }
+
+    private byte vmState(int v) {
+        State s = st;
+        return v < s.vmState.length ? s.vmState[v] : NONE;
+    }
+
+    @Override
+    public boolean isRunning(VM v) {
+        return vmState(v.id()) == RUNNING;
+    }
+
+    @Override
+    public boolean isSleeping(VM v) {
+        return vmState(v.id()) == SLEEPING;
+    }
+
+    @Override
+    public boolean isReady(VM v) {
+        return vmState(v.id()) == READY;
+    }
+
+    @Override
+    public boolean isOnline(Node n) {
+        return st.online.get(n.id());
+    }
+
+    @Override
+    public boolean isOffline(Node n) {
+        return st.offline.get(n.id());
+    }
+
+    @Override
+    public boolean addRunningVM(VM vm, Node n) {
+        return host(vm, n, RUNNING);
+    }
+
+    @Override
+    public boolean addSleepingVM(VM vm, Node n) {
+        return host(vm, n, SLEEPING);
+    }
+
+    private boolean host(VM vm, Node n, byte state) {
+        if (!isOnline(n)) {
+            return false;
+        }
+        int v = vm.id();
+        int nId = n.id();
+        if (vmState(v) == state && st.place[v] == nId) {
+            return true;
+        }
+        State s = write();
+        s.ensureVM(v);
+        s.vms[v] = vm;
+        s.detach(v);
+        s.attach(v, nId, state);
+        return true;
+    }
+
+    @Override
+    public boolean addReadyVM(VM vm) {
+        int v = vm.id();
+        if (vmState(v) == READY) {
+            return true;
+        }
+        State s = write();
+        s.ensureVM(v);
+        s.vms[v] = vm;
+        s.detach(v);
+        s.vmState[v] = READY;
+        s.ready.set(v);
+        return true;
+    }
+
+    @Override
+    public boolean remove(VM vm) {
+        int v = vm.id();
+        if (vmState(v) == NONE) {
+            return false;
+        }
+        State s = write();
+        s.detach(v);
+        s.vmState[v] = NONE;
+        s.nbVMs--;
+        return true;
+    }
+
+    @Override
+    public boolean remove(Node n) {
+        int nId = n.id();
+        if (isOnline(n)) {
+            if (st.count[RUNNING][nId] > 0 || st.count[SLEEPING][nId] > 0) {
+                return false;
+            }
+            State s = write();
+            s.online.clear(nId);
+            s.nbNodes--;
+            return true;
+        } else if (isOffline(n)) {
+            State s = write();
+            s.offline.clear(nId);
+            s.nbNodes--;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean addOnlineNode(Node n) {
+        if (isOnline(n)) {
+            return true;
+        }
+        int nId = n.id();
+        State s = write();
+        if (!s.offline.get(nId)) {
+            s.nbNodes++;
+        }
+        s.ensureNode(nId);
+        s.nodes[nId] = n;
+        s.offline.clear(nId);
+        s.online.set(nId);
+        return true;
+    }
+
+    @Override
+    public boolean addOfflineNode(Node n) {
+        int nId = n.id();
+        if (isOffline(n)) {
+            return true;
+        }
+        State s;
+        if (isOnline(n)) {
+            if (st.count[RUNNING][nId] > 0 || st.count[SLEEPING][nId] > 0) {
+                return false;
+            }
+            s = write();
+            s.online.clear(nId);
+        } else {
+            s = write();
+            s.nbNodes++;
+        }
+        s.ensureNode(nId);
+        s.nodes[nId] = n;
+        s.offline.set(nId);
+        return true;
+    }
+
+    @Override
+    public Set<Node> getOnlineNodes() {
+        return new NodeSet(true);
+    }
+
+    @Override
+    public Set<Node> getOfflineNodes() {
+        return new NodeSet(false);
+    }
+
+    @Override
+    public Set<VM> getRunningVMs() {
+        return collect(RUNNING);
+    }
+
+    @Override
+    public Set<VM> getSleepingVMs() {
+        return collect(SLEEPING);
+    }
+
+    @Override
+    public Set<VM> getSleepingVMs(Node n) {
+        return new HostedVMs(n.id(), SLEEPING);
+    }
+
+    @Override
+    public Set<VM> getRunningVMs(Node n) {
+        return new HostedVMs(n.id(), RUNNING);
+    }
+
+    @Override
+    public Set<VM> getReadyVMs() {
+        return new ReadyVMs();
+    }
+
+    /**
+     * Collect the VMs in a given state.
+     */
+    private Set<VM> collect(byte state) {
+        State s = st;
+        Set<VM> vms = new THashSet<>();
+        for (int v = 0; v < s.vmState.length; v++) {
+            if (s.vmState[v] == state) {
+                vms.add(s.vms[v]);
+            }
+        }
+        return vms;
+    }
+
+    @Override
+    public Set<VM> getAllVMs() {
+        State s = st;
+        Set<VM> vms = new THashSet<>(s.nbVMs);
+        for (int v = 0; v < s.vmState.length; v++) {
+            if (s.vmState[v] != NONE) {
+                vms.add(s.vms[v]);
+            }
+        }
+        return vms;
+    }
+
+    @Override
+    public Set<Node> getAllNodes() {
+        Set<Node> ns = new THashSet<>(st.nbNodes);
+        ns.addAll(getOnlineNodes());
+        ns.addAll(getOfflineNodes());
+        return ns;
+    }
+
+    @Override
+    public Node getVMLocation(VM vm) {
+        int v = vm.id();
+        byte state = vmState(v);
+        if (state == RUNNING || state == SLEEPING) {
+            State s = st;
+            return s.nodes[s.place[v]];
+        }
+        return null;
+    }
+
+    @Override
+    public Set<VM> getRunningVMs(Collection<Node> ns) {
+        Set<VM> vms = new THashSet<>();
+        for (Node n : ns) {
+            vms.addAll(getRunningVMs(n));
+        }
+        return vms;
+    }
+
+    @Override
+    public Set<VM> getSleepingVMs(Collection<Node> ns) {
+        Set<VM> vms = new THashSet<>();
+        for (Node n : ns) {
+            vms.addAll(getSleepingVMs(n));
+        }
+        return vms;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public Mapping copy() {
+        owner = false;
+        return new ArrayMapping(st, false);
+    }
+
+    @Override
+    public boolean contains(Node n) {
+        return isOnline(n) || isOffline(n);
+    }
+
+    @Override
+    public boolean contains(VM vm) {
+        return vmState(vm.id()) != NONE;
+    }
+
+    @Override
+    public void clear() {
+        version++;
+        st = new State();
+        owner = true;
+    }
+
+    @Override
+    public void clearNode(Node u) {
+        int nId = u.id();
+        if (!isOnline(u) || st.count[RUNNING][nId] + st.count[SLEEPING][nId] == 0) {
+            return;
+        }
+        State s = write();
+        for (int k = RUNNING; k <= SLEEPING; k++) {
+            for (int v = s.head[k][nId]; v != NIL; v = s.next[v]) {
+                s.vmState[v] = NONE;
+                s.nbVMs--;
+            }
+            s.head[k][nId] = NIL;
+            s.count[k][nId] = 0;
+        }
+    }
+
+    @Override
+    public void clearAllVMs() {
+        State s = write();
+        s.clearVMs();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder buf = new StringBuilder();
+        for (Node n : getOnlineNodes()) {
+            buf.append(n);
+            buf.append(':');
+            if (getRunningVMs(n).isEmpty() && getSleepingVMs(n).isEmpty()) {
+                buf.append(" - ");
+            }
+            for (VM vm : getRunningVMs(n)) {
+                buf.append(' ').append(vm);
+            }
+            for (VM vm : getSleepingVMs(n)) {
+                buf.append(" (").append(vm).append(')');
+            }
+            buf.append('\n');
+        }
+        for (Node n : getOfflineNodes()) {
+            buf.append('(').append(n).append(")\n");
+        }
+        buf.append("READY");
+        for (VM vm : getReadyVMs()) {
+            buf.append(' ').append(vm);
+        }
+        return buf.append('\n').toString();
+    }
+
+    @Override
+    public int getNbNodes() {
+        return st.nbNodes;
+    }
+
+    @Override
+    public int getNbVMs() {
+        return st.nbVMs;
+    }
+
+    /**
+     * The arrays. They are never modified once shared.
+     */
+    private static final class State {
+
+        /**
+         * The state of each VM.
+         */
+        private byte[] vmState;
+
+        /**
+         * The identifier of the node hosting each VM. Meaningless for a VM that is not running or sleeping.
+         */
+        private int[] place;
+
+        /**
+         * The next and the previous VM on the same node with the same state.
+         */
+        private int[] next;
+
+        private int[] prev;
+
+        /**
+         * The VMs and the nodes, indexed by their identifiers.
+         */
+        private VM[] vms;
+
+        private Node[] nodes;
+
+        private BitSet ready;
+
+        private BitSet online;
+
+        private BitSet offline;
+
+        /**
+         * For the running and the sleeping VMs, the first VM of each node.
+         */
+        private int[][] head;
+
+        /**
+         * For the running and the sleeping VMs, the number of VMs on each node.
+         */
+        private int[][] count;
+
+        private int nbVMs;
+
+        private int nbNodes;
+
+        State() {
+            online = new BitSet();
+            offline = new BitSet();
+            nodes = new Node[0];
+            head = new int[][]{new int[0], new int[0]};
+            count = new int[][]{new int[0], new int[0]};
+            clearVMs();
+        }
+
+        State copy() {
+            State s = new State();
+            s.vmState = vmState.clone();
+            s.place = place.clone();
+            s.next = next.clone();
+            s.prev = prev.clone();
+            s.vms = vms.clone();
+            s.nodes = nodes.clone();
+            s.ready = (BitSet) ready.clone();
+            s.online = (BitSet) online.clone();
+            s.offline = (BitSet) offline.clone();
+            s.head = new int[][]{head[RUNNING].clone(), head[SLEEPING].clone()};
+            s.count = new int[][]{count[RUNNING].clone(), count[SLEEPING].clone()};
+            s.nbVMs = nbVMs;
+            s.nbNodes = nbNodes;
+            return s;
+        }
+
+        void clearVMs() {
+            vmState = new byte[0];
+            place = new int[0];
+            next = new int[0];
+            prev = new int[0];
+            vms = new VM[0];
+            ready = new BitSet();
+            for (int k = RUNNING; k <= SLEEPING; k++) {
+                Arrays.fill(head[k], NIL);
+                Arrays.fill(count[k], 0);
+            }
+            nbVMs = 0;
+        }
+
+        private static int grow(int length, int id) {
+            return Math.max(id + 1, length * 2);
+        }
+
+        void ensureVM(int v) {
+            if (v < vmState.length) {
+                return;
+            }
+            int from = vmState.length;
+            int to = grow(from, v);
+            vmState = Arrays.copyOf(vmState, to);
+            Arrays.fill(vmState, from, to, NONE);
+            place = Arrays.copyOf(place, to);
+            next = Arrays.copyOf(next, to);
+            prev = Arrays.copyOf(prev, to);
+            vms = Arrays.copyOf(vms, to);
+        }
+
+        void ensureNode(int n) {
+            if (n < head[RUNNING].length) {
+                return;
+            }
+            int from = head[RUNNING].length;
+            int to = grow(from, n);
+            nodes = Arrays.copyOf(nodes, to);
+            for (int k = RUNNING; k <= SLEEPING; k++) {
+                head[k] = Arrays.copyOf(head[k], to);
+                Arrays.fill(head[k], from, to, NIL);
+                count[k] = Arrays.copyOf(count[k], to);
+            }
+        }
+
+        /**
+         * Remove a VM from its node or from the ready VMs. A new VM is accounted.
+         */
+        void detach(int v) {
+            byte state = vmState[v];
+            if (state == NONE) {
+                nbVMs++;
+            } else if (state == READY) {
+                ready.clear(v);
+            } else {
+                int n = place[v];
+                if (prev[v] != NIL) {
+                    next[prev[v]] = next[v];
+                } else {
+                    head[state][n] = next[v];
+                }
+                if (next[v] != NIL) {
+                    prev[next[v]] = prev[v];
+                }
+                count[state][n]--;
+            }
+        }
+
+        /**
+         * Put a detached VM on a node.
+         */
+        void attach(int v, int n, byte state) {
+            int first = head[state][n];
+            next[v] = first;
+            prev[v] = NIL;
+            if (first != NIL) {
+                prev[first] = v;
+            }
+            head[state][n] = v;
+            count[state][n]++;
+            place[v] = n;
+            vmState[v] = state;
+        }
+    }
+
+    /**
+     * The online or the offline nodes.
+     */
+    private final class NodeSet extends AbstractSet<Node> {
+
+        private final boolean on;
+
+        NodeSet(boolean on) {
+            this.on = on;
+        }
+
+        private BitSet bits() {
+            return on ? st.online : st.offline;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Node && bits().get(((Node) o).id());
+        }
+
+        @Override
+        public Iterator<Node> iterator() {
+            BitSet bs = bits();
+            Node[] ns = st.nodes;
+            return new BitIterator<>(bs, i -> ns[i]);
+        }
+
+        @Override
+        public int size() {
+            return bits().cardinality();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return bits().isEmpty();
+        }
+    }
+
+    /**
+     * The ready VMs.
+     */
+    private final class ReadyVMs extends AbstractSet<VM> {
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof VM && isReady((VM) o);
+        }
+
+        @Override
+        public Iterator<VM> iterator() {
+            State s = st;
+            return new BitIterator<>(s.ready, i -> s.vms[i]);
+        }
+
+        @Override
+        public int size() {
+            return st.ready.cardinality();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return st.ready.isEmpty();
+        }
+    }
+
+    /**
+     * The running or the sleeping VMs on a node.
+     */
+    private final class HostedVMs extends AbstractSet<VM> {
+
+        private final int node;
+
+        private final byte state;
+
+        HostedVMs(int n, byte state) {
+            node = n;
+            this.state = state;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof VM)) {
+                return false;
+            }
+            int v = ((VM) o).id();
+            return vmState(v) == state && st.place[v] == node;
+        }
+
+        @Override
+        public Iterator<VM> iterator() {
+            State s = st;
+            int first = node < s.head[state].length ? s.head[state][node] : NIL;
+            return new Iterator<VM>() {
+                private int cur = first;
+
+                @Override
+                public boolean hasNext() {
+                    return cur != NIL;
+                }
+
+                @Override
+                public VM next() {
+                    if (cur == NIL) {
+                        throw new NoSuchElementException();
+                    }
+                    VM v = s.vms[cur];
+                    cur = s.next[cur];
+                    return v;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            int[] c = st.count[state];
+            return node < c.length ? c[node] : 0;
+        }
+    }
+
+    /**
+     * Browse the elements of a bitset.
+     */
+    private static final class BitIterator<E> implements Iterator<E> {
+
+        private final BitSet bs;
+
+        private final IntFunction<E> make;
+
+        private int cur;
+
+        BitIterator(BitSet bs, IntFunction<E> make) {
+            this.bs = bs;
+            this.make = make;
+            cur = bs.nextSetBit(0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return cur >= 0;
+        }
+
+        @Override
+        public E next() {
+            if (cur < 0) {
+                throw new NoSuchElementException();
+            }
+            E e = make.apply(cur);
+            cur = bs.nextSetBit(cur + 1);
+            return e;
+        }
+    }
+}
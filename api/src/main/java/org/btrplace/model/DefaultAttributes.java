@@ -10,13 +10,31 @@ import java.util.*;
 
 /**
  * Default implementation for {@link Attributes}.
+ * <p>
+ * The copies are made on write: a copy shares the attributes with the original until one of them is modified.
+ * The attributes of an element are then copied on their first modification.
  *
  * @author Fabien Hermenier
  */
-public class DefaultAttributes implements Attributes {
+public class DefaultAttributes implements Attributes, Versioned {
 
-    private final Map<VM, Map<String, Object>> vmAttrs;
-    private final Map<Node, Map<String, Object>> nodeAttrs;
+    private Map<VM, Map<String, Object>> vmAttrs;
+    private Map<Node, Map<String, Object>> nodeAttrs;
+
+    /**
+     * {@code false} iff the element maps may be shared with another instance.
+     */
+    private boolean owner;
+
+    /**
+     * The attribute maps that are not shared with another instance.
+     */
+    private final Set<Map<String, Object>> owned;
+
+    /**
+     * The number of modifications.
+     */
+    private long version;
 
     /**
      * Make a new empty list of attributes.
@@ -24,22 +42,55 @@ public class DefaultAttributes implements Attributes {
     public DefaultAttributes() {
         vmAttrs = new HashMap<>();
         nodeAttrs = new HashMap<>();
+        owner = true;
+        owned = Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    /**
+     * Prepare the element maps for a modification.
+     */
+    private void write() {
+        version++;
+        if (!owner) {
+            vmAttrs = new HashMap<>(vmAttrs);
+            nodeAttrs = new HashMap<>(nodeAttrs);
+            owner = true;
+        }
+    }
+
+    /**
+     * Get the attributes of an element to modify them.
+     *
+     * @param attrs  the element map
+     * @param e      the element
+     * @param create {@code true} to create the attributes if missing
+     * @return the modifiable attributes. {@code null} if missing and not created
+     */
+    private <E extends Element> Map<String, Object> write(Map<E, Map<String, Object>> attrs, E e, boolean create) {
+        Map<String, Object> m = attrs.get(e);
+        if (m == null) {
+            if (!create) {
+                return null;
+            }
+            m = new HashMap<>();
+        } else if (owned.contains(m)) {
+            return m;
+        } else {
+            m = new HashMap<>(m);
+        }
+        owned.add(m);
+        attrs.put(e, m);
+        return m;
     }
 
     private boolean putObject(Element e, String k, Object v) {
         Map<String, Object> m;
         if (e instanceof VM) {
-            m = vmAttrs.get(e);
-            if (m == null) {
-                m = new HashMap<>();
-                vmAttrs.put((VM) e, m);
-            }
+            write();
+            m = write(vmAttrs, (VM) e, true);
         } else if (e instanceof Node) {
-            m = nodeAttrs.get(e);
-            if (m == null) {
-                m = new HashMap<>();
-                nodeAttrs.put((Node) e, m);
-            }
+            write();
+            m = write(nodeAttrs, (Node) e, true);
         } else {
             return false;
         }
@@ -116,37 +167,40 @@ public class DefaultAttributes implements Attributes {
 
     @Override
     public boolean unset(Element e, String k) {
+        if (!isSet(e, k)) {
+            return false;
+        }
+        write();
         Map<String, Object> m;
         if (e instanceof Node) {
-            m = nodeAttrs.get(e);
-            if (m != null && m.remove(k) != null) {
-                if (m.isEmpty()) {
-                    nodeAttrs.remove(e);
-                }
-                return true;
+            m = write(nodeAttrs, (Node) e, false);
+            m.remove(k);
+            if (m.isEmpty()) {
+                owned.remove(nodeAttrs.remove(e));
             }
-        } else if (e instanceof VM) {
-            m = vmAttrs.get(e);
-            if (m != null && m.remove(k) != null) {
-                if (m.isEmpty()) {
-                    vmAttrs.remove(e);
-                }
-                return true;
+        } else {
+            m = write(vmAttrs, (VM) e, false);
+            m.remove(k);
+            if (m.isEmpty()) {
+                owned.remove(vmAttrs.remove(e));
             }
         }
-        return false;
+        return true;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
     }
 
     @Override
     public Attributes copy() {
         DefaultAttributes cpy = new DefaultAttributes();
-        for (Map.Entry<VM, Map<String, Object>> e : vmAttrs.entrySet()) {
-            cpy.vmAttrs.put(e.getKey(), new HashMap<>(e.getValue()));
-        }
-
-        for (Map.Entry<Node, Map<String, Object>> e : nodeAttrs.entrySet()) {
-            cpy.nodeAttrs.put(e.getKey(), new HashMap<>(e.getValue()));
-        }
+        cpy.vmAttrs = vmAttrs;
+        cpy.nodeAttrs = nodeAttrs;
+        cpy.owner = false;
+        owner = false;
+        owned.clear();
         return cpy;
     }
 
@@ -207,8 +261,11 @@ public class DefaultAttributes implements Attributes {
 
     @Override
     public void clear() {
-        this.vmAttrs.clear();
-        this.nodeAttrs.clear();
+        version++;
+        vmAttrs = new HashMap<>();
+        nodeAttrs = new HashMap<>();
+        owner = true;
+        owned.clear();
     }
 
     @Override
@@ -241,7 +298,7 @@ public class DefaultAttributes implements Attributes {
         } else {
             return Collections.emptySet();
         }
-        return m == null ? Collections.emptySet() : m.keySet();
+        return m == null ? Collections.emptySet() : Collections.unmodifiableSet(m.keySet());
     }
 
     @Override
@@ -270,10 +327,12 @@ public class DefaultAttributes implements Attributes {
 
     @Override
     public void clear(Element e) {
-        if (e instanceof VM) {
-            this.vmAttrs.remove(e);
-        } else if (e instanceof Node) {
-            this.nodeAttrs.remove(e);
+        if (e instanceof VM && vmAttrs.containsKey(e)) {
+            write();
+            owned.remove(vmAttrs.remove(e));
+        } else if (e instanceof Node && nodeAttrs.containsKey(e)) {
+            write();
+            owned.remove(nodeAttrs.remove(e));
         }
     }
 }
@@ -10,6 +10,7 @@ import gnu.trove.set.hash.THashSet;
 import org.btrplace.util.IntMap;
 import org.btrplace.util.IntObjectMap;
 
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Set;
@@ -21,10 +22,15 @@ import java.util.Set;
  * {@link #getRunningVMs(Collection)}, {@link #getSleepingVMs(Collection)} have a O(n) complexity.
  * <p>
  * Methods {@code is*()} have a O(1) complexity.
+ * <p>
+ * A copy shares the structures of the original mapping. Each mapping duplicates them on its first modification,
+ * and duplicates the VMs hosted by a node only when they are modified. A copy then costs nothing until it is
+ * modified. As copying marks the original mapping as shared, a mapping must not be copied while another thread
+ * is modifying it. The returned sets are backed by the mapping and must not be modified.
  *
  * @author Fabien Hermenier
  */
-public class DefaultMapping extends AbstractMapping {
+public class DefaultMapping extends AbstractMapping implements Versioned {
 
     private static final int RUNNING_STATE = 0;
 
@@ -39,27 +45,43 @@ public class DefaultMapping extends AbstractMapping {
     /**
      * The node by states (online, offline)
      */
-    private final Set<Node>[] nodeState;
+    private Set<Node>[] nodeState;
 
     /**
      * The state of each VM.
      */
-    private final IntMap st;
+    private IntMap st;
 
     /**
      * The current location of the VMs.
      */
-    private final IntObjectMap<Node> place;
+    private IntObjectMap<Node> place;
 
     /**
      * The VMs that are in the ready state.
      */
-    private final Set<VM> vmReady;
+    private Set<VM> vmReady;
 
     /**
      * The VMs hosted by each node, by state (running or sleeping)
      */
-    private final IntObjectMap<Set<VM>>[] host;
+    private IntObjectMap<Set<VM>>[] host;
+
+    /**
+     * {@code false} iff the structures may be shared with another mapping.
+     */
+    private boolean owner;
+
+    /**
+     * For each state, the nodes having their own set of hosted VMs.
+     * {@code null} when every set is owned.
+     */
+    private BitSet[] ownedHosts;
+
+    /**
+     * The number of modifications.
+     */
+    private long version;
 
     /**
      * Create a new mapping.
@@ -79,6 +101,7 @@ public class DefaultMapping extends AbstractMapping {
         host[RUNNING_STATE] = new IntObjectMap<>();
         host[SLEEPING_STATE] = new IntObjectMap<>();
         st = new IntMap(-1);
+        owner = true;
     }
 
     /**
@@ -87,29 +110,59 @@ public class DefaultMapping extends AbstractMapping {
      * @param m the mapping to copy
      */
     public DefaultMapping(DefaultMapping m) {
+        // The structures are duplicated on the first modification of either mapping.
+        m.owner = false;
+        owner = false;
+        st = m.st;
+        place = m.place;
+        nodeState = m.nodeState.clone();
+        vmReady = m.vmReady;
+        host = m.host.clone();
+    }
 
-        // Safe copies are values are immutable.
-        st = m.st.copy();
-        place = m.place.copy();
-
-        // Copy set contents.
-        nodeState = new Set[2];
-        nodeState[ONLINE_STATE] = new THashSet<>(m.nodeState[ONLINE_STATE]);
-        nodeState[OFFLINE_STATE] = new THashSet<>(m.nodeState[OFFLINE_STATE]);
-
-        vmReady = new THashSet<>(m.vmReady);
+    /**
+     * Duplicate the structures shared with another mapping, before a modification.
+     * The sets of hosted VMs are duplicated later, when they are modified.
+     */
+    @SuppressWarnings("unchecked")
+    private void write() {
+        version++;
+        if (owner) {
+            return;
+        }
+        st = st.copy();
+        place = place.copy();
+        nodeState[ONLINE_STATE] = new THashSet<>(nodeState[ONLINE_STATE]);
+        nodeState[OFFLINE_STATE] = new THashSet<>(nodeState[OFFLINE_STATE]);
+        vmReady = new THashSet<>(vmReady);
+        host[RUNNING_STATE] = host[RUNNING_STATE].copy();
+        host[SLEEPING_STATE] = host[SLEEPING_STATE].copy();
+        ownedHosts = new BitSet[]{new BitSet(), new BitSet()};
+        owner = true;
+    }
 
-        host = new IntObjectMap[2];
-        host[RUNNING_STATE] = new IntObjectMap<>();
-        m.host[RUNNING_STATE].forEach((int id, Set<VM> vms) -> {
-            host[RUNNING_STATE].put(id, new THashSet<>(vms));
-            return true;
-        });
-        host[SLEEPING_STATE] = new IntObjectMap<>();
-        m.host[SLEEPING_STATE].forEach((int id, Set<VM> vms) -> {
-            host[SLEEPING_STATE].put(id, new THashSet<>(vms));
-            return true;
-        });
+    /**
+     * Get the VMs hosted by a node in a given state, to modify them.
+     * The set is created if needed. {@link #write()} must have been called.
+     *
+     * @param state the VM state
+     * @param nId   the node identifier
+     * @return a set owned by this mapping
+     */
+    private Set<VM> hosted(int state, int nId) {
+        Set<VM> on = host[state].get(nId);
+        if (on == null) {
+            on = new THashSet<>();
+        } else if (ownedHosts == null || ownedHosts[state].get(nId)) {
+            return on;
+        } else {
+            on = new THashSet<>(on);
+        }
+        host[state].put(nId, on);
+        if (ownedHosts != null) {
+            ownedHosts[state].set(nId);
+        }
+        return on;
     }
 
     @Override
@@ -142,26 +195,23 @@ public class DefaultMapping extends AbstractMapping {
         if (!nodeState[ONLINE_STATE].contains(n)) {
             return false;
         }
+        write();
         Node old;
 
         int vmId = vm.id();
         int nId = n.id();
-        Set<VM> on = host[RUNNING_STATE].get(nId);
-        if (on == null) {
-            on = new THashSet<>();
-            host[RUNNING_STATE].put(nId, on);
-        }
+        Set<VM> on = hosted(RUNNING_STATE, nId);
         switch (st.get(vmId)) {
             case RUNNING_STATE:
                 old = place.put(vmId, n);
                 if (!old.equals(n)) {
-                    host[RUNNING_STATE].get(old.id()).remove(vm);
+                    hosted(RUNNING_STATE, old.id()).remove(vm);
                     on.add(vm);
                 }
                 break;
             case SLEEPING_STATE:
                 old = place.put(vmId, n);
-                host[SLEEPING_STATE].get(old.id()).remove(vm);
+                hosted(SLEEPING_STATE, old.id()).remove(vm);
                 on.add(vm);
                 st.put(vmId, RUNNING_STATE);
                 break;
@@ -185,19 +235,16 @@ public class DefaultMapping extends AbstractMapping {
         if (!nodeState[ONLINE_STATE].contains(n)) {
             return false;
         }
+        write();
         int nId = n.id();
         int vmId = vm.id();
-        Set<VM> on = host[SLEEPING_STATE].get(nId);
-        if (on == null) {
-            on = new THashSet<>();
-            host[SLEEPING_STATE].put(nId, on);
-        }
+        Set<VM> on = hosted(SLEEPING_STATE, nId);
         Node old;
         switch (st.get(vmId)) {
             case RUNNING_STATE:
                 //If was running, sync the state
                 old = place.put(vmId, n);
-                host[RUNNING_STATE].get(old.id()).remove(vm);
+                hosted(RUNNING_STATE, old.id()).remove(vm);
                 on.add(vm);
                 st.put(vmId, SLEEPING_STATE);
                 break;
@@ -205,7 +252,7 @@ public class DefaultMapping extends AbstractMapping {
                 //If was sleeping, sync the state
                 old = place.put(vmId, n);
                 if (!old.equals(n)) {
-                    host[SLEEPING_STATE].get(old.id()).remove(vm);
+                    hosted(SLEEPING_STATE, old.id()).remove(vm);
                     on.add(vm);
                 }
                 break;
@@ -218,7 +265,7 @@ public class DefaultMapping extends AbstractMapping {
             default:
                 //it's a new VM
                 place.put(vmId, n);
-                host[SLEEPING_STATE].get(nId).add(vm);
+                on.add(vm);
                 st.put(vmId, SLEEPING_STATE);
                 break;
         }
@@ -228,15 +275,15 @@ public class DefaultMapping extends AbstractMapping {
 
     @Override
     public boolean addReadyVM(VM vm) {
-
+        write();
         Node n = place.clear(vm.id());
         int state = st.get(vm.id());
         if (state == RUNNING_STATE) {
             //If was running, sync the state
-            host[RUNNING_STATE].get(n.id()).remove(vm);
+            hosted(RUNNING_STATE, n.id()).remove(vm);
         } else if (state == SLEEPING_STATE) {
             //If was sleeping, sync the state
-            host[SLEEPING_STATE].get(n.id()).remove(vm);
+            hosted(SLEEPING_STATE, n.id()).remove(vm);
         }
         st.put(vm.id(), READY_STATE);
         vmReady.add(vm);
@@ -246,18 +293,19 @@ public class DefaultMapping extends AbstractMapping {
     @Override
     public boolean remove(VM vm) {
         if (place.has(vm.id())) {
+            write();
             Node n = this.place.clear(vm.id());
             //The VM exists and is already placed
             if (st.get(vm.id()) == RUNNING_STATE) {
-                host[RUNNING_STATE].get(n.id()).remove(vm);
+                hosted(RUNNING_STATE, n.id()).remove(vm);
             } else if (st.get(vm.id()) == SLEEPING_STATE) {
-                host[SLEEPING_STATE].get(n.id()).remove(vm);
+                hosted(SLEEPING_STATE, n.id()).remove(vm);
             }
             //st.remove(vm.id());
             st.clear(vm.id());
             return true;
         } else if (st.get(vm.id()) == READY_STATE) {
-
+            write();
             vmReady.remove(vm);
             //st.remove(vm.id());
             st.clear(vm.id());
@@ -269,6 +317,7 @@ public class DefaultMapping extends AbstractMapping {
     @Override
     public boolean remove(Node n) {
         if (nodeState[ONLINE_STATE].contains(n)) {
+            write();
             int nId = n.id();
             Set<VM> on = host[RUNNING_STATE].get(nId);
             if (on != null) {
@@ -287,12 +336,16 @@ public class DefaultMapping extends AbstractMapping {
             }
             return nodeState[ONLINE_STATE].remove(n);
         }
-
+        if (!nodeState[OFFLINE_STATE].contains(n)) {
+            return false;
+        }
+        write();
         return nodeState[OFFLINE_STATE].remove(n);
     }
 
     @Override
     public boolean addOnlineNode(Node n) {
+        write();
         nodeState[OFFLINE_STATE].remove(n);
         nodeState[ONLINE_STATE].add(n);
         return true;
@@ -310,8 +363,9 @@ public class DefaultMapping extends AbstractMapping {
             if (on != null && !on.isEmpty()) {
                 return false;
             }
-            nodeState[ONLINE_STATE].remove(n);
         }
+        write();
+        nodeState[ONLINE_STATE].remove(n);
         nodeState[OFFLINE_STATE].add(n);
         return true;
     }
@@ -408,6 +462,11 @@ public class DefaultMapping extends AbstractMapping {
         return vms;
     }
 
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
     @Override
     public Mapping copy() {
         return new DefaultMapping(this);
@@ -425,6 +484,7 @@ public class DefaultMapping extends AbstractMapping {
 
     @Override
     public void clear() {
+        write();
         for (Set<Node> s : nodeState) {
             s.clear();
         }
@@ -437,11 +497,12 @@ public class DefaultMapping extends AbstractMapping {
 
     @Override
     public void clearNode(Node u) {
+        write();
         //Get the VMs on the node
         for (int i = 0; i < host.length; i++) {
-            IntObjectMap<Set<VM>> h = host[i];
-            Set<VM> s = h.get(u.id());
+            Set<VM> s = host[i].get(u.id());
             if (s != null) {
+                s = hosted(i, u.id());
                 for (VM vm : s) {
                     place.clear(vm.id());
                     //st.remove(vm.id());
@@ -454,6 +515,7 @@ public class DefaultMapping extends AbstractMapping {
 
     @Override
     public void clearAllVMs() {
+        write();
         place.clear();
         st.clear();
         vmReady.clear();
@@ -38,9 +38,19 @@ public class DefaultModel implements Model {
      * @param eb the builder to use
      */
     public DefaultModel(ElementBuilder eb) {
+        this(eb, new DefaultMapping());
+    }
+
+    /**
+     * Make a new instance relying on a given element builder and a given mapping.
+     *
+     * @param eb  the builder to use
+     * @param map the mapping to use. {@link Model#copy()} relies on {@link Mapping#copy()}
+     */
+    public DefaultModel(ElementBuilder eb, Mapping map) {
         this.resources = new HashMap<>();
         attrs = new DefaultAttributes();
-        cfg = new DefaultMapping();
+        cfg = map;
         elemBuilder = eb;
     }
 
@@ -117,8 +127,7 @@ public class DefaultModel implements Model {
 
     @Override
     public Model copy() {
-        DefaultModel m = new DefaultModel(elemBuilder.copy());
-        m.cfg = cfg.copy();
+        DefaultModel m = new DefaultModel(elemBuilder.copy(), cfg.copy());
         for (ModelView rc : resources.values()) {
             m.attach(rc.copy());
         }
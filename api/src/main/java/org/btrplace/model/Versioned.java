@@ -0,0 +1,24 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.model;
+
+/**
+ * Specify an element that counts its modifications.
+ *
+ * @author Fabien Hermenier
+ */
+@FunctionalInterface
+public interface Versioned {
+
+    /**
+     * Get the version of the element.
+     * The version changes each time the element is modified.
+     *
+     * @return the version
+     */
+    long getVersion();
+}
@@ -13,6 +13,11 @@ import org.btrplace.model.VM;
 import org.btrplace.plan.event.RunningVMPlacement;
 
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Checker for the {@link Among} constraint
@@ -25,7 +30,12 @@ public class AmongChecker extends AllowAllConstraintChecker<Among> {
     /**
      * Current group (for the continuous restriction). {@code null} if no group has been selected.
      */
-    private Collection<Node> selectedGroup = null;
+    private Set<Node> selectedGroup = null;
+
+    /**
+     * The group of each node.
+     */
+    private final Map<Node, Set<Node>> groups;
 
     /**
      * Make a new checker.
@@ -34,6 +44,28 @@ public class AmongChecker extends AllowAllConstraintChecker<Among> {
      */
     public AmongChecker(Among a) {
         super(a);
+        groups = new HashMap<>();
+        for (Collection<Node> g : a.getGroupsOfNodes()) {
+            Set<Node> grp = new HashSet<>(g);
+            for (Node n : g) {
+                groups.putIfAbsent(n, grp);
+            }
+        }
+    }
+
+    /**
+     * Get the group of a node.
+     *
+     * @param n the node
+     * @return the group. Empty if the node does not belong to any group
+     */
+    private Set<Node> group(Node n) {
+        return groups.getOrDefault(n, Collections.emptySet());
+    }
+
+    @Override
+    public boolean isLocal() {
+        return true;
     }
 
     @Override
@@ -42,7 +74,7 @@ public class AmongChecker extends AllowAllConstraintChecker<Among> {
             Mapping map = mo.getMapping();
             for (VM vm : getVMs()) {
                 if (map.isRunning(vm)) {
-                    Collection<Node> nodes = getConstraint().getAssociatedPGroup(map.getVMLocation(vm));
+                    Set<Node> nodes = group(map.getVMLocation(vm));
                     if (nodes.isEmpty()) {
                         return false;
                     } else if (selectedGroup == null) {
@@ -60,7 +92,7 @@ public class AmongChecker extends AllowAllConstraintChecker<Among> {
     public boolean startRunningVMPlacement(RunningVMPlacement a) {
         if (getConstraint().isContinuous() && getVMs().contains(a.getVM())) {
             if (selectedGroup == null) {
-                selectedGroup = getConstraint().getAssociatedPGroup(a.getDestinationNode());
+                selectedGroup = group(a.getDestinationNode());
                 //disallowed group
                 return !selectedGroup.isEmpty();
             } else {
@@ -74,10 +106,10 @@ public class AmongChecker extends AllowAllConstraintChecker<Among> {
     @Override
     public boolean endsWith(Model i) {
         Mapping map = i.getMapping();
-        Collection<Node> grp = null;
+        Set<Node> grp = null;
         for (VM vm : getVMs()) {
             if (map.isRunning(vm)) {
-                Collection<Node> nodes = getConstraint().getAssociatedPGroup(map.getVMLocation(vm));
+                Set<Node> nodes = group(map.getVMLocation(vm));
                 if (nodes.isEmpty()) {
                     return false;
                 } else if (grp == null) {
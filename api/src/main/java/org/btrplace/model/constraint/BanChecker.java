@@ -28,6 +28,11 @@ public class BanChecker extends AllowAllConstraintChecker<Ban> {
         super(b);
     }
 
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
     @Override
     public boolean startRunningVMPlacement(RunningVMPlacement r) {
         if (getVMs().contains(r.getVM())) {
@@ -31,6 +31,11 @@ public abstract class DenyMyVMsActions<C extends SatConstraint> extends AllowAll
         super(s);
     }
 
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
     @Override
     public boolean start(ShutdownVM a) {
         return !getVMs().contains(a.getVM());
@@ -28,6 +28,11 @@ public class FenceChecker extends AllowAllConstraintChecker<Fence> {
         super(f);
     }
 
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
     @Override
     public boolean startRunningVMPlacement(RunningVMPlacement r) {
         if (getVMs().contains(r.getVM())) {
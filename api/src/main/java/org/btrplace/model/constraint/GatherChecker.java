@@ -32,6 +32,11 @@ public class GatherChecker extends AllowAllConstraintChecker<Gather> {
         usedInContinuous = null;
     }
 
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
     @Override
     public boolean startsWith(Model mo) {
         if (getConstraint().isContinuous()) {
@@ -30,6 +30,11 @@ public class MaxOnlineChecker extends AllowAllConstraintChecker<MaxOnline> {
         super(cstr);
     }
 
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
     @Override
     public boolean startsWith(Model mo) {
         if (getConstraint().isContinuous()) {
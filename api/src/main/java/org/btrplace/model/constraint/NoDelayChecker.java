@@ -31,6 +31,11 @@ public class NoDelayChecker extends AllowAllConstraintChecker<NoDelay> {
         super(nd);
     }
 
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
     @Override
     public boolean start(MigrateVM a) {
         if (getVMs().contains(a.getVM())) {
@@ -28,6 +28,11 @@ public class OfflineChecker extends AllowAllConstraintChecker<Offline> {
         super(o);
     }
 
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
     @Override
     public boolean start(BootNode a) {
         return !getNodes().contains(a.getNode());
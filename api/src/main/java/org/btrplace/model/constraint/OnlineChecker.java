@@ -28,6 +28,11 @@ public class OnlineChecker extends AllowAllConstraintChecker<Online> {
         super(o);
     }
 
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
     @Override
     public boolean start(ShutdownNode a) {
         return !getNodes().contains(a.getNode());
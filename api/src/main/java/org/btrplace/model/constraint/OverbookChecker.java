@@ -35,6 +35,11 @@ public class OverbookChecker extends AllowAllConstraintChecker<Overbook> {
         ratio = o.getRatio();
     }
 
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
     @Override
     public boolean endsWith(Model i) {
         Mapping cfg = i.getMapping();
@@ -36,6 +36,11 @@ public class PreserveChecker extends AllowAllConstraintChecker<Preserve> {
         amount = p.getAmount();
     }
 
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
     @Override
     public boolean consume(AllocateEvent a) {
         if (getVMs().contains(a.getVM()) && a.getResourceId().equals(id)) {
@@ -28,6 +28,11 @@ public class QuarantineChecker extends AllowAllConstraintChecker<Quarantine> {
         super(q);
     }
 
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
     @Override
     public boolean start(MigrateVM a) {
         if (getVMs().contains(a.getVM())) {
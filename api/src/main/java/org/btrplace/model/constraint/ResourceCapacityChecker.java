@@ -40,6 +40,11 @@ public class ResourceCapacityChecker extends AllowAllConstraintChecker<ResourceC
         super(s);
     }
 
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
     private boolean leave(int amount, Node n) {
         if (getConstraint().isContinuous() && getNodes().contains(n)) {
             free += amount;
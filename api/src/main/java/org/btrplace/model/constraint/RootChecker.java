@@ -25,6 +25,11 @@ public class RootChecker extends AllowAllConstraintChecker<Root> {
         super(r);
     }
 
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
     @Override
     public boolean start(MigrateVM a) {
         return !getVMs().contains(a.getVM());
@@ -44,6 +44,11 @@ public class RunningCapacityChecker extends AllowAllConstraintChecker<RunningCap
         qty = c.getAmount();
     }
 
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
     private boolean leave(Node n) {
         if (getConstraint().isContinuous() && getNodes().contains(n)) {
             usage--;
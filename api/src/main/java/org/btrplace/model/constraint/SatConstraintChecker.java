@@ -221,6 +221,17 @@ public interface SatConstraintChecker<C extends SatConstraint> {
      */
     boolean endsWith(Model mo);
 
+    /**
+     * Indicate if the checker only cares about the actions that involve the VMs or the nodes of its constraint.
+     * In that case, the checker is only notified about these actions. The events are still notified to
+     * every checker.
+     *
+     * @return {@code true} iff the other actions are always valid and never alter the state of the checker
+     */
+    default boolean isLocal() {
+        return false;
+    }
+
     /**
      * Get the constraint associated to the checker.
      *
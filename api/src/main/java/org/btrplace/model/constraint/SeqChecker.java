@@ -48,6 +48,11 @@ public class SeqChecker extends AllowAllConstraintChecker<Seq> {
         pending = null;
     }
 
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
     @Override
     public boolean startsWith(Model mo) {
         running = new HashSet<>();
@@ -49,6 +49,11 @@ public class SplitChecker extends AllowAllConstraintChecker<Split> {
         }
     }
 
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
     @Override
     public boolean endsWith(Model mo) {
         //Catch the booked nodes for each set
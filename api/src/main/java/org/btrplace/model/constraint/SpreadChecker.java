@@ -39,6 +39,11 @@ public class SpreadChecker extends AllowAllConstraintChecker<Spread> {
         denied = new HashSet<>();
     }
 
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+
 
     @Override
     public boolean startsWith(Model mo) {
@@ -0,0 +1,235 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.model.view;
+
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A columnar snapshot of several {@link ShareableResource}s.
+ * <p>
+ * Each resource is a dimension. The consumptions of all the dimensions are stored in a single primitive
+ * array, one row of VMs per dimension. The capacities are stored the same way, one row of nodes per dimension.
+ * The consumption of the {@code i}-th VM in the dimension {@code d} is then at {@code d * getNbVMs() + i}.
+ * The rows are read in bulk from the resources, so a computation that browses every dimension reads
+ * contiguous arrays instead of doing one lookup per element and per resource.
+ * <p>
+ * The snapshot is not updated when the resources are modified, and its modifications are not reported
+ * to the resources. The resources remain available through {@link #getResource(int)}.
+ *
+ * @author Fabien Hermenier
+ */
+public class ResourceMatrix {
+
+    private final ShareableResource[] rcs;
+
+    private final TObjectIntHashMap<String> index;
+
+    private final int nbVMs;
+
+    private final int nbNodes;
+
+    /**
+     * The consumptions. [nbDims * nbVMs]
+     */
+    private final int[] consumptions;
+
+    /**
+     * The capacities. [nbDims * nbNodes]
+     */
+    private final int[] capacities;
+
+    /**
+     * Make a new matrix.
+     *
+     * @param rcs   the resources, one per dimension
+     * @param vms   the VMs to consider
+     * @param nodes the nodes to consider
+     */
+    public ResourceMatrix(List<ShareableResource> rcs, List<VM> vms, List<Node> nodes) {
+        this.rcs = rcs.toArray(new ShareableResource[0]);
+        nbVMs = vms.size();
+        nbNodes = nodes.size();
+        index = new TObjectIntHashMap<>(this.rcs.length * 2, 0.5f, -1);
+        consumptions = new int[this.rcs.length * nbVMs];
+        capacities = new int[this.rcs.length * nbNodes];
+        for (int d = 0; d < this.rcs.length; d++) {
+            ShareableResource rc = this.rcs[d];
+            if (index.put(rc.getResourceIdentifier(), d) != -1) {
+                throw new IllegalArgumentException("Resource '" + rc.getResourceIdentifier() + "' is declared multiple times");
+            }
+            rc.getConsumptions(vms, consumptions, d * nbVMs);
+            rc.getCapacities(nodes, capacities, d * nbNodes);
+        }
+    }
+
+    /**
+     * Make the matrix of all the resources attached to a model.
+     * The dimensions are ordered by resource identifier.
+     *
+     * @param mo    the model
+     * @param vms   the VMs to consider
+     * @param nodes the nodes to consider
+     * @return the resulting matrix. May have no dimensions
+     */
+    public static ResourceMatrix of(Model mo, List<VM> vms, List<Node> nodes) {
+        List<ShareableResource> rcs = new ArrayList<>();
+        for (ModelView v : mo.getViews()) {
+            if (v instanceof ShareableResource) {
+                rcs.add((ShareableResource) v);
+            }
+        }
+        rcs.sort(Comparator.comparing(ShareableResource::getResourceIdentifier));
+        return new ResourceMatrix(rcs, vms, nodes);
+    }
+
+    /**
+     * Get the number of dimensions.
+     *
+     * @return a positive number
+     */
+    public int getNbDimensions() {
+        return rcs.length;
+    }
+
+    /**
+     * Get the number of VMs in each dimension.
+     *
+     * @return a positive number
+     */
+    public int getNbVMs() {
+        return nbVMs;
+    }
+
+    /**
+     * Get the number of nodes in each dimension.
+     *
+     * @return a positive number
+     */
+    public int getNbNodes() {
+        return nbNodes;
+    }
+
+    /**
+     * Get the dimension associated to a resource.
+     *
+     * @param rcId the resource identifier
+     * @return the dimension. {@code -1} if the resource is not in the matrix
+     */
+    public int indexOf(String rcId) {
+        return index.get(rcId);
+    }
+
+    /**
+     * Get the resource behind a dimension.
+     *
+     * @param d the dimension
+     * @return the resource
+     */
+    public ShareableResource getResource(int d) {
+        return rcs[d];
+    }
+
+    /**
+     * Get the consumption of a VM in a dimension.
+     *
+     * @param d the dimension
+     * @param i the VM position
+     * @return the consumption
+     */
+    public int getConsumption(int d, int i) {
+        return consumptions[d * nbVMs + i];
+    }
+
+    /**
+     * Set the consumption of a VM in a dimension.
+     *
+     * @param d the dimension
+     * @param i the VM position
+     * @param v the consumption
+     */
+    public void setConsumption(int d, int i, int v) {
+        consumptions[d * nbVMs + i] = v;
+    }
+
+    /**
+     * Get the capacity of a node in a dimension.
+     *
+     * @param d the dimension
+     * @param i the node position
+     * @return the capacity
+     */
+    public int getCapacity(int d, int i) {
+        return capacities[d * nbNodes + i];
+    }
+
+    /**
+     * Set the capacity of a node in a dimension.
+     *
+     * @param d the dimension
+     * @param i the node position
+     * @param v the capacity
+     */
+    public void setCapacity(int d, int i, int v) {
+        capacities[d * nbNodes + i] = v;
+    }
+
+    /**
+     * Get all the VM consumptions of a dimension.
+     *
+     * @param d the dimension
+     * @return a new array, in the order of the VMs given at instantiation
+     */
+    public int[] getConsumptions(int d) {
+        return Arrays.copyOfRange(consumptions, d * nbVMs, (d + 1) * nbVMs);
+    }
+
+    /**
+     * Get all the node capacities of a dimension.
+     *
+     * @param d the dimension
+     * @return a new array, in the order of the nodes given at instantiation
+     */
+    public int[] getCapacities(int d) {
+        return Arrays.copyOfRange(capacities, d * nbNodes, (d + 1) * nbNodes);
+    }
+
+    /**
+     * Get the cumulative consumption of all the VMs in a dimension.
+     *
+     * @param d the dimension
+     * @return the sum
+     */
+    public long sumConsumptions(int d) {
+        long s = 0;
+        for (int i = d * nbVMs; i < (d + 1) * nbVMs; i++) {
+            s += consumptions[i];
+        }
+        return s;
+    }
+
+    /**
+     * Get the cumulative capacity of all the nodes in a dimension.
+     *
+     * @param d the dimension
+     * @return the sum
+     */
+    public long sumCapacities(int d) {
+        long s = 0;
+        for (int i = d * nbNodes; i < (d + 1) * nbNodes; i++) {
+            s += capacities[i];
+        }
+        return s;
+    }
+}
@@ -9,6 +9,7 @@ package org.btrplace.model.view;
 import org.btrplace.model.Model;
 import org.btrplace.model.Node;
 import org.btrplace.model.VM;
+import org.btrplace.model.Versioned;
 import org.btrplace.model.constraint.SideConstraint;
 import org.btrplace.util.IntMap;
 
@@ -37,7 +38,7 @@ import java.util.stream.Stream;
  * @author Fabien Hermenier
  */
 @SideConstraint(args = {"id : string"}, inv = "!(n : nodes) sum([cons(v, id). v : running(n)]) <= capa(n, id)")
-public class ShareableResource implements ModelView {
+public class ShareableResource implements ModelView, Versioned {
 
   /**
    * The base of the view identifier. Once instantiated, it is completed
@@ -52,6 +53,11 @@ public class ShareableResource implements ModelView {
 
   private final String rcId;
 
+  /**
+   * The number of modifications.
+   */
+  private long version;
+
   public static final int DEFAULT_NO_VALUE = 0;
 
   /**
@@ -169,6 +175,7 @@ public class ShareableResource implements ModelView {
       throw new IllegalArgumentException(String.format("The '%s' consumption of VM '%s' must be >= 0", rcId, vm));
     }
     vmsConsumption.put(vm.id(), val);
+    version++;
     return this;
   }
 
@@ -196,6 +203,7 @@ public class ShareableResource implements ModelView {
       throw new IllegalArgumentException(String.format("The '%s' capacity of node '%s' must be >= 0", rcId, n));
     }
     nodesCapacity.put(n.id(), val);
+    version++;
     return this;
   }
 
@@ -218,6 +226,7 @@ public class ShareableResource implements ModelView {
    */
   public void unset(VM vm) {
     vmsConsumption.clear(vm.id());
+    version++;
   }
 
   /**
@@ -227,6 +236,7 @@ public class ShareableResource implements ModelView {
    */
   public void unset(Node n) {
     nodesCapacity.clear(n.id());
+    version++;
   }
 
   /**
@@ -360,6 +370,11 @@ public class ShareableResource implements ModelView {
     return Objects.hash(rcId, vmsConsumption, nodesCapacity);
   }
 
+  @Override
+  public long getVersion() {
+    return version;
+  }
+
   @Override
   public ShareableResource copy() {
     ShareableResource rc = new ShareableResource(rcId, nodesCapacity.noEntryValue(), vmsConsumption.noEntryValue());
@@ -423,6 +438,80 @@ public class ShareableResource implements ModelView {
     return s;
   }
 
+  /**
+   * Get the consumption of several VMs at once.
+   *
+   * @param vms the VMs
+   * @return the consumptions, in the order of the VMs. The default value is used for the undefined consumptions
+   */
+  public int[] getConsumptions(List<VM> vms) {
+    return getConsumptions(vms, new int[vms.size()]);
+  }
+
+  /**
+   * Get the consumption of several VMs at once.
+   *
+   * @param vms the VMs
+   * @param to  the array to fill. Must be at least as long as the VMs list
+   * @return {@code to}, filled in the order of the VMs
+   */
+  public int[] getConsumptions(List<VM> vms, int[] to) {
+    return getConsumptions(vms, to, 0);
+  }
+
+  /**
+   * Get the consumption of several VMs at once.
+   *
+   * @param vms  the VMs
+   * @param to   the array to fill
+   * @param from the position of the first VM in {@code to}
+   * @return {@code to}, filled in the order of the VMs
+   */
+  public int[] getConsumptions(List<VM> vms, int[] to, int from) {
+    int i = from;
+    for (VM v : vms) {
+      to[i++] = vmsConsumption.get(v.id());
+    }
+    return to;
+  }
+
+  /**
+   * Get the capacity of several nodes at once.
+   *
+   * @param nodes the nodes
+   * @return the capacities, in the order of the nodes. The default value is used for the undefined capacities
+   */
+  public int[] getCapacities(List<Node> nodes) {
+    return getCapacities(nodes, new int[nodes.size()]);
+  }
+
+  /**
+   * Get the capacity of several nodes at once.
+   *
+   * @param nodes the nodes
+   * @param to    the array to fill. Must be at least as long as the nodes list
+   * @return {@code to}, filled in the order of the nodes
+   */
+  public int[] getCapacities(List<Node> nodes, int[] to) {
+    return getCapacities(nodes, to, 0);
+  }
+
+  /**
+   * Get the capacity of several nodes at once.
+   *
+   * @param nodes the nodes
+   * @param to    the array to fill
+   * @param from  the position of the first node in {@code to}
+   * @return {@code to}, filled in the order of the nodes
+   */
+  public int[] getCapacities(List<Node> nodes, int[] to, int from) {
+    int i = from;
+    for (Node n : nodes) {
+      to[i++] = nodesCapacity.get(n.id());
+    }
+    return to;
+  }
+
   /**
    * Get the view associated to a model if exists.
    *
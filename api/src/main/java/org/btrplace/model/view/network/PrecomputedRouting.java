@@ -0,0 +1,328 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.model.view.network;
+
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.btrplace.model.Node;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.stream.IntStream;
+
+/**
+ * A {@link Routing} that precomputes the routes between all the top-of-rack switches.
+ * <p>
+ * A top-of-rack switch is a switch connected to at least one node. The routes are computed
+ * in parallel, using a breadth-first search per top-of-rack switch, and are then shortest paths.
+ * A route is stored as an array of link indexes with the direction of each link, along with its
+ * bottleneck bandwidth. A path between two nodes is the route between their top-of-rack switches
+ * surrounded by the two node links. The memory usage then depends on the number of racks, not on the
+ * number of nodes, and {@link #getMaxBW(Node, Node)} is computed in constant time.
+ * <p>
+ * The link directions follow the convention of {@link DefaultRouting}. The tables are computed
+ * on the first request and computed again if links are added to the network. Once computed, they
+ * are immutable and published without locking, so concurrent lookups never wait on each other.
+ * A path is a read-only view over the route.
+ * If instantiated manually, it should be first attached to an existing network view,
+ * see {@link #setNetwork(Network)}.
+ *
+ * @author Vincent Kherbache
+ * @see #setNetwork(Network)
+ */
+public class PrecomputedRouting extends Routing {
+
+    private volatile Tables tables;
+
+    @Override
+    public void setNetwork(Network net) {
+        tables = null;
+        super.setNetwork(net);
+    }
+
+    private Tables tables() {
+        Tables t = tables;
+        if (t == null || t.nbLinks != net.getLinks().size()) {
+            //Concurrent callers may compute the same tables, any of them is fine
+            t = new Tables(net);
+            tables = t;
+        }
+        return t;
+    }
+
+    @Override
+    public List<Link> getPath(Node n1, Node n2) {
+        if (net == null || n1.equals(n2)) {
+            return Collections.emptyList();
+        }
+        Tables t = tables();
+        int[] route = t.route(n1, n2);
+        if (route == null) {
+            return Collections.emptyList();
+        }
+        return new Path(t, route, t.nodeLink.get(n1.id()), t.nodeLink.get(n2.id()));
+    }
+
+    @Override
+    public int getMaxBW(Node n1, Node n2) {
+        if (net == null || n1.equals(n2)) {
+            return Integer.MAX_VALUE;
+        }
+        Tables t = tables();
+        int[] route = t.route(n1, n2);
+        if (route == null) {
+            return Integer.MAX_VALUE;
+        }
+        int max = t.bottleneck[t.nodeRack.get(n1.id())][t.nodeRack.get(n2.id())];
+        max = Math.min(max, bandwidth(t.links[t.nodeLink.get(n1.id())]));
+        return Math.min(max, bandwidth(t.links[t.nodeLink.get(n2.id())]));
+    }
+
+    @Override
+    public LinkDirection getLinkDirection(Node n1, Node n2, Link l) {
+        if (net == null || n1.equals(n2)) {
+            return LinkDirection.NONE;
+        }
+        Tables t = tables();
+        int[] route = t.route(n1, n2);
+        if (route == null) {
+            return LinkDirection.NONE;
+        }
+        int idx = t.linkIndex.get(l);
+        if (idx == t.nodeLink.get(n1.id())) {
+            // From the node to its switch
+            return LinkDirection.DOWNLINK;
+        }
+        if (idx == t.nodeLink.get(n2.id())) {
+            return LinkDirection.UPLINK;
+        }
+        for (int e : route) {
+            if (e >>> 1 == idx) {
+                return (e & 1) == 1 ? LinkDirection.DOWNLINK : LinkDirection.UPLINK;
+            }
+        }
+        return LinkDirection.NONE;
+    }
+
+    /**
+     * The bandwidth allowed by a link, according to {@link Routing#getMaxBW(Node, Node)}.
+     */
+    private static int bandwidth(Link l) {
+        int max = l.getCapacity();
+        Switch sw = l.getSwitch();
+        if (sw.getCapacity() >= 0 && sw.getCapacity() < max) {
+            max = sw.getCapacity();
+        }
+        return max;
+    }
+
+    @Override
+    public Routing copy() {
+        PrecomputedRouting clone = new PrecomputedRouting();
+        clone.net = net; // Do not associate view->routing, only routing->view
+        clone.tables = tables; // Immutable, so shareable
+        return clone;
+    }
+
+    /**
+     * A read-only path: the link of the source node, the route, then the link of the destination node.
+     */
+    private static final class Path extends AbstractList<Link> implements RandomAccess {
+
+        private final Link[] links;
+
+        private final int[] route;
+
+        private final int from;
+
+        private final int to;
+
+        Path(Tables t, int[] route, int from, int to) {
+            links = t.links;
+            this.route = route;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Link get(int i) {
+            if (i == 0) {
+                return links[from];
+            }
+            if (i == route.length + 1) {
+                return links[to];
+            }
+            if (i < 0 || i > route.length) {
+                throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size());
+            }
+            return links[route[i - 1] >>> 1];
+        }
+
+        @Override
+        public int size() {
+            return route.length + 2;
+        }
+    }
+
+    /**
+     * The routing tables. Immutable once computed.
+     */
+    private static final class Tables {
+
+        private static final int[] EMPTY = new int[0];
+
+        private final int nbLinks;
+
+        private final Link[] links;
+
+        private final TObjectIntHashMap<Link> linkIndex;
+
+        /**
+         * Node identifier to the index of its link.
+         */
+        private final TIntIntHashMap nodeLink;
+
+        /**
+         * Node identifier to the index of its rack.
+         */
+        private final TIntIntHashMap nodeRack;
+
+        /**
+         * For each pair of racks, the links in between. Each entry is a link index shifted by one,
+         * with the lowest bit set for a downlink. {@code null} when there is no route.
+         * The node links are not part of the routes.
+         */
+        private final int[][][] routes;
+
+        /**
+         * For each pair of racks, the bottleneck bandwidth.
+         */
+        private final int[][] bottleneck;
+
+        Tables(Network net) {
+            List<Link> all = net.getLinks();
+            nbLinks = all.size();
+            links = all.toArray(new Link[0]);
+            linkIndex = new TObjectIntHashMap<>(nbLinks * 2, 0.5f, -1);
+            nodeLink = new TIntIntHashMap(16, 0.5f, -1, -1);
+            nodeRack = new TIntIntHashMap(16, 0.5f, -1, -1);
+
+            TObjectIntHashMap<Switch> switchIndex = new TObjectIntHashMap<>(16, 0.5f, -1);
+            for (Switch sw : net.getSwitches()) {
+                switchIndex.put(sw, switchIndex.size());
+            }
+            // Switch to switch adjacency, as (link index, other switch index) pairs
+            TIntArrayList[] adj = new TIntArrayList[switchIndex.size()];
+            for (int i = 0; i < adj.length; i++) {
+                adj[i] = new TIntArrayList();
+            }
+            int[] rackOf = new int[switchIndex.size()];
+            Arrays.fill(rackOf, -1);
+            TIntArrayList racks = new TIntArrayList();
+            for (int i = 0; i < links.length; i++) {
+                Link l = links[i];
+                linkIndex.put(l, i);
+                int sw = switchIndex.get(l.getSwitch());
+                if (l.getElement() instanceof Node) {
+                    int nId = ((Node) l.getElement()).id();
+                    if (nodeLink.containsKey(nId)) {
+                        // Only one link per node
+                        continue;
+                    }
+                    if (rackOf[sw] < 0) {
+                        rackOf[sw] = racks.size();
+                        racks.add(sw);
+                    }
+                    nodeLink.put(nId, i);
+                    nodeRack.put(nId, rackOf[sw]);
+                } else if (l.getElement() instanceof Switch) {
+                    int other = switchIndex.get(l.getElement());
+                    adj[sw].add(i);
+                    adj[sw].add(other);
+                    adj[other].add(i);
+                    adj[other].add(sw);
+                }
+            }
+
+            int nbRacks = racks.size();
+            routes = new int[nbRacks][][];
+            bottleneck = new int[nbRacks][];
+            Switch[] switches = net.getSwitches().toArray(new Switch[0]);
+            IntStream.range(0, nbRacks).parallel().forEach(r -> fromRack(r, racks, switches, adj));
+        }
+
+        /**
+         * Compute the routes starting from a rack.
+         */
+        private void fromRack(int r, TIntArrayList racks, Switch[] switches, TIntArrayList[] adj) {
+            int src = racks.get(r);
+            int[] parentLink = new int[adj.length];
+            int[] parentSwitch = new int[adj.length];
+            Arrays.fill(parentLink, -1);
+            parentSwitch[src] = src;
+            int[] queue = new int[adj.length];
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = src;
+            boolean[] seen = new boolean[adj.length];
+            seen[src] = true;
+            while (head < tail) {
+                int sw = queue[head++];
+                TIntArrayList a = adj[sw];
+                for (int x = 0; x < a.size(); x += 2) {
+                    int next = a.get(x + 1);
+                    if (!seen[next]) {
+                        seen[next] = true;
+                        parentLink[next] = a.get(x);
+                        parentSwitch[next] = sw;
+                        queue[tail++] = next;
+                    }
+                }
+            }
+
+            int[][] row = new int[racks.size()][];
+            int[] bw = new int[racks.size()];
+            TIntArrayList path = new TIntArrayList();
+            for (int t = 0; t < racks.size(); t++) {
+                int dst = racks.get(t);
+                bw[t] = Integer.MAX_VALUE;
+                if (t == r) {
+                    row[t] = EMPTY;
+                    continue;
+                }
+                if (!seen[dst]) {
+                    continue;
+                }
+                path.resetQuick();
+                for (int sw = dst; sw != src; sw = parentSwitch[sw]) {
+                    Link l = links[parentLink[sw]];
+                    // Moving towards the switch that owns the link is a downlink
+                    int down = l.getSwitch().equals(switches[sw]) ? 1 : 0;
+                    path.add(parentLink[sw] << 1 | down);
+                    bw[t] = Math.min(bw[t], bandwidth(l));
+                }
+                path.reverse();
+                row[t] = path.toArray();
+            }
+            routes[r] = row;
+            bottleneck[r] = bw;
+        }
+
+        int[] route(Node n1, Node n2) {
+            int r1 = nodeRack.get(n1.id());
+            int r2 = nodeRack.get(n2.id());
+            if (r1 < 0 || r2 < 0) {
+                return null;
+            }
+            return routes[r1][r2];
+        }
+    }
+}
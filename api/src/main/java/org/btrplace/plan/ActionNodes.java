@@ -0,0 +1,108 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.plan;
+
+import org.btrplace.model.Node;
+import org.btrplace.plan.event.ActionVisitor;
+import org.btrplace.plan.event.Allocate;
+import org.btrplace.plan.event.AllocateEvent;
+import org.btrplace.plan.event.BootNode;
+import org.btrplace.plan.event.BootVM;
+import org.btrplace.plan.event.ForgeVM;
+import org.btrplace.plan.event.KillVM;
+import org.btrplace.plan.event.MigrateVM;
+import org.btrplace.plan.event.ResumeVM;
+import org.btrplace.plan.event.ShutdownNode;
+import org.btrplace.plan.event.ShutdownVM;
+import org.btrplace.plan.event.SubstitutedVMEvent;
+import org.btrplace.plan.event.SuspendVM;
+
+/**
+ * Get the distinct nodes involved in an action, as an array of nodes.
+ *
+ * @author Fabien Hermenier
+ */
+class ActionNodes implements ActionVisitor {
+
+    /**
+     * The singleton. The visitor is stateless.
+     */
+    static final ActionNodes INSTANCE = new ActionNodes();
+
+    private static final Node[] NONE = new Node[0];
+
+    private static Node[] of(Node n) {
+        return n == null ? NONE : new Node[]{n};
+    }
+
+    private static Node[] of(Node src, Node dst) {
+        if (src == null || src.equals(dst)) {
+            return of(dst);
+        }
+        return dst == null ? of(src) : new Node[]{src, dst};
+    }
+
+    @Override
+    public Node[] visit(Allocate a) {
+        return of(a.getHost());
+    }
+
+    @Override
+    public Node[] visit(AllocateEvent a) {
+        return NONE;
+    }
+
+    @Override
+    public Node[] visit(SubstitutedVMEvent a) {
+        return NONE;
+    }
+
+    @Override
+    public Node[] visit(BootNode a) {
+        return of(a.getNode());
+    }
+
+    @Override
+    public Node[] visit(BootVM a) {
+        return of(a.getDestinationNode());
+    }
+
+    @Override
+    public Node[] visit(ForgeVM a) {
+        return NONE;
+    }
+
+    @Override
+    public Node[] visit(KillVM a) {
+        return of(a.getNode());
+    }
+
+    @Override
+    public Node[] visit(MigrateVM a) {
+        return of(a.getSourceNode(), a.getDestinationNode());
+    }
+
+    @Override
+    public Node[] visit(ResumeVM a) {
+        return of(a.getSourceNode(), a.getDestinationNode());
+    }
+
+    @Override
+    public Node[] visit(ShutdownNode a) {
+        return of(a.getNode());
+    }
+
+    @Override
+    public Node[] visit(ShutdownVM a) {
+        return of(a.getNode());
+    }
+
+    @Override
+    public Node[] visit(SuspendVM a) {
+        return of(a.getSourceNode(), a.getDestinationNode());
+    }
+}
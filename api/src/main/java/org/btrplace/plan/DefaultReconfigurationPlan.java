@@ -22,6 +22,15 @@ import java.util.TreeSet;
 /**
  * Default implementation for {@link ReconfigurationPlan}.
  * By default, the instance relies on a {@link TimeBasedPlanApplier} to check for the plan applicability.
+ * <p>
+ * The resulting model is computed once and kept until the plan or its applier changes.
+ * When an action is appended after all the others and the applier is a {@link TimeBasedPlanApplier},
+ * the kept result is extended instead of being computed again. The actions must then not be modified
+ * once added to the plan.
+ * <p>
+ * The modifications of the origin model, and of the result returned by {@link #getResult()}, are detected
+ * through the version of the model parts (see {@link org.btrplace.model.Versioned}) so checking them
+ * does not depend on the model size. The parts that are not versioned are compared with a copy.
  *
  * @author Fabien Hermenier
  */
@@ -37,6 +46,34 @@ public class DefaultReconfigurationPlan implements ReconfigurationPlan {
 
     private ReconfigurationPlanApplier applier = new TimeBasedPlanApplier();
 
+    /**
+     * {@code true} iff {@link #result} is up-to-date.
+     */
+    private boolean applied = false;
+
+    /**
+     * The resulting model. {@code null} if the plan is not applyable.
+     */
+    private Model result;
+
+    /**
+     * The version of the origin model when {@link #result} was computed.
+     */
+    private ModelVersion origin;
+
+    /**
+     * The version of {@link #result} when it was returned by {@link #getResult()}.
+     * {@code null} if it was not returned.
+     */
+    private ModelVersion shared;
+
+    /**
+     * The latest moments among the applied actions, to check if an action can extend the result.
+     */
+    private int lastStart = Integer.MIN_VALUE;
+
+    private int lastEnd = Integer.MIN_VALUE;
+
   private static final Comparator<Action> sorter = (o1, o2) -> {
     int diffStart = o1.getStart() - o2.getStart();
     if (diffStart == 0) {
@@ -69,9 +106,73 @@ public class DefaultReconfigurationPlan implements ReconfigurationPlan {
             //We only track dependencies incrementally if already started
             a.visit(depsExtractor);
         }
+        if (ret && applied) {
+            extendResult(a);
+        }
         return ret;
     }
 
+    /**
+     * Extend the kept result with a new action if possible. Otherwise, the result is invalidated.
+     */
+    private void extendResult(Action a) {
+        if (!upToDate()) {
+            applied = false;
+            return;
+        }
+        if (result == null) {
+            //Still not applyable, unless the action fixes the order of the others
+            applied = false;
+            return;
+        }
+        boolean last = a.getStart() > lastStart || (a.getStart() == lastStart && a.getEnd() > lastEnd);
+        if (!last || !(applier instanceof TimeBasedPlanApplier)) {
+            applied = false;
+            return;
+        }
+        if (shared != null) {
+            //The returned result is left unchanged
+            result = result.copy();
+            shared = null;
+        }
+        if (!((TimeBasedPlanApplier) applier).extend(result, a)) {
+            result = null;
+        }
+        lastStart = a.getStart();
+        lastEnd = a.getEnd();
+    }
+
+    /**
+     * Check if the kept result is up-to-date. It is not when the plan changed, or when the origin
+     * or the returned result were modified since the computation.
+     */
+    private boolean upToDate() {
+        return applied && origin.isCurrent() && (shared == null || shared.isCurrent());
+    }
+
+    /**
+     * Compute the resulting model if needed.
+     *
+     * @return the kept result. Must not be modified
+     */
+    private Model applied() {
+        if (!upToDate()) {
+            origin = new ModelVersion(src);
+            result = applier.apply(this);
+            shared = null;
+            lastStart = Integer.MIN_VALUE;
+            lastEnd = Integer.MIN_VALUE;
+            for (Action a : actions) {
+                if (a.getStart() > lastStart || (a.getStart() == lastStart && a.getEnd() > lastEnd)) {
+                    lastStart = a.getStart();
+                    lastEnd = a.getEnd();
+                }
+            }
+            applied = true;
+        }
+        return result;
+    }
+
     @Override
     public int getSize() {
         return actions.size();
@@ -106,9 +207,18 @@ public class DefaultReconfigurationPlan implements ReconfigurationPlan {
         return sorted.iterator();
     }
 
+    /**
+     * {@inheritDoc}
+     * The result is computed once, then kept until the plan changes. The kept model is returned without being copied.
+     * It is copied when the plan is extended, and computed again if it was modified by the caller.
+     */
     @Override
     public Model getResult() {
-        return applier.apply(this);
+        Model res = applied();
+        if (res != null && shared == null) {
+            shared = new ModelVersion(res);
+        }
+        return res;
     }
 
     @Override
@@ -124,7 +234,7 @@ public class DefaultReconfigurationPlan implements ReconfigurationPlan {
 
     @Override
     public boolean isApplyable() {
-        return applier.apply(this) != null;
+        return applied() != null;
     }
 
     @Override
@@ -165,5 +275,7 @@ public class DefaultReconfigurationPlan implements ReconfigurationPlan {
     @Override
     public void setReconfigurationApplier(ReconfigurationPlanApplier ra) {
         this.applier = ra;
+        applied = false;
+        result = null;
     }
 }
@@ -10,19 +10,21 @@ import org.btrplace.model.Model;
 import org.btrplace.plan.event.Action;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * Simulated execution of a {@link ReconfigurationPlan}.
  * The execution relies on the dependencies between the actions, retrieved using
- * {@link ReconfigurationPlan#getDirectDependencies(org.btrplace.plan.event.Action)}.
+ * a {@link DependencyGraph}.
  * <p>
  * The dependencies are updated each time an action is committed, which means the action
- * have been successfully executed.
- * <p>
+ * have been successfully executed. Each action has a counter of pending dependencies that is
+ * decremented atomically, so actions can be committed concurrently. Only the update of the
+ * current model is serialised. An action of the plan is committed once: committing it again
+ * is infeasible and does not release its dependent actions again.
  *
  * @author Fabien Hermenier
  */
@@ -32,13 +34,21 @@ public class DefaultReconfigurationPlanMonitor implements ReconfigurationPlanMon
 
     private Model curModel;
 
-    private final Map<Action, Set<Dependency>> pre;
+    private DependencyGraph graph;
 
-    private final Map<Action, Dependency> dependencies;
+    /**
+     * The number of uncommitted dependencies for each action.
+     */
+    private AtomicIntegerArray pending;
+
+    /**
+     * {@code 1} for each committed action, {@code 0} otherwise.
+     */
+    private AtomicIntegerArray committed;
 
     private final Object lock;
 
-    private int nbCommitted;
+    private final AtomicInteger nbCommitted;
 
     /**
      * Make a new monitor.
@@ -47,32 +57,21 @@ public class DefaultReconfigurationPlanMonitor implements ReconfigurationPlanMon
      */
     public DefaultReconfigurationPlanMonitor(ReconfigurationPlan p) {
         this.plan = p;
-
-        pre = new HashMap<>();
-        dependencies = new HashMap<>();
         lock = new Object();
+        nbCommitted = new AtomicInteger();
         reset();
     }
 
     private void reset() {
         synchronized (lock) {
             curModel = plan.getOrigin().copy();
-            pre.clear();
-            nbCommitted = 0;
-            for (Action a : plan) {
-                Set<Action> deps = plan.getDirectDependencies(a);
-                if (deps.isEmpty()) {
-                    this.dependencies.put(a, new Dependency(a, Collections.emptySet()));
-                } else {
-                    Dependency dep = new Dependency(a, deps);
-                    this.dependencies.put(a, dep);
-                    for (Action x : dep.getDependencies()) {
-                        pre.putIfAbsent(x, new HashSet<>());
-                        Set<Dependency> pres = pre.get(x);
-                        pres.add(dep);
-                    }
-                }
+            nbCommitted.set(0);
+            graph = new DependencyGraph(plan);
+            pending = new AtomicIntegerArray(graph.size());
+            for (int i = 0; i < graph.size(); i++) {
+                pending.set(i, graph.getNbDependencies(i));
             }
+            committed = new AtomicIntegerArray(graph.size());
         }
     }
 
@@ -87,41 +86,49 @@ public class DefaultReconfigurationPlanMonitor implements ReconfigurationPlanMon
 
     @Override
     public Set<Action> commit(Action a) {
-        Set<Action> s = new HashSet<>();
+        int i = graph.indexOf(a);
+        if (i >= 0 && !committed.compareAndSet(i, 0, 1)) {
+            //Already committed, the dependencies must not be released twice
+            synchronized (lock) {
+                throw new InfeasibleActionException(curModel, a);
+            }
+        }
         synchronized (lock) {
             boolean ret = a.apply(curModel);
             if (!ret) {
+                if (i >= 0) {
+                    committed.set(i, 0);
+                }
                 throw new InfeasibleActionException(curModel, a);
             }
-            nbCommitted++;
-            //Browse all its dependencies for the action
-            Set<Dependency> deps = pre.get(a);
-            if (deps != null) {
-                for (Dependency dep : deps) {
-                    Set<Action> actions = dep.getDependencies();
-                    actions.remove(a);
-                    if (actions.isEmpty()) {
-                        Action x = dep.getAction();
-                        s.add(x);
-                    }
+        }
+        nbCommitted.incrementAndGet();
+        if (i < 0) {
+            return Collections.emptySet();
+        }
+        //Browse all the actions that depend on the committed one
+        Set<Action> s = null;
+        for (int x = graph.getSuccessorsStart(i); x < graph.getSuccessorsEnd(i); x++) {
+            int next = graph.getSuccessor(x);
+            if (pending.decrementAndGet(next) == 0) {
+                if (s == null) {
+                    s = new HashSet<>();
                 }
+                s.add(graph.getAction(next));
             }
         }
-        return s;
+        return s == null ? Collections.emptySet() : s;
     }
 
     @Override
     public int getNbCommitted() {
-        synchronized (lock) {
-            return nbCommitted;
-        }
+        return nbCommitted.get();
     }
 
     @Override
     public boolean isBlocked(Action a) {
-        synchronized (lock) {
-            return !dependencies.get(a).getDependencies().isEmpty();
-        }
+        int i = graph.indexOf(a);
+        return i >= 0 && pending.get(i) > 0;
     }
 
     @Override
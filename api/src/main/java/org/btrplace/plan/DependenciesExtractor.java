@@ -6,6 +6,8 @@
 
 package org.btrplace.plan;
 
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
 import org.btrplace.model.Model;
 import org.btrplace.model.Node;
 import org.btrplace.model.view.ShareableResource;
@@ -24,25 +26,35 @@ import org.btrplace.plan.event.ShutdownVM;
 import org.btrplace.plan.event.SubstitutedVMEvent;
 import org.btrplace.plan.event.SuspendVM;
 
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.List;
 import java.util.Set;
 
 /**
  * Detect dependencies between actions.
  * Actions are inserted using {@code #visit(...)} methods.
+ * The actions are indexed by the identifier of the node they free or demand.
+ * Inserting an action that was already inserted does nothing and the visit returns {@code false}.
  *
  * @author Fabien Hermenier
  */
 public class DependenciesExtractor implements ActionVisitor {
 
-  private final Map<Action, Node> demandingNodes;
+  /**
+   * The identifier of the node each demanding action demands.
+   */
+  private final TObjectIntHashMap<Action> demandingNodes;
 
-  private final Map<Node, Set<Action>> freeing;
+  private final TIntObjectHashMap<List<Action>> freeing;
 
-  private final Map<Node, Set<Action>> demanding;
+  private final TIntObjectHashMap<List<Action>> demanding;
+
+  /**
+   * The inserted actions.
+   */
+  private final Set<Action> inserted;
 
   private final Model origin;
 
@@ -52,20 +64,36 @@ public class DependenciesExtractor implements ActionVisitor {
      * @param o the model at the source of the reconfiguration plan
      */
     public DependenciesExtractor(Model o) {
-        demanding = new HashMap<>();
-        freeing = new HashMap<>();
-        this.demandingNodes = new HashMap<>();
+        demanding = new TIntObjectHashMap<>();
+        freeing = new TIntObjectHashMap<>();
+        this.demandingNodes = new TObjectIntHashMap<>(16, 0.5f, -1);
+        inserted = new HashSet<>();
         origin = o;
     }
 
-    private Set<Action> getFreeings(Node u) {
-        freeing.putIfAbsent(u, new HashSet<>());
-        return freeing.get(u);
+    private static List<Action> get(TIntObjectHashMap<List<Action>> m, Node u) {
+        List<Action> l = m.get(u.id());
+        if (l == null) {
+            l = new ArrayList<>();
+            m.put(u.id(), l);
+        }
+        return l;
+    }
+
+    private List<Action> getFreeings(Node u) {
+        return get(freeing, u);
+    }
+
+    private List<Action> getDemandings(Node u) {
+        return get(demanding, u);
     }
 
-    private Set<Action> getDemandings(Node u) {
-        demanding.putIfAbsent(u, new HashSet<>());
-        return demanding.get(u);
+    /**
+     * Register an action that demands a node.
+     */
+    private boolean demand(Action a, Node u) {
+        demandingNodes.put(a, u.id());
+        return getDemandings(u).add(a);
     }
 
     @Override
@@ -78,9 +106,12 @@ public class DependenciesExtractor implements ActionVisitor {
         if (rc == null) {
             return false;
         }
+        if (!inserted.add(a)) {
+            return false;
+        }
         int oldAmount = rc.getConsumption(a.getVM());
         if (newAmount > oldAmount) {
-            demandingNodes.put(a, a.getHost());
+            demandingNodes.put(a, a.getHost().id());
             return getDemandings(a.getHost()).add(a);
         }
         return getFreeings(a.getHost()).add(a);
@@ -93,14 +124,12 @@ public class DependenciesExtractor implements ActionVisitor {
 
     @Override
     public Boolean visit(BootNode a) {
-        return getFreeings(a.getNode()).add(a);
+        return inserted.add(a) && getFreeings(a.getNode()).add(a);
     }
 
     @Override
     public Boolean visit(BootVM a) {
-        boolean ret = getDemandings(a.getDestinationNode()).add(a);
-        demandingNodes.put(a, a.getDestinationNode());
-        return ret;
+        return inserted.add(a) && demand(a, a.getDestinationNode());
     }
 
     @Override
@@ -113,38 +142,32 @@ public class DependenciesExtractor implements ActionVisitor {
 
     @Override
     public Boolean visit(KillVM a) {
-        return getFreeings(a.getNode()).add(a);
+        return inserted.add(a) && getFreeings(a.getNode()).add(a);
     }
 
     @Override
     public Boolean visit(MigrateVM a) {
-        boolean ret = getFreeings(a.getSourceNode()).add(a) && getDemandings(a.getDestinationNode()).add(a);
-        demandingNodes.put(a, a.getDestinationNode());
-        return ret;
+        return inserted.add(a) && getFreeings(a.getSourceNode()).add(a) && demand(a, a.getDestinationNode());
     }
 
     @Override
     public Boolean visit(ResumeVM a) {
-        boolean ret = getDemandings(a.getDestinationNode()).add(a);
-        demandingNodes.put(a, a.getDestinationNode());
-        return ret;
+        return inserted.add(a) && demand(a, a.getDestinationNode());
     }
 
     @Override
     public Boolean visit(ShutdownNode a) {
-        boolean ret = getDemandings(a.getNode()).add(a);
-        demandingNodes.put(a, a.getNode());
-        return ret;
+        return inserted.add(a) && demand(a, a.getNode());
     }
 
     @Override
     public Boolean visit(ShutdownVM a) {
-        return getFreeings(a.getNode()).add(a);
+        return inserted.add(a) && getFreeings(a.getNode()).add(a);
     }
 
     @Override
     public Boolean visit(SuspendVM a) {
-        return getFreeings(a.getSourceNode()).add(a);
+        return inserted.add(a) && getFreeings(a.getSourceNode()).add(a);
     }
 
     @Override
@@ -159,11 +182,11 @@ public class DependenciesExtractor implements ActionVisitor {
      * @return its dependencies, may be empty
      */
     public Set<Action> getDependencies(Action a) {
-        if (!demandingNodes.containsKey(a)) {
+        int n = demandingNodes.get(a);
+        if (n < 0) {
             return Collections.emptySet();
         }
-        Node n = demandingNodes.get(a);
-        Set<Action> allActions = getFreeings(n);
+        List<Action> allActions = getFreeings(n);
         Set<Action> pre = new HashSet<>();
         for (Action action : allActions) {
             if (!action.equals(a) && a.getStart() >= action.getEnd()) {
@@ -172,4 +195,25 @@ public class DependenciesExtractor implements ActionVisitor {
         }
         return pre;
     }
+
+    /**
+     * Get the identifier of the node an action demands.
+     *
+     * @param a the action
+     * @return the node identifier. {@code -1} if the action does not demand any node
+     */
+    int getDemandedNode(Action a) {
+        return demandingNodes.get(a);
+    }
+
+    /**
+     * Get the actions that free a node.
+     *
+     * @param n the node identifier
+     * @return the actions. May be empty
+     */
+    List<Action> getFreeings(int n) {
+        List<Action> l = freeing.get(n);
+        return l == null ? Collections.emptyList() : l;
+    }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.plan;
+
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.btrplace.plan.event.Action;
+
+import java.util.List;
+
+/**
+ * The dependencies between the actions of a plan, indexed by dense action indexes.
+ * <p>
+ * The actions are numbered from {@code 0} to {@code size() - 1}, in no particular order.
+ * The actions an action unblocks are stored in a compressed sparse row layout: the successors
+ * of the action {@code i} are stored in a single array, from {@code offsets[i]} inclusive to
+ * {@code offsets[i + 1]} exclusive. The graph is immutable once built so it can be shared between threads.
+ *
+ * @author Fabien Hermenier
+ * @see DependenciesExtractor
+ */
+public class DependencyGraph {
+
+    private final Action[] actions;
+
+    private final TObjectIntHashMap<Action> index;
+
+    /**
+     * The number of actions each action depends on.
+     */
+    private final int[] nbDeps;
+
+    private final int[] offsets;
+
+    private final int[] successors;
+
+    /**
+     * Make the dependency graph of a plan.
+     *
+     * @param p the plan
+     */
+    public DependencyGraph(ReconfigurationPlan p) {
+        actions = new Action[p.getSize()];
+        index = new TObjectIntHashMap<>(actions.length * 2, 0.5f, -1);
+        DependenciesExtractor ex = new DependenciesExtractor(p.getOrigin());
+        int i = 0;
+        for (Action a : p.getActions()) {
+            index.put(a, i);
+            actions[i++] = a;
+            a.visit(ex);
+        }
+
+        // First pass to count the edges, second pass to fill the rows
+        nbDeps = new int[actions.length];
+        offsets = new int[actions.length + 1];
+        for (Action a : actions) {
+            forEachDependency(ex, a, (x, y) -> {
+                nbDeps[y]++;
+                offsets[x + 1]++;
+            });
+        }
+        for (i = 0; i < actions.length; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        successors = new int[offsets[actions.length]];
+        int[] fill = new int[actions.length];
+        for (Action a : actions) {
+            forEachDependency(ex, a, (x, y) -> successors[offsets[x] + fill[x]++] = y);
+        }
+    }
+
+    /**
+     * Browse the actions an action depends on, as a (dependency index, action index) pair.
+     */
+    private void forEachDependency(DependenciesExtractor ex, Action a, Edge e) {
+        int n = ex.getDemandedNode(a);
+        if (n < 0) {
+            return;
+        }
+        int to = index.get(a);
+        List<Action> frees = ex.getFreeings(n);
+        for (Action x : frees) {
+            if (!x.equals(a) && a.getStart() >= x.getEnd()) {
+                e.edge(index.get(x), to);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Edge {
+        void edge(int from, int to);
+    }
+
+    /**
+     * Get the number of actions.
+     *
+     * @return a positive number
+     */
+    public int size() {
+        return actions.length;
+    }
+
+    /**
+     * Get an action.
+     *
+     * @param i the action index
+     * @return the action
+     */
+    public Action getAction(int i) {
+        return actions[i];
+    }
+
+    /**
+     * Get the index of an action.
+     *
+     * @param a the action
+     * @return the index. {@code -1} if the action is not in the plan
+     */
+    public int indexOf(Action a) {
+        return index.get(a);
+    }
+
+    /**
+     * Get the number of actions an action depends on.
+     *
+     * @param i the action index
+     * @return a positive number
+     */
+    public int getNbDependencies(int i) {
+        return nbDeps[i];
+    }
+
+    /**
+     * Get the position of the first action unblocked by an action.
+     *
+     * @param i the action index
+     * @return a position in {@link #getSuccessor(int)}
+     */
+    public int getSuccessorsStart(int i) {
+        return offsets[i];
+    }
+
+    /**
+     * Get the position following the last action unblocked by an action.
+     *
+     * @param i the action index
+     * @return a position in {@link #getSuccessor(int)}
+     */
+    public int getSuccessorsEnd(int i) {
+        return offsets[i + 1];
+    }
+
+    /**
+     * Get the index of an action that is unblocked by another.
+     *
+     * @param pos the position, between {@link #getSuccessorsStart(int)} and {@link #getSuccessorsEnd(int)}
+     * @return an action index
+     */
+    public int getSuccessor(int pos) {
+        return successors[pos];
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.plan;
+
+import org.btrplace.Copyable;
+import org.btrplace.model.Model;
+import org.btrplace.model.Versioned;
+import org.btrplace.model.view.ModelView;
+
+import java.util.Collection;
+
+/**
+ * The version of a model at some point, to detect its later modifications.
+ * <p>
+ * The model parts are its mapping, its attributes and its views. The parts that are {@link Versioned}
+ * are checked through their version. The others are compared with a copy taken when the version was made.
+ *
+ * @author Fabien Hermenier
+ */
+final class ModelVersion {
+
+    private final Model mo;
+
+    private final Object[] parts;
+
+    private final long[] versions;
+
+    private final Object[] copies;
+
+    /**
+     * Make the current version of a model.
+     *
+     * @param mo the model
+     */
+    ModelVersion(Model mo) {
+        this.mo = mo;
+        Collection<ModelView> views = mo.getViews();
+        parts = new Object[views.size() + 2];
+        parts[0] = mo.getMapping();
+        parts[1] = mo.getAttributes();
+        int i = 2;
+        for (ModelView v : views) {
+            parts[i++] = v;
+        }
+        versions = new long[parts.length];
+        copies = new Object[parts.length];
+        for (i = 0; i < parts.length; i++) {
+            if (parts[i] instanceof Versioned) {
+                versions[i] = ((Versioned) parts[i]).getVersion();
+            } else {
+                copies[i] = ((Copyable<?>) parts[i]).copy();
+            }
+        }
+    }
+
+    /**
+     * Check if the model was not modified since this version was made.
+     *
+     * @return {@code true} iff the model is still at this version
+     */
+    boolean isCurrent() {
+        Collection<ModelView> views = mo.getViews();
+        if (views.size() + 2 != parts.length || mo.getMapping() != parts[0] || mo.getAttributes() != parts[1]) {
+            return false;
+        }
+        int i = 2;
+        for (ModelView v : views) {
+            if (v != parts[i++]) {
+                return false;
+            }
+        }
+        for (i = 0; i < parts.length; i++) {
+            if (parts[i] instanceof Versioned) {
+                if (((Versioned) parts[i]).getVersion() != versions[i]) {
+                    return false;
+                }
+            } else if (!parts[i].equals(copies[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
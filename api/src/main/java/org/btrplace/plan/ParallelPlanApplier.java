@@ -0,0 +1,416 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.plan;
+
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.view.network.Link;
+import org.btrplace.model.view.network.Network;
+import org.btrplace.plan.event.Action;
+import org.btrplace.plan.event.MigrateVM;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * A plan applier that executes the actions concurrently, using a pool of workers.
+ * <p>
+ * The execution relies on a {@link ReconfigurationPlanMonitor}. An action is dispatched to the pool
+ * as soon as the actions it depends on are committed. The actions are executed by an {@link Actuator}
+ * that performs the real operations. By default, the actuator does nothing, so the plan is only simulated.
+ * <p>
+ * The number of actions running simultaneously on a node, and the number of migrations running
+ * simultaneously through a network link, can be bounded. The links are retrieved from the {@link Network}
+ * view of the source model, if any. Each time an action is committed, its latency is reported
+ * to the {@link LatencyListener}s.
+ * <p>
+ * The listeners are notified from the worker threads, one at a time. The application fails and
+ * returns {@code null} if an action fails, if the actions cannot be ordered, or if the calling
+ * thread is interrupted. In that case, no more actions are dispatched but the running ones are not cancelled.
+ * The first failure is reported to the {@link FailureListener}s, with the model resulting from the committed actions.
+ *
+ * @author Fabien Hermenier
+ */
+public class ParallelPlanApplier extends DefaultPlanApplier {
+
+    /**
+     * Execute an action.
+     */
+    @FunctionalInterface
+    public interface Actuator {
+
+        /**
+         * Execute an action.
+         *
+         * @param a the action to execute
+         * @return {@code true} iff the action succeeded
+         * @throws Exception if the execution failed
+         */
+        boolean execute(Action a) throws Exception;
+    }
+
+    /**
+     * Get notified of the latency of the actions.
+     */
+    @FunctionalInterface
+    public interface LatencyListener {
+
+        /**
+         * Notify an action has been committed.
+         *
+         * @param a     the action
+         * @param nanos the time spent to execute the action, in nanoseconds
+         */
+        void committed(Action a, long nanos);
+    }
+
+    /**
+     * Get notified of the failure of an application.
+     */
+    @FunctionalInterface
+    public interface FailureListener {
+
+        /**
+         * Notify the application of a plan failed.
+         *
+         * @param a     the first action that failed. {@code null} if the failure is not due to an action
+         * @param cause the cause of the failure. {@code null} if the actuator returned {@code false}
+         *              or if the remaining actions cannot be ordered
+         * @param mo    the model resulting from the actions committed so far
+         */
+        void failed(Action a, Throwable cause, Model mo);
+    }
+
+    private final ExecutorService pool;
+
+    private Actuator actuator = a -> true;
+
+    private int nodeLimit = Integer.MAX_VALUE;
+
+    private int linkLimit = Integer.MAX_VALUE;
+
+    private final List<LatencyListener> latencyListeners = new CopyOnWriteArrayList<>();
+
+    private final List<FailureListener> failureListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Make a new applier.
+     *
+     * @param pool the workers that execute the actions
+     */
+    public ParallelPlanApplier(ExecutorService pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Set the actuator that executes the actions.
+     *
+     * @param a the actuator
+     */
+    public void setActuator(Actuator a) {
+        actuator = a;
+    }
+
+    /**
+     * Get the actuator that executes the actions.
+     *
+     * @return the actuator
+     */
+    public Actuator getActuator() {
+        return actuator;
+    }
+
+    /**
+     * Set the maximum number of actions running simultaneously on a node.
+     *
+     * @param max a number &gt;= 1
+     */
+    public void setNodeLimit(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("The limit must be strictly positive. Got " + max);
+        }
+        nodeLimit = max;
+    }
+
+    /**
+     * Get the maximum number of actions running simultaneously on a node.
+     *
+     * @return a number &gt;= 1. {@link Integer#MAX_VALUE} by default
+     */
+    public int getNodeLimit() {
+        return nodeLimit;
+    }
+
+    /**
+     * Set the maximum number of migrations running simultaneously through a link.
+     *
+     * @param max a number &gt;= 1
+     */
+    public void setLinkLimit(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("The limit must be strictly positive. Got " + max);
+        }
+        linkLimit = max;
+    }
+
+    /**
+     * Get the maximum number of migrations running simultaneously through a link.
+     *
+     * @return a number &gt;= 1. {@link Integer#MAX_VALUE} by default
+     */
+    public int getLinkLimit() {
+        return linkLimit;
+    }
+
+    /**
+     * Add a listener to get the latency of the committed actions.
+     *
+     * @param l the listener to add
+     */
+    public void addLatencyListener(LatencyListener l) {
+        latencyListeners.add(l);
+    }
+
+    /**
+     * Remove a latency listener.
+     *
+     * @param l the listener to remove
+     * @return {@code true} iff the listener has been removed
+     */
+    public boolean removeLatencyListener(LatencyListener l) {
+        return latencyListeners.remove(l);
+    }
+
+    /**
+     * Add a listener to get the failure of the applications.
+     *
+     * @param l the listener to add
+     */
+    public void addFailureListener(FailureListener l) {
+        failureListeners.add(l);
+    }
+
+    /**
+     * Remove a failure listener.
+     *
+     * @param l the listener to remove
+     * @return {@code true} iff the listener has been removed
+     */
+    public boolean removeFailureListener(FailureListener l) {
+        return failureListeners.remove(l);
+    }
+
+    @Override
+    public Model apply(ReconfigurationPlan p) {
+        return new Run(p).execute();
+    }
+
+    @Override
+    public String toString(ReconfigurationPlan p) {
+        StringBuilder b = new StringBuilder();
+        for (Action a : p) {
+            b.append(String.format("%s -> %s%n", p.getDirectDependencies(a), a));
+        }
+        return b.toString();
+    }
+
+    /**
+     * The execution of a plan.
+     * The state is guarded by the instance monitor.
+     */
+    private final class Run {
+
+        private final ReconfigurationPlan plan;
+
+        private final ReconfigurationPlanMonitor rpm;
+
+        private final Network net;
+
+        private final Deque<Action> ready = new ArrayDeque<>();
+
+        private final Map<Action, Node[]> nodes = new HashMap<>();
+
+        private final Map<Action, List<Link>> links = new HashMap<>();
+
+        private final TObjectIntHashMap<Node> nodeLoad = new TObjectIntHashMap<>();
+
+        private final TObjectIntHashMap<Link> linkLoad = new TObjectIntHashMap<>();
+
+        private int running;
+
+        private boolean failed;
+
+        private Action failedAction;
+
+        private Throwable failure;
+
+        Run(ReconfigurationPlan p) {
+            plan = p;
+            rpm = new DefaultReconfigurationPlanMonitor(p);
+            net = Network.get(p.getOrigin());
+            for (Action a : p.getActions()) {
+                if (!rpm.isBlocked(a)) {
+                    ready.add(a);
+                }
+            }
+        }
+
+        synchronized Model execute() {
+            try {
+                while (!failed && rpm.getNbCommitted() < plan.getSize()) {
+                    dispatch();
+                    if (running == 0) {
+                        //Nothing to wait for, the remaining actions are never unblocked
+                        fail(null, null);
+                        break;
+                    }
+                    wait();
+                }
+                while (running > 0) {
+                    wait();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                fail(null, ex);
+            }
+            if (!failed) {
+                return rpm.getCurrentModel();
+            }
+            for (FailureListener l : failureListeners) {
+                l.failed(failedAction, failure, rpm.getCurrentModel());
+            }
+            return null;
+        }
+
+        /**
+         * Mark the application as failed. Only the first failure is kept.
+         */
+        private void fail(Action a, Throwable cause) {
+            if (!failed) {
+                failed = true;
+                failedAction = a;
+                failure = cause;
+            }
+        }
+
+        /**
+         * Dispatch the ready actions that fit the limits.
+         */
+        private void dispatch() {
+            for (Iterator<Action> ite = ready.iterator(); ite.hasNext(); ) {
+                Action a = ite.next();
+                if (!acquire(a)) {
+                    continue;
+                }
+                ite.remove();
+                running++;
+                try {
+                    pool.execute(() -> run(a));
+                } catch (RejectedExecutionException ex) {
+                    running--;
+                    release(a);
+                    fail(null, ex);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Execute an action. Called by a worker.
+         */
+        private void run(Action a) {
+            long st = System.nanoTime();
+            boolean ok;
+            Throwable cause = null;
+            try {
+                ok = actuator.execute(a);
+            } catch (Exception ex) {
+                ok = false;
+                cause = ex;
+            }
+            long latency = System.nanoTime() - st;
+            Set<Action> released = Collections.emptySet();
+            if (ok) {
+                try {
+                    released = rpm.commit(a);
+                } catch (InfeasibleActionException ex) {
+                    ok = false;
+                    cause = ex;
+                }
+            }
+            synchronized (this) {
+                running--;
+                release(a);
+                try {
+                    if (ok) {
+                        ready.addAll(released);
+                        fireAction(a);
+                        for (LatencyListener l : latencyListeners) {
+                            l.committed(a, latency);
+                        }
+                    } else {
+                        fail(a, cause);
+                    }
+                } finally {
+                    notifyAll();
+                }
+            }
+        }
+
+        /**
+         * Reserve the nodes and the links used by an action, if possible.
+         */
+        private boolean acquire(Action a) {
+            Node[] ns = nodes.computeIfAbsent(a, x -> (Node[]) x.visit(ActionNodes.INSTANCE));
+            for (Node n : ns) {
+                if (nodeLoad.get(n) >= nodeLimit) {
+                    return false;
+                }
+            }
+            List<Link> ls = links.computeIfAbsent(a, this::path);
+            for (Link l : ls) {
+                if (linkLoad.get(l) >= linkLimit) {
+                    return false;
+                }
+            }
+            for (Node n : ns) {
+                nodeLoad.adjustOrPutValue(n, 1, 1);
+            }
+            for (Link l : ls) {
+                linkLoad.adjustOrPutValue(l, 1, 1);
+            }
+            return true;
+        }
+
+        private void release(Action a) {
+            for (Node n : nodes.remove(a)) {
+                nodeLoad.adjustValue(n, -1);
+            }
+            for (Link l : links.remove(a)) {
+                linkLoad.adjustValue(l, -1);
+            }
+        }
+
+        private List<Link> path(Action a) {
+            if (net == null || !(a instanceof MigrateVM)) {
+                return Collections.emptyList();
+            }
+            MigrateVM m = (MigrateVM) a;
+            return net.getRouting().getPath(m.getSourceNode(), m.getDestinationNode());
+        }
+    }
+}
@@ -6,7 +6,10 @@
 
 package org.btrplace.plan;
 
+import gnu.trove.list.array.TIntArrayList;
 import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
 import org.btrplace.model.constraint.SatConstraint;
 import org.btrplace.model.constraint.SatConstraintChecker;
 import org.btrplace.plan.event.Action;
@@ -24,11 +27,14 @@ import org.btrplace.plan.event.ShutdownNode;
 import org.btrplace.plan.event.ShutdownVM;
 import org.btrplace.plan.event.SubstitutedVMEvent;
 import org.btrplace.plan.event.SuspendVM;
+import org.btrplace.plan.event.VMEvent;
 import org.btrplace.scheduler.InconsistentSolutionException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
-import java.util.PriorityQueue;
+import java.util.Map;
 
 /**
  * Checker to verify if a reconfiguration plan satisfies a set of
@@ -40,6 +46,10 @@ import java.util.PriorityQueue;
  * <p>
  * Actions start and end moment are notified in the increasing order of their associated moment with
  * a priority given to the end moments.
+ * <p>
+ * The checkers that are {@link SatConstraintChecker#isLocal() local} are indexed by the VMs and the nodes
+ * of their constraint. They are only notified about the actions that involve one of these elements.
+ * The other checkers are notified about every action.
  *
  * @author Fabien Hermenier
  */
@@ -51,6 +61,30 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
   private static final TimedBasedActionComparator ENDS_CMP = new TimedBasedActionComparator(false, true);
   private final List<SatConstraintChecker<?>> checkers;
 
+    /**
+     * The checkers to notify about the current action.
+     */
+    private final List<SatConstraintChecker<?>> current = new ArrayList<>();
+
+    /**
+     * The indexes of the local checkers per VM and per node.
+     */
+    private final Map<VM, TIntArrayList> byVM = new HashMap<>();
+
+    private final Map<Node, TIntArrayList> byNode = new HashMap<>();
+
+    /**
+     * The indexes of the checkers that are not local.
+     */
+    private final TIntArrayList globals = new TIntArrayList();
+
+    /**
+     * To mark the checkers already selected for the current action.
+     */
+    private int[] marks = new int[0];
+
+    private int epoch;
+
     /**
      * Make a new instance.
      */
@@ -80,7 +114,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public SatConstraint visit(Allocate a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : current) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -109,12 +143,17 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
                 return c.getConstraint();
             }
         }
+        //The checkers of the substituted VM now care about the new one
+        TIntArrayList l = byVM.get(a.getVM());
+        if (l != null) {
+            byVM.computeIfAbsent(a.getNewVM(), k -> new TIntArrayList()).addAll(l);
+        }
         return null;
     }
 
     @Override
     public SatConstraint visit(BootNode a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : current) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -129,7 +168,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public SatConstraint visit(BootVM a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : current) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -144,7 +183,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public SatConstraint visit(ForgeVM a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : current) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -159,7 +198,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public SatConstraint visit(KillVM a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : current) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -173,7 +212,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public SatConstraint visit(MigrateVM a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : current) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -187,7 +226,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public Object visit(ResumeVM a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : current) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -201,7 +240,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public Object visit(ShutdownNode a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : current) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -215,7 +254,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public Object visit(ShutdownVM a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : current) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -229,7 +268,7 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
 
     @Override
     public Object visit(SuspendVM a) {
-        for (SatConstraintChecker<?> c : checkers) {
+        for (SatConstraintChecker<?> c : current) {
             if (startingEvent) {
                 if (!c.start(a)) {
                     return c.getConstraint();
@@ -252,44 +291,34 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
             return;
         }
 
+        index();
         checkModel(p.getOrigin(), true);
 
         if (!p.getActions().isEmpty()) {
-            PriorityQueue<Action> starts = new PriorityQueue<>(p.getActions().size(), STARTS_CMP);
-            PriorityQueue<Action> ends = new PriorityQueue<>(p.getActions().size(), ENDS_CMP);
-            starts.addAll(p.getActions());
-            ends.addAll(p.getActions());
-
-            //Starts the actions
-            int curMoment = starts.peek().getStart();
-            while (!starts.isEmpty() || !ends.isEmpty()) {
-                Action a = ends.peek();
-                while (a != null && a.getEnd() == curMoment) {
-                    ends.remove();
+            Action[] starts = p.getActions().toArray(new Action[0]);
+            Action[] ends = starts.clone();
+            Arrays.sort(starts, STARTS_CMP);
+            Arrays.sort(ends, ENDS_CMP);
+
+            //Sweep the moments, the ends first
+            int s = 0;
+            int e = 0;
+            while (s < starts.length || e < ends.length) {
+                int nextStart = s < starts.length ? starts[s].getStart() : Integer.MAX_VALUE;
+                int nextEnd = e < ends.length ? ends[e].getEnd() : Integer.MAX_VALUE;
+                int curMoment = Math.min(nextStart, nextEnd);
+                while (e < ends.length && ends[e].getEnd() == curMoment) {
+                    Action a = ends[e++];
                     startingEvent = false;
                     visitAndThrowOnViolation(a);
                     visitEvents(a, Action.Hook.POST);
-                    a = ends.peek();
                 }
-                a = starts.peek();
-
-                while (a != null && a.getStart() == curMoment) {
-                    starts.remove();
+                while (s < starts.length && starts[s].getStart() == curMoment) {
+                    Action a = starts[s++];
                     startingEvent = true;
                     visitEvents(a, Action.Hook.PRE);
                     visitAndThrowOnViolation(a);
-                    a = starts.peek();
-                }
-                int nextEnd = Integer.MAX_VALUE;
-                if (!ends.isEmpty()) {
-                    nextEnd = ends.peek().getEnd();
                 }
-                int nextStart = Integer.MAX_VALUE;
-                if (!starts.isEmpty()) {
-                    nextStart = starts.peek().getStart();
-                }
-
-                curMoment = Math.min(nextEnd, nextStart);
             }
         }
         Model mo = p.getResult();
@@ -299,7 +328,64 @@ public class ReconfigurationPlanChecker implements ActionVisitor {
         checkModel(mo, false);
     }
 
+    /**
+     * Index the local checkers by the VMs and the nodes of their constraint.
+     */
+    private void index() {
+        byVM.clear();
+        byNode.clear();
+        globals.resetQuick();
+        marks = new int[checkers.size()];
+        epoch = 0;
+        for (int i = 0; i < checkers.size(); i++) {
+            SatConstraintChecker<?> c = checkers.get(i);
+            if (!c.isLocal()) {
+                globals.add(i);
+                continue;
+            }
+            for (VM v : c.getConstraint().getInvolvedVMs()) {
+                byVM.computeIfAbsent(v, k -> new TIntArrayList()).add(i);
+            }
+            for (Node n : c.getConstraint().getInvolvedNodes()) {
+                byNode.computeIfAbsent(n, k -> new TIntArrayList()).add(i);
+            }
+        }
+    }
+
+    /**
+     * Select the checkers to notify about an action, in their insertion order.
+     */
+    private void select(Action a) {
+        epoch++;
+        TIntArrayList selected = new TIntArrayList(globals);
+        if (a instanceof VMEvent) {
+            mark(byVM.get(((VMEvent) a).getVM()), selected);
+        }
+        for (Node n : (Node[]) a.visit(ActionNodes.INSTANCE)) {
+            mark(byNode.get(n), selected);
+        }
+        selected.sort();
+        current.clear();
+        for (int i = 0; i < selected.size(); i++) {
+            current.add(checkers.get(selected.getQuick(i)));
+        }
+    }
+
+    private void mark(TIntArrayList l, TIntArrayList selected) {
+        if (l == null) {
+            return;
+        }
+        for (int i = 0; i < l.size(); i++) {
+            int idx = l.getQuick(i);
+            if (marks[idx] != epoch) {
+                marks[idx] = epoch;
+                selected.add(idx);
+            }
+        }
+    }
+
     private void visitAndThrowOnViolation(Action a) throws SatConstraintViolationException {
+        select(a);
         SatConstraint c = (SatConstraint) a.visit(this);
         if (c != null) {
             throw new ContinuousViolationException(c, a);
@@ -39,6 +39,24 @@ public class TimeBasedPlanApplier extends DefaultPlanApplier {
         return res;
     }
 
+    /**
+     * Extend the result of a plan with an additional action.
+     * The action must not precede any of the actions already applied on the model
+     * wrt. their start moment, then their end moment. The result is then the same as
+     * if the whole plan was applied by {@link #apply(ReconfigurationPlan)}.
+     *
+     * @param res the result to extend. It is modified in place
+     * @param a   the action to apply
+     * @return {@code true} iff the action has been applied
+     */
+    public boolean extend(Model res, Action a) {
+        if (!a.apply(res)) {
+            return false;
+        }
+        fireAction(a);
+        return true;
+    }
+
     @Override
     public String toString(ReconfigurationPlan p) {
         Set<Action> sorted = new TreeSet<>(new TimedBasedActionComparator(true, true));
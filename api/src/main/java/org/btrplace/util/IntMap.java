@@ -14,6 +14,8 @@ import java.util.Objects;
  * The map does not compact the key space so it is very efficient in terms of memory when there is no or a very few
  * holes. For the best performances, it is also wise to set the capacity as early as possible to bypass the incremental
  * expansion.
+ * <p>
+ * The copies are made on write: a copy shares the value backend with the original map until one of them is modified.
  */
 public class IntMap {
 
@@ -38,6 +40,11 @@ public class IntMap {
     private int lastKey;
 
     private int count;
+
+    /**
+     * {@code false} iff the value backend may be shared with another map.
+     */
+    private boolean owner;
     /**
      * New map.
      *
@@ -60,6 +67,7 @@ public class IntMap {
             Arrays.fill(values, noValue);
         }
         count = 0;
+        owner = true;
     }
 
     /**
@@ -68,10 +76,22 @@ public class IntMap {
      * @param backend the backend.
      */
     private IntMap(final IntMap backend) {
-        this.values = Arrays.copyOf(backend.values, backend.values.length);
+        this.values = backend.values;
         this.noValue = backend.noValue;
         this.lastKey = backend.lastKey;
         this.count = backend.count;
+        this.owner = false;
+    }
+
+    /**
+     * Get the value backend to modify it.
+     */
+    private int[] write() {
+        if (!owner) {
+            values = Arrays.copyOf(values, values.length);
+            owner = true;
+        }
+        return values;
     }
 
     /**
@@ -84,6 +104,7 @@ public class IntMap {
             int[] bigger = Arrays.copyOf(values, newSize);
             Arrays.fill(bigger, values.length, newSize, noValue);
             values = bigger;
+            owner = true;
         }
     }
 
@@ -146,12 +167,13 @@ public class IntMap {
             // 50% grow at minimum, up to key.
             expand(Math.max(key + 1, curCap + curCap / 2));
         }
-        int old = values[key];
-        if (values[key] == noValue) {
+        final int[] vs = write();
+        int old = vs[key];
+        if (old == noValue) {
             // put a new key.
             count++;
         }
-        values[key] = value;
+        vs[key] = value;
         lastKey = Math.max(key, lastKey);
         return old;
     }
@@ -168,16 +190,21 @@ public class IntMap {
             // Unknown key.
             return noValue;
         }
-        values[key] += value;
-        return values[key];
+        final int[] vs = write();
+        vs[key] += value;
+        return vs[key];
     }
 
     /**
      * Returns a copy of the map.
+     * The copy is made lazily, when one of the maps is modified.
+     * This map then stops owning its backend, so the call is a modification of this map:
+     * it must not happen while another thread is modifying the map.
      *
      * @return a clean copy.
      */
     public IntMap copy() {
+        owner = false;
         return new IntMap(this);
     }
 
@@ -190,10 +217,11 @@ public class IntMap {
     public int clear(final int key) {
         if (key >= 0 && key < values.length) {
             int old = values[key];
-            values[key] = noValue;
-            if (old != noValue) {
-                count--;
+            if (old == noValue) {
+                return old;
             }
+            write()[key] = noValue;
+            count--;
             return old;
         }
         return noValue;
@@ -203,7 +231,15 @@ public class IntMap {
      * Clear the map.
      */
     public void clear() {
-        Arrays.fill(values, noValue);
+        if (owner) {
+            Arrays.fill(values, noValue);
+        } else {
+            values = new int[values.length];
+            if (noValue != 0) {
+                Arrays.fill(values, noValue);
+            }
+            owner = true;
+        }
         lastKey = 0;
         count = 0;
     }
@@ -239,13 +275,28 @@ public class IntMap {
             return false;
         }
         IntMap intMap = (IntMap) o;
-        return noValue == intMap.noValue && Arrays.equals(values, intMap.values);
+        if (noValue != intMap.noValue) {
+            return false;
+        }
+        // The backends may have different sizes.
+        int last = Math.max(lastKey, intMap.lastKey);
+        for (int i = 0; i <= last; i++) {
+            if (get(i) != intMap.get(i)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
         int result = Objects.hash(noValue);
-        result = 31 * result + Arrays.hashCode(values);
+        for (int i = 0; i <= lastKey && i < values.length; i++) {
+            if (values[i] != noValue) {
+                result = 31 * result + i;
+                result = 31 * result + values[i];
+            }
+        }
         return result;
     }
 
@@ -0,0 +1,127 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.model;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+/**
+ * Unit tests for {@link ArrayMapping}.
+ * The tests of {@link DefaultMappingTest} are run against an {@link ArrayMapping}.
+ *
+ * @author Fabien Hermenier
+ */
+public class ArrayMappingTest extends DefaultMappingTest {
+
+    @Override
+    protected Mapping newMapping() {
+        return new ArrayMapping();
+    }
+
+    @Test
+    public void testCopyOnWrite() {
+        Model mo = new DefaultModel(new DefaultElementBuilder(), new ArrayMapping());
+        List<Node> nodes = Util.newNodes(mo, 3);
+        List<VM> vms = Util.newVMs(mo, 4);
+        Mapping m1 = mo.getMapping();
+        m1.addOnlineNode(nodes.get(0));
+        m1.addOnlineNode(nodes.get(1));
+        m1.addOfflineNode(nodes.get(2));
+        m1.addRunningVM(vms.get(0), nodes.get(0));
+        m1.addRunningVM(vms.get(1), nodes.get(0));
+        m1.addSleepingVM(vms.get(2), nodes.get(1));
+        m1.addReadyVM(vms.get(3));
+
+        Model cpy = mo.copy();
+        Mapping m2 = cpy.getMapping();
+        Assert.assertTrue(m2 instanceof ArrayMapping);
+        Assert.assertEquals(m2, m1);
+
+        //Each side is modified independently
+        m2.addRunningVM(vms.get(0), nodes.get(1));
+        Assert.assertEquals(m1.getVMLocation(vms.get(0)), nodes.get(0));
+        Assert.assertEquals(m2.getVMLocation(vms.get(0)), nodes.get(1));
+        Assert.assertEquals(m1.getRunningVMs(nodes.get(0)).size(), 2);
+        Assert.assertEquals(m2.getRunningVMs(nodes.get(0)).size(), 1);
+
+        m1.addOnlineNode(nodes.get(2));
+        m1.remove(vms.get(3));
+        Assert.assertTrue(m2.isOffline(nodes.get(2)));
+        Assert.assertTrue(m2.isReady(vms.get(3)));
+        Assert.assertEquals(m2.getNbVMs(), 4);
+        Assert.assertEquals(m1.getNbVMs(), 3);
+
+        //Same content than a default mapping
+        Mapping ref = new DefaultMapping();
+        ref.addOnlineNode(nodes.get(0));
+        ref.addOnlineNode(nodes.get(1));
+        ref.addOfflineNode(nodes.get(2));
+        ref.addRunningVM(vms.get(0), nodes.get(1));
+        ref.addRunningVM(vms.get(1), nodes.get(0));
+        ref.addSleepingVM(vms.get(2), nodes.get(1));
+        ref.addReadyVM(vms.get(3));
+        Assert.assertEquals(m2, ref);
+        Assert.assertEquals(ref, m2);
+        Assert.assertEquals(m2.hashCode(), ref.hashCode());
+    }
+
+    @Test
+    public void testMoves() {
+        Mapping m = newMapping();
+        List<Node> nodes = Util.newNodes(2);
+        List<VM> vms = Util.newVMs(3);
+        m.addOnlineNode(nodes.get(0));
+        m.addOnlineNode(nodes.get(1));
+        for (VM v : vms) {
+            m.addRunningVM(v, nodes.get(0));
+        }
+        //Unlink from the head, the middle and the tail of the list
+        m.addRunningVM(vms.get(1), nodes.get(1));
+        Assert.assertEquals(m.getRunningVMs(nodes.get(0)).size(), 2);
+        Assert.assertTrue(m.getRunningVMs(nodes.get(0)).contains(vms.get(0)));
+        Assert.assertTrue(m.getRunningVMs(nodes.get(0)).contains(vms.get(2)));
+        m.addSleepingVM(vms.get(2), nodes.get(0));
+        m.addReadyVM(vms.get(0));
+        Assert.assertTrue(m.getRunningVMs(nodes.get(0)).isEmpty());
+        Assert.assertEquals(m.getSleepingVMs(nodes.get(0)).size(), 1);
+        Assert.assertEquals(m.getRunningVMs(), m.getRunningVMs(nodes.get(1)));
+        Assert.assertFalse(m.remove(nodes.get(0)));
+        Assert.assertTrue(m.remove(vms.get(2)));
+        Assert.assertTrue(m.remove(nodes.get(0)));
+        Assert.assertEquals(m.getNbNodes(), 1);
+        Assert.assertEquals(m.getNbVMs(), 2);
+    }
+
+    @Test
+    public void testInternedElements() {
+        Model mo = new DefaultModel(new DefaultElementBuilder(), new ArrayMapping());
+        List<Node> nodes = Util.newNodes(mo, 2);
+        List<VM> vms = Util.newVMs(mo, 2);
+        Mapping m = mo.getMapping();
+        m.addOnlineNode(nodes.get(0));
+        m.addOfflineNode(nodes.get(1));
+        m.addRunningVM(vms.get(0), nodes.get(0));
+        m.addReadyVM(vms.get(1));
+
+        Assert.assertSame(m.getVMLocation(vms.get(0)), nodes.get(0));
+        Assert.assertSame(m.getOnlineNodes().iterator().next(), nodes.get(0));
+        Assert.assertSame(m.getOfflineNodes().iterator().next(), nodes.get(1));
+        Assert.assertSame(m.getRunningVMs(nodes.get(0)).iterator().next(), vms.get(0));
+        Assert.assertSame(m.getReadyVMs().iterator().next(), vms.get(1));
+        for (VM v : m.getAllVMs()) {
+            Assert.assertSame(v, vms.get(v.id()));
+        }
+        //Still the same elements in a copy
+        Mapping cp = m.copy();
+        cp.addOnlineNode(nodes.get(1));
+        cp.addRunningVM(vms.get(1), nodes.get(1));
+        Assert.assertSame(cp.getVMLocation(vms.get(1)), nodes.get(1));
+        Assert.assertSame(cp.getVMLocation(vms.get(0)), nodes.get(0));
+    }
+}
@@ -175,4 +175,30 @@ public class DefaultAttributesTest {
         Assert.assertEquals(attrs.getKeys(mo.newVM()).size(), 0);
         Assert.assertEquals(attrs.getKeys(mo.newNode()).size(), 0);
     }
+
+  @Test(dependsOnMethods = {"testClone"})
+  public void testCopyOnWrite() {
+    Attributes attrs = new DefaultAttributes();
+    attrs.put(vms.get(0), "foo", 1);
+    attrs.put(nodes.get(0), "bar", "x");
+    Attributes a2 = attrs.copy();
+    Attributes a3 = a2.copy();
+
+    a2.put(vms.get(0), "foo", 2);
+    a2.put(vms.get(1), "foo", 3);
+    Assert.assertEquals(attrs.get(vms.get(0), "foo", -1), 1);
+    Assert.assertEquals(a3.get(vms.get(0), "foo", -1), 1);
+    Assert.assertFalse(attrs.isSet(vms.get(1), "foo"));
+
+    attrs.clear(nodes.get(0));
+    Assert.assertEquals(a2.get(nodes.get(0), "bar", ""), "x");
+    a3.clear();
+    Assert.assertEquals(a2.get(nodes.get(0), "bar", ""), "x");
+    Assert.assertEquals(a2.get(vms.get(0), "foo", -1), 2);
+
+    // Modifications after a write remain local
+    a2.put(vms.get(0), "baz", true);
+    Assert.assertFalse(attrs.isSet(vms.get(0), "baz"));
+    Assert.assertEquals(a2.getKeys(vms.get(0)).size(), 2);
+  }
 }
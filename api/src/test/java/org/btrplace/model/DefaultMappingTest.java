@@ -24,12 +24,21 @@ public class DefaultMappingTest {
   private static final List<VM> vms = Util.newVMs(10);
   private static final List<Node> ns = Util.newNodes(10);
 
+  /**
+   * Make the mapping to test.
+   *
+   * @return an empty mapping
+   */
+  protected Mapping newMapping() {
+    return new DefaultMapping();
+  }
+
   /**
    * Create an empty mapping and check all the getters.
    */
   @Test
   public void testInstantiation() {
-    Mapping c = new DefaultMapping();
+    Mapping c = newMapping();
 
     //Global getters
     Assert.assertTrue(c.getAllNodes().isEmpty());
@@ -67,7 +76,7 @@ public class DefaultMappingTest {
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testOnlineNode() {
 
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
 
         c.addOnlineNode(ns.get(0));
         //Basic getters for online
@@ -104,7 +113,7 @@ public class DefaultMappingTest {
      */
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testOfflineNode() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         //Add an offline node
         Assert.assertTrue(c.addOfflineNode(ns.get(1)));
         Assert.assertEquals(c.getNbNodes(), 1);
@@ -127,7 +136,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testRunningVM", "testSleeping", "testOnlineNode", "testOfflineNode"})
     public void testRemoveNode() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
 
         //Remove empty online node
         c.addOnlineNode(ns.get(0));
@@ -172,7 +181,7 @@ public class DefaultMappingTest {
      */
     @Test(dependsOnMethods = {"testOfflineNode", "testOnlineNode"})
     public void testRunningVM() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addOnlineNode(ns.get(0));
         c.addOfflineNode(ns.get(1));
 
@@ -221,7 +230,7 @@ public class DefaultMappingTest {
      */
     @Test(dependsOnMethods = {"testOfflineNode", "testOnlineNode"})
     public void testSleeping() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addOnlineNode(ns.get(0));
         c.addOfflineNode(ns.get(1));
 
@@ -257,7 +266,7 @@ public class DefaultMappingTest {
      */
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testWaiting() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addReadyVM(vms.get(0));
         Assert.assertTrue(c.getAllVMs().size() == 1 && c.getAllVMs().contains(vms.get(0)));
         Assert.assertTrue(c.getReadyVMs().size() == 1 && c.isReady(vms.get(0)));
@@ -277,7 +286,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testOfflineNode", "testOnlineNode"})
     public void testSwitchNodeState() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
 
         //Set online then offline then online. Everything is ok
         c.addOnlineNode(ns.get(0));
@@ -311,7 +320,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testRunningVM"})
     public void testReplaceRunningVM() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addOnlineNode(ns.get(0));
         c.addOnlineNode(ns.get(1));
         c.addOfflineNode(ns.get(2));
@@ -357,7 +366,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testSleeping"})
     public void testReplaceSleepingVM() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
 
         c.addOnlineNode(ns.get(0));
         c.addSleepingVM(vms.get(0), ns.get(0));
@@ -411,7 +420,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testClear", "testWaiting", "testRunningVM", "testSleeping"})
     public void testReplaceWaitingVM() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addReadyVM(vms.get(0));
         c.addOnlineNode(ns.get(0));
         Assert.assertEquals(c.getNbVMs(), 1);
@@ -441,7 +450,7 @@ public class DefaultMappingTest {
 
     @Test
     public void testToString() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
 
         c.addOnlineNode(ns.get(0));
         c.addRunningVM(vms.get(0), ns.get(0));
@@ -463,7 +472,7 @@ public class DefaultMappingTest {
 
     @Test
     public void testClone() {
-        Mapping c1 = new DefaultMapping();
+        Mapping c1 = newMapping();
 
         c1.addOnlineNode(ns.get(0));
         c1.addOnlineNode(ns.get(1));
@@ -489,7 +498,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testClone"})
     public void testEquals() {
-        Mapping c1 = new DefaultMapping();
+        Mapping c1 = newMapping();
 
         c1.addOnlineNode(ns.get(0));
         c1.addOnlineNode(ns.get(1));
@@ -528,7 +537,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testOnlineNode", "testOfflineNode", "testRunningVM", "testWaiting", "testSleeping"})
     public void testClear() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addOfflineNode(ns.get(1));
         c.addOnlineNode(ns.get(0));
         c.addRunningVM(vms.get(0), ns.get(0));
@@ -552,7 +561,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation", "testOnlineNode", "testOfflineNode", "testRunningVM", "testWaiting", "testSleeping"})
     public void testClearAllVMs() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addOfflineNode(ns.get(0));
         c.addOnlineNode(ns.get(1));
         c.addRunningVM(vms.get(0), ns.get(1));
@@ -575,7 +584,7 @@ public class DefaultMappingTest {
 
     @Test(dependsOnMethods = {"testInstantiation"})
     public void testClearNode() {
-        Mapping c = new DefaultMapping();
+        Mapping c = newMapping();
         c.addOnlineNode(ns.get(0));
         c.addOnlineNode(ns.get(1));
         c.addRunningVM(vms.get(0), ns.get(0));
@@ -592,7 +601,7 @@ public class DefaultMappingTest {
 
     @Test
     public void testGetRunningVMsOnOfflineNodes() {
-        Mapping m = new DefaultMapping();
+        Mapping m = newMapping();
         m.addOnlineNode(ns.get(0));
         m.addOnlineNode(ns.get(1));
         m.addRunningVM(vms.get(0), ns.get(0));
@@ -606,4 +615,51 @@ public class DefaultMappingTest {
         nodes.add(ns.get(2));
         Assert.assertTrue(m.getRunningVMs(nodes).isEmpty());
     }
+
+    @Test
+    public void testIndependentCopies() {
+        Mapping m1 = newMapping();
+        m1.addOnlineNode(ns.get(0));
+        m1.addOnlineNode(ns.get(1));
+        m1.addOfflineNode(ns.get(2));
+        m1.addRunningVM(vms.get(0), ns.get(0));
+        m1.addRunningVM(vms.get(1), ns.get(0));
+        m1.addSleepingVM(vms.get(2), ns.get(1));
+        m1.addReadyVM(vms.get(3));
+
+        Mapping m2 = m1.copy();
+        Mapping m3 = m2.copy();
+        Assert.assertEquals(m2, m1);
+        Assert.assertEquals(m3, m1);
+
+        //Modify the copy, then the original, then the copy of the copy
+        m2.addRunningVM(vms.get(0), ns.get(1));
+        Assert.assertEquals(m1.getVMLocation(vms.get(0)), ns.get(0));
+        Assert.assertEquals(m1.getRunningVMs(ns.get(0)).size(), 2);
+        Assert.assertEquals(m2.getRunningVMs(ns.get(0)).size(), 1);
+        Assert.assertEquals(m2.getRunningVMs(ns.get(1)).size(), 1);
+
+        m1.clearNode(ns.get(0));
+        m1.addOnlineNode(ns.get(2));
+        Assert.assertTrue(m1.getRunningVMs(ns.get(0)).isEmpty());
+        Assert.assertEquals(m2.getRunningVMs(ns.get(0)).size(), 1);
+        Assert.assertTrue(m2.isOffline(ns.get(2)));
+
+        Assert.assertTrue(m3.isRunning(vms.get(0)));
+        Assert.assertEquals(m3.getRunningVMs(ns.get(0)).size(), 2);
+        Assert.assertTrue(m3.isOffline(ns.get(2)));
+        m3.addSleepingVM(vms.get(1), ns.get(1));
+        m3.remove(vms.get(3));
+        Assert.assertEquals(m3.getSleepingVMs(ns.get(1)).size(), 2);
+        Assert.assertEquals(m2.getSleepingVMs(ns.get(1)).size(), 1);
+        Assert.assertTrue(m2.isReady(vms.get(3)));
+        Assert.assertEquals(m2.getNbVMs(), 4);
+        Assert.assertEquals(m3.getNbVMs(), 3);
+
+        //A copy of a modified copy
+        Mapping m4 = m2.copy();
+        m2.clearAllVMs();
+        Assert.assertEquals(m4.getNbVMs(), 4);
+        Assert.assertEquals(m4.getVMLocation(vms.get(0)), ns.get(1));
+    }
 }
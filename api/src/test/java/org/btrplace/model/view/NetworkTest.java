@@ -11,12 +11,15 @@ import org.btrplace.model.Model;
 import org.btrplace.model.Node;
 import org.btrplace.model.view.network.Link;
 import org.btrplace.model.view.network.Network;
+import org.btrplace.model.view.network.PrecomputedRouting;
 import org.btrplace.model.view.network.StaticRouting;
 import org.btrplace.model.view.network.Switch;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -78,4 +81,48 @@ public class NetworkTest {
         Assert.assertTrue(net.getRouting().getPath(n1, n2).size() == 2);
         Assert.assertTrue(net.getRouting().getPath(n1, n2).containsAll(net.getLinks()));
     }
+
+    /**
+     * Check the precomputed routing behaves like the default routing on a tree.
+     */
+    @Test
+    public void precomputedRoutingTest() {
+        Model mo = new DefaultModel();
+        Network def = new Network();
+        Switch core = def.newSwitch(5000);
+        List<Node> nodes = new ArrayList<>();
+        for (int r = 0; r < 4; r++) {
+            Switch tor = def.newSwitch();
+            def.connect(r == 1 ? 500 : 10000, core, tor);
+            for (int x = 0; x < 3; x++) {
+                Node n = mo.newNode();
+                nodes.add(n);
+                def.connect(1000, tor, n);
+            }
+        }
+        Network pre = (Network) def.copy();
+        pre.setRouting(new PrecomputedRouting());
+
+        for (Node n1 : nodes) {
+            for (Node n2 : nodes) {
+                List<Link> path = def.getRouting().getPath(n1, n2);
+                Assert.assertEquals(pre.getRouting().getPath(n1, n2), path);
+                Assert.assertEquals(pre.getRouting().getMaxBW(n1, n2), def.getRouting().getMaxBW(n1, n2));
+                for (Link l : def.getLinks()) {
+                    Assert.assertEquals(pre.getRouting().getLinkDirection(n1, n2, l),
+                            def.getRouting().getLinkDirection(n1, n2, l));
+                }
+            }
+        }
+        //Rack 1 is behind a 500 link
+        Assert.assertEquals(pre.getRouting().getMaxBW(nodes.get(0), nodes.get(3)), 500);
+        Assert.assertEquals(pre.getRouting().getMaxBW(nodes.get(0), nodes.get(6)), 1000);
+
+        //A new rack is taken into account
+        Switch tor = pre.newSwitch();
+        pre.connect(10000, core, tor);
+        Node n = mo.newNode();
+        pre.connect(1000, tor, n);
+        Assert.assertEquals(pre.getRouting().getPath(nodes.get(0), n).size(), 4);
+    }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.model.view;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.Util;
+import org.btrplace.model.VM;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Unit tests for {@link ResourceMatrix}.
+ *
+ * @author Fabien Hermenier
+ */
+public class ResourceMatrixTest {
+
+    @Test
+    public void testOf() {
+        Model mo = new DefaultModel();
+        List<VM> vms = Util.newVMs(mo, 3);
+        List<Node> nodes = Util.newNodes(mo, 2);
+        ShareableResource mem = new ShareableResource("mem", 8, 1);
+        ShareableResource cpu = new ShareableResource("cpu", 4, 2);
+        cpu.setConsumption(vms.get(2), 3);
+        mem.setCapacity(nodes.get(0), 16);
+        mo.attach(mem);
+        mo.attach(cpu);
+
+        ResourceMatrix m = ResourceMatrix.of(mo, vms, nodes);
+        Assert.assertEquals(m.getNbDimensions(), 2);
+        Assert.assertEquals(m.indexOf("cpu"), 0);
+        Assert.assertEquals(m.indexOf("mem"), 1);
+        Assert.assertEquals(m.indexOf("disk"), -1);
+        Assert.assertSame(m.getResource(0), cpu);
+        Assert.assertEquals(m.getConsumptions(0), new int[]{2, 2, 3});
+        Assert.assertEquals(m.getConsumptions(1), new int[]{1, 1, 1});
+        Assert.assertEquals(m.getCapacities(1), new int[]{16, 8});
+        Assert.assertEquals(m.getConsumption(0, 2), 3);
+        Assert.assertEquals(m.getCapacity(1, 0), 16);
+        Assert.assertEquals(m.sumConsumptions(0), 7);
+        Assert.assertEquals(m.sumCapacities(1), 24);
+
+        Assert.assertEquals(m.getNbVMs(), 3);
+        Assert.assertEquals(m.getNbNodes(), 2);
+
+        // A snapshot
+        cpu.setConsumption(vms.get(0), 10);
+        Assert.assertEquals(m.getConsumption(0, 0), 2);
+    }
+
+    @Test
+    public void testSetters() {
+        Model mo = new DefaultModel();
+        List<VM> vms = Util.newVMs(mo, 2);
+        List<Node> nodes = Util.newNodes(mo, 2);
+        ShareableResource cpu = new ShareableResource("cpu", 4, 2);
+        ShareableResource mem = new ShareableResource("mem", 8, 1);
+        ResourceMatrix m = new ResourceMatrix(Arrays.asList(cpu, mem), vms, nodes);
+
+        m.setConsumption(0, 1, 5);
+        m.setCapacity(1, 0, 3);
+        // The rows do not overlap.
+        Assert.assertEquals(m.getConsumptions(0), new int[]{2, 5});
+        Assert.assertEquals(m.getConsumptions(1), new int[]{1, 1});
+        Assert.assertEquals(m.getCapacities(0), new int[]{4, 4});
+        Assert.assertEquals(m.getCapacities(1), new int[]{3, 8});
+        Assert.assertEquals(m.sumConsumptions(0), 7);
+        Assert.assertEquals(m.sumCapacities(1), 11);
+        // Not reported to the resources.
+        Assert.assertEquals(cpu.getConsumption(vms.get(1)), 2);
+        Assert.assertEquals(mem.getCapacity(nodes.get(0)), 8);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testDuplicatedResource() {
+        ShareableResource cpu = new ShareableResource("cpu");
+        new ResourceMatrix(Arrays.asList(cpu, cpu.copy()), Arrays.asList(), Arrays.asList());
+    }
+}
@@ -176,4 +176,16 @@ public class ShareableResourceTest {
         Assert.assertTrue(rc.substituteVM(vms.get(2), vms.get(6)));
         Assert.assertEquals(rc.getConsumption(vms.get(6)), 0);
     }
+
+  @Test
+  public void testBulkAccessors() {
+    ShareableResource rc = new ShareableResource("foo", 5, 2);
+    rc.setConsumption(vms.get(1), 7);
+    rc.setCapacity(nodes.get(2), 9);
+    Assert.assertEquals(rc.getConsumptions(vms.subList(0, 3)), new int[]{2, 7, 2});
+    Assert.assertEquals(rc.getCapacities(nodes.subList(1, 3)), new int[]{5, 9});
+    int[] to = new int[4];
+    Assert.assertSame(rc.getConsumptions(vms.subList(1, 2), to), to);
+    Assert.assertEquals(to, new int[]{7, 0, 0, 0});
+  }
 }
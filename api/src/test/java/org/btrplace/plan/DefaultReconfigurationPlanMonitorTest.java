@@ -24,6 +24,7 @@ import org.testng.annotations.Test;
 
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Unit tests for {@link DefaultReconfigurationPlanMonitor}.
@@ -106,6 +107,35 @@ public class DefaultReconfigurationPlanMonitorTest {
         exec.commit(a1);
     }
 
+    @Test(dependsOnMethods = {"testInit", "testGoodCommits"})
+    public void testDoubleCommitKeepsDependencies() {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        map.addOnlineNode(ns.get(0));
+        for (int i = 0; i < 3; i++) {
+            map.addRunningVM(vms.get(i), ns.get(0));
+        }
+        ShareableResource rc = new ShareableResource("cpu", 10, 4);
+        mo.attach(rc);
+        //Freeing actions, they can be applied again
+        Allocate d1 = new Allocate(vms.get(0), ns.get(0), "cpu", 2, 0, 1);
+        Allocate d2 = new Allocate(vms.get(1), ns.get(0), "cpu", 2, 0, 2);
+        Allocate up = new Allocate(vms.get(2), ns.get(0), "cpu", 8, 3, 4); //deps: d1, d2
+        ReconfigurationPlan plan = new DefaultReconfigurationPlan(mo);
+        plan.add(d1);
+        plan.add(d2);
+        plan.add(up);
+        ReconfigurationPlanMonitor exec = new DefaultReconfigurationPlanMonitor(plan);
+        Assert.assertTrue(exec.isBlocked(up));
+        Assert.assertTrue(exec.commit(d1).isEmpty());
+        //A second commit must not be accounted as the commit of the other dependency
+        Assert.assertThrows(InfeasibleActionException.class, () -> exec.commit(d1));
+        Assert.assertTrue(exec.isBlocked(up));
+        Assert.assertEquals(exec.getNbCommitted(), 1);
+        Assert.assertEquals(exec.commit(d2).size(), 1);
+        Assert.assertFalse(exec.isBlocked(up));
+    }
+
     @Test(dependsOnMethods = {"testInit", "testGoodCommits"})
     public void testOver() {
         ReconfigurationPlan plan = makePlan();
@@ -153,4 +183,34 @@ public class DefaultReconfigurationPlanMonitorTest {
 
         Assert.assertTrue(plan.isApplyable());
     }
+
+    @Test(dependsOnMethods = {"testInit", "testGoodCommits"})
+    public void testConcurrentCommits() throws Exception {
+        Model mo = new DefaultModel();
+        List<Node> nodes = Util.newNodes(mo, 101);
+        List<VM> vs = Util.newVMs(mo, 100);
+        Mapping map = mo.getMapping();
+        ReconfigurationPlan plan = new DefaultReconfigurationPlan(mo);
+        map.addOnlineNode(nodes.get(0));
+        for (int i = 0; i < 100; i++) {
+            map.addOnlineNode(nodes.get(i + 1));
+            map.addRunningVM(vs.get(i), nodes.get(0));
+            plan.add(new MigrateVM(vs.get(i), nodes.get(0), nodes.get(i + 1), 0, 1));
+        }
+        //Blocked by all the migrations
+        ShutdownNode last = new ShutdownNode(nodes.get(0), 1, 2);
+        plan.add(last);
+        ReconfigurationPlanMonitor exec = new DefaultReconfigurationPlanMonitor(plan);
+        Assert.assertTrue(exec.isBlocked(last));
+
+        Set<Action> released = ConcurrentHashMap.newKeySet();
+        plan.getActions().parallelStream()
+                .filter(a -> a != last)
+                .forEach(a -> released.addAll(exec.commit(a)));
+        Assert.assertEquals(released.size(), 1);
+        Assert.assertTrue(released.contains(last));
+        Assert.assertEquals(exec.getNbCommitted(), 100);
+        Assert.assertTrue(exec.commit(last).isEmpty());
+        Assert.assertEquals(exec.getCurrentModel(), plan.getResult());
+    }
 }
@@ -11,7 +11,9 @@ import org.btrplace.model.Model;
 import org.btrplace.model.Node;
 import org.btrplace.model.Util;
 import org.btrplace.model.VM;
+import org.btrplace.model.view.ShareableResource;
 import org.btrplace.plan.event.Action;
+import org.btrplace.plan.event.Allocate;
 import org.btrplace.plan.event.MigrateVM;
 import org.btrplace.plan.event.ShutdownNode;
 import org.btrplace.plan.event.SuspendVM;
@@ -167,4 +169,93 @@ Expected:
 1:2 {action=shutdown(node=node#1)}
          */
     }
+
+    @Test
+    public void testIncrementalResult() {
+        Model mo = new DefaultModel();
+        VM v = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        mo.getMapping().addOnlineNode(n1);
+        mo.getMapping().addOnlineNode(n2);
+        mo.getMapping().addRunningVM(v, n1);
+        DefaultReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        ReconfigurationPlanApplier ap = p.getReconfigurationApplier();
+
+        Assert.assertTrue(p.add(new MigrateVM(v, n1, n2, 0, 2)));
+        Model res = p.getResult();
+        //Returned without being copied
+        Assert.assertSame(p.getResult(), res);
+        Assert.assertEquals(res.getMapping().getVMLocation(v), n2);
+        //Modifying the returned result does not alter the plan
+        res.getMapping().addRunningVM(v, n1);
+        Model fixed = p.getResult();
+        Assert.assertNotSame(fixed, res);
+        Assert.assertEquals(fixed.getMapping().getVMLocation(v), n2);
+        res = fixed;
+
+        //Appended after the migration: the kept result is extended, the returned one is unchanged
+        Assert.assertTrue(p.add(new ShutdownNode(n1, 2, 3)));
+        Model res2 = p.getResult();
+        Assert.assertNotSame(res2, res);
+        Assert.assertTrue(res.getMapping().isOnline(n1));
+        Assert.assertTrue(res2.getMapping().isOffline(n1));
+        Assert.assertEquals(res2, ap.apply(p));
+
+        //Inserted before: computed again. The node hosts the VM when it is shut down
+        Assert.assertTrue(p.add(new ShutdownNode(n2, 1, 2)));
+        Assert.assertFalse(p.isApplyable());
+        Assert.assertNull(p.getResult());
+
+        p.setReconfigurationApplier(new TimeBasedPlanApplier());
+        Assert.assertNull(p.getResult());
+    }
+
+    @Test
+    public void testResultWithModifiedOrigin() {
+        Model mo = new DefaultModel();
+        VM v = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        mo.getMapping().addOnlineNode(n1);
+        mo.getMapping().addOnlineNode(n2);
+        mo.getMapping().addRunningVM(v, n1);
+        DefaultReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        Assert.assertTrue(p.add(new ShutdownNode(n2, 0, 1)));
+        Assert.assertTrue(p.isApplyable());
+
+        //The node now hosts the VM so it cannot be shut down
+        mo.getMapping().addRunningVM(v, n2);
+        Assert.assertFalse(p.isApplyable());
+        Assert.assertNull(p.getResult());
+
+        mo.getMapping().addRunningVM(v, n1);
+        Assert.assertTrue(p.isApplyable());
+        //Modified then extended
+        mo.getMapping().addRunningVM(v, n2);
+        Assert.assertTrue(p.add(new ShutdownNode(n1, 1, 2)));
+        Assert.assertFalse(p.isApplyable());
+    }
+
+    @Test
+    public void testResultWithModifiedView() {
+        Model mo = new DefaultModel();
+        VM v = mo.newVM();
+        Node n1 = mo.newNode();
+        mo.getMapping().addOnlineNode(n1);
+        mo.getMapping().addRunningVM(v, n1);
+        ShareableResource rc = new ShareableResource("cpu", 4, 2);
+        mo.attach(rc);
+        DefaultReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        Assert.assertTrue(p.add(new Allocate(v, n1, "cpu", 3, 0, 1)));
+        Model res = p.getResult();
+        Assert.assertEquals(ShareableResource.get(res, "cpu").getCapacity(n1), 4);
+        Assert.assertSame(p.getResult(), res);
+
+        rc.setCapacity(n1, 6);
+        Assert.assertEquals(ShareableResource.get(p.getResult(), "cpu").getCapacity(n1), 6);
+        //No resource to allocate anymore
+        mo.detach(rc);
+        Assert.assertFalse(p.isApplyable());
+    }
 }
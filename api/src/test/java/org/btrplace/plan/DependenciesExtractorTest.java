@@ -140,4 +140,24 @@ public class DependenciesExtractorTest {
         Assert.assertTrue(ex.getDependencies(a1).contains(a2), ex.getDependencies(a1).toString());
     }
 
+
+    @Test
+    public void testInsertTwice() {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        map.addOnlineNode(ns.get(1));
+        map.addOnlineNode(ns.get(5));
+        map.addRunningVM(vms.get(3), ns.get(5));
+        map.addRunningVM(vms.get(4), ns.get(5));
+        DependenciesExtractor ex = new DependenciesExtractor(mo);
+        Assert.assertTrue(ex.visit(m3));
+        Assert.assertTrue(ex.visit(s1));
+        Assert.assertFalse(ex.visit(m3));
+        Assert.assertFalse(ex.visit(s1));
+        //An equal action is not inserted either
+        Assert.assertFalse(ex.visit(new MigrateVM(vms.get(3), ns.get(5), ns.get(1), 0, 2)));
+        Assert.assertEquals(ex.getFreeings(ns.get(5).id()).size(), 1);
+        Assert.assertEquals(ex.getDependencies(s1).size(), 1);
+        Assert.assertTrue(ex.getDependencies(s1).contains(m3));
+    }
 }
@@ -0,0 +1,77 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.plan;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.Util;
+import org.btrplace.model.VM;
+import org.btrplace.plan.event.Action;
+import org.btrplace.plan.event.BootNode;
+import org.btrplace.plan.event.MigrateVM;
+import org.btrplace.plan.event.ShutdownNode;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Unit tests for {@link DependencyGraph}.
+ *
+ * @author Fabien Hermenier
+ */
+public class DependencyGraphTest {
+
+    @Test
+    public void testGraph() {
+        Model mo = new DefaultModel();
+        List<Node> ns = Util.newNodes(mo, 3);
+        List<VM> vms = Util.newVMs(mo, 2);
+        Mapping map = mo.getMapping();
+        map.addOnlineNode(ns.get(0));
+        map.addOnlineNode(ns.get(1));
+        map.addOfflineNode(ns.get(2));
+        map.addRunningVM(vms.get(0), ns.get(0));
+        map.addRunningVM(vms.get(1), ns.get(0));
+
+        BootNode b = new BootNode(ns.get(2), 0, 3);
+        MigrateVM m1 = new MigrateVM(vms.get(0), ns.get(0), ns.get(2), 3, 5);
+        MigrateVM m2 = new MigrateVM(vms.get(1), ns.get(0), ns.get(1), 0, 4);
+        ShutdownNode s = new ShutdownNode(ns.get(0), 5, 6);
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        p.add(b);
+        p.add(m1);
+        p.add(m2);
+        p.add(s);
+
+        DependencyGraph g = new DependencyGraph(p);
+        Assert.assertEquals(g.size(), 4);
+        Assert.assertEquals(g.indexOf(new BootNode(ns.get(1), 0, 3)), -1);
+        for (Action a : p) {
+            int i = g.indexOf(a);
+            Assert.assertEquals(g.getAction(i), a);
+            Assert.assertEquals(g.getNbDependencies(i), p.getDirectDependencies(a).size());
+            //The successors are the actions that depend on a
+            Set<Action> succs = new HashSet<>();
+            for (int x = g.getSuccessorsStart(i); x < g.getSuccessorsEnd(i); x++) {
+                succs.add(g.getAction(g.getSuccessor(x)));
+            }
+            Set<Action> expected = new HashSet<>();
+            for (Action o : p) {
+                if (p.getDirectDependencies(o).contains(a)) {
+                    expected.add(o);
+                }
+            }
+            Assert.assertEquals(succs, expected, a.toString());
+        }
+        Assert.assertEquals(g.getNbDependencies(g.indexOf(s)), 2);
+    }
+}
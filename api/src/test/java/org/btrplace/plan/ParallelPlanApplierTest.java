@@ -0,0 +1,179 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.plan;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.Util;
+import org.btrplace.model.VM;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.plan.event.Action;
+import org.btrplace.plan.event.Allocate;
+import org.btrplace.plan.event.BootNode;
+import org.btrplace.plan.event.MigrateVM;
+import org.btrplace.plan.event.ShutdownNode;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for {@link ParallelPlanApplier}.
+ *
+ * @author Fabien Hermenier
+ */
+public class ParallelPlanApplierTest {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+    @AfterClass
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    private static ReconfigurationPlan makePlan() {
+        Model mo = new DefaultModel();
+        List<VM> vms = Util.newVMs(mo, 10);
+        List<Node> ns = Util.newNodes(mo, 10);
+
+        Mapping map = mo.getMapping();
+        map.addOnlineNode(ns.get(0));
+        map.addOnlineNode(ns.get(1));
+        map.addOnlineNode(ns.get(2));
+        map.addOfflineNode(ns.get(3));
+
+        map.addRunningVM(vms.get(0), ns.get(2));
+        map.addRunningVM(vms.get(1), ns.get(0));
+        map.addRunningVM(vms.get(2), ns.get(1));
+        map.addRunningVM(vms.get(3), ns.get(1));
+        ShareableResource rc = new ShareableResource("cpu");
+        rc.setConsumption(vms.get(2), 3);
+        mo.attach(rc);
+
+        ReconfigurationPlan plan = new DefaultReconfigurationPlan(mo);
+        plan.add(new BootNode(ns.get(3), 3, 5));
+        plan.add(new MigrateVM(vms.get(0), ns.get(2), ns.get(3), 6, 7));
+        plan.add(new Allocate(vms.get(2), ns.get(1), "cpu", 7, 8, 9));
+        plan.add(new MigrateVM(vms.get(1), ns.get(0), ns.get(1), 1, 3));
+        plan.add(new MigrateVM(vms.get(3), ns.get(1), ns.get(2), 1, 7));
+        plan.add(new ShutdownNode(ns.get(0), 5, 7));
+        return plan;
+    }
+
+    @Test
+    public void testApply() {
+        ReconfigurationPlan plan = makePlan();
+        ParallelPlanApplier ap = new ParallelPlanApplier(pool);
+        Map<Action, Long> latencies = new ConcurrentHashMap<>();
+        ap.addLatencyListener(latencies::put);
+        Model res = ap.apply(plan);
+        Assert.assertNotNull(res);
+        Assert.assertEquals(res, new TimeBasedPlanApplier().apply(plan));
+        Assert.assertEquals(latencies.keySet(), plan.getActions());
+    }
+
+    @Test
+    public void testNodeLimit() {
+        ReconfigurationPlan plan = makePlan();
+        ParallelPlanApplier ap = new ParallelPlanApplier(pool);
+        ap.setNodeLimit(1);
+        Assert.assertEquals(ap.getNodeLimit(), 1);
+        Map<Node, AtomicInteger> load = new ConcurrentHashMap<>();
+        AtomicInteger max = new AtomicInteger();
+        //The migrations on node#1 must not overlap
+        ap.setActuator(a -> {
+            if (!(a instanceof MigrateVM)) {
+                return true;
+            }
+            MigrateVM m = (MigrateVM) a;
+            for (Node n : new Node[]{m.getSourceNode(), m.getDestinationNode()}) {
+                int cur = load.computeIfAbsent(n, x -> new AtomicInteger()).incrementAndGet();
+                max.accumulateAndGet(cur, Math::max);
+            }
+            Thread.sleep(20);
+            load.get(m.getSourceNode()).decrementAndGet();
+            load.get(m.getDestinationNode()).decrementAndGet();
+            return true;
+        });
+        Assert.assertNotNull(ap.apply(plan));
+        Assert.assertEquals(max.get(), 1);
+    }
+
+    @Test
+    public void testFailure() {
+        ReconfigurationPlan plan = makePlan();
+        ParallelPlanApplier ap = new ParallelPlanApplier(pool);
+        ap.setActuator(a -> !(a instanceof BootNode));
+        Assert.assertNull(ap.apply(plan));
+
+        ap.setActuator(a -> {
+            throw new Exception("failure");
+        });
+        Assert.assertNull(ap.apply(plan));
+    }
+
+    @Test
+    public void testFailureListener() {
+        ReconfigurationPlan plan = makePlan();
+        ParallelPlanApplier ap = new ParallelPlanApplier(pool);
+        List<Object[]> failures = new CopyOnWriteArrayList<>();
+        ParallelPlanApplier.FailureListener l = (a, cause, mo) -> failures.add(new Object[]{a, cause, mo});
+        ap.addFailureListener(l);
+
+        ap.setActuator(a -> !(a instanceof BootNode));
+        Assert.assertNull(ap.apply(plan));
+        Assert.assertEquals(failures.size(), 1);
+        Object[] f = failures.get(0);
+        Assert.assertTrue(f[0] instanceof BootNode);
+        Assert.assertNull(f[1]);
+        //The partial model does not contain the effect of the failed action
+        Model mo = (Model) f[2];
+        Assert.assertTrue(mo.getMapping().isOffline(((BootNode) f[0]).getNode()));
+
+        failures.clear();
+        Exception ex = new Exception("failure");
+        ap.setActuator(a -> {
+            throw ex;
+        });
+        Assert.assertNull(ap.apply(plan));
+        Assert.assertEquals(failures.size(), 1);
+        Assert.assertNotNull(failures.get(0)[0]);
+        Assert.assertSame(failures.get(0)[1], ex);
+        Assert.assertEquals(failures.get(0)[2], plan.getOrigin());
+
+        //A migration from a node that is not the VM host
+        failures.clear();
+        ap.setActuator(a -> true);
+        Model src = plan.getOrigin();
+        VM v = src.getMapping().getRunningVMs(src.getMapping().getOnlineNodes()).iterator().next();
+        Node host = src.getMapping().getVMLocation(v);
+        Node other = src.getMapping().getOnlineNodes().stream().filter(x -> !x.equals(host)).findFirst().get();
+        ReconfigurationPlan bad = new DefaultReconfigurationPlan(src);
+        Action m = new MigrateVM(v, other, host, 0, 1);
+        bad.add(m);
+        Assert.assertNull(ap.apply(bad));
+        Assert.assertEquals(failures.size(), 1);
+        Assert.assertSame(failures.get(0)[0], m);
+        Assert.assertTrue(failures.get(0)[1] instanceof InfeasibleActionException);
+
+        Assert.assertTrue(ap.removeFailureListener(l));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testBadLimit() {
+        new ParallelPlanApplier(pool).setLinkLimit(0);
+    }
+}
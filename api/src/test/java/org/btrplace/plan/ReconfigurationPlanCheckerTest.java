@@ -12,6 +12,8 @@ import org.btrplace.model.Model;
 import org.btrplace.model.Node;
 import org.btrplace.model.Util;
 import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Ban;
+import org.btrplace.model.constraint.BanChecker;
 import org.btrplace.model.constraint.SatConstraintChecker;
 import org.btrplace.plan.event.BootNode;
 import org.btrplace.plan.event.BootVM;
@@ -20,10 +22,14 @@ import org.mockito.InOrder;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.Collections;
 import java.util.List;
 
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
 
 /**
  * Unit tests for {@link ReconfigurationPlanChecker}.
@@ -101,4 +107,48 @@ public class ReconfigurationPlanCheckerTest {
         order.verify(chk).endsWith(mo);
 
     }
+
+    @Test(dependsOnMethods = {"testSequencing"})
+    public void testLocalCheckers() throws SatConstraintViolationException {
+        Model mo = new DefaultModel();
+        List<Node> ns = Util.newNodes(mo, 3);
+        List<VM> vms = Util.newVMs(mo, 2);
+        Mapping m = mo.getMapping();
+        m.addOnlineNode(ns.get(0));
+        m.addOnlineNode(ns.get(1));
+        m.addOnlineNode(ns.get(2));
+        m.addReadyVM(vms.get(1));
+        m.addRunningVM(vms.get(0), ns.get(0));
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        MigrateVM m1 = new MigrateVM(vms.get(0), ns.get(0), ns.get(1), 0, 3);
+        BootVM b1 = new BootVM(vms.get(1), ns.get(0), 1, 5);
+        p.add(m1);
+        p.add(b1);
+
+        //Only notified about the actions on vm#1 or node#2
+        BanChecker chk = spy(new BanChecker(new Ban(vms.get(1), Collections.singleton(ns.get(2)), true)));
+        Assert.assertTrue(chk.isLocal());
+        SatConstraintChecker<?> global = mock(SatConstraintChecker.class);
+        ReconfigurationPlanChecker rc = new ReconfigurationPlanChecker();
+        rc.addChecker(chk);
+        rc.addChecker(global);
+        rc.check(p);
+        verify(chk, never()).start(m1);
+        verify(chk, never()).end(m1);
+        verify(chk).start(b1);
+        verify(chk).end(b1);
+        verify(global).start(m1);
+        verify(global).start(b1);
+
+        //The violation is still detected
+        ReconfigurationPlan p2 = new DefaultReconfigurationPlan(mo);
+        p2.add(m1);
+        p2.add(new BootVM(vms.get(1), ns.get(2), 1, 5));
+        try {
+            rc.check(p2);
+            Assert.fail("The boot on node#2 must be detected");
+        } catch (ContinuousViolationException ex) {
+            Assert.assertEquals(ex.getConstraint(), chk.getConstraint());
+        }
+    }
 }
@@ -120,6 +120,34 @@ public class IntMapTest {
         Assert.assertNotEquals(m, cp);
     }
 
+    @Test
+    public void testCopyOnWrite() {
+        final IntMap m = new IntMap(-1);
+        m.put(1, 10);
+        m.put(3, 30);
+        IntMap cp = m.copy();
+        IntMap cp2 = cp.copy();
+
+        cp.put(1, 11);
+        cp.adjust(3, 1);
+        Assert.assertEquals(m.get(1), 10);
+        Assert.assertEquals(m.get(3), 30);
+        Assert.assertEquals(cp2.get(1), 10);
+        Assert.assertEquals(cp.get(1), 11);
+        Assert.assertEquals(cp.get(3), 31);
+
+        m.clear(1);
+        Assert.assertEquals(cp2.get(1), 10);
+        cp2.clear();
+        Assert.assertEquals(m.get(3), 30);
+        Assert.assertEquals(cp2.size(), 0);
+
+        // Growing the original
+        m.put(100, 1);
+        Assert.assertFalse(cp.has(100));
+        Assert.assertEquals(cp.size(), 2);
+    }
+
     @Test
     public void testSize() {
         final IntMap m = new IntMap(-1);
@@ -165,4 +193,21 @@ public class IntMapTest {
         Assert.assertEquals(m.adjust(6, 3), -1);
         Assert.assertEquals(m.adjust(5, 3), 10);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testEqualsWithDifferentBackends() {
+        final IntMap small = new IntMap(-1, 2);
+        final IntMap big = new IntMap(-1, 100);
+        Assert.assertEquals(small, big);
+        small.put(1, 5);
+        small.put(30, 7);
+        big.put(30, 7);
+        Assert.assertNotEquals(small, big);
+        big.put(1, 5);
+        Assert.assertEquals(small, big);
+        Assert.assertEquals(small.hashCode(), big.hashCode());
+        small.clear(30);
+        Assert.assertNotEquals(small, big);
+        Assert.assertNotEquals(small, new IntMap(0, 2));
+    }
+}
@@ -25,6 +25,7 @@ import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.StandardOpenOption.APPEND;
@@ -73,10 +74,12 @@ public class Bench {
 
         Parameters ps = opts.parameters();
 
-        Iterator<LabelledInstance> ite = opts.instances().iterator();
-        while (ite.hasNext()) {
-            LabelledInstance i = ite.next();
-            solve(i, ps);
+        try (Stream<LabelledInstance> instances = opts.instances()) {
+            Iterator<LabelledInstance> ite = instances.iterator();
+            while (ite.hasNext()) {
+                LabelledInstance i = ite.next();
+                solve(i, ps);
+            }
         }
     }
 
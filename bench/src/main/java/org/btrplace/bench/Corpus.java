@@ -0,0 +1,312 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.bench;
+
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.binary.InstanceBinaryConverter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * A read-only, memory-mapped corpus of instances written by a {@link CorpusWriter}.
+ * <p>
+ * When the corpus is opened, only the record headers are read to index the instances by
+ * position and by label. An instance is decoded only when it is accessed.
+ * When a label appears several times, the last record wins.
+ *
+ * @author Fabien Hermenier
+ */
+public class Corpus implements Closeable {
+
+    static final byte[] MAGIC = {'B', 'T', 'R', 'C'};
+
+    static final int VERSION = 1;
+
+    static final int HEADER_SIZE = MAGIC.length + Integer.BYTES;
+
+    /**
+     * The label size then the payload size.
+     */
+    static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+
+    private final FileChannel ch;
+
+    /**
+     * The mapped file when it is small enough to be mapped at once. {@code null} otherwise.
+     */
+    private final MappedByteBuffer whole;
+
+    private long[] offsets;
+
+    private int[] sizes;
+
+    private String[] labels;
+
+    private int size = 0;
+
+    private final Map<String, Integer> byLabel = new HashMap<>();
+
+    /**
+     * Open a corpus.
+     *
+     * @param f the corpus file
+     * @throws IOException if the file cannot be read or is not a corpus
+     */
+    public Corpus(File f) throws IOException {
+        ch = FileChannel.open(f.toPath(), READ);
+        try {
+            checkHeader(ch);
+            long len = ch.size();
+            whole = len <= Integer.MAX_VALUE ? ch.map(FileChannel.MapMode.READ_ONLY, 0, len) : null;
+            index();
+        } catch (IOException ex) {
+            ch.close();
+            throw ex;
+        }
+    }
+
+    private void index() throws IOException {
+        offsets = new long[64];
+        sizes = new int[64];
+        labels = new String[64];
+        long len = ch.size();
+        long off = HEADER_SIZE;
+        ByteBuffer hdr = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (readRecordHeader(ch, off, hdr)) {
+            int lblSize = recordSize(hdr, 0);
+            int payload = recordSize(hdr, Integer.BYTES);
+            long start = off + RECORD_HEADER_SIZE + lblSize;
+            if (start + payload > len) {
+                //Partial record
+                break;
+            }
+            ByteBuffer lbl = ByteBuffer.allocate(lblSize);
+            readFully(ch, lbl, off + RECORD_HEADER_SIZE);
+            String label = new String(lbl.array(), UTF_8);
+            if (size == offsets.length) {
+                offsets = Arrays.copyOf(offsets, size * 2);
+                sizes = Arrays.copyOf(sizes, size * 2);
+                labels = Arrays.copyOf(labels, size * 2);
+            }
+            offsets[size] = start;
+            sizes[size] = payload;
+            labels[size] = label;
+            byLabel.put(label, size);
+            size++;
+            off = start + payload;
+        }
+    }
+
+    /**
+     * Get the number of instances.
+     *
+     * @return a positive number
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Get the label of an instance.
+     *
+     * @param idx the instance index
+     * @return the label
+     */
+    public String label(int idx) {
+        checkIndex(idx);
+        return labels[idx];
+    }
+
+    /**
+     * Get the index of an instance from its label.
+     *
+     * @param label the instance label
+     * @return the index of the last instance with this label. {@code -1} if there is no such instance
+     */
+    public int indexOf(String label) {
+        return byLabel.getOrDefault(label, -1);
+    }
+
+    /**
+     * Decode an instance.
+     *
+     * @param idx the instance index
+     * @return the instance
+     * @throws IOException if the instance cannot be decoded
+     */
+    public LabelledInstance get(int idx) throws IOException {
+        checkIndex(idx);
+        ByteBuffer b;
+        if (whole != null) {
+            b = whole.duplicate();
+            b.position((int) offsets[idx]);
+            b.limit((int) offsets[idx] + sizes[idx]);
+        } else {
+            b = ch.map(FileChannel.MapMode.READ_ONLY, offsets[idx], sizes[idx]);
+        }
+        try {
+            return new LabelledInstance(labels[idx], new InstanceBinaryConverter().read(new ByteBufferInputStream(b)));
+        } catch (JSONConverterException ex) {
+            throw new IOException("Unable to decode instance '" + labels[idx] + "'", ex);
+        }
+    }
+
+    /**
+     * Decode an instance from its label.
+     *
+     * @param label the instance label
+     * @return the instance
+     * @throws IOException if there is no such instance or if it cannot be decoded
+     */
+    public LabelledInstance get(String label) throws IOException {
+        int idx = indexOf(label);
+        if (idx < 0) {
+            throw new IOException("No instance labelled '" + label + "'");
+        }
+        return get(idx);
+    }
+
+    /**
+     * Stream the instances in a range of indexes.
+     * This allows to shard a corpus among several processes.
+     *
+     * @param from the first index, inclusive
+     * @param to   the last index, exclusive. Bounded by {@link #size()}
+     * @return a sequential stream that decodes the instances lazily.
+     * An instance that cannot be decoded raises an {@link UncheckedIOException}
+     */
+    public Stream<LabelledInstance> stream(int from, int to) {
+        return IntStream.range(Math.max(0, from), Math.min(to, size)).mapToObj(idx -> {
+            try {
+                return get(idx);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+    }
+
+    private void checkIndex(int idx) {
+        if (idx < 0 || idx >= size) {
+            throw new IndexOutOfBoundsException("Index " + idx + " out of [0, " + size + "[");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        ch.close();
+    }
+
+    static void checkHeader(FileChannel ch) throws IOException {
+        ByteBuffer hdr = ByteBuffer.allocate(HEADER_SIZE);
+        if (ch.size() < HEADER_SIZE) {
+            throw new IOException("Not a corpus file");
+        }
+        readFully(ch, hdr, 0);
+        byte[] m = new byte[MAGIC.length];
+        hdr.get(m);
+        if (!Arrays.equals(m, MAGIC)) {
+            throw new IOException("Not a corpus file");
+        }
+        int v = hdr.getInt();
+        if (v != VERSION) {
+            throw new IOException("Unsupported corpus version '" + v + "'. Expected '" + VERSION + "'");
+        }
+    }
+
+    /**
+     * Get the offset following the last complete record.
+     */
+    static long lastCompleteOffset(FileChannel ch) throws IOException {
+        long len = ch.size();
+        long off = HEADER_SIZE;
+        ByteBuffer hdr = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (readRecordHeader(ch, off, hdr)) {
+            long next = off + RECORD_HEADER_SIZE + recordSize(hdr, 0) + recordSize(hdr, Integer.BYTES);
+            if (next > len) {
+                break;
+            }
+            off = next;
+        }
+        return off;
+    }
+
+    /**
+     * Read a size in a record header.
+     *
+     * @throws IOException if the size is negative, so the header is not a record header
+     */
+    private static int recordSize(ByteBuffer hdr, int pos) throws IOException {
+        int v = hdr.getInt(pos);
+        if (v < 0) {
+            throw new IOException("Not a corpus file");
+        }
+        return v;
+    }
+
+    private static boolean readRecordHeader(FileChannel ch, long off, ByteBuffer hdr) throws IOException {
+        if (off + RECORD_HEADER_SIZE > ch.size()) {
+            return false;
+        }
+        hdr.clear();
+        readFully(ch, hdr, off);
+        return true;
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer b, long off) throws IOException {
+        long pos = off;
+        while (b.hasRemaining()) {
+            int nb = ch.read(b, pos);
+            if (nb < 0) {
+                throw new IOException("Unexpected end of file");
+            }
+            pos += nb;
+        }
+        b.flip();
+    }
+
+    /**
+     * A stream over a buffer, to feed the binary converter without copying the record.
+     */
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buf;
+
+        ByteBufferInputStream(ByteBuffer b) {
+            buf = b;
+        }
+
+        @Override
+        public int read() {
+            return buf.hasRemaining() ? buf.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buf.hasRemaining()) {
+                return -1;
+            }
+            int nb = Math.min(len, buf.remaining());
+            buf.get(b, off, nb);
+            return nb;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.bench;
+
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.binary.InstanceBinaryConverter;
+import org.btrplace.model.Instance;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Append instances to a corpus file that can be read using {@link Corpus}.
+ * <p>
+ * The file starts with a header. Each instance is then appended as a record made of its size,
+ * its label and its binary serialisation. An existing corpus is completed, not overwritten.
+ *
+ * @author Fabien Hermenier
+ */
+public class CorpusWriter implements Closeable {
+
+    private final FileChannel ch;
+
+    private final InstanceBinaryConverter conv = new InstanceBinaryConverter();
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+    /**
+     * Open a corpus for appending.
+     *
+     * @param f the corpus file. It is created if needed
+     * @throws IOException if the file cannot be opened or is not a corpus
+     */
+    public CorpusWriter(File f) throws IOException {
+        ch = FileChannel.open(f.toPath(), CREATE, READ, WRITE);
+        try {
+            if (ch.size() == 0) {
+                ByteBuffer hdr = ByteBuffer.allocate(Corpus.HEADER_SIZE);
+                hdr.put(Corpus.MAGIC).putInt(Corpus.VERSION).flip();
+                writeFully(hdr);
+            } else {
+                Corpus.checkHeader(ch);
+                //Drop a partial record left by an interrupted writer
+                ch.truncate(Corpus.lastCompleteOffset(ch));
+            }
+            ch.position(ch.size());
+        } catch (IOException ex) {
+            ch.close();
+            throw ex;
+        }
+    }
+
+    /**
+     * Append an instance.
+     *
+     * @param label the instance label
+     * @param i     the instance
+     * @return the current writer
+     * @throws IOException if an error occurred while writing the instance
+     */
+    public CorpusWriter add(String label, Instance i) throws IOException {
+        buffer.reset();
+        try {
+            conv.write(i, buffer);
+        } catch (JSONConverterException ex) {
+            throw new IOException("Unable to serialise instance '" + label + "'", ex);
+        }
+        byte[] l = label.getBytes(UTF_8);
+        ByteBuffer hdr = ByteBuffer.allocate(Corpus.RECORD_HEADER_SIZE + l.length);
+        hdr.putInt(l.length).putInt(buffer.size()).put(l).flip();
+        writeFully(hdr);
+        writeFully(ByteBuffer.wrap(buffer.toByteArray()));
+        return this;
+    }
+
+    /**
+     * Append a labelled instance.
+     *
+     * @param i the instance
+     * @return the current writer
+     * @throws IOException if an error occurred while writing the instance
+     */
+    public CorpusWriter add(LabelledInstance i) throws IOException {
+        return add(i.label, i);
+    }
+
+    private void writeFully(ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) {
+            ch.write(b);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        ch.close();
+    }
+}
@@ -14,6 +14,7 @@ import org.kohsuke.args4j.Option;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
@@ -36,13 +37,19 @@ public class Options {
   @Option(name = "-t", aliases = "--timeout", usage = "Set a timeout (in sec)")
   private int timeout = 0;
 
-  @Option(name = "-i", aliases = "--instance", usage = "An instance  ('.json' or '.json.gz')", forbids = {"-l"})
+  @Option(name = "-i", aliases = "--instance", usage = "An instance  ('.json' or '.json.gz')", forbids = {"-l", "-b"})
   private String instance;
 
-  @Option(name = "-l", aliases = "--list", usage = "a list of instance files (one path per line)", forbids = {"-i"})
+  @Option(name = "-l", aliases = "--list", usage = "a list of instance files (one path per line)", forbids = {"-i", "-b"})
   private String instances;
 
-  @Option(name = "-o", aliases = "--output", usage = "Output folder where the CSV and the plans are stored", depends = {"-l"})
+  @Option(name = "-b", aliases = "--corpus", usage = "a corpus file made with a CorpusWriter", forbids = {"-i", "-l"})
+  private String corpus;
+
+  @Option(name = "-s", aliases = "--slice", usage = "The range of corpus instances to solve ('from:to', 'to' excluded)", depends = {"-b"})
+  private String slice;
+
+  @Option(name = "-o", aliases = "--output", usage = "Output folder where the CSV and the plans are stored", forbids = {"-i"})
   private String output = "./";
 
   @Option(name = "-c", aliases = "--chunked", usage = "Use the chunked memory environment (false by default)")
@@ -98,6 +105,9 @@ public class Options {
     if (single()) {
       return Collections.singletonList(instance(new File(instance))).stream();
     }
+    if (corpus != null) {
+      return corpusInstances();
+    }
 
     @SuppressWarnings("resource")
     Stream<String> s = Files.lines(Paths.get(instances), StandardCharsets.UTF_8);
@@ -105,6 +115,32 @@ public class Options {
   }
 
 
+  @SuppressWarnings("squid:S2095")
+  private Stream<LabelledInstance> corpusInstances() throws IOException {
+    int from = 0;
+    int to = Integer.MAX_VALUE;
+    if (slice != null) {
+      String[] bounds = slice.split(":", -1);
+      try {
+        if (bounds.length != 2) {
+          throw new NumberFormatException();
+        }
+        from = bounds[0].isEmpty() ? from : Integer.parseInt(bounds[0]);
+        to = bounds[1].isEmpty() ? to : Integer.parseInt(bounds[1]);
+      } catch (NumberFormatException ex) {
+        throw new IOException("Invalid slice '" + slice + "'. Expected 'from:to'", ex);
+      }
+    }
+    Corpus c = new Corpus(new File(corpus));
+    return c.stream(from, to).onClose(() -> {
+      try {
+        c.close();
+      } catch (IOException ex) {
+        throw new UncheckedIOException(ex);
+      }
+    });
+  }
+
   /**
    * Get the output directory.
    * @return an existing output directory
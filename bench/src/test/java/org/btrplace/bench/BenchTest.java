@@ -118,6 +118,33 @@ public class BenchTest {
         }
     }
 
+    /**
+     * Solve a slice of a corpus. Check for the CSV file
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testCorpus() throws Exception {
+        File corpus = File.createTempFile("foo", ".btrc");
+        corpus.deleteOnExit();
+        try (CorpusWriter w = new CorpusWriter(corpus)) {
+            for (int x = 0; x < 5; x++) {
+                w.add("i" + x, instance());
+            }
+        }
+        Path output = Files.createTempDirectory("instances");
+        Bench.main(new String[]{
+                "-b", corpus.getAbsolutePath(),
+                "-s", "1:3",
+                "-o", output.toString(),
+        });
+        File csv = new File(output.toString() + File.separator + Bench.SCHEDULER_STATS);
+        List<String> lines = Files.readAllLines(csv.toPath(), UTF_8);
+        Assert.assertEquals(lines.size(), 2);
+        Assert.assertEquals(lines.get(0).split(";")[1], "i1");
+        Assert.assertEquals(lines.get(1).split(";")[1], "i2");
+    }
+
     //    @Test
     public void testAllocation() throws Exception {
         String base = "bench/src/test/resources/std-perf/";
@@ -0,0 +1,108 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.bench;
+
+import org.btrplace.model.Instance;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Unit tests for {@link Corpus} and {@link CorpusWriter}.
+ *
+ * @author Fabien Hermenier
+ */
+public class CorpusTest {
+
+    private static File newCorpus(int nb) throws IOException {
+        File f = File.createTempFile("corpus", ".btrc");
+        f.deleteOnExit();
+        Assert.assertTrue(f.delete());
+        try (CorpusWriter w = new CorpusWriter(f)) {
+            for (int i = 0; i < nb; i++) {
+                w.add("i" + i, BenchTest.instance());
+            }
+        }
+        return f;
+    }
+
+    @Test
+    public void testRandomAccess() throws IOException {
+        File f = newCorpus(5);
+        Instance expected = BenchTest.instance();
+        try (Corpus c = new Corpus(f)) {
+            Assert.assertEquals(c.size(), 5);
+            Assert.assertEquals(c.label(3), "i3");
+            Assert.assertEquals(c.indexOf("i2"), 2);
+            Assert.assertEquals(c.indexOf("foo"), -1);
+            LabelledInstance i = c.get("i4");
+            Assert.assertEquals(i.label, "i4");
+            Assert.assertEquals(new Instance(i.getModel(), i.getSatConstraints(), i.getOptConstraint()), expected);
+        }
+    }
+
+    @Test
+    public void testAppendAndSlice() throws IOException {
+        File f = newCorpus(3);
+        try (CorpusWriter w = new CorpusWriter(f)) {
+            w.add("i1", BenchTest.instance());
+            w.add("i3", BenchTest.instance());
+        }
+        try (Corpus c = new Corpus(f)) {
+            Assert.assertEquals(c.size(), 5);
+            //The last record wins
+            Assert.assertEquals(c.indexOf("i1"), 3);
+            List<String> labels = c.stream(1, 10).map(i -> i.label).collect(Collectors.toList());
+            Assert.assertEquals(labels.toString(), "[i1, i2, i1, i3]");
+        }
+    }
+
+    @Test
+    public void testPartialRecord() throws IOException {
+        File f = newCorpus(2);
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.setLength(raf.length() - 3);
+        }
+        try (Corpus c = new Corpus(f)) {
+            Assert.assertEquals(c.size(), 1);
+        }
+        //The writer drops the partial record before appending
+        try (CorpusWriter w = new CorpusWriter(f)) {
+            w.add("i2", BenchTest.instance());
+        }
+        try (Corpus c = new Corpus(f)) {
+            Assert.assertEquals(c.size(), 2);
+            Assert.assertEquals(c.get(1).label, "i2");
+        }
+    }
+
+    @Test(expectedExceptions = {IOException.class})
+    public void testBadRecordHeader() throws IOException {
+        File f = newCorpus(1);
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            //The label size of the first record
+            raf.seek(Corpus.HEADER_SIZE);
+            raf.writeInt(-5);
+        }
+        new Corpus(f).close();
+    }
+
+    @Test(expectedExceptions = {IOException.class})
+    public void testNotACorpus() throws IOException {
+        File f = File.createTempFile("corpus", ".json");
+        f.deleteOnExit();
+        try (RandomAccessFile raf = new RandomAccessFile(f, "rw")) {
+            raf.writeBytes("{\"model\":{}}");
+        }
+        new Corpus(f).close();
+    }
+}
@@ -285,11 +285,26 @@ public class DefaultChocoScheduler implements ChocoScheduler {
         return params.addSolutionListener(consumer);
     }
 
+    @Override
+    public boolean removeSolutionListener(BiConsumer<ReconfigurationProblem, ReconfigurationPlan> consumer) {
+        return params.removeSolutionListener(consumer);
+    }
+
     @Override
     public List<BiConsumer<ReconfigurationProblem, ReconfigurationPlan>> solutionListeners() {
         return params.solutionListeners();
     }
 
+    @Override
+    public Parameters setSolutionHint(SolutionHint h) {
+        return params.setSolutionHint(h);
+    }
+
+    @Override
+    public SolutionHint getSolutionHint() {
+        return params.getSolutionHint();
+    }
+
     @Override
     public void stop() {
         runner.stop();
@@ -74,6 +74,8 @@ public class DefaultParameters implements Parameters {
 
     private Settings chocoSettings;
 
+    private SolutionHint hint;
+
     /**
      * New set of parameters.
      */
@@ -115,6 +117,7 @@ public class DefaultParameters implements Parameters {
         envf = ps.getEnvironmentFactory();
       solutionListeners = new ArrayList<>(ps.solutionListeners());
         chocoSettings = ps.chocoSettings();
+        hint = ps.getSolutionHint();
     }
 
     @Override
@@ -264,8 +267,24 @@ public class DefaultParameters implements Parameters {
         return this;
     }
 
+    @Override
+    public boolean removeSolutionListener(BiConsumer<ReconfigurationProblem, ReconfigurationPlan> consumer) {
+        return solutionListeners.remove(consumer);
+    }
+
     @Override
     public List<BiConsumer<ReconfigurationProblem, ReconfigurationPlan>> solutionListeners() {
         return Collections.unmodifiableList(solutionListeners);
     }
+
+    @Override
+    public DefaultParameters setSolutionHint(SolutionHint h) {
+        hint = h;
+        return this;
+    }
+
+    @Override
+    public SolutionHint getSolutionHint() {
+        return hint;
+    }
 }
@@ -240,10 +240,37 @@ public interface Parameters {
      */
     Parameters addSolutionListener(BiConsumer<ReconfigurationProblem, ReconfigurationPlan> consumer);
 
+    /**
+     * Remove a consumer previously added.
+     *
+     * @param consumer the consumer to remove
+     * @return {@code true} if the consumer has been removed
+     */
+    boolean removeSolutionListener(BiConsumer<ReconfigurationProblem, ReconfigurationPlan> consumer);
+
     /**
      * Returns the solution listeners.
      *
      * @return a list that may be empty.
      */
     List<BiConsumer<ReconfigurationProblem, ReconfigurationPlan>> solutionListeners();
+
+    /**
+     * Set a previous solution to guide the search.
+     * The placement heuristics try first the hinted hosts. The schedule is left to the usual heuristics,
+     * that prefer the earliest moments.
+     * This speeds up the computation of the first solution when the problem
+     * barely changed since the hinted solution.
+     *
+     * @param h the hint. {@code null} to remove it
+     * @return {@code this}
+     */
+    Parameters setSolutionHint(SolutionHint h);
+
+    /**
+     * Get the previous solution used to guide the search.
+     *
+     * @return the hint. {@code null} if there is none
+     */
+    SolutionHint getSolutionHint();
 }
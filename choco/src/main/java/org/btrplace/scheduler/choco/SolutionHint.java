@@ -0,0 +1,99 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco;
+
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.event.Action;
+import org.btrplace.plan.event.BootVM;
+import org.btrplace.plan.event.ResumeVM;
+import org.btrplace.plan.event.RunningVMPlacement;
+import org.btrplace.plan.event.ShutdownVM;
+import org.btrplace.plan.event.SuspendVM;
+import org.btrplace.plan.event.VMEvent;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A previous solution used to guide the search of a new one.
+ * The hint indicates the host of each VM.
+ * It is not a constraint: the heuristics try the hinted values first when they are still possible.
+ *
+ * @author Fabien Hermenier
+ */
+public final class SolutionHint {
+
+    private final Map<VM, Node> hosts;
+
+    private SolutionHint() {
+        hosts = new HashMap<>();
+    }
+
+    /**
+     * Make a hint from a previous plan.
+     * The VMs are hinted to be hosted on their node in the resulting model.
+     *
+     * @param p the previous plan
+     * @return the resulting hint
+     */
+    public static SolutionHint fromPlan(ReconfigurationPlan p) {
+        SolutionHint h = fromModel(p.getOrigin());
+        for (Action a : p) {
+            if (!(a instanceof VMEvent)) {
+                continue;
+            }
+            VM vm = ((VMEvent) a).getVM();
+            if (a instanceof RunningVMPlacement) {
+                h.hosts.put(vm, ((RunningVMPlacement) a).getDestinationNode());
+            } else if (a instanceof BootVM) {
+                h.hosts.put(vm, ((BootVM) a).getDestinationNode());
+            } else if (a instanceof ResumeVM) {
+                h.hosts.put(vm, ((ResumeVM) a).getDestinationNode());
+            } else if (a instanceof ShutdownVM || a instanceof SuspendVM) {
+                h.hosts.remove(vm);
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Make a hint from a model.
+     * The running VMs are hinted to stay on their current node.
+     *
+     * @param mo the model. Typically, the result of a previous plan
+     * @return the resulting hint
+     */
+    public static SolutionHint fromModel(Model mo) {
+        SolutionHint h = new SolutionHint();
+        Mapping map = mo.getMapping();
+        for (Node n : map.getOnlineNodes()) {
+            for (VM vm : map.getRunningVMs(n)) {
+                h.hosts.put(vm, n);
+            }
+        }
+        return h;
+    }
+
+    /**
+     * Get the hinted host of a VM.
+     *
+     * @param vm the VM
+     * @return the node. {@code null} if there is no hint
+     */
+    public Node getHost(VM vm) {
+        return hosts.get(vm);
+    }
+
+    @Override
+    public String toString() {
+        return "hint(hosts=" + hosts.size() + ")";
+    }
+}
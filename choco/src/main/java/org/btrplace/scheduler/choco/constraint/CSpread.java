@@ -6,6 +6,7 @@
 
 package org.btrplace.scheduler.choco.constraint;
 
+import gnu.trove.list.array.TIntArrayList;
 import org.btrplace.model.Instance;
 import org.btrplace.model.Mapping;
 import org.btrplace.model.Node;
@@ -15,6 +16,7 @@ import org.btrplace.scheduler.choco.Parameters;
 import org.btrplace.scheduler.choco.ReconfigurationProblem;
 import org.btrplace.scheduler.choco.Slice;
 import org.btrplace.scheduler.choco.extensions.ChocoUtils;
+import org.btrplace.scheduler.choco.extensions.HostPrecedences;
 import org.btrplace.scheduler.choco.transition.VMTransition;
 import org.chocosolver.solver.Model;
 import org.chocosolver.solver.variables.BoolVar;
@@ -63,18 +65,54 @@ public class CSpread implements ChocoConstraint {
         //The lazy spread implementation for the placement
       csp.post(csp.allDifferent(running.toArray(new IntVar[running.size()]), "AC"));
         if (cstr.isContinuous()) {
-            List<VM> vms = new ArrayList<>(cstr.getInvolvedVMs());
+            disallowOverlap(rp);
+        }
+        return true;
+    }
+
+    /**
+     * Prevent the VMs to overlap on a node.
+     * A VM that arrives on a node must wait for the other VMs of the group to leave it.
+     * This is stated using a single {@link HostPrecedences} constraint when the current hosts are known.
+     * Otherwise, reified precedences are stated for each pair of VMs.
+     */
+    private void disallowOverlap(ReconfigurationProblem rp) {
+        List<VM> vms = new ArrayList<>(cstr.getInvolvedVMs());
+        List<IntVar> hosts = new ArrayList<>();
+        List<IntVar> starts = new ArrayList<>();
+        TIntArrayList tasks = new TIntArrayList();
+        TIntArrayList othersHost = new TIntArrayList();
+        List<IntVar> othersEnd = new ArrayList<>();
+        TIntArrayList othersTask = new TIntArrayList();
+        boolean known = true;
+        for (int i = 0; i < vms.size(); i++) {
+            VMTransition a = rp.getVMAction(vms.get(i));
+            Slice d = a.getDSlice();
+            Slice c = a.getCSlice();
+            if (d != null) {
+                hosts.add(d.getHoster());
+                starts.add(d.getStart());
+                tasks.add(i);
+            }
+            if (c != null) {
+                known &= c.getHoster().isInstantiated();
+                othersHost.add(c.getHoster().getLB());
+                othersEnd.add(c.getEnd());
+                othersTask.add(i);
+            }
+        }
+        if (!known) {
             for (int i = 0; i < vms.size(); i++) {
-                VM vm = vms.get(i);
-                VMTransition aI = rp.getVMAction(vm);
+                VMTransition aI = rp.getVMAction(vms.get(i));
                 for (int j = 0; j < i; j++) {
-                    VM vmJ = vms.get(j);
-                    VMTransition aJ = rp.getVMAction(vmJ);
-                    disallowOverlap(rp, aI, aJ);
+                    disallowOverlap(rp, aI, rp.getVMAction(vms.get(j)));
                 }
             }
+        } else if (!hosts.isEmpty() && !othersEnd.isEmpty()) {
+            rp.getModel().post(new HostPrecedences(
+                    hosts.toArray(new IntVar[0]), starts.toArray(new IntVar[0]), tasks.toArray(),
+                    othersHost.toArray(), othersEnd.toArray(new IntVar[0]), othersTask.toArray()));
         }
-        return true;
     }
 
     private static void disallowOverlap(ReconfigurationProblem rp, VMTransition t1, VMTransition t2) {
@@ -72,6 +72,16 @@ public class ChocoMapper {
     views = new HashMap<>();
   }
 
+  /**
+   * Make a new mapper that starts with the mappings of another one.
+   *
+   * @param m the mapper to copy
+   */
+  public ChocoMapper(ChocoMapper m) {
+    constraints = new HashMap<>(m.constraints);
+    views = new HashMap<>(m.views);
+  }
+
   /**
      * Make a new {@code ChocoMapper} and fulfill it
      * using a default mapper for each bundled constraint.
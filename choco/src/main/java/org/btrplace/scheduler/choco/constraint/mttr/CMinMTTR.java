@@ -7,9 +7,11 @@
 package org.btrplace.scheduler.choco.constraint.mttr;
 
 import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
 import org.btrplace.model.Instance;
 import org.btrplace.model.Mapping;
 import org.btrplace.model.Model;
+import org.btrplace.model.Node;
 import org.btrplace.model.VM;
 import org.btrplace.model.constraint.MinMTTR;
 import org.btrplace.model.view.ShareableResource;
@@ -17,8 +19,10 @@ import org.btrplace.scheduler.SchedulerException;
 import org.btrplace.scheduler.choco.Parameters;
 import org.btrplace.scheduler.choco.ReconfigurationProblem;
 import org.btrplace.scheduler.choco.Slice;
+import org.btrplace.scheduler.choco.SolutionHint;
 import org.btrplace.scheduler.choco.constraint.CObjective;
 import org.btrplace.scheduler.choco.constraint.mttr.load.BiggestDimension;
+import org.btrplace.scheduler.choco.constraint.mttr.load.GlobalLoadEstimator;
 import org.btrplace.scheduler.choco.transition.RelocatableVM;
 import org.btrplace.scheduler.choco.transition.Transition;
 import org.btrplace.scheduler.choco.transition.VMTransition;
@@ -53,6 +57,11 @@ import java.util.stream.Stream;
  */
 public class CMinMTTR implements CObjective {
 
+    /**
+     * The number of failures before the first restart.
+     */
+    private static final int RESTART_SCALE = 500;
+
     private boolean costActivated = false;
 
     private ReconfigurationProblem rp;
@@ -60,11 +69,37 @@ public class CMinMTTR implements CObjective {
     private IntVar cost;
 
     private boolean useResources = false;
+
+    /**
+     * The hinted host of the VMs. {@code null} if there is no hint.
+     */
+    private TObjectIntMap<IntVar> hostHints;
+
+    /**
+     * The load estimator for {@link WorstFit}. {@code null} to place the VMs randomly.
+     */
+    private final GlobalLoadEstimator loadEstimator;
+
+    private final boolean restarts;
+
     /**
      * Make a new objective.
      * @param m the user-side objective.
      */
     public CMinMTTR(@SuppressWarnings("unused") MinMTTR m) {
+        this(new BiggestDimension(), false);
+    }
+
+    /**
+     * Make a new objective with a customised search heuristic.
+     *
+     * @param load     the estimator {@link WorstFit} relies on to place the VMs when there are resources.
+     *                 {@code null} to place the VMs randomly
+     * @param restarts {@code true} to restart the search following a Luby sequence
+     */
+    public CMinMTTR(GlobalLoadEstimator load, boolean restarts) {
+        loadEstimator = load;
+        this.restarts = restarts;
     }
 
     public CMinMTTR() {
@@ -93,6 +128,10 @@ public class CMinMTTR implements CObjective {
         Model mo = p.getSourceModel();
         Mapping map = mo.getMapping();
 
+        //Only the placement is hinted. The earliest start moments remain the best choice for the MTTR
+        SolutionHint hint = ps.getSolutionHint();
+        hostHints = hint == null ? null : hostHints(p, hint);
+
         OnStableNodeFirst schedHeuristic = new OnStableNodeFirst(p);
 
         //Get the VMs to place
@@ -166,22 +205,43 @@ public class CMinMTTR implements CObjective {
         strategies.add(new IntStrategy(new IntVar[]{p.getEnd(), cost}, new MyInputOrder<>(s, this), new IntDomainMin()));
 
         s.setSearch(new StrategiesSequencer(s.getEnvironment(), strategies.toArray(new AbstractStrategy[strategies.size()])));
+        if (restarts) {
+            Search.Restarts.LUBY.declare(s, RESTART_SCALE, 0, Integer.MAX_VALUE);
+        }
     }
 
     /*
      * Try to place the VMs associated on the actions in a random node while trying first to stay on the current node
      */
     private void placeVMs(Parameters ps, List<AbstractStrategy<?>> strategies, List<VMTransition> actions, OnStableNodeFirst schedHeuristic, Map<IntVar, VM> map) {
-        IntValueSelector rnd = new WorstFit(map, rp, new BiggestDimension());
-        if (!useResources) {
+        IntValueSelector rnd = new WorstFit(map, rp, loadEstimator);
+        if (!useResources || loadEstimator == null) {
             rnd = new RandomVMPlacement(rp, map, true, ps.getRandomSeed());
         }
+        if (hostHints != null) {
+            rnd = new HintFirst(hostHints, rnd);
+        }
         IntVar[] hosts = dSlices(actions).map(Slice::getHoster).filter(v -> !v.isInstantiated()).toArray(IntVar[]::new);
         if (hosts.length > 0) {
             strategies.add(new IntStrategy(hosts, new HostingVariableSelector(rp.getModel(), schedHeuristic), rnd));
         }
     }
 
+    /**
+     * Map the placement variable of the future running VMs to their hinted host.
+     */
+    private static TObjectIntMap<IntVar> hostHints(ReconfigurationProblem p, SolutionHint hint) {
+        TObjectIntMap<IntVar> hints = new TObjectIntHashMap<>(p.getFutureRunningVMs().size(), 0.5f, -1);
+        for (VM vm : p.getFutureRunningVMs()) {
+            Node n = hint.getHost(vm);
+            int idx = n == null ? -1 : p.getNode(n);
+            if (idx >= 0) {
+                hints.put(p.getVMAction(vm).getDSlice().getHoster(), idx);
+            }
+        }
+        return hints;
+    }
+
     @Override
     public Set<VM> getMisPlacedVMs(Instance i) {
         return Collections.emptySet();
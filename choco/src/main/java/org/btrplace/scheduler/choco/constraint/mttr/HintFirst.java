@@ -0,0 +1,45 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.constraint.mttr;
+
+import gnu.trove.map.TObjectIntMap;
+import org.chocosolver.solver.search.strategy.selectors.values.IntValueSelector;
+import org.chocosolver.solver.variables.IntVar;
+
+/**
+ * A value selector that picks the hinted value of a variable if it is still in its domain.
+ * Otherwise, the selection is delegated to another selector.
+ *
+ * @author Fabien Hermenier
+ * @see org.btrplace.scheduler.choco.SolutionHint
+ */
+public class HintFirst implements IntValueSelector {
+
+    private final TObjectIntMap<IntVar> hints;
+
+    private final IntValueSelector fallback;
+
+    /**
+     * New selector.
+     *
+     * @param hints    the hinted value for each variable. The no-entry value must be negative
+     * @param fallback the selector to use when there is no usable hint
+     */
+    public HintFirst(TObjectIntMap<IntVar> hints, IntValueSelector fallback) {
+        this.hints = hints;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public int selectValue(IntVar v) {
+        int h = hints.get(v);
+        if (h >= 0 && v.contains(h)) {
+            return h;
+        }
+        return fallback.selectValue(v);
+    }
+}
@@ -12,14 +12,16 @@ import org.btrplace.scheduler.choco.Slice;
 import org.btrplace.scheduler.choco.transition.VMTransition;
 import org.chocosolver.solver.variables.IntVar;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
  * Class denoting the movement of the running VMs from their source to their destination node.
+ * <p>
+ * The movements are grouped by node index: the movements that terminate on the node {@code n}
+ * are stored from {@link #getIncomingFrom(int)} inclusive to {@link #getIncomingTo(int)} exclusive.
+ * The storage is allocated once, so the graph can be re-made without allocations.
  *
  * @author Fabien Hermenier
  */
@@ -27,9 +29,13 @@ public class MovementGraph {
 
   private final ReconfigurationProblem rp;
 
-  private final Map<Node, List<IntVar>> incoming;
+  private final IntVar[] incoming;
 
-  private final Map<Node, List<IntVar>> outgoings;
+  private final int[] inOffsets;
+
+  private final IntVar[] outgoings;
+
+  private final int[] outOffsets;
 
     /**
      * Make a new graph.
@@ -38,37 +44,50 @@ public class MovementGraph {
      */
     public MovementGraph(ReconfigurationProblem p) {
         this.rp = p;
-        incoming = new HashMap<>();
-        outgoings = new HashMap<>();
+        int nbActions = p.getVMActions().size();
+        int nbNodes = p.getNodes().size();
+        incoming = new IntVar[nbActions];
+        outgoings = new IntVar[nbActions];
+        inOffsets = new int[nbNodes + 1];
+        outOffsets = new int[nbNodes + 1];
     }
 
     public void make() {
-        incoming.clear();
-        outgoings.clear();
+        Arrays.fill(inOffsets, 0);
+        Arrays.fill(outOffsets, 0);
 
+        //First pass to count the movements per node, second pass to store them
         for (VMTransition a : rp.getVMActions()) {
             Slice cSlice = a.getCSlice();
             Slice dSlice = a.getDSlice();
-
             if (cSlice != null) {
-                addOutgoing(cSlice);
+                outOffsets[cSlice.getHoster().getLB() + 1]++;
             }
             if (dSlice != null) {
-                addIncoming(dSlice);
+                inOffsets[dSlice.getHoster().getLB() + 1]++;
             }
         }
-    }
-
-    private void addOutgoing(Slice cSlice) {
-        Node h = rp.getNode(cSlice.getHoster().getLB());
-        outgoings.putIfAbsent(h, new ArrayList<>());
-        outgoings.get(h).add(cSlice.getStart());
-    }
-
-    private void addIncoming(Slice cSlice) {
-        Node h = rp.getNode(cSlice.getHoster().getLB());
-        incoming.putIfAbsent(h, new ArrayList<>());
-        incoming.get(h).add(cSlice.getStart());
+        for (int i = 1; i < inOffsets.length; i++) {
+            inOffsets[i] += inOffsets[i - 1];
+            outOffsets[i] += outOffsets[i - 1];
+        }
+        for (VMTransition a : rp.getVMActions()) {
+            Slice cSlice = a.getCSlice();
+            Slice dSlice = a.getDSlice();
+            if (cSlice != null) {
+                outgoings[outOffsets[cSlice.getHoster().getLB()]++] = cSlice.getStart();
+            }
+            if (dSlice != null) {
+                incoming[inOffsets[dSlice.getHoster().getLB()]++] = dSlice.getStart();
+            }
+        }
+        //The offsets now point to the end of each group
+        for (int i = inOffsets.length - 1; i > 0; i--) {
+            inOffsets[i] = inOffsets[i - 1];
+            outOffsets[i] = outOffsets[i - 1];
+        }
+        inOffsets[0] = 0;
+        outOffsets[0] = 0;
     }
 
     /**
@@ -79,7 +98,11 @@ public class MovementGraph {
      * @return a list of start moment. May be empty
      */
     public List<IntVar> getIncoming(Node n) {
-        return incoming.getOrDefault(n, Collections.emptyList());
+        int nIdx = rp.getNode(n);
+        if (nIdx < 0) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(Arrays.asList(incoming).subList(inOffsets[nIdx], inOffsets[nIdx + 1]));
     }
 
     /**
@@ -90,6 +113,50 @@ public class MovementGraph {
      * @return a list of start moment. May be empty
      */
     public List<IntVar> getOutgoing(Node n) {
-        return outgoings.getOrDefault(n, Collections.emptyList());
+        int nIdx = rp.getNode(n);
+        if (nIdx < 0) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(Arrays.asList(outgoings).subList(outOffsets[nIdx], outOffsets[nIdx + 1]));
+    }
+
+    /**
+     * Get the number of movements that leave from a given node.
+     *
+     * @param nIdx the node index
+     * @return a positive number
+     */
+    public int getNbOutgoing(int nIdx) {
+        return outOffsets[nIdx + 1] - outOffsets[nIdx];
+    }
+
+    /**
+     * Get the position of the first movement that terminates on a given node.
+     *
+     * @param nIdx the node index
+     * @return a position in {@link #getIncoming(int)}
+     */
+    public int getIncomingFrom(int nIdx) {
+        return inOffsets[nIdx];
+    }
+
+    /**
+     * Get the position following the last movement that terminates on a given node.
+     *
+     * @param nIdx the node index
+     * @return a position in {@link #getIncoming(int)}
+     */
+    public int getIncomingTo(int nIdx) {
+        return inOffsets[nIdx + 1];
+    }
+
+    /**
+     * Get the start moment of an incoming movement.
+     *
+     * @param pos the position, between {@link #getIncomingFrom(int)} and {@link #getIncomingTo(int)}
+     * @return the start moment
+     */
+    public IntVar getIncoming(int pos) {
+        return incoming[pos];
     }
 }
@@ -12,11 +12,14 @@ import org.btrplace.model.VM;
 import org.btrplace.scheduler.choco.ReconfigurationProblem;
 import org.btrplace.scheduler.choco.Slice;
 import org.btrplace.scheduler.choco.transition.VMTransition;
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.memory.IStateBool;
 import org.chocosolver.memory.IStateInt;
 import org.chocosolver.solver.search.strategy.selectors.variables.VariableSelector;
 import org.chocosolver.solver.variables.IntVar;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
 
@@ -26,7 +29,10 @@ import java.util.List;
  * on nodes that are the source of actions liberating resources.
  * <p>
  * For performance reason, the VM placement is put into a cache
- * that must be invalidated each time the placement is modified
+ * that must be invalidated each time the placement is modified.
+ * The cache is also computed again when the search backtracks before its computation.
+ * As the start moments are only instantiated when the search goes down,
+ * the VMs with a start moment to schedule are maintained using backtrackable cursors and sets.
  *
  * @author Fabien Hermenier
  */
@@ -40,17 +46,57 @@ public class OnStableNodeFirst implements VariableSelector<IntVar> {
 
   private final int[] oldPos;
 
-  private final BitSet[] outs;
+  /**
+   * The nodes without outgoing VMs.
+   */
+  private final BitSet leaves;
 
-  private final BitSet[] ins;
+  /**
+   * The moving VMs, ordered by destination node then VM, for the leaf nodes.
+   */
+  private final int[] toLeaves;
 
-  private final IStateInt firstFree;
+  private int nbToLeaves;
 
-    private IntVar last;
+  private final IStateInt toLeavesCursor;
+
+  /**
+   * Temporary storage to group the VMs by destination node.
+   */
+  private final int[] offsets;
+
+  /**
+   * The VMs that move.
+   */
+  private final int[] move;
+
+  private int nbMove;
+
+  private final IStateInt moveCursor;
+
+  /**
+   * The VMs that stay on their node, with a start moment to schedule.
+   * The first {@code staysSize} elements form a backtrackable sparse set.
+   */
+  private final int[] stays;
 
-    private BitSet stays;
+  private final IStateInt staysSize;
 
-    private BitSet move;
+  /**
+   * The VMs with a start moment to schedule, as a backtrackable sparse set.
+   */
+  private final int[] pending;
+
+  private final IStateInt pendingSize;
+
+  /**
+   * {@code true} while the cache is computed for the current branch.
+   */
+  private final IStateBool ready;
+
+  private boolean valid;
+
+    private IntVar last;
 
     /**
      * Make a new heuristics
@@ -59,7 +105,7 @@ public class OnStableNodeFirst implements VariableSelector<IntVar> {
      */
     public OnStableNodeFirst(ReconfigurationProblem rp) {
 
-        firstFree = rp.getModel().getEnvironment().makeInt(0);
+        IEnvironment env = rp.getModel().getEnvironment();
         Mapping cfg = rp.getSourceModel().getMapping();
 
         List<VMTransition> vmActions = rp.getVMActions();
@@ -70,12 +116,9 @@ public class OnStableNodeFirst implements VariableSelector<IntVar> {
         this.vms = new ArrayList<>(rp.getFutureRunningVMs());
 
         oldPos = new int[vmActions.size()];
-        outs = new BitSet[rp.getNodes().size()];
-        ins = new BitSet[rp.getNodes().size()];
-        for (int i = 0; i < rp.getNodes().size(); i++) {
-            outs[i] = new BitSet();
-            ins[i] = new BitSet();
-        }
+        int nbNodes = rp.getNodes().size();
+        leaves = new BitSet(nbNodes);
+        leaves.set(0, nbNodes);
 
         int j = 0; //a separate counter because there is not necessarily a dSlice for each action
         for (VMTransition action : vmActions) {
@@ -94,13 +137,29 @@ public class OnStableNodeFirst implements VariableSelector<IntVar> {
                 } else {
                     oldPos[j] = rp.getNode(n);
                     //VM i was on node n
-                    outs[rp.getNode(n)].set(j);
+                    leaves.clear(rp.getNode(n));
                 }
                 j++;
             }
         }
         this.hosts = tmpHosts.toArray(new IntVar[tmpHosts.size()]);
         this.starts = tmpStarts.toArray(new IntVar[tmpStarts.size()]);
+
+        toLeaves = new int[hosts.length];
+        toLeavesCursor = env.makeInt(0);
+        offsets = new int[nbNodes + 1];
+        move = new int[hosts.length];
+        moveCursor = env.makeInt(0);
+        stays = new int[hosts.length];
+        staysSize = env.makeInt(0);
+
+        int nbPending = Math.max(0, Math.min(starts.length, vms.size() - 1));
+        pending = new int[nbPending];
+        for (int i = 0; i < nbPending; i++) {
+            pending[i] = i;
+        }
+        pendingSize = env.makeInt(nbPending);
+        ready = env.makeBool(false);
     }
 
     /**
@@ -109,35 +168,50 @@ public class OnStableNodeFirst implements VariableSelector<IntVar> {
      * clear the VM placement cache.
      */
     public void invalidPlacement() {
-        stays = null;
-        move = null;
+        valid = false;
     }
 
     /**
-     * For each node, we fill ins to indicate the VMs
-     * that go on this node. We also fulfill stays and move
-     * TODO: stays and move seems redundant !
+     * Group the VMs that move by destination node and
+     * list the VMs that stay.
      */
     private void makeIncoming() {
-        if (stays == null && move == null) {
-            for (BitSet in : ins) {
-                in.clear();
-            }
-            stays = new BitSet();
-            move = new BitSet();
-            for (int i = 0; i < hosts.length; i++) {
-                if (hosts[i] != null && hosts[i].isInstantiated()) {
-                    int newPos = hosts[i].getValue();
-                    if (oldPos[i] != -1 && newPos != oldPos[i]) {
-                        //The VM has move
-                        ins[newPos].set(i);
-                        move.set(i);
-                    } else if (newPos == oldPos[i]) {
-                        stays.set(i);
+        if (valid && ready.get()) {
+            return;
+        }
+        nbMove = 0;
+        int nbStays = 0;
+        Arrays.fill(offsets, 0);
+        for (int i = 0; i < hosts.length; i++) {
+            if (i < starts.length && starts[i] != null && hosts[i] != null && hosts[i].isInstantiated()) {
+                int newPos = hosts[i].getValue();
+                if (oldPos[i] != -1 && newPos != oldPos[i]) {
+                    //The VM has move
+                    move[nbMove++] = i;
+                    if (leaves.get(newPos)) {
+                        offsets[newPos + 1]++;
                     }
+                } else if (newPos == oldPos[i]) {
+                    stays[nbStays++] = i;
                 }
             }
         }
+        for (int n = 1; n < offsets.length; n++) {
+            offsets[n] += offsets[n - 1];
+        }
+        nbToLeaves = offsets[offsets.length - 1];
+        for (int k = 0; k < nbMove; k++) {
+            int i = move[k];
+            int newPos = hosts[i].getValue();
+            if (leaves.get(newPos)) {
+                toLeaves[offsets[newPos]++] = i;
+            }
+        }
+        toLeavesCursor.set(0);
+        moveCursor.set(0);
+        staysSize.set(nbStays);
+        valid = true;
+        ready.set(true);
     }
 
     @Override
@@ -164,6 +238,26 @@ public class OnStableNodeFirst implements VariableSelector<IntVar> {
         return starts;
     }
 
+    /**
+     * Get the first un-instantiated start moment among a list of VMs.
+     * The instantiated start moments are skipped for the rest of the branch.
+     *
+     * @param vs     the VMs
+     * @param nb     the number of VMs in the list
+     * @param cursor the position of the VMs to check first
+     * @return a start moment, or {@code null} if all the moments are already instantiated
+     */
+    private IntVar firstUninstantiated(int[] vs, int nb, IStateInt cursor) {
+        int c = cursor.get();
+        while (c < nb && starts[vs[c]].isInstantiated()) {
+            c++;
+        }
+        if (c != cursor.get()) {
+            cursor.set(c);
+        }
+        return c < nb ? starts[vs[c]] : null;
+    }
+
     /**
      * Get the start moment for a VM that moves
      *
@@ -171,35 +265,38 @@ public class OnStableNodeFirst implements VariableSelector<IntVar> {
      */
     private IntVar getMovingVM() {
         //VMs that are moving
-        for (int i = move.nextSetBit(0); i >= 0; i = move.nextSetBit(i + 1)) {
-            if (starts[i] != null && !starts[i].isInstantiated() && oldPos[i] != hosts[i].getValue()) {
-                return starts[i];
-            }
-        }
-        return null;
+        return firstUninstantiated(move, nbMove, moveCursor);
     }
 
     private IntVar minInf() {
-        IntVar best = null;
-        for (int i = firstFree.get(); i < starts.length; i++) {
+        //The lowest VM if it can start at 0, otherwise the VM that can start the latest
+        int first = -1;
+        int best = -1;
+        int size = pendingSize.get();
+        for (int k = 0; k < size; ) {
+            int i = pending[k];
             IntVar v = starts[i];
-            if (i < vms.size() - 1) {
-                VM vm = vms.get(i);
-                if (vm != null && v != null) {
-                    if (!v.isInstantiated()) {
-                        if (best == null || best.getLB() < v.getLB()) {
-                            best = v;
-                            if (best.getLB() == 0) {
-                                break;
-                            }
-                        }
-                    } else {
-                        firstFree.add(1);
-                    }
-                }
+            if (v.isInstantiated()) {
+                size--;
+                pending[k] = pending[size];
+                pending[size] = i;
+                continue;
+            }
+            if (first < 0 || i < first) {
+                first = i;
+            }
+            if (best < 0 || starts[best].getLB() < v.getLB() || (starts[best].getLB() == v.getLB() && i < best)) {
+                best = i;
             }
+            k++;
+        }
+        if (size != pendingSize.get()) {
+            pendingSize.set(size);
+        }
+        if (first < 0) {
+            return null;
         }
-        return best;
+        return starts[first].getLB() == 0 ? starts[first] : starts[best];
     }
 
     /**
@@ -208,19 +305,26 @@ public class OnStableNodeFirst implements VariableSelector<IntVar> {
      * @return the variable, or {@code null} if all the start moments are already instantiated
      */
     private IntVar getEarlyVar() {
-        IntVar earlyVar = null;
-        for (int i = stays.nextSetBit(0); i >= 0; i = stays.nextSetBit(i + 1)) {
-            if (starts[i] != null && !starts[i].isInstantiated()) {
-                if (earlyVar == null) {
-                    earlyVar = starts[i];
-                } else {
-                    if (earlyVar.getLB() > starts[i].getLB()) {
-                        earlyVar = starts[i];
-                    }
-                }
+        int early = -1;
+        int size = staysSize.get();
+        for (int k = 0; k < size; ) {
+            int i = stays[k];
+            IntVar v = starts[i];
+            if (v.isInstantiated()) {
+                size--;
+                stays[k] = stays[size];
+                stays[size] = i;
+                continue;
+            }
+            if (early < 0 || starts[early].getLB() > v.getLB() || (starts[early].getLB() == v.getLB() && i < early)) {
+                early = i;
             }
+            k++;
         }
-        return earlyVar;
+        if (size != staysSize.get()) {
+            staysSize.set(size);
+        }
+        return early < 0 ? null : starts[early];
     }
 
     /**
@@ -231,17 +335,6 @@ public class OnStableNodeFirst implements VariableSelector<IntVar> {
      * @return a start moment, or {@code null} if there is no more un-schedule actions to leaf nodes
      */
     private IntVar getVMtoLeafNode() {
-        for (int x = 0; x < outs.length; x++) {
-            if (outs[x].cardinality() == 0) {
-                //no outgoing VMs, can be launched directly.
-                BitSet in = ins[x];
-                for (int i = in.nextSetBit(0); i >= 0; i = in.nextSetBit(i + 1)) {
-                    if (starts[i] != null && !starts[i].isInstantiated()) {
-                        return starts[i];
-                    }
-                }
-            }
-        }
-        return null;
+        return firstUninstantiated(toLeaves, nbToLeaves, toLeavesCursor);
     }
 }
@@ -6,17 +6,21 @@
 
 package org.btrplace.scheduler.choco.constraint.mttr;
 
-import org.btrplace.model.Node;
 import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.memory.IStateBool;
+import org.chocosolver.memory.IStateInt;
 import org.chocosolver.solver.search.strategy.selectors.variables.VariableSelector;
 import org.chocosolver.solver.variables.IntVar;
 
-import java.util.List;
-
 
 /**
  * A heuristic that first focus on the start moment for VM
  * actions that goes to a node without any outgoing actions.
+ * <p>
+ * The candidate start moments are computed once the VMs are placed. As the start moments are only instantiated
+ * when the search goes down, a backtrackable cursor skips the ones that are already instantiated.
+ * The candidates are computed again when the search backtracks before their computation.
  *
  * @author Fabien Hermenier
  */
@@ -24,7 +28,21 @@ public class StartOnLeafNodes implements VariableSelector<IntVar> {
 
   private final MovementGraph graph;
 
-  private final List<Node> nodes;
+  private final int nbNodes;
+
+  /**
+   * The position in the graph of the movements to a leaf node, ordered by node.
+   */
+  private final int[] candidates;
+
+  private int nbCandidates;
+
+  private final IStateInt cursor;
+
+  /**
+   * {@code true} while the candidates match the current placement.
+   */
+  private final IStateBool ready;
 
     /**
      * Make a new heuristics
@@ -34,23 +52,40 @@ public class StartOnLeafNodes implements VariableSelector<IntVar> {
      */
     public StartOnLeafNodes(ReconfigurationProblem rp, MovementGraph g) {
         this.graph = g;
-        nodes = rp.getNodes();
+        nbNodes = rp.getNodes().size();
+        candidates = new int[rp.getVMActions().size()];
+        IEnvironment env = rp.getModel().getEnvironment();
+        cursor = env.makeInt(0);
+        ready = env.makeBool(false);
     }
 
     @Override
     public IntVar getVariable(IntVar[] scope) {
         // todo check coherence between scope (Dslices) and graph vars (Cslices)
+        if (!ready.get()) {
+            make();
+        }
+        int c = cursor.get();
+        while (c < nbCandidates && graph.getIncoming(candidates[c]).isInstantiated()) {
+            c++;
+        }
+        if (c != cursor.get()) {
+            cursor.set(c);
+        }
+        return c < nbCandidates ? graph.getIncoming(candidates[c]) : null;
+    }
+
+    private void make() {
         graph.make();
-        for (Node n : nodes) {
-            List<IntVar> outs = graph.getOutgoing(n);
-            if (outs.isEmpty()) {
-                for (IntVar v : graph.getIncoming(n)) {
-                    if (!v.isInstantiated()) {
-                        return v;
-                    }
+        nbCandidates = 0;
+        for (int n = 0; n < nbNodes; n++) {
+            if (graph.getNbOutgoing(n) == 0) {
+                for (int pos = graph.getIncomingFrom(n); pos < graph.getIncomingTo(n); pos++) {
+                    candidates[nbCandidates++] = pos;
                 }
             }
         }
-        return null;
+        cursor.set(0);
+        ready.set(true);
     }
 }
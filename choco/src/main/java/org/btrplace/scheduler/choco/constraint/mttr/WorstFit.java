@@ -6,10 +6,9 @@
 
 package org.btrplace.scheduler.choco.constraint.mttr;
 
-import gnu.trove.map.TIntObjectMap;
-import gnu.trove.map.hash.TIntObjectHashMap;
 import org.btrplace.model.Node;
 import org.btrplace.model.VM;
+import org.btrplace.model.view.ResourceMatrix;
 import org.btrplace.scheduler.choco.ReconfigurationProblem;
 import org.btrplace.scheduler.choco.constraint.mttr.load.GlobalLoadEstimator;
 import org.btrplace.scheduler.choco.view.CShareableResource;
@@ -21,15 +20,30 @@ import org.chocosolver.solver.search.strategy.selectors.values.IntValueSelector;
 import org.chocosolver.solver.variables.IntVar;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Map;
 
 /**
  * Placement heuristic implementing a worst fit.
+ * <p>
+ * The nodes are indexed in a segment tree that stores, for each range of nodes and each dimension,
+ * the minimum normalised load and the maximum capacity. This provides a lower bound of the load of every node
+ * in a range once the VM is placed, so the selection only evaluates the promising nodes. The
+ * {@link GlobalLoadEstimator} must then be non-decreasing with regards to every dimension.
+ * The tree is updated with the nodes that received VMs. After a backtrack, the assigned loads are compared
+ * with the ones in the tree, and only the nodes that changed are updated.
+ *
  * @author Fabien Hermenier
  */
 public class WorstFit implements IntValueSelector {
 
+  /**
+   * Tolerance for the rounding errors when comparing the bounds.
+   */
+  private static final double EPSILON = 1e-9;
+
   private final boolean stayFirst;
 
   private final Map<IntVar, VM> vmMap;
@@ -42,9 +56,62 @@ public class WorstFit implements IntValueSelector {
 
   private final VectorPacking packing;
 
-  private final TIntObjectMap<int[]> usages;
+  /**
+   * The packing dimension of each resource.
+   */
+  private final int[] dims;
+
+  /**
+   * The VM usages.
+   * Retrieved once the search starts, as the constraints may change the allocations until then.
+   */
+  private ResourceMatrix usages;
+
+  /**
+   * The node capacities, overbooking ratio included.
+   */
+  private final ResourceMatrix capacities;
+
+  private final int nbNodes;
+
+  /**
+   * The number of leaves in the tree. A power of 2.
+   */
+  private final int nbLeaves;
+
+  /**
+   * The minimum normalised assigned load of the nodes below each tree node. [nbDims][2 * nbLeaves]
+   */
+  private final double[][] minLoads;
+
+  /**
+   * The maximum capacity of the nodes below each tree node. [nbDims][2 * nbLeaves]
+   */
+  private final int[][] maxCapacities;
 
-  private final TIntObjectMap<int[]> capacities;
+  /**
+   * The assigned load of the nodes in the tree. [nbDims][nbNodes]
+   */
+  private final int[][] leafLoads;
+
+  /**
+   * The nodes to update in the tree.
+   */
+  private final BitSet assigned;
+
+  private final double[] buffer;
+
+  private boolean listening;
+
+  private int lastWorld = -1;
+
+  private long lastNbOfBacktracks = -1;
+
+  private long lastNbOfRestarts = -1;
+
+  private double bestLoad;
+
+  private int bestNode;
 
   /**
    * New heuristic.
@@ -80,17 +147,40 @@ public class WorstFit implements IntValueSelector {
       }
     }
 
-    usages = new TIntObjectHashMap<>();
-    capacities = new TIntObjectHashMap<>();
-    for (Node node : rp.getNodes()) {
-      int nIdx = rp.getNode(node);
-      int[] capa = new int[rcs.size()];
-      for (int i = 0; i < rcs.size(); i++) {
-        capa[i] += (int) (rcs.get(i).getFutureNodeCapacity(nIdx) * rcs.get(i).getOverbookRatio(nIdx));
+    dims = new int[rcs.size()];
+    for (int d = 0; d < dims.length; d++) {
+      dims[d] = packing.indexOf(rcs.get(d).getResourceIdentifier());
+    }
+    nbNodes = rp.getNodes().size();
+    capacities = CShareableResource.getFutureResources(rp, rcs);
+    for (int d = 0; d < rcs.size(); d++) {
+      CShareableResource rc = rcs.get(d);
+      for (int nIdx = 0; nIdx < nbNodes; nIdx++) {
+        capacities.setCapacity(d, nIdx, (int) (capacities.getCapacity(d, nIdx) * rc.getOverbookRatio(nIdx)));
       }
-      capacities.put(nIdx, capa);
+    }
 
+    int n = 1;
+    while (n < nbNodes) {
+      n *= 2;
+    }
+    nbLeaves = n;
+    minLoads = new double[rcs.size()][2 * nbLeaves];
+    maxCapacities = new int[rcs.size()][2 * nbLeaves];
+    for (int d = 0; d < rcs.size(); d++) {
+      Arrays.fill(minLoads[d], Double.POSITIVE_INFINITY);
+      System.arraycopy(capacities.getCapacities(d), 0, maxCapacities[d], nbLeaves, nbNodes);
+      for (int t = nbLeaves - 1; t > 0; t--) {
+        maxCapacities[d][t] = Math.max(maxCapacities[d][2 * t], maxCapacities[d][2 * t + 1]);
+      }
     }
+    leafLoads = new int[rcs.size()][nbNodes];
+    for (int[] l : leafLoads) {
+      // Unknown loads, to fill the tree at the first update
+      Arrays.fill(l, -1);
+    }
+    assigned = new BitSet(nbNodes);
+    buffer = new double[rcs.size()];
   }
 
   @Override
@@ -99,57 +189,147 @@ public class WorstFit implements IntValueSelector {
     int vmId = rp.getVM(vm);
     Node host = rp.getSourceModel().getMapping().getVMLocation(vm);
     int nodeId = rp.getNode(host);
+    sync();
     if (stayFirst && canStay(nodeId, vmId)) {
       return nodeId;
     }
 
-    //Get the load
-    int leastId = v.getLB();
-    double minLoad = 2;
-    IStateInt[] loads = new IStateInt[rcs.size()];
-    for (int nId = v.getLB(); nId <= v.getUB(); nId = v.nextValue(nId)) {
-      for (int d = 0; d < rcs.size(); d++) {
-        loads[d] = packing.assignedLoad()[d][nId];
+    //Get the least loaded node, once the VM is placed
+    bestLoad = 2;
+    bestNode = -1;
+    select(1, 0, nbLeaves, v, vmId);
+    return bestNode < 0 ? v.getLB() : bestNode;
+  }
+
+  /**
+   * Browse a range of nodes, the most promising sub-range first.
+   * A range is ignored when its nodes cannot beat the best node so far, the lowest node index winning the ties.
+   *
+   * @param t    the tree node
+   * @param lo   the first node in the range
+   * @param hi   the node following the last node in the range
+   * @param v    the placement variable
+   * @param vmId the VM identifier
+   */
+  private void select(int t, int lo, int hi, IntVar v, int vmId) {
+    if (lo >= nbNodes || lo > v.getUB() || hi <= v.getLB()) {
+      return;
+    }
+    if (t >= nbLeaves) {
+      if (v.contains(lo)) {
+        double l = loadWith(lo, vmId);
+        if (l < bestLoad || (l == bestLoad && bestNode >= 0 && lo < bestNode)) {
+          bestLoad = l;
+          bestNode = lo;
+        }
       }
-      double global = loadWith(nId, loads, vmId);
+      return;
+    }
+    int mid = (lo + hi) / 2;
+    double left = bound(2 * t, vmId);
+    double right = bound(2 * t + 1, vmId);
+    if (right < left) {
+      visit(2 * t + 1, mid, hi, right, v, vmId);
+      visit(2 * t, lo, mid, left, v, vmId);
+    } else {
+      visit(2 * t, lo, mid, left, v, vmId);
+      visit(2 * t + 1, mid, hi, right, v, vmId);
+    }
+  }
+
+  private void visit(int t, int lo, int hi, double lb, IntVar v, int vmId) {
+    if (lb - EPSILON > bestLoad) {
+      return;
+    }
+    if (lb - EPSILON >= bestLoad && (bestNode < 0 || lo > bestNode)) {
+      // At best a tie that is lost
+      return;
+    }
+    select(t, lo, hi, v, vmId);
+  }
 
-      if (global < minLoad) {
-        leastId = nId;
-        minLoad = global;
+  /**
+   * Lower bound of the load of the nodes below a tree node, once the VM is placed.
+   */
+  private double bound(int t, int vmId) {
+    for (int d = 0; d < buffer.length; d++) {
+      int capa = maxCapacities[d][t];
+      if (capa <= 0) {
+        // No capacity, the VM cannot go there
+        return Double.POSITIVE_INFINITY;
       }
+      buffer[d] = minLoads[d][t] + 1.0d * usages.getConsumption(d, vmId) / capa;
     }
-    return leastId;
+    return globalLoad.getLoad(buffer);
   }
 
-  private IStateInt[] load(int nId) {
-    IStateInt[] loads = new IStateInt[rcs.size()];
-    for (int d = 0; d < rcs.size(); d++) {
-      loads[d] = packing.assignedLoad()[d][nId];
+  private double loadWith(int nId, int vmId) {
+    IStateInt[][] loads = packing.assignedLoad();
+    for (int d = 0; d < buffer.length; d++) {
+      buffer[d] = (1.0d * loads[dims[d]][nId].get() + usages.getConsumption(d, vmId)) / capacities.getCapacity(d, nId);
     }
-    return loads;
+    return globalLoad.getLoad(buffer);
   }
 
-  private int[] usage(int vId) {
-    int[] usage = usages.get(vId);
-    if (usage == null) {
-      usage = new int[rcs.size()];
-      for (int i = 0; i < rcs.size(); i++) {
-        usage[i] += rcs.get(i).getFutureVMAllocation(vId);
+  /**
+   * Update the tree with the current assigned loads.
+   * Only the nodes that received VMs are updated. After a backtrack, the nodes whose load changed are looked for.
+   */
+  private void sync() {
+    if (!listening) {
+      usages = CShareableResource.getFutureResources(rp, rcs);
+      packing.addAssignListener(assigned::set);
+      listening = true;
+      lastWorld = Integer.MAX_VALUE;
+    }
+    int currentWorld = rp.getModel().getEnvironment().getWorldIndex();
+    long currentBt = rp.getModel().getSolver().getMeasures().getBackTrackCount();
+    long currentRestart = rp.getModel().getSolver().getMeasures().getRestartCount();
+    if (currentWorld < lastWorld || currentBt != lastNbOfBacktracks || currentRestart > lastNbOfRestarts) {
+      markChanged();
+    }
+    for (int nIdx = assigned.nextSetBit(0); nIdx >= 0; nIdx = assigned.nextSetBit(nIdx + 1)) {
+      setLeaf(nIdx);
+      for (int t = (nbLeaves + nIdx) / 2; t > 0; t /= 2) {
+        pull(t);
       }
-      usages.put(vId, usage);
     }
-    return usage;
+    assigned.clear();
+    lastWorld = currentWorld;
+    lastNbOfBacktracks = currentBt;
+    lastNbOfRestarts = currentRestart;
+  }
+
+  /**
+   * Mark the nodes having an assigned load that differs from the one in the tree.
+   */
+  private void markChanged() {
+    IStateInt[][] loads = packing.assignedLoad();
+    for (int d = 0; d < leafLoads.length; d++) {
+      int[] known = leafLoads[d];
+      for (int nIdx = 0; nIdx < nbNodes; nIdx++) {
+        if (known[nIdx] != loads[dims[d]][nIdx].get()) {
+          assigned.set(nIdx);
+        }
+      }
+    }
+  }
 
+  private void setLeaf(int nIdx) {
+    IStateInt[][] loads = packing.assignedLoad();
+    for (int d = 0; d < minLoads.length; d++) {
+      int capa = capacities.getCapacity(d, nIdx);
+      int l = loads[dims[d]][nIdx].get();
+      leafLoads[d][nIdx] = l;
+      // Without capacity, any VM makes the node overloaded
+      minLoads[d][nbLeaves + nIdx] = capa > 0 ? 1.0d * l / capa : 0;
+    }
   }
 
-  private double loadWith(int nId, IStateInt[] loads, int vmId) {
-    int[] capas = capacities.get(nId);
-    double[] normalised = new double[capas.length];
-    int[] usage = usage(vmId);
-    for (int i = 0; i < capas.length; i++) {
-      normalised[i] = (1.0d * loads[i].get() + usage[i]) / capas[i];
+  private void pull(int t) {
+    for (int d = 0; d < minLoads.length; d++) {
+      minLoads[d][t] = Math.min(minLoads[d][2 * t], minLoads[d][2 * t + 1]);
     }
-    return globalLoad.getLoad(normalised);
   }
 
   /**
@@ -167,7 +347,6 @@ public class WorstFit implements IntValueSelector {
     if (!rp.getVMActions().get(vmId).getDSlice().getHoster().contains(hostId)) {
       return false;
     }
-    IStateInt[] loads = load(hostId);
-    return loadWith(hostId, loads, vmId) <= 1.0;
+    return loadWith(hostId, vmId) <= 1.0;
   }
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.extensions;
+
+import gnu.trove.map.hash.TIntIntHashMap;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.constraints.Propagator;
+import org.chocosolver.solver.constraints.PropagatorPriority;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.util.ESat;
+import org.chocosolver.util.tools.ArrayUtils;
+
+/**
+ * A precedence constraint between the tasks of a group that share a resource.
+ * <p>
+ * Each task of the group may leave a resource and may arrive on a resource. A task that arrives on
+ * a resource must start once the other tasks of the group that leave this resource have ended.
+ * This is the conjunction of the pairwise reified precedences {@code (h_i = oh_j) => oe_j <= st_i}
+ * for every pair of distinct tasks, without the intermediary variables: the memory is linear in the
+ * group size.
+ * <p>
+ * The resources that are left are known, so at most one task of the group leaves each resource.
+ *
+ * @author Fabien Hermenier
+ */
+public class HostPrecedences extends Constraint {
+
+    /**
+     * Make a new constraint.
+     *
+     * @param h  the resource each arriving task arrives on
+     * @param st the moment each arriving task arrives
+     * @param ht the task identifier of each arriving task
+     * @param oh the resource each leaving task leaves. Distinct values
+     * @param oe the moment each leaving task leaves its resource
+     * @param ot the task identifier of each leaving task
+     */
+    public HostPrecedences(IntVar[] h, IntVar[] st, int[] ht, int[] oh, IntVar[] oe, int[] ot) {
+        super("hostPrecedences", new HostPrecedencesPropagator(h, st, ht, oh, oe, ot));
+    }
+
+    static class HostPrecedencesPropagator extends Propagator<IntVar> {
+
+        private final IntVar[] hosts;
+
+        private final IntVar[] starts;
+
+        private final int[] tasks;
+
+        private final int[] othersHost;
+
+        private final IntVar[] othersEnd;
+
+        private final int[] othersTask;
+
+        /**
+         * Resource to the index of the task that leaves it.
+         */
+        private final TIntIntHashMap leaving;
+
+        HostPrecedencesPropagator(IntVar[] h, IntVar[] st, int[] ht, int[] oh, IntVar[] oe, int[] ot) {
+            super(ArrayUtils.append(h, st, oe), PropagatorPriority.QUADRATIC, false);
+            hosts = h;
+            starts = st;
+            tasks = ht;
+            othersHost = oh;
+            othersEnd = oe;
+            othersTask = ot;
+            leaving = new TIntIntHashMap(oh.length * 2, 0.5f, -1, -1);
+            for (int j = 0; j < oh.length; j++) {
+                if (leaving.put(oh[j], j) != -1) {
+                    throw new IllegalArgumentException("Resource " + oh[j] + " is left by multiple tasks");
+                }
+            }
+        }
+
+        @Override
+        public void propagate(int evtmask) throws ContradictionException {
+            for (int i = 0; i < hosts.length; i++) {
+                filter(i);
+            }
+        }
+
+        /**
+         * Filter an arriving task.
+         */
+        private void filter(int i) throws ContradictionException {
+            IntVar h = hosts[i];
+            IntVar st = starts[i];
+            // The resources that cannot be left on time
+            int nbLeft = 0;
+            int minEnd = Integer.MAX_VALUE;
+            for (int j = 0; j < othersHost.length; j++) {
+                int oh = othersHost[j];
+                if (othersTask[j] == tasks[i] || !h.contains(oh)) {
+                    continue;
+                }
+                if (othersEnd[j].getLB() > st.getUB()) {
+                    h.removeValue(oh, this);
+                } else {
+                    nbLeft++;
+                    minEnd = Math.min(minEnd, othersEnd[j].getLB());
+                }
+            }
+
+            if (h.isInstantiated()) {
+                int j = leaving.get(h.getValue());
+                if (j >= 0 && othersTask[j] != tasks[i]) {
+                    st.updateLowerBound(othersEnd[j].getLB(), this);
+                    othersEnd[j].updateUpperBound(st.getUB(), this);
+                }
+            } else if (nbLeft == h.getDomainSize()) {
+                // Every candidate resource is left by another task
+                st.updateLowerBound(minEnd, this);
+            }
+        }
+
+        @Override
+        public ESat isEntailed() {
+            boolean done = true;
+            for (int i = 0; i < hosts.length; i++) {
+                if (!hosts[i].isInstantiated()) {
+                    done = false;
+                    continue;
+                }
+                int j = leaving.get(hosts[i].getValue());
+                if (j < 0 || othersTask[j] == tasks[i]) {
+                    continue;
+                }
+                if (othersEnd[j].getLB() > starts[i].getUB()) {
+                    return ESat.FALSE;
+                }
+                if (othersEnd[j].getUB() > starts[i].getLB()) {
+                    done = false;
+                }
+            }
+            return done ? ESat.TRUE : ESat.UNDEFINED;
+        }
+    }
+}
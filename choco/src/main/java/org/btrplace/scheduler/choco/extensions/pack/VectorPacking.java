@@ -11,6 +11,8 @@ import org.chocosolver.memory.IStateInt;
 import org.chocosolver.solver.constraints.Constraint;
 import org.chocosolver.solver.variables.IntVar;
 
+import java.util.function.IntConsumer;
+
 /**
  * Lighter but faster version of BinPacking that does not provide the knapsack filtering
  *
@@ -50,4 +52,14 @@ public class VectorPacking extends Constraint {
     public IStateInt[][] assignedLoad() {
         return ((VectorPackingPropagator) propagators[0]).assignedLoad();
     }
+
+    /**
+     * Add a listener that is notified when the assigned load of a bin increases.
+     *
+     * @param l the listener, that receives the bin index
+     * @see VectorPackingPropagator#addAssignListener(IntConsumer)
+     */
+    public void addAssignListener(IntConsumer l) {
+        ((VectorPackingPropagator) propagators[0]).addAssignListener(l);
+    }
 }
@@ -9,6 +9,7 @@ package org.btrplace.scheduler.choco.extensions.pack;
 import org.chocosolver.solver.exception.ContradictionException;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Comparator;
 import java.util.List;
 import java.util.PriorityQueue;
@@ -17,6 +18,9 @@ import java.util.PriorityQueue;
  * The list of bins can be optionally maintain as a heap in order that only the bins with the maximum load slack
  * are considered in the propagation of rule 1: binLoad = sumItemSizes - sumOtherBinLoads
  * call attachHeapDecorator() to the VectorPackingPropagator object
+ * <p>
+ * The heaps are rebuilt after a backtrack. Otherwise, only the bins whose load moved outside of the propagator
+ * are re-positioned.
  *
  * @author Sophie Demassey
  */
@@ -31,6 +35,11 @@ public class VectorPackingHeapDecorator {
      */
     private final List<PriorityQueue<Integer>> maxSlackBinHeap;
 
+    /**
+     * The bins whose load bounds moved outside of the propagator since the last fix point. [nbDims]
+     */
+    private final BitSet[] moved;
+
     private int lastWorld = -1;
     private long lastNbOfBacktracks = -1;
     private long lastNbOfRestarts = -1;
@@ -41,6 +50,10 @@ public class VectorPackingHeapDecorator {
         for (int d = 0; d < p.nbDims; d++) {
             maxSlackBinHeap.add(new PriorityQueue<>(p.nbBins, new LoadSlackComparator(d, this)));
         }
+        moved = new BitSet[p.nbDims];
+        for (int d = 0; d < p.nbDims; d++) {
+            moved[d] = new BitSet(p.nbBins);
+        }
     }
 
     /**
@@ -54,15 +67,53 @@ public class VectorPackingHeapDecorator {
         return p.loads[dim][bin].getUB() - p.loads[dim][bin].getLB();
     }
 
+    /**
+     * Notify the load bounds of a bin moved outside of the propagator.
+     *
+     * @param dim the dimension
+     * @param bin the bin
+     */
+    public void moved(int dim, int bin) {
+        moved[dim].set(bin);
+    }
+
     private void reHeap() {
         for (int d = 0; d < p.nbDims; d++) {
-            maxSlackBinHeap.get(d).clear();
-            for (int b = 0; b < p.nbBins; b++) {
-                if (loadSlack(d, b) > 0) {
-                    maxSlackBinHeap.get(d).offer(b);
-                }
+            reHeap(d);
+        }
+    }
+
+    private void reHeap(int d) {
+        maxSlackBinHeap.get(d).clear();
+        for (int b = 0; b < p.nbBins; b++) {
+            if (loadSlack(d, b) > 0) {
+                maxSlackBinHeap.get(d).offer(b);
             }
         }
+        moved[d].clear();
+    }
+
+    /**
+     * Re-position the bins that moved.
+     * Removing a bin from the heap is linear so the heap is rebuilt if many bins moved.
+     */
+    private void update(int d) {
+        BitSet bs = moved[d];
+        if (bs.isEmpty()) {
+            return;
+        }
+        if (bs.cardinality() > p.nbBins / 16) {
+            reHeap(d);
+            return;
+        }
+        PriorityQueue<Integer> heap = maxSlackBinHeap.get(d);
+        for (int b = bs.nextSetBit(0); b >= 0; b = bs.nextSetBit(b + 1)) {
+            heap.remove(b);
+            if (loadSlack(d, b) > 0) {
+                heap.offer(b);
+            }
+        }
+        bs.clear();
     }
 
     private void checkReHeap(boolean forceReHeap) {
@@ -71,6 +122,10 @@ public class VectorPackingHeapDecorator {
         long currentRestart = p.getModel().getSolver().getMeasures().getRestartCount();
         if (forceReHeap || currentWorld < lastWorld || currentBt != lastNbOfBacktracks || currentRestart > lastNbOfRestarts) {
             reHeap();
+        } else {
+            for (int d = 0; d < p.nbDims; d++) {
+                update(d);
+            }
         }
         lastWorld = currentWorld;
         lastNbOfBacktracks = currentBt;
@@ -104,16 +159,16 @@ public class VectorPackingHeapDecorator {
      * if loadSlack &gt; sumBinLoadSup - sumItemSizes then update inf(binLoad) = sumItemSizes - (sumBinLoadSup - sup(binLoad))
      * check each rule against the bin with the maximum loadSlack and continue until it does not apply
      *
-     * @param loadsHaveChanged {@code true} to indicate the load has changed. In that case, we reheap.
+     * @param force {@code true} to rebuild all the heaps.
      * @throws ContradictionException if a contradiction (rules 1) is raised
      */
-    public void fixPoint(boolean loadsHaveChanged) throws ContradictionException {
+    public void fixPoint(boolean force) throws ContradictionException {
         for (int d = 0; d < p.nbDims; d++) {
             if (p.sumISizes[d] > p.sumLoadSup[d].get() || p.sumISizes[d] < p.sumLoadInf[d].get()) {
                 p.fails();
             }
         }
-        checkReHeap(loadsHaveChanged);
+        checkReHeap(force);
         for (int d = 0; d < p.nbDims; d++) {
             if (maxSlackBinHeap.get(d).isEmpty()) {
                 continue;
@@ -6,7 +6,6 @@
 
 package org.btrplace.scheduler.choco.extensions.pack;
 
-import org.chocosolver.memory.IStateBool;
 import org.chocosolver.memory.IStateInt;
 import org.chocosolver.solver.constraints.Propagator;
 import org.chocosolver.solver.constraints.PropagatorPriority;
@@ -20,7 +19,10 @@ import org.chocosolver.util.iterators.DisposableValueIterator;
 import org.chocosolver.util.procedure.UnaryIntProcedure;
 import org.chocosolver.util.tools.ArrayUtils;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
 
 /**
  * Lighter but faster version of a multi dimension vector packing that does not provide the knapsack filtering
@@ -99,9 +101,14 @@ public class VectorPackingPropagator extends Propagator<IntVar> {
     protected int[] smallest;
 
     /**
-     * Must the sumLoads be recompute since the last propagation ?
+     * The load LB accounted in {@link #sumLoadInf} for each bin. [nbDims][nbBins]
      */
-    private IStateBool loadsHaveChanged;
+    private final IStateInt[][] knownLoadInf;
+
+    /**
+     * The load UB accounted in {@link #sumLoadSup} for each bin. [nbDims][nbBins]
+     */
+    private final IStateInt[][] knownLoadSup;
 
     /**
      * The list of bins as a maxSlackBinHeap for quick access to the bin with the maximum slack load. [nbDims]
@@ -110,6 +117,11 @@ public class VectorPackingPropagator extends Propagator<IntVar> {
 
     private final KnapsackDecorator decoKPSimple;
 
+    /**
+     * The listeners notified when items are assigned to a bin.
+     */
+    private final List<IntConsumer> assignListeners = new ArrayList<>();
+
     /**
      * Is the last dimension the cardinality one ?
      */
@@ -150,10 +162,14 @@ public class VectorPackingPropagator extends Propagator<IntVar> {
         //make backtrackable stuff.
         this.potentialLoad = new IStateInt[nbDims][nbBins];
         this.assignedLoad = new IStateInt[nbDims][nbBins];
+        this.knownLoadInf = new IStateInt[nbDims][nbBins];
+        this.knownLoadSup = new IStateInt[nbDims][nbBins];
         for (int x = 0; x < nbBins; x++) {
             for (int d = 0; d < nbDims; d++) {
                 assignedLoad[d][x] = getModel().getEnvironment().makeInt();
                 potentialLoad[d][x] = getModel().getEnvironment().makeInt();
+                knownLoadInf[d][x] = getModel().getEnvironment().makeInt();
+                knownLoadSup[d][x] = getModel().getEnvironment().makeInt();
             }
         }
         sumLoadInf = new IStateInt[nbDims];
@@ -212,8 +228,8 @@ public class VectorPackingPropagator extends Propagator<IntVar> {
     /**
      * main propagation algorithm:
      * - initialize the data at first call
-     * - recompute the sum of the load variable bounds
      * - propagate until the fix point (with or without considering the heap of bins)
+     * The sum of the load variable bounds are maintained incrementally by the fine grain propagation.
      *
      * @param evtMask type of event
      * @throws ContradictionException if a contradiction is raised
@@ -221,17 +237,11 @@ public class VectorPackingPropagator extends Propagator<IntVar> {
     @Override
     @SuppressWarnings("squid:S3346")
     public void propagate(int evtMask) throws ContradictionException {
-        boolean recomputeLoads;
-        if ((evtMask & PropagatorEventType.FULL_PROPAGATION.getMask()) != 0) {
+        boolean init = (evtMask & PropagatorEventType.FULL_PROPAGATION.getMask()) != 0;
+        if (init) {
             initialize();
-            recomputeLoads = true;
-        } else {
-            recomputeLoads = loadsHaveChanged.get();
-            if (recomputeLoads) {
-                recomputeLoadSums(); // TODO: update rather than recompute
-            }
         }
-        decoHeap.fixPoint(recomputeLoads);
+        decoHeap.fixPoint(init);
         assert checkLoadConsistency();
         for (final IIntDeltaMonitor dm : deltaMonitor) {
             dm.startMonitoring();
@@ -239,34 +249,6 @@ public class VectorPackingPropagator extends Propagator<IntVar> {
     }
 
 
-    /**
-     * the fix point procedure without heap, on each dimension:
-     * - check rule 1.0: if sumItemSizes < sumBinLoadInf or sumItemSizes > sumBinLoadSups then fail
-     * - filter according to rule 1.1, for each bin: sumItemSizes - (sumBinLoadSup - sup(binLoad)) &lt;= binLoad <= sumItemSizes - (sumBinLoadInf - inf(binLoad))
-     *
-     * @throws ContradictionException if a contradiction (rules 1) is raised
-     */
-    @SuppressWarnings("squid:S3346")
-    private void fixPoint() throws ContradictionException {
-        boolean noFixPoint = true;
-        while (noFixPoint) {
-            for (int d = 0; d < nbDims; d++) {
-                if (sumISizes[d] > sumLoadSup[d].get() || sumISizes[d] < sumLoadInf[d].get()) {
-                    fails();
-                }
-            }
-            noFixPoint = false;
-
-            for (int d = 0; d < nbDims; d++) {
-                for (int b = 0; b < nbBins; b++) {
-                    assert (loads[d][b].getLB() >= assignedLoad[d][b].get() && loads[d][b].getUB() <= potentialLoad[d][b].get());
-                    noFixPoint |= filterLoadInf(d, b, (int) sumISizes[d] - sumLoadSup[d].get() + loads[d][b].getUB());
-                    noFixPoint |= filterLoadSup(d, b, (int) sumISizes[d] - sumLoadInf[d].get() + loads[d][b].getLB());
-                }
-            }
-        }
-    }
-
     /**
      * update the inf(binLoad) and sumLoadInf accordingly
      *
@@ -277,11 +259,10 @@ public class VectorPackingPropagator extends Propagator<IntVar> {
      * @throws ContradictionException if the domain of the bin load variable becomes empty
      */
     protected boolean filterLoadInf(int dim, int bin, int newLoadInf) throws ContradictionException {
-        int delta = newLoadInf - loads[dim][bin].getLB();
-        if (delta <= 0)
+        if (newLoadInf <= loads[dim][bin].getLB())
             return false;
         loads[dim][bin].updateLowerBound(newLoadInf, this);
-        if (sumISizes[dim] < sumLoadInf[dim].add(delta))
+        if (sumISizes[dim] < syncLoadInf(dim, bin))
             fails();
         return true;
     }
@@ -296,17 +277,50 @@ public class VectorPackingPropagator extends Propagator<IntVar> {
      * @throws ContradictionException if the domain of the bin load variable becomes empty
      */
     protected boolean filterLoadSup(int dim, int bin, int newLoadSup) throws ContradictionException {
-        int delta = newLoadSup - loads[dim][bin].getUB();
-        if (delta >= 0) {
+        if (newLoadSup >= loads[dim][bin].getUB()) {
             return false;
         }
         loads[dim][bin].updateUpperBound(newLoadSup, this);
-        if (sumISizes[dim] > sumLoadSup[dim].add(delta)) {
+        if (sumISizes[dim] > syncLoadSup(dim, bin)) {
             fails();
         }
         return true;
     }
 
+    /**
+     * Account the current LB of a bin load in {@link #sumLoadInf}.
+     *
+     * @param dim the dimension
+     * @param bin the bin
+     * @return the resulting sum
+     */
+    private int syncLoadInf(int dim, int bin) {
+        int lb = loads[dim][bin].getLB();
+        int delta = lb - knownLoadInf[dim][bin].get();
+        if (delta == 0) {
+            return sumLoadInf[dim].get();
+        }
+        knownLoadInf[dim][bin].set(lb);
+        return sumLoadInf[dim].add(delta);
+    }
+
+    /**
+     * Account the current UB of a bin load in {@link #sumLoadSup}.
+     *
+     * @param dim the dimension
+     * @param bin the bin
+     * @return the resulting sum
+     */
+    private int syncLoadSup(int dim, int bin) {
+        int ub = loads[dim][bin].getUB();
+        int delta = ub - knownLoadSup[dim][bin].get();
+        if (delta == 0) {
+            return sumLoadSup[dim].get();
+        }
+        knownLoadSup[dim][bin].set(ub);
+        return sumLoadSup[dim].add(delta);
+    }
+
 
     /**
      * apply rule 2 (binLoad &lt;= binPotentialLoad) when an item has been removed from the bin candidate list
@@ -343,13 +357,16 @@ public class VectorPackingPropagator extends Propagator<IntVar> {
             filterLoadInf(d, bin, assignedLoad[d][bin].add(iSizes[d][item]));
         }
         decoKPSimple.postAssignItem(item, bin);
+        for (IntConsumer l : assignListeners) {
+            l.accept(bin);
+        }
     }
 
     /**
      * fine grain propagation
      * - if the event concerns a bin variable, then update data and apply rule 2:
      * on the assigned bin: binAssignedLoad &lt;= binLoad &lt;= binPotentialLoad
-     * - otherwise remember to recompute the load sums and do nothing
+     * - otherwise update the load sums with the bound changes of the bin load and remember the bin moved
      *
      * @param idx  the variable index
      * @param mask the event mask
@@ -363,7 +380,15 @@ public class VectorPackingPropagator extends Propagator<IntVar> {
                 assignItem(idx, vars[idx].getValue());
             }
         } else {
-            loadsHaveChanged.set(true);
+            int d = (idx - bins.length) / nbBins;
+            int b = (idx - bins.length) % nbBins;
+            int sli = sumLoadInf[d].get();
+            int sls = sumLoadSup[d].get();
+            boolean moved = syncLoadInf(d, b) != sli;
+            moved |= syncLoadSup(d, b) != sls;
+            if (moved) {
+                decoHeap.moved(d, b);
+            }
         }
         forcePropagate(PropagatorEventType.CUSTOM_PROPAGATION);
     }
@@ -459,6 +484,8 @@ public class VectorPackingPropagator extends Propagator<IntVar> {
                 potentialLoad[d][b].set(rLoads[d][b] + cLoads[d][b]);
                 loads[d][b].updateLowerBound(rLoads[d][b], this);
                 loads[d][b].updateUpperBound(rLoads[d][b] + cLoads[d][b], this);
+                knownLoadInf[d][b].set(loads[d][b].getLB());
+                knownLoadSup[d][b].set(loads[d][b].getUB());
                 slb[d] += loads[d][b].getLB();
                 slu[d] += loads[d][b].getUB();
             }
@@ -469,8 +496,6 @@ public class VectorPackingPropagator extends Propagator<IntVar> {
             sumLoadSup[d].set(slu[d]);
         }
 
-        loadsHaveChanged = getModel().getEnvironment().makeBool(false);
-
         decoKPSimple.postInitialize();
 
         assert checkLoadConsistency();
@@ -550,23 +575,6 @@ public class VectorPackingPropagator extends Propagator<IntVar> {
         }
     }
 
-    /**
-     * recompute the sum of the min/max loads only if at least one variable bound has been updated outside of the constraint
-     */
-    private void recomputeLoadSums() {
-        loadsHaveChanged.set(false);
-        for (int d = 0; d < nbDims; d++) {
-            int sli = 0;
-            int sls = 0;
-            for (int b = 0; b < nbBins; b++) {
-                sli += loads[d][b].getLB();
-                sls += loads[d][b].getUB();
-            }
-            this.sumLoadInf[d].set(sli);
-            this.sumLoadSup[d].set(sls);
-        }
-    }
-
     /**
      * Check the consistency of the assigned and candidate loads with regards to the assignment variables:
      * for each bin: sumAssignedItemSizes == binAssignedLoad, sumAllPossibleItemSizes == binPotentialLoad
@@ -655,6 +663,16 @@ public class VectorPackingPropagator extends Propagator<IntVar> {
         return assignedLoad;
     }
 
+    /**
+     * Add a listener that is notified when the assigned load of a bin increases.
+     * The listener is not notified on backtracks, nor during the initial propagation.
+     *
+     * @param l the listener, that receives the bin index
+     */
+    public void addAssignListener(IntConsumer l) {
+        assignListeners.add(l);
+    }
+
     /**
      * the procedure of removal for an assignment variable
      */
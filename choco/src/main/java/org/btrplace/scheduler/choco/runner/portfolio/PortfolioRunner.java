@@ -0,0 +1,342 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.runner.portfolio;
+
+import org.btrplace.model.Instance;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.constraint.ChocoConstraint;
+import org.btrplace.scheduler.choco.constraint.ChocoMapper;
+import org.btrplace.scheduler.choco.constraint.mttr.CMinMTTR;
+import org.btrplace.scheduler.choco.constraint.mttr.load.Mean;
+import org.btrplace.scheduler.choco.runner.InstanceSolver;
+import org.btrplace.scheduler.choco.runner.SolutionStatistics;
+import org.btrplace.scheduler.choco.runner.SolvingStatistics;
+import org.btrplace.scheduler.choco.runner.single.InstanceSolverRunner;
+import org.btrplace.scheduler.choco.runner.single.SingleRunnerStatistics;
+import org.chocosolver.solver.ResolutionPolicy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A runner that races several diversified solvers on a same instance.
+ * <p>
+ * Each worker solves its own copy of the instance with a distinct random seed. When the objective is
+ * {@link MinMTTR}, the workers also alternate between different search heuristics.
+ * The workers share the best objective value computed so far so each of them only looks for better solutions.
+ * <p>
+ * The race ends once a worker completed its search, or once every worker reached the time limit.
+ * The resulting plan is then the best one computed by the workers.
+ * <p>
+ * The solution listeners of the parameters are not called by the workers, as their solutions may not
+ * improve the best one. They are called once, from the calling thread, with the resulting plan.
+ * <p>
+ * Unless a dedicated executor is provided, the workers are run by a cached thread pool shared by all the runners.
+ * It starts a thread for each worker that cannot reuse an idle one, so all the workers of every race run
+ * simultaneously. The threads are daemon threads that terminate after one minute of inactivity.
+ * A worker that did not start when the race ends is not run.
+ *
+ * @author Fabien Hermenier
+ */
+public class PortfolioRunner implements InstanceSolver {
+
+    /**
+     * The heuristics the workers alternate between to solve {@link MinMTTR}.
+     */
+    private static final List<Class<? extends ChocoConstraint>> STRATEGIES = Collections.unmodifiableList(Arrays.asList(
+            CMinMTTR.class,
+            RandomPlacement.class,
+            MeanLoad.class,
+            RandomRestarts.class));
+
+    /**
+     * The pool shared by the runners that have no dedicated executor.
+     */
+    private static final ExecutorService WORKERS = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "portfolio-worker");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private final int nbWorkers;
+
+    private ExecutorService executor;
+
+    private volatile List<InstanceSolverRunner> runners = Collections.emptyList();
+
+    /**
+     * Set once the current race is over, so the workers that did not start yet are not run.
+     */
+    private volatile AtomicBoolean over = new AtomicBoolean();
+
+    private SolvingStatistics stats;
+
+    /**
+     * Make a new runner with one worker per available processor.
+     */
+    public PortfolioRunner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Make a new runner.
+     *
+     * @param nb the number of workers. Must be strictly positive
+     */
+    public PortfolioRunner(int nb) {
+        if (nb < 1) {
+            throw new IllegalArgumentException("The number of workers must be strictly positive");
+        }
+        nbWorkers = nb;
+    }
+
+    /**
+     * Get the number of workers.
+     *
+     * @return a positive number
+     */
+    public int getNbWorkers() {
+        return nbWorkers;
+    }
+
+    /**
+     * Set the executor that runs the workers.
+     * The executor is not shut down by the runner. It should be able to run all the workers simultaneously.
+     *
+     * @param exe the executor. {@code null} to use the pool shared among the runners
+     */
+    public void setExecutorService(ExecutorService exe) {
+        this.executor = exe;
+    }
+
+    /**
+     * Get the executor that runs the workers.
+     *
+     * @return the executor provided by {@link #setExecutorService(ExecutorService)} if any,
+     * otherwise the pool shared among the runners.
+     */
+    public ExecutorService getExecutorService() {
+        return executor != null ? executor : WORKERS;
+    }
+
+    @Override
+    public ReconfigurationPlan solve(Parameters ps, Instance i) throws SchedulerException {
+        SharedBound bound = new SharedBound();
+        List<InstanceSolverRunner> rs = new ArrayList<>(nbWorkers);
+        for (int w = 0; w < nbWorkers; w++) {
+            //The solving process may add elements to the model so every worker needs its own copy
+            Instance copy = new Instance(i.getModel().copy(), i.getSatConstraints(), i.getOptConstraint());
+            rs.add(new InstanceSolverRunner(worker(ps, w, bound), copy));
+        }
+        stats = null;
+        AtomicBoolean halt = new AtomicBoolean();
+        over = halt;
+        runners = rs;
+
+        CompletionService<SolvingStatistics> completion = new ExecutorCompletionService<>(getExecutorService());
+        List<Future<SolvingStatistics>> futures = new ArrayList<>(nbWorkers);
+        for (InstanceSolverRunner r : rs) {
+            //A worker that starts once the race is over has nothing to do
+            futures.add(completion.submit(() -> halt.get() ? null : r.call()));
+        }
+        SchedulerException error = null;
+        boolean ended = false;
+        boolean proved = false;
+        try {
+            for (int w = 0; w < nbWorkers; w++) {
+                try {
+                    SolvingStatistics st = completion.take().get();
+                    if (st == null) {
+                        continue;
+                    }
+                    proved |= st.completed();
+                    if (!ended && (st.completed() || (!ps.doOptimize() && st.lastSolution() != null))) {
+                        //The search space is exhausted, or a solution is enough
+                        ended = true;
+                        stopWorkers();
+                    }
+                } catch (ExecutionException ex) {
+                    //A worker that is interrupted before computing a solution reports an unstatable problem
+                    if (!ended && error == null) {
+                        error = ex.getCause() instanceof SchedulerException
+                                ? (SchedulerException) ex.getCause()
+                                : new SchedulerException(i.getModel(), ex.getCause().getMessage(), ex.getCause());
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            stopWorkers();
+            for (Future<SolvingStatistics> f : futures) {
+                f.cancel(false);
+            }
+            throw new SchedulerException(i.getModel(), "Interrupted while waiting for the workers", ex);
+        }
+
+        InstanceSolverRunner winner = best(rs, ps);
+        if (winner == null) {
+            //No solutions at all
+            if (error != null && !proved) {
+                throw error;
+            }
+            stats = firstStatistics(rs);
+            return null;
+        }
+        SingleRunnerStatistics best = winner.getStatistics();
+        best.setCompleted(proved);
+        stats = best;
+        ReconfigurationPlan plan = best.lastSolution();
+        ps.solutionListeners().forEach(c -> c.accept(winner.getProblem(), plan));
+        return plan;
+    }
+
+    /**
+     * Pick the worker that computed the best solution.
+     *
+     * @return the worker. {@code null} if no worker computed a solution
+     */
+    private static InstanceSolverRunner best(List<InstanceSolverRunner> rs, Parameters ps) {
+        InstanceSolverRunner best = null;
+        SolutionStatistics bestSol = null;
+        boolean maximize = rs.stream().anyMatch(r -> r.getProblem() != null
+                && r.getProblem().getResolutionPolicy() == ResolutionPolicy.MAXIMIZE);
+        for (InstanceSolverRunner r : rs) {
+            SingleRunnerStatistics st = r.getStatistics();
+            if (st == null) {
+                //Not run
+                continue;
+            }
+            List<SolutionStatistics> sols = st.getSolutions();
+            if (st.lastSolution() == null || sols.isEmpty()) {
+                continue;
+            }
+            SolutionStatistics last = sols.get(sols.size() - 1);
+            if (bestSol == null || (ps.doOptimize() && last.hasObjective()
+                    && (maximize ? last.objective() > bestSol.objective() : last.objective() < bestSol.objective()))) {
+                best = r;
+                bestSol = last;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Customise the parameters of a worker.
+     *
+     * @param ps    the user parameters
+     * @param w     the worker identifier
+     * @param bound the bound shared by the workers
+     * @return the worker parameters
+     */
+    private static Parameters worker(Parameters ps, int w, SharedBound bound) {
+        DefaultParameters wps = new DefaultParameters(ps);
+        //The user listeners are only notified about the resulting plan
+        ps.solutionListeners().forEach(wps::removeSolutionListener);
+        wps.setRandomSeed(ps.getRandomSeed() + w);
+        ChocoMapper mapper = new ChocoMapper(ps.getMapper());
+        ChocoConstraint cc = mapper.get(new MinMTTR());
+        //Only diversify the bundled heuristic, a customised one is kept as is
+        if (cc != null && cc.getClass() == CMinMTTR.class) {
+            mapper.mapConstraint(MinMTTR.class, STRATEGIES.get(w % STRATEGIES.size()));
+        }
+        wps.setMapper(mapper);
+        wps.addSolutionListener(bound.listener());
+        return wps;
+    }
+
+    @Override
+    public SolvingStatistics getStatistics() throws SchedulerException {
+        if (stats != null) {
+            return stats;
+        }
+        return firstStatistics(runners);
+    }
+
+    /**
+     * Get the statistics of the first worker that was run.
+     *
+     * @return the statistics. {@code null} if no worker was run
+     */
+    private static SolvingStatistics firstStatistics(List<InstanceSolverRunner> rs) {
+        for (InstanceSolverRunner r : rs) {
+            if (r.getStatistics() != null) {
+                return r.getStatistics();
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void stop() {
+        stopWorkers();
+    }
+
+    private void stopWorkers() {
+        over.set(true);
+        for (InstanceSolverRunner r : runners) {
+            r.stop();
+        }
+    }
+
+    /**
+     * A {@link CMinMTTR} that places the VMs randomly.
+     */
+    public static class RandomPlacement extends CMinMTTR {
+
+        /**
+         * Make a new objective.
+         *
+         * @param m the user-side objective.
+         */
+        public RandomPlacement(@SuppressWarnings("unused") MinMTTR m) {
+            super(null, false);
+        }
+    }
+
+    /**
+     * A {@link CMinMTTR} that balances the VMs according to the mean load of the nodes.
+     */
+    public static class MeanLoad extends CMinMTTR {
+
+        /**
+         * Make a new objective.
+         *
+         * @param m the user-side objective.
+         */
+        public MeanLoad(@SuppressWarnings("unused") MinMTTR m) {
+            super(new Mean(), false);
+        }
+    }
+
+    /**
+     * A {@link CMinMTTR} that places the VMs randomly and restarts the search following a Luby sequence.
+     */
+    public static class RandomRestarts extends CMinMTTR {
+
+        /**
+         * Make a new objective.
+         *
+         * @param m the user-side objective.
+         */
+        public RandomRestarts(@SuppressWarnings("unused") MinMTTR m) {
+            super(null, true);
+        }
+    }
+}
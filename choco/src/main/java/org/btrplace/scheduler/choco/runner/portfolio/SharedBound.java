@@ -0,0 +1,99 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.runner.portfolio;
+
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.chocosolver.solver.ResolutionPolicy;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.search.loop.monitors.IMonitorDownBranch;
+import org.chocosolver.solver.variables.IntVar;
+
+import java.util.function.BiConsumer;
+
+/**
+ * The best objective value computed by the workers of a portfolio.
+ *
+ * @author Fabien Hermenier
+ */
+class SharedBound {
+
+    private volatile boolean set = false;
+
+    private volatile int value;
+
+    /**
+     * Offer a new objective value.
+     *
+     * @param v        the value
+     * @param minimize {@code true} if the objective must be minimized
+     */
+    synchronized void offer(int v, boolean minimize) {
+        if (!set || (minimize ? v < value : v > value)) {
+            value = v;
+            set = true;
+        }
+    }
+
+    /**
+     * Tell if a value was offered.
+     *
+     * @return {@code true} iff {@link #get()} is meaningful
+     */
+    boolean isSet() {
+        return set;
+    }
+
+    /**
+     * Get the best offered value.
+     *
+     * @return a value that is meaningless unless {@link #isSet()}
+     */
+    int get() {
+        return value;
+    }
+
+    /**
+     * Make a solution listener that publishes the objective value of the worker solutions
+     * and tightens the worker bound with the published ones.
+     * The bound is pulled before each branching decision, in the thread of the worker, once it
+     * computed its first solution.
+     *
+     * @return a listener dedicated to a single worker
+     */
+    BiConsumer<ReconfigurationProblem, ReconfigurationPlan> listener() {
+        return new Sync();
+    }
+
+    /**
+     * The link between one worker and the bound.
+     */
+    private class Sync implements BiConsumer<ReconfigurationProblem, ReconfigurationPlan>, IMonitorDownBranch {
+
+        private Solver solver;
+
+        @Override
+        public void accept(ReconfigurationProblem rp, ReconfigurationPlan p) {
+            IntVar o = rp.getObjective();
+            if (o == null || !o.isInstantiated() || rp.getResolutionPolicy() == ResolutionPolicy.SATISFACTION) {
+                return;
+            }
+            offer(o.getValue(), rp.getResolutionPolicy() != ResolutionPolicy.MAXIMIZE);
+            if (solver == null) {
+                solver = rp.getSolver();
+                solver.plugMonitor(this);
+            }
+        }
+
+        @Override
+        public void beforeDownBranch(boolean left) {
+            if (set) {
+                solver.getObjectiveManager().updateBestSolution(value);
+            }
+        }
+    }
+}
@@ -158,8 +158,13 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
         }
     }
 
-    private boolean specialise() {
-        
+    /**
+     * Customise the core problem built by {@link #buildRP()}.
+     * The views are resolved and injected, then the constraints and the objective.
+     *
+     * @return {@code false} if the problem is proven to have no solution
+     */
+    public boolean specialise() {
         //Resolve the view dependencies, add them and inject them
         views = ChocoViews.resolveDependencies(origin, views, rp.getViews());
         views.forEach(rp::addView);
@@ -172,7 +177,15 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
                 (!o.isPresent() || o.isPresent() && o.get().inject(params, rp));
     }
 
-    private ReconfigurationProblem buildRP() throws SchedulerException {
+    /**
+     * Build the core problem.
+     * The resulting problem is also available through {@link #getProblem()}.
+     *
+     * @return the core problem, {@code null} if the maximum plan duration cannot be satisfied
+     * @throws LifeCycleViolationException if a VM cannot reach its expected state
+     * @throws SchedulerException          if an error occurred while building the problem
+     */
+    public ReconfigurationProblem buildRP() throws SchedulerException {
         //Build the RP. As VM state management is not possible
         //We extract VM-state related constraints first.
         //For other constraint, we just create the right choco constraint
@@ -239,6 +252,7 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
             p.getLogger().debug("Unable to restrict the maximum plan duration to " + params.getMaxEnd(), e);
             return null;
         }
+        rp = p;
         return p;
     }
 
@@ -309,6 +323,15 @@ public class InstanceSolverRunner implements Callable<SolvingStatistics> {
         return stats;
     }
 
+    /**
+     * Get the problem that is currently solved.
+     *
+     * @return the problem. {@code null} if {@link #buildRP()} was not called
+     */
+    public ReconfigurationProblem getProblem() {
+        return rp;
+    }
+
     /**
      * Stop the solver.
      */
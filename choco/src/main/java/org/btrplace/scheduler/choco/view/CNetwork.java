@@ -26,8 +26,11 @@ import org.chocosolver.solver.variables.IntVar;
 import org.chocosolver.solver.variables.Task;
 
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * The solver part of the network view.
@@ -160,136 +163,128 @@ public class CNetwork implements ChocoView {
         }
 
         // Add links and switches constraints
-        addLinkConstraints(rp);        
-        addSwitchConstraints(rp);
+        List<RelocatableVM> moves = movingVMs(rp);
+        addLinkConstraints(rp, moves);
+        addSwitchConstraints(rp, moves);
 
         return true;
     }
 
+    /**
+     * Get the migrations that may move a VM, i.e. the ones that are not known to stay on their host.
+     *
+     * @param rp the reconfiguration problem
+     * @return the migrations, in the order of {@link ReconfigurationProblem#getVMs()}
+     */
+    private static List<RelocatableVM> movingVMs(ReconfigurationProblem rp) {
+        List<RelocatableVM> moves = new ArrayList<>();
+        for (VM vm : rp.getVMs()) {
+            VMTransition a = rp.getVMAction(vm);
+            if (a instanceof RelocatableVM
+                    && !a.getDSlice().getHoster().isInstantiatedTo(a.getCSlice().getHoster().getValue())) {
+                moves.add((RelocatableVM) a);
+            }
+        }
+        return moves;
+    }
+
+    private Node destination(ReconfigurationProblem rp, RelocatableVM a) {
+        return rp.getNode(a.getDSlice().getHoster().getValue());
+    }
+
+    private List<Link> path(ReconfigurationProblem rp, RelocatableVM a) {
+        return net.getRouting().getPath(source.getMapping().getVMLocation(a.getVM()), destination(rp, a));
+    }
+
     /**
      * Add the cumulative constraints for each link.
      *
      * Full-duplex links are considered, two cumulative constraints are defined per link by looking at
      * the migration direction for each link on the migration path.
+     * The migrations crossing each link are indexed in a single pass over the migration paths.
      *
-     * @param rp the reconfiguration problem
+     * @param rp    the reconfiguration problem
+     * @param moves the migrations that may move a VM
      */
-    private void addLinkConstraints(ReconfigurationProblem rp) {
-
-        // Links limitation
-        List<Task> tasksListUp = new ArrayList<>();
-        List<Task> tasksListDown = new ArrayList<>();
-        List<IntVar> heightsListUp = new ArrayList<>();
-        List<IntVar> heightsListDown = new ArrayList<>();
+    private void addLinkConstraints(ReconfigurationProblem rp, List<RelocatableVM> moves) {
+
+        Map<Link, List<RelocatableVM>> ups = new HashMap<>();
+        Map<Link, List<RelocatableVM>> downs = new HashMap<>();
+        for (RelocatableVM a : moves) {
+            Node src = source.getMapping().getVMLocation(a.getVM());
+            Node dst = destination(rp, a);
+            for (Link l : path(rp, a)) {
+                LinkDirection linkDirection = net.getRouting().getLinkDirection(src, dst, l);
+                Map<Link, List<RelocatableVM>> idx = linkDirection == LinkDirection.UPLINK ? ups : downs;
+                idx.computeIfAbsent(l, k -> new ArrayList<>()).add(a);
+            }
+        }
 
+        // Post in the links order, one cumulative per used direction
         for (Link l : net.getLinks()) {
+            postLinkCumulative(ups.get(l), l);
+            postLinkCumulative(downs.get(l), l);
+        }
+    }
 
-            for (VM vm : rp.getVMs()) {
-                VMTransition a = rp.getVMAction(vm);
-
-                if (a instanceof RelocatableVM
-                        && !a.getDSlice().getHoster().isInstantiatedTo(a.getCSlice().getHoster().getValue())) {
-
-                    Node src = source.getMapping().getVMLocation(vm);
-                    Node dst = rp.getNode(a.getDSlice().getHoster().getValue());
-                    List<Link> path = net.getRouting().getPath(src, dst);
-
-                    // Check first if the link is on migration path
-                    if (path.contains(l)) {
-                        // Get link direction
-                        LinkDirection linkDirection = net.getRouting().getLinkDirection(src, dst, l);
-                        // UpLink
-                        if (linkDirection == LinkDirection.UPLINK) {
-                            tasksListUp.add(((RelocatableVM) a).getMigrationTask());
-                            heightsListUp.add(((RelocatableVM) a).getBandwidth());
-                        }
-                        // DownLink
-                        else {
-                            tasksListDown.add(((RelocatableVM) a).getMigrationTask());
-                            heightsListDown.add(((RelocatableVM) a).getBandwidth());
-                        }
-                    }
-                }
-            }
-            if (!tasksListUp.isEmpty()) {
-
-                // Post the cumulative constraint for the current UpLink
-                csp.post(csp.cumulative(
-                        tasksListUp.toArray(new Task[tasksListUp.size()]),
-                        heightsListUp.toArray(new IntVar[heightsListUp.size()]),
-                        csp.intVar(l.getCapacity()),
-                        true
-                ));
-
-                tasksListUp.clear();
-                heightsListUp.clear();
-            }
-            if (!tasksListDown.isEmpty()) {
-
-                // Post the cumulative constraint for the current DownLink
-                csp.post(csp.cumulative(
-                        tasksListDown.toArray(new Task[tasksListDown.size()]),
-                        heightsListDown.toArray(new IntVar[heightsListDown.size()]),
-                        csp.intVar(l.getCapacity()),
-                        true
-                ));
-
-                tasksListDown.clear();
-                heightsListDown.clear();
-            }
+    private void postLinkCumulative(List<RelocatableVM> moves, Link l) {
+        if (moves == null) {
+            return;
+        }
+        Task[] tasks = new Task[moves.size()];
+        IntVar[] heights = new IntVar[moves.size()];
+        for (int i = 0; i < tasks.length; i++) {
+            tasks[i] = moves.get(i).getMigrationTask();
+            heights[i] = moves.get(i).getBandwidth();
         }
+        csp.post(csp.cumulative(tasks, heights, csp.intVar(l.getCapacity()), true));
     }
+
     /**
-     * Add the cumulative constraints for each blocking switch (having limited capacity)
+     * Add the cumulative constraints for each blocking switch (having limited capacity).
+     * A migration is indexed once on each limited switch that is an end of a link on its path.
+     * Only the migrations having a known destination are considered.
      *
-     * @param rp the reconfiguration problem
+     * @param rp    the reconfiguration problem
+     * @param moves the migrations that may move a VM
      */
-    private void addSwitchConstraints(ReconfigurationProblem rp) {
-        
-        // Switches capacity limitation
-        List<Task> tasksList = new ArrayList<>();
-        List<IntVar> heightsList = new ArrayList<>();
-        
-        for(Switch sw : net.getSwitches()) {
-
-
-            // Only if the capacity is limited
-            if (sw.getCapacity() != Integer.MAX_VALUE) {
-
-                for (VM vm : rp.getVMs()) {
-                    VMTransition a = rp.getVMAction(vm);
-
-                    if (a != null && a instanceof RelocatableVM) {
-
-                        if (a.getDSlice().getHoster().isInstantiated()) {
-
-                            if (a.getCSlice().getHoster().getValue() != a.getDSlice().getHoster().getValue()) {
+    private void addSwitchConstraints(ReconfigurationProblem rp, List<RelocatableVM> moves) {
 
-                                Node src = source.getMapping().getVMLocation(vm);
-                                Node dst = rp.getNode(a.getDSlice().getHoster().getValue());
-
-                                if (!Collections.disjoint(net.getConnectedLinks(sw), net.getRouting().getPath(src, dst))) {
-                                    tasksList.add(new Task(a.getStart(), a.getDuration(), a.getEnd()));
-                                    heightsList.add(((RelocatableVM) a).getBandwidth());
-                                }
-                            }
-                        }
-                    }
+        Map<Switch, List<RelocatableVM>> crossing = new HashMap<>();
+        Set<Switch> onPath = new HashSet<>();
+        for (RelocatableVM a : moves) {
+            if (!a.getDSlice().getHoster().isInstantiated()) {
+                continue;
+            }
+            onPath.clear();
+            for (Link l : path(rp, a)) {
+                onPath.add(l.getSwitch());
+                if (l.getElement() instanceof Switch) {
+                    onPath.add((Switch) l.getElement());
                 }
-
-                if (!tasksList.isEmpty()) {
-                    // Post the cumulative constraint for the current switch
-                    csp.post(csp.cumulative(
-                            tasksList.toArray(new Task[tasksList.size()]),
-                            heightsList.toArray(new IntVar[heightsList.size()]),
-                            csp.intVar(sw.getCapacity()),
-                            true
-                    ));
-
-                    tasksList.clear();
-                    heightsList.clear();
+            }
+            for (Switch sw : onPath) {
+                // Only if the capacity is limited
+                if (sw.getCapacity() != Integer.MAX_VALUE) {
+                    crossing.computeIfAbsent(sw, k -> new ArrayList<>()).add(a);
                 }
             }
         }
+
+        for (Switch sw : net.getSwitches()) {
+            List<RelocatableVM> l = crossing.get(sw);
+            if (l == null) {
+                continue;
+            }
+            Task[] tasks = new Task[l.size()];
+            IntVar[] heights = new IntVar[l.size()];
+            for (int i = 0; i < tasks.length; i++) {
+                RelocatableVM a = l.get(i);
+                tasks[i] = new Task(a.getStart(), a.getDuration(), a.getEnd());
+                heights[i] = a.getBandwidth();
+            }
+            // Post the cumulative constraint for the current switch
+            csp.post(csp.cumulative(tasks, heights, csp.intVar(sw.getCapacity()), true));
+        }
     }
 }
@@ -19,6 +19,7 @@ import org.btrplace.model.constraint.Overbook;
 import org.btrplace.model.constraint.Preserve;
 import org.btrplace.model.constraint.ResourceCapacity;
 import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ResourceMatrix;
 import org.btrplace.model.view.ResourceRelated;
 import org.btrplace.model.view.ShareableResource;
 import org.btrplace.plan.ReconfigurationPlan;
@@ -242,6 +243,60 @@ public class CShareableResource implements ChocoView {
         return next;
     }
 
+    /**
+     * Get the future amount of resource to allocate to every VM.
+     *
+     * @return a new array, indexed by the VM indexes in the problem ({@link ReconfigurationProblem#getVM(VM)})
+     * @see #getFutureVMAllocation(int)
+     * @see #getFutureResources(ReconfigurationProblem, List)
+     */
+    public int[] getFutureVMAllocations() {
+        return getFutureResources(rp, Collections.singletonList(this)).getConsumptions(0);
+    }
+
+    /**
+     * Get the future capacity of every node.
+     *
+     * @return a new array, indexed by the node indexes in the problem ({@link ReconfigurationProblem#getNode(Node)})
+     * @see #getFutureNodeCapacity(int)
+     * @see #getFutureResources(ReconfigurationProblem, List)
+     */
+    public int[] getFutureNodeCapacities() {
+        return getFutureResources(rp, Collections.singletonList(this)).getCapacities(0);
+    }
+
+    /**
+     * Get the future VM allocations and node capacities of several resources.
+     * The source values are read in bulk, then replaced by the values stated by the constraints.
+     *
+     * @param rp  the problem to solve
+     * @param rcs the resources, one per dimension
+     * @return a new matrix, indexed by the VM and the node indexes in the problem
+     */
+    public static ResourceMatrix getFutureResources(ReconfigurationProblem rp, List<CShareableResource> rcs) {
+        List<ShareableResource> src = new ArrayList<>(rcs.size());
+        for (CShareableResource r : rcs) {
+            src.add(r.rc);
+        }
+        ResourceMatrix m = new ResourceMatrix(src, rp.getVMs(), rp.getNodes());
+        for (int d = 0; d < rcs.size(); d++) {
+            CShareableResource r = rcs.get(d);
+            for (int i = 0; i < m.getNbVMs(); i++) {
+                final int next = r.vmAllocation.get(i);
+                if (next != -1) {
+                    m.setConsumption(d, i, next);
+                }
+            }
+            for (int i = 0; i < m.getNbNodes(); i++) {
+                final int next = r.nodeCapacity.get(i);
+                if (next != -1) {
+                    m.setCapacity(d, i, next);
+                }
+            }
+        }
+        return m;
+    }
+
     /**
      * Get the overbooking ratio for a node.
      *
@@ -291,10 +346,12 @@ public class CShareableResource implements ChocoView {
 
         IntVar[] host = new IntVar[p.getFutureRunningVMs().size()];
         int[] demand = new int[host.length];
+        int[] alloc = getFutureVMAllocations();
         int i = 0;
         for (VM vm : p.getFutureRunningVMs()) {
-            host[i] = rp.getVMAction(vm).getDSlice().getHoster();
-            demand[i] = getFutureVMAllocation(p.getVM(vm));
+            int vIdx = p.getVM(vm);
+            host[i] = rp.getVMActions().get(vIdx).getDSlice().getHoster();
+            demand[i] = alloc[vIdx];
             i++;
         }
         ((Packing) v).addDim(rc.getResourceIdentifier(),
@@ -612,6 +669,8 @@ public class CShareableResource implements ChocoView {
 
         int[] capa = new int[rcs.size()];
         int[] cons = new int[rcs.size()];
+        // The allocations per dimension, indexed by the VM indexes in the problem
+        ResourceMatrix alloc = getFutureResources(rp, rcs);
         TObjectIntMap<VM> cost = new TObjectIntHashMap<>(mo.getMapping().getNbVMs());
         for (Node n : mo.getMapping().getAllNodes()) {
             for (int i = 0; i < rcs.size(); i++) {
@@ -619,18 +678,26 @@ public class CShareableResource implements ChocoView {
             }
         }
 
-        for (VM v : mo.getMapping().getAllVMs()) {
-            for (int i = 0; i < rcs.size(); i++) {
-                cons[i] += rcs.get(i).getFutureVMAllocation(rp.getVM(v));
+        Set<VM> vms = mo.getMapping().getAllVMs();
+        int[] vIdx = new int[vms.size()];
+        int x = 0;
+        for (VM v : vms) {
+            vIdx[x++] = rp.getVM(v);
+        }
+        for (int i = 0; i < rcs.size(); i++) {
+            for (int v : vIdx) {
+                cons[i] += alloc.getConsumption(i, v);
             }
         }
 
-        for (VM v : mo.getMapping().getAllVMs()) {
+        x = 0;
+        for (VM v : vms) {
+            int idx = vIdx[x++];
             double sum = 0;
             for (int i = 0; i < rcs.size(); i++) {
                 double ratio = 0;
                 if (cons[i] > 0) {
-                    ratio = 1.0 * rcs.get(i).getFutureVMAllocation(rp.getVM(v)) / capa[i];
+                    ratio = 1.0 * alloc.getConsumption(i, idx) / capa[i];
                 }
                 sum += ratio;
             }
@@ -14,6 +14,7 @@ import org.chocosolver.solver.variables.IntVar;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.IntConsumer;
 
 
 /*
@@ -33,6 +34,8 @@ public class VectorPacking extends Packing {
 
     private IStateInt[][] assignedLoad;
 
+    private org.btrplace.scheduler.choco.extensions.pack.VectorPacking cstr;
+
     private int dim;
 
     @Override
@@ -58,27 +61,48 @@ public class VectorPacking extends Packing {
     @SuppressWarnings("squid:S3346")
     public boolean beforeSolve(ReconfigurationProblem p) {
         super.beforeSolve(p);
-        int[][] aSizes = new int[dim][sizes.get(0).length];
+        // The rows are the demands given by the dimensions, no copy needed
+        int[][] aSizes = sizes.toArray(new int[dim][]);
         IntVar[][] aLoads = new IntVar[dim][];
-        String[] aNames = new String[dim];
+        String[] aNames = names.toArray(new String[dim]);
         for (int d = 0; d < dim; d++) {
             aLoads[d] = loads.get(d).toArray(new IntVar[loads.get(d).size()]);
             assert bins.get(d).length == 0 || bins.get(d)[0].equals(bins.get(0)[0]);
-            aNames[d] = names.get(d);
-            int[] s = sizes.get(d);
-            aSizes[d] = s;
         }
         if (!p.getFutureRunningVMs().isEmpty()) {
             org.btrplace.scheduler.choco.extensions.pack.VectorPacking c =
                     new org.btrplace.scheduler.choco.extensions.pack.VectorPacking(aNames, aLoads, aSizes, bins.get(0), true);
             p.getModel().post(c);
             assignedLoad = c.assignedLoad();
+            cstr = c;
 
         }
         return true;
     }
 
+    /**
+     * Get the position of a dimension in the packing constraint.
+     *
+     * @param name the dimension name
+     * @return the position, {@code -1} if there is no such dimension
+     */
+    public int indexOf(String name) {
+        return names.indexOf(name);
+    }
+
     public IStateInt[][] assignedLoad() {
         return assignedLoad;
     }
+
+    /**
+     * Add a listener that is notified when the assigned load of a node increases.
+     * Does nothing if there is no packing constraint, as there is no VM to place.
+     *
+     * @param l the listener, that receives the node index
+     */
+    public void addAssignListener(IntConsumer l) {
+        if (cstr != null) {
+            cstr.addAssignListener(l);
+        }
+    }
 }
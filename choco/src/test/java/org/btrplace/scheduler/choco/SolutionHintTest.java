@@ -0,0 +1,100 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Offline;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.plan.DefaultReconfigurationPlan;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.event.MigrateVM;
+import org.btrplace.plan.event.ShutdownVM;
+import org.btrplace.scheduler.SchedulerException;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Collections;
+
+/**
+ * Unit tests for {@link SolutionHint}.
+ *
+ * @author Fabien Hermenier
+ */
+public class SolutionHintTest {
+
+    @Test
+    public void testFromModel() {
+        Model mo = new DefaultModel();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        Node n1 = mo.newNode();
+        mo.getMapping().on(n1).run(n1, vm1).ready(vm2);
+        SolutionHint h = SolutionHint.fromModel(mo);
+        Assert.assertEquals(h.getHost(vm1), n1);
+        Assert.assertNull(h.getHost(vm2));
+    }
+
+    @Test
+    public void testFromPlan() {
+        Model mo = new DefaultModel();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        VM vm3 = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        mo.getMapping().on(n1, n2).run(n1, vm1, vm2, vm3);
+        ReconfigurationPlan p = new DefaultReconfigurationPlan(mo);
+        p.add(new MigrateVM(vm1, n1, n2, 2, 5));
+        p.add(new ShutdownVM(vm2, n1, 0, 1));
+        SolutionHint h = SolutionHint.fromPlan(p);
+        Assert.assertEquals(h.getHost(vm1), n2);
+        Assert.assertNull(h.getHost(vm2));
+        Assert.assertEquals(h.getHost(vm3), n1);
+    }
+
+    @DataProvider(name = "resources")
+    public static Object[][] resources() {
+        return new Object[][]{{true}, {false}};
+    }
+
+    /**
+     * The VMs must leave a node. The hint indicates where.
+     */
+    @Test(dataProvider = "resources")
+    public void testSolveWithHint(boolean withResources) throws SchedulerException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        Node n4 = mo.newNode();
+        map.on(n1, n2, n3, n4).run(n1, vm1, vm2);
+        if (withResources) {
+            mo.attach(new ShareableResource("cpu", 10, 1));
+        }
+
+        ReconfigurationPlan previous = new DefaultReconfigurationPlan(mo);
+        previous.add(new MigrateVM(vm1, n1, n4, 3, 6));
+        previous.add(new MigrateVM(vm2, n1, n3, 0, 3));
+
+        ChocoScheduler s = new DefaultChocoScheduler();
+        s.setSolutionHint(SolutionHint.fromPlan(previous));
+        ReconfigurationPlan p = s.solve(mo, Collections.singletonList(new Offline(n1)));
+        Assert.assertNotNull(p);
+        Mapping res = p.getResult().getMapping();
+        Assert.assertEquals(res.getVMLocation(vm1), n4);
+        Assert.assertEquals(res.getVMLocation(vm2), n3);
+        Assert.assertEquals(p.getSize(), 3);
+    }
+}
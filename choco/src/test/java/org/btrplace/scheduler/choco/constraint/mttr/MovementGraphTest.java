@@ -0,0 +1,163 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.constraint.mttr;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultReconfigurationProblemBuilder;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.solver.Cause;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Unit tests for {@link MovementGraph}.
+ *
+ * @author Fabien Hermenier
+ */
+public class MovementGraphTest {
+
+    /**
+     * Make a problem with 4 nodes and 5 VMs.
+     * <ul>
+     * <li>vm0 and vm1 run on n0, vm2 on n1 and vm4 on n3</li>
+     * <li>vm3 is ready and will be running</li>
+     * <li>vm4 will be ready</li>
+     * </ul>
+     */
+    static ReconfigurationProblem makeProblem(List<VM> vms, List<Node> nodes) throws SchedulerException {
+        Model mo = new DefaultModel();
+        Mapping ma = mo.getMapping();
+        for (int i = 0; i < 4; i++) {
+            Node n = mo.newNode();
+            ma.addOnlineNode(n);
+            nodes.add(n);
+        }
+        for (int i = 0; i < 5; i++) {
+            vms.add(mo.newVM());
+        }
+        ma.addRunningVM(vms.get(0), nodes.get(0));
+        ma.addRunningVM(vms.get(1), nodes.get(0));
+        ma.addRunningVM(vms.get(2), nodes.get(1));
+        ma.addReadyVM(vms.get(3));
+        ma.addRunningVM(vms.get(4), nodes.get(3));
+        return new DefaultReconfigurationProblemBuilder(mo)
+                .setNextVMsStates(Collections.singleton(vms.get(4)),
+                        new HashSet<>(vms.subList(0, 4)),
+                        Collections.emptySet(), Collections.emptySet())
+                .build();
+    }
+
+    /**
+     * Place a VM.
+     */
+    static void place(ReconfigurationProblem rp, VM vm, Node n) throws ContradictionException {
+        rp.getVMAction(vm).getDSlice().getHoster().instantiateTo(rp.getNode(n), Cause.Null);
+    }
+
+    /**
+     * The start moment of the VMs on their destination node, ordered by VM index in the problem.
+     */
+    static List<IntVar> dStarts(ReconfigurationProblem rp, VM... vms) {
+        List<VM> l = new ArrayList<>(Arrays.asList(vms));
+        l.sort(Comparator.comparingInt(rp::getVM));
+        List<IntVar> res = new ArrayList<>();
+        for (VM v : l) {
+            res.add(rp.getVMAction(v).getDSlice().getStart());
+        }
+        return res;
+    }
+
+    private static List<IntVar> cStarts(ReconfigurationProblem rp, VM... vms) {
+        List<VM> l = new ArrayList<>(Arrays.asList(vms));
+        l.sort(Comparator.comparingInt(rp::getVM));
+        List<IntVar> res = new ArrayList<>();
+        for (VM v : l) {
+            res.add(rp.getVMAction(v).getCSlice().getStart());
+        }
+        return res;
+    }
+
+    private static List<IntVar> incoming(MovementGraph g, int nIdx) {
+        List<IntVar> res = new ArrayList<>();
+        for (int pos = g.getIncomingFrom(nIdx); pos < g.getIncomingTo(nIdx); pos++) {
+            res.add(g.getIncoming(pos));
+        }
+        return res;
+    }
+
+    @Test
+    public void testMake() throws SchedulerException, ContradictionException {
+        List<VM> vms = new ArrayList<>();
+        List<Node> ns = new ArrayList<>();
+        ReconfigurationProblem rp = makeProblem(vms, ns);
+        IEnvironment env = rp.getModel().getEnvironment();
+        MovementGraph g = new MovementGraph(rp);
+
+        env.worldPush();
+        place(rp, vms.get(0), ns.get(2));
+        place(rp, vms.get(1), ns.get(0));
+        place(rp, vms.get(2), ns.get(3));
+        place(rp, vms.get(3), ns.get(2));
+        g.make();
+        checkOffsets(g, 4);
+        Assert.assertEquals(incoming(g, rp.getNode(ns.get(0))), dStarts(rp, vms.get(1)));
+        Assert.assertEquals(incoming(g, rp.getNode(ns.get(1))), dStarts(rp));
+        Assert.assertEquals(incoming(g, rp.getNode(ns.get(2))), dStarts(rp, vms.get(0), vms.get(3)));
+        Assert.assertEquals(incoming(g, rp.getNode(ns.get(3))), dStarts(rp, vms.get(2)));
+        Assert.assertEquals(g.getIncoming(ns.get(2)), dStarts(rp, vms.get(0), vms.get(3)));
+        Assert.assertTrue(g.getIncoming(ns.get(1)).isEmpty());
+
+        Assert.assertEquals(g.getNbOutgoing(rp.getNode(ns.get(0))), 2);
+        Assert.assertEquals(g.getNbOutgoing(rp.getNode(ns.get(1))), 1);
+        Assert.assertEquals(g.getNbOutgoing(rp.getNode(ns.get(2))), 0);
+        Assert.assertEquals(g.getNbOutgoing(rp.getNode(ns.get(3))), 1);
+        Assert.assertEquals(g.getOutgoing(ns.get(0)), cStarts(rp, vms.get(0), vms.get(1)));
+        Assert.assertEquals(g.getOutgoing(ns.get(3)), cStarts(rp, vms.get(4)));
+        Assert.assertTrue(g.getOutgoing(ns.get(2)).isEmpty());
+
+        // Another placement, the previous groups must not remain
+        env.worldPop();
+        place(rp, vms.get(0), ns.get(1));
+        place(rp, vms.get(1), ns.get(0));
+        place(rp, vms.get(2), ns.get(3));
+        place(rp, vms.get(3), ns.get(3));
+        g.make();
+        checkOffsets(g, 4);
+        Assert.assertEquals(incoming(g, rp.getNode(ns.get(0))), dStarts(rp, vms.get(1)));
+        Assert.assertEquals(incoming(g, rp.getNode(ns.get(1))), dStarts(rp, vms.get(0)));
+        Assert.assertEquals(incoming(g, rp.getNode(ns.get(2))), dStarts(rp));
+        Assert.assertEquals(incoming(g, rp.getNode(ns.get(3))), dStarts(rp, vms.get(2), vms.get(3)));
+        Assert.assertEquals(g.getNbOutgoing(rp.getNode(ns.get(0))), 2);
+        Assert.assertEquals(g.getNbOutgoing(rp.getNode(ns.get(2))), 0);
+    }
+
+    /**
+     * Check the groups of incoming movements are contiguous and cover all the movements.
+     */
+    private static void checkOffsets(MovementGraph g, int nbMoves) {
+        Assert.assertEquals(g.getIncomingFrom(0), 0);
+        for (int n = 1; n < 4; n++) {
+            Assert.assertEquals(g.getIncomingFrom(n), g.getIncomingTo(n - 1));
+        }
+        Assert.assertEquals(g.getIncomingTo(3), nbMoves);
+    }
+}
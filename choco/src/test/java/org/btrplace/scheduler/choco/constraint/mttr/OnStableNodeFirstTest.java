@@ -0,0 +1,87 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.constraint.mttr;
+
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.solver.Cause;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.btrplace.scheduler.choco.constraint.mttr.MovementGraphTest.dStarts;
+import static org.btrplace.scheduler.choco.constraint.mttr.MovementGraphTest.makeProblem;
+import static org.btrplace.scheduler.choco.constraint.mttr.MovementGraphTest.place;
+
+/**
+ * Unit tests for {@link OnStableNodeFirst}.
+ *
+ * @author Fabien Hermenier
+ */
+public class OnStableNodeFirstTest {
+
+    /**
+     * Check the selected start moments when the search goes down, then backtracks
+     * before and after the cache is computed.
+     * The moving VMs are selected as long as a VM moving to a leaf node is not scheduled.
+     */
+    @Test
+    public void testBacktrack() throws SchedulerException, ContradictionException {
+        List<VM> vms = new ArrayList<>();
+        List<Node> ns = new ArrayList<>();
+        ReconfigurationProblem rp = makeProblem(vms, ns);
+        IEnvironment env = rp.getModel().getEnvironment();
+        OnStableNodeFirst h = new OnStableNodeFirst(rp);
+
+        env.worldPush();
+        // vm0 and vm2 move to the leaf nodes n2 and n3
+        place(rp, vms.get(0), ns.get(2));
+        place(rp, vms.get(1), ns.get(0));
+        place(rp, vms.get(2), ns.get(3));
+        place(rp, vms.get(3), ns.get(2));
+        List<IntVar> moves = dStarts(rp, vms.get(0), vms.get(2));
+        Assert.assertSame(h.getVariable(null), moves.get(0));
+
+        env.worldPush();
+        moves.get(0).instantiateTo(0, Cause.Null);
+        Assert.assertSame(h.getVariable(null), moves.get(1));
+        env.worldPush();
+        moves.get(1).instantiateTo(0, Cause.Null);
+        Assert.assertNull(h.getVariable(null));
+
+        // Back after the computation
+        env.worldPop();
+        Assert.assertSame(h.getVariable(null), moves.get(1));
+        env.worldPop();
+        Assert.assertSame(h.getVariable(null), moves.get(0));
+
+        // Back before the computation, with another placement: vm0 moves to n1, that is not a leaf
+        env.worldPop();
+        env.worldPush();
+        place(rp, vms.get(0), ns.get(1));
+        place(rp, vms.get(1), ns.get(0));
+        place(rp, vms.get(2), ns.get(3));
+        place(rp, vms.get(3), ns.get(2));
+        Assert.assertSame(h.getVariable(null), moves.get(0));
+        moves.get(0).instantiateTo(0, Cause.Null);
+        Assert.assertSame(h.getVariable(null), moves.get(1));
+        moves.get(1).instantiateTo(0, Cause.Null);
+        Assert.assertNull(h.getVariable(null));
+
+        // The cache is also computed again once invalidated
+        env.worldPush();
+        h.invalidPlacement();
+        Assert.assertNull(h.getVariable(null));
+    }
+}
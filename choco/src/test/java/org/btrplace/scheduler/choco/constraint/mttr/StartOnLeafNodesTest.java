@@ -0,0 +1,80 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.constraint.mttr;
+
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.solver.Cause;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.variables.IntVar;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.btrplace.scheduler.choco.constraint.mttr.MovementGraphTest.dStarts;
+import static org.btrplace.scheduler.choco.constraint.mttr.MovementGraphTest.makeProblem;
+import static org.btrplace.scheduler.choco.constraint.mttr.MovementGraphTest.place;
+
+/**
+ * Unit tests for {@link StartOnLeafNodes}.
+ *
+ * @author Fabien Hermenier
+ */
+public class StartOnLeafNodesTest {
+
+    /**
+     * Check the selected start moments when the search goes down, then backtracks
+     * before and after the candidates are computed.
+     */
+    @Test
+    public void testBacktrack() throws SchedulerException, ContradictionException {
+        List<VM> vms = new ArrayList<>();
+        List<Node> ns = new ArrayList<>();
+        ReconfigurationProblem rp = makeProblem(vms, ns);
+        IEnvironment env = rp.getModel().getEnvironment();
+        StartOnLeafNodes h = new StartOnLeafNodes(rp, new MovementGraph(rp));
+
+        env.worldPush();
+        place(rp, vms.get(0), ns.get(2));
+        place(rp, vms.get(1), ns.get(0));
+        place(rp, vms.get(2), ns.get(3));
+        place(rp, vms.get(3), ns.get(2));
+        // n2 is the only node without outgoing VMs
+        List<IntVar> expected = dStarts(rp, vms.get(0), vms.get(3));
+        Assert.assertSame(h.getVariable(null), expected.get(0));
+
+        env.worldPush();
+        expected.get(0).instantiateTo(0, Cause.Null);
+        Assert.assertSame(h.getVariable(null), expected.get(1));
+        env.worldPush();
+        expected.get(1).instantiateTo(0, Cause.Null);
+        Assert.assertNull(h.getVariable(null));
+
+        // Back after the computation
+        env.worldPop();
+        Assert.assertSame(h.getVariable(null), expected.get(1));
+        env.worldPop();
+        Assert.assertSame(h.getVariable(null), expected.get(0));
+
+        // Back before the computation, with another placement
+        env.worldPop();
+        env.worldPush();
+        place(rp, vms.get(0), ns.get(1));
+        place(rp, vms.get(1), ns.get(0));
+        place(rp, vms.get(2), ns.get(3));
+        place(rp, vms.get(3), ns.get(2));
+        IntVar st = dStarts(rp, vms.get(3)).get(0);
+        Assert.assertSame(h.getVariable(null), st);
+        st.instantiateTo(0, Cause.Null);
+        Assert.assertNull(h.getVariable(null));
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.constraint.mttr;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.DefaultReconfigurationProblemBuilder;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.constraint.mttr.load.BiggestDimension;
+import org.btrplace.scheduler.choco.constraint.mttr.load.GlobalLoadEstimator;
+import org.btrplace.scheduler.choco.view.CShareableResource;
+import org.btrplace.scheduler.choco.view.Packing;
+import org.btrplace.scheduler.choco.view.VectorPacking;
+import org.chocosolver.memory.IEnvironment;
+import org.chocosolver.memory.IStateInt;
+import org.chocosolver.solver.Cause;
+import org.chocosolver.solver.Solver;
+import org.chocosolver.solver.exception.ContradictionException;
+import org.chocosolver.solver.search.strategy.selectors.values.IntValueSelector;
+import org.chocosolver.solver.variables.IntVar;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Unit tests for {@link WorstFit}.
+ *
+ * @author Fabien Hermenier
+ */
+public class WorstFitTest {
+
+    /**
+     * Check the selected nodes are the ones of a linear worst fit, across the backtracks.
+     * There are ties, nodes without capacity in a dimension, and holes in the domains.
+     */
+    @Test
+    public void testSameAsLinearSelection() throws SchedulerException, ContradictionException {
+        Model mo = new DefaultModel();
+        Mapping ma = mo.getMapping();
+        ShareableResource cpu = new ShareableResource("cpu", 4, 1);
+        ShareableResource mem = new ShareableResource("mem", 8, 2);
+        mo.attach(cpu);
+        mo.attach(mem);
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            Node n = mo.newNode();
+            ma.addOnlineNode(n);
+            nodes.add(n);
+        }
+        cpu.setCapacity(nodes.get(2), 0);
+        cpu.setCapacity(nodes.get(3), 8);
+        mem.setCapacity(nodes.get(5), 0);
+        mem.setCapacity(nodes.get(6), 16);
+        Set<VM> toRun = new HashSet<>();
+        for (int i = 0; i < 10; i++) {
+            VM v = mo.newVM();
+            ma.addReadyVM(v);
+            toRun.add(v);
+            if (i % 3 == 0) {
+                cpu.setConsumption(v, 2);
+            }
+            if (i % 4 == 0) {
+                mem.setConsumption(v, 3);
+            }
+        }
+
+        ReconfigurationProblem rp = new DefaultReconfigurationProblemBuilder(mo)
+                .setNextVMsStates(Collections.emptySet(), toRun, Collections.emptySet(), Collections.emptySet())
+                .build();
+        for (ShareableResource rc : new ShareableResource[]{cpu, mem}) {
+            CShareableResource v = new CShareableResource(rc);
+            rp.addView(v);
+            Assert.assertTrue(v.inject(new DefaultParameters(), rp));
+            Assert.assertTrue(v.beforeSolve(rp));
+        }
+
+        Map<IntVar, VM> map = new HashMap<>();
+        List<IntVar> hosts = new ArrayList<>();
+        for (VM v : toRun) {
+            IntVar h = rp.getVMAction(v).getDSlice().getHoster();
+            map.put(h, v);
+            hosts.add(h);
+        }
+        hosts.get(0).removeValue(rp.getNode(nodes.get(0)), Cause.Null);
+        hosts.get(1).removeValue(rp.getNode(nodes.get(4)), Cause.Null);
+        // The cardinality dimension comes last, as when the problem is solved
+        int[] ones = new int[hosts.size()];
+        Arrays.fill(ones, 1);
+        Packing packing = (Packing) rp.getRequiredView(Packing.VIEW_ID);
+        packing.addDim("vmsOnNodes", rp.getNbRunningVMs(), ones, hosts.toArray(new IntVar[0]));
+        Assert.assertTrue(packing.beforeSolve(rp));
+
+        GlobalLoadEstimator load = new BiggestDimension();
+        IntValueSelector wf = new WorstFit(map, rp, load, false);
+        Solver s = rp.getModel().getSolver();
+        IEnvironment env = rp.getModel().getEnvironment();
+        s.propagate();
+
+        // A depth-first search that also backtracks randomly. A backtrack refutes the decision it goes back to
+        Random rnd = new Random(42);
+        Deque<IntVar> vars = new ArrayDeque<>();
+        Deque<Integer> values = new ArrayDeque<>();
+        int nbChecks = 0;
+        int nbBacktracks = 0;
+        while (nbChecks < 100) {
+            IntVar v = hosts.stream().filter(h -> !h.isInstantiated()).findFirst().orElse(null);
+            if (v != null && (vars.isEmpty() || rnd.nextInt(3) != 0)) {
+                int expected = linearSelection(rp, map.get(v), v, new ShareableResource[]{cpu, mem}, load);
+                int got = wf.selectValue(v);
+                Assert.assertEquals(got, expected, "For " + map.get(v));
+                nbChecks++;
+                env.worldPush();
+                vars.push(v);
+                values.push(got);
+                if (apply(s, v, got, true)) {
+                    continue;
+                }
+            }
+            if (vars.isEmpty()) {
+                break;
+            }
+            nbBacktracks++;
+            int k = 1 + rnd.nextInt(Math.min(2, vars.size()));
+            boolean ok;
+            do {
+                int val = 0;
+                for (int i = 0; i < k; i++) {
+                    env.worldPop();
+                    v = vars.pop();
+                    val = values.pop();
+                }
+                ok = apply(s, v, val, false);
+                k = 1;
+            } while (!ok && !vars.isEmpty());
+            if (!ok) {
+                break;
+            }
+        }
+        Assert.assertTrue(nbBacktracks > 10);
+    }
+
+    /**
+     * Assign or refute a placement, then propagate.
+     *
+     * @return {@code false} if there is a contradiction
+     */
+    private static boolean apply(Solver s, IntVar v, int node, boolean assign) {
+        try {
+            if (assign) {
+                v.instantiateTo(node, Cause.Null);
+            } else {
+                v.removeValue(node, Cause.Null);
+            }
+            s.propagate();
+            return true;
+        } catch (@SuppressWarnings("unused") ContradictionException ex) {
+            s.getEngine().flush();
+            return false;
+        }
+    }
+
+    /**
+     * The reference: the node in the domain leading to the lowest load once the VM is placed,
+     * the lowest node index winning the ties.
+     */
+    private static int linearSelection(ReconfigurationProblem rp, VM vm, IntVar v, ShareableResource[] rcs, GlobalLoadEstimator load) {
+        IStateInt[][] loads = ((VectorPacking) rp.getRequiredView(Packing.VIEW_ID)).assignedLoad();
+        double[] buffer = new double[rcs.length];
+        double bestLoad = 2;
+        int bestNode = -1;
+        for (int nIdx = v.getLB(); nIdx <= v.getUB(); nIdx = v.nextValue(nIdx)) {
+            for (int d = 0; d < rcs.length; d++) {
+                int capa = rcs[d].getCapacity(rp.getNode(nIdx));
+                buffer[d] = (1.0d * loads[d][nIdx].get() + rcs[d].getConsumption(vm)) / capa;
+            }
+            double l = load.getLoad(buffer);
+            if (l < bestLoad) {
+                bestLoad = l;
+                bestNode = nIdx;
+            }
+        }
+        return bestNode < 0 ? v.getLB() : bestNode;
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.extensions;
+
+import org.chocosolver.solver.Cause;
+import org.chocosolver.solver.Model;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.variables.BoolVar;
+import org.chocosolver.solver.variables.IntVar;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link HostPrecedences}.
+ *
+ * @author Fabien Hermenier
+ */
+public class HostPrecedencesTest {
+
+    /**
+     * 3 tasks currently on resources 0, 1, 2 that go to resources in [0, 3].
+     */
+    private static long count(boolean global) {
+        Model s = new Model();
+        int nb = 3;
+        IntVar[] hosts = new IntVar[nb];
+        IntVar[] starts = new IntVar[nb];
+        IntVar[] ends = new IntVar[nb];
+        int[] tasks = new int[nb];
+        int[] cur = new int[nb];
+        for (int i = 0; i < nb; i++) {
+            hosts[i] = s.intVar("h" + i, 0, 3, false);
+            starts[i] = s.intVar("st" + i, 0, 3, true);
+            ends[i] = s.intVar("ed" + i, 0, 3, true);
+            tasks[i] = i;
+            cur[i] = i;
+        }
+        s.allDifferent(hosts).post();
+        if (global) {
+            s.post(new HostPrecedences(hosts, starts, tasks, cur, ends, tasks));
+        } else {
+            for (int i = 0; i < nb; i++) {
+                for (int j = 0; j < nb; j++) {
+                    if (i != j) {
+                        BoolVar eq = s.arithm(hosts[i], "=", cur[j]).reify();
+                        Constraint leq = s.arithm(ends[j], "<=", starts[i]);
+                        s.ifThen(eq, leq);
+                    }
+                }
+            }
+        }
+        return s.getSolver().findAllSolutions().size();
+    }
+
+    @Test
+    public void testSameSolutionsAsDecomposition() {
+        long expected = count(false);
+        Assert.assertTrue(expected > 0);
+        Assert.assertEquals(count(true), expected);
+    }
+
+    @Test
+    public void testFiltering() throws Exception {
+        Model s = new Model();
+        IntVar h = s.intVar("h", 0, 2, false);
+        IntVar st = s.intVar("st", 0, 5, true);
+        IntVar[] ends = {s.intVar("e0", 7), s.intVar("e1", 2, 4, true)};
+        s.post(new HostPrecedences(new IntVar[]{h}, new IntVar[]{st}, new int[]{5},
+                new int[]{0, 1}, ends, new int[]{6, 7}));
+        s.getSolver().propagate();
+        //Resource 0 is left too late
+        Assert.assertFalse(h.contains(0));
+        h.instantiateTo(1, Cause.Null);
+        s.getSolver().propagate();
+        Assert.assertEquals(st.getLB(), 2);
+        Assert.assertEquals(ends[1].getUB(), 4);
+    }
+
+    @Test(expectedExceptions = {IllegalArgumentException.class})
+    public void testSharedResource() {
+        Model s = new Model();
+        IntVar[] ends = {s.intVar(1), s.intVar(2)};
+        new HostPrecedences(new IntVar[]{s.intVar(0)}, new IntVar[]{s.intVar(3)}, new int[]{0},
+                new int[]{1, 1}, ends, new int[]{1, 2});
+    }
+}
@@ -105,6 +105,37 @@ public class VectorPackingTest {
     }
 
 
+    /**
+     * The bin loads are restricted by other constraints during the search.
+     * The load sums must follow these external changes.
+     */
+    @Test
+    public void testExternalLoadChanges() {
+        int[] height = {1, 2, 2, 3, 1, 2};
+        int nBins = 3;
+        int capa = 6;
+        Context ctx = new Context();
+        ctx.modelPack2D(nBins, capa, height);
+        ctx.s.post(ctx.s.arithm(ctx.loads[0][0], ">=", ctx.loads[0][1]));
+        ctx.s.post(ctx.s.arithm(ctx.loads[0][1], ">=", ctx.loads[0][2]));
+
+        // Brute force count
+        int nbSols = 0;
+        int nbAssignments = (int) Math.pow(nBins, height.length);
+        for (int x = 0; x < nbAssignments; x++) {
+            int[] l = new int[nBins];
+            int c = x;
+            for (int h : height) {
+                l[c % nBins] += h;
+                c /= nBins;
+            }
+            if (l[0] <= capa && l[1] <= capa && l[2] <= capa && l[0] >= l[1] && l[1] >= l[2]) {
+                nbSols++;
+            }
+        }
+        ctx.testPack(nbSols);
+    }
+
     /**
      * 1GB free on every node and only 2GB VMs. We ask for booting a 2GB VM. No
      * solution detected immediately if the hosting capacity is capped to the
@@ -0,0 +1,224 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.choco.runner.portfolio;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.Offline;
+import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.ChocoScheduler;
+import org.btrplace.scheduler.choco.DefaultChocoScheduler;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.constraint.mttr.CMinMTTR;
+import org.btrplace.scheduler.choco.runner.SolvingStatistics;
+import org.btrplace.scheduler.choco.runner.single.SingleRunner;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+
+/**
+ * Unit tests for {@link PortfolioRunner}.
+ *
+ * @author Fabien Hermenier
+ */
+public class PortfolioRunnerTest {
+
+    private static Instance instance() {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        ShareableResource cpu = new ShareableResource("cpu", 8, 1);
+        mo.attach(cpu);
+        List<Node> ns = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Node n = mo.newNode();
+            ns.add(n);
+            map.addOnlineNode(n);
+            for (int j = 0; j < 3; j++) {
+                VM v = mo.newVM();
+                map.addRunningVM(v, n);
+                cpu.setConsumption(v, 2);
+            }
+        }
+        List<SatConstraint> cstrs = new ArrayList<>();
+        //Empty the first node
+        cstrs.add(new Offline(ns.get(0)));
+        //Move a VM away from the second node
+        VM v = map.getRunningVMs(ns.get(1)).iterator().next();
+        cstrs.add(new Fence(v, ns.subList(2, ns.size())));
+        return new Instance(mo, cstrs, new MinMTTR());
+    }
+
+    @Test(expectedExceptions = {IllegalArgumentException.class})
+    public void testBadWorkers() {
+        new PortfolioRunner(0);
+    }
+
+    @Test
+    public void testSameOptimum() throws SchedulerException {
+        Instance i = instance();
+        DefaultParameters ps = new DefaultParameters();
+        ps.doOptimize(true);
+        ps.setTimeLimit(30);
+
+        SingleRunner single = new SingleRunner();
+        ReconfigurationPlan ref = single.solve(ps, i);
+        Assert.assertNotNull(ref);
+
+        PortfolioRunner portfolio = new PortfolioRunner(4);
+        Assert.assertEquals(portfolio.getNbWorkers(), 4);
+        ReconfigurationPlan p = portfolio.solve(ps, i);
+        Assert.assertNotNull(p);
+        Assert.assertEquals(p.getOrigin(), i.getModel());
+        Assert.assertTrue(p.isApplyable());
+        SolvingStatistics st = portfolio.getStatistics();
+        Assert.assertTrue(st.completed());
+        int refCost = single.getStatistics().getSolutions().get(single.getStatistics().getSolutions().size() - 1).objective();
+        int cost = st.getSolutions().get(st.getSolutions().size() - 1).objective();
+        Assert.assertEquals(cost, refCost);
+    }
+
+    @Test
+    public void testNoSolution() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        VM v = mo.newVM();
+        Node n = mo.newNode();
+        map.addReadyVM(v);
+        map.addOfflineNode(n);
+        PortfolioRunner portfolio = new PortfolioRunner(2);
+        ReconfigurationPlan p = portfolio.solve(new DefaultParameters(),
+                new Instance(mo, Arrays.asList(new Running(v), new Offline(n)), new MinMTTR()));
+        Assert.assertNull(p);
+        Assert.assertTrue(portfolio.getStatistics().getSolutions().isEmpty());
+    }
+
+    @Test
+    public void testFromTheScheduler() throws SchedulerException {
+        Instance i = instance();
+        ChocoScheduler s = new DefaultChocoScheduler();
+        s.setInstanceSolver(new PortfolioRunner(2));
+        s.doOptimize(false);
+        ReconfigurationPlan p = s.solve(i);
+        Assert.assertNotNull(p);
+        Assert.assertTrue(s.getStatistics().getSolutions().size() >= 1);
+    }
+
+    @Test
+    public void testExecutors() throws SchedulerException {
+        PortfolioRunner p1 = new PortfolioRunner(3);
+        PortfolioRunner p2 = new PortfolioRunner(3);
+        Assert.assertSame(p1.getExecutorService(), p2.getExecutorService());
+        Assert.assertSame(new PortfolioRunner(2).getExecutorService(), p1.getExecutorService());
+
+        ExecutorService exe = Executors.newFixedThreadPool(3);
+        try {
+            p1.setExecutorService(exe);
+            Assert.assertSame(p1.getExecutorService(), exe);
+            DefaultParameters ps = new DefaultParameters();
+            Assert.assertNotNull(p1.solve(ps, instance()));
+            //Still usable
+            Assert.assertNotNull(p1.solve(ps, instance()));
+            Assert.assertFalse(exe.isShutdown());
+        } finally {
+            exe.shutdownNow();
+        }
+        p1.setExecutorService(null);
+        Assert.assertSame(p1.getExecutorService(), p2.getExecutorService());
+    }
+
+    /**
+     * An objective that waits for the other workers before being stated.
+     */
+    public static class Waiting extends CMinMTTR {
+
+        private static CyclicBarrier barrier;
+
+        public Waiting(MinMTTR m) {
+            super(m);
+        }
+
+        @Override
+        public boolean inject(Parameters ps, ReconfigurationProblem rp) throws SchedulerException {
+            try {
+                barrier.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException | BrokenBarrierException | TimeoutException ex) {
+                throw new SchedulerException(rp.getSourceModel(), "The workers are not run simultaneously", ex);
+            }
+            return super.inject(ps, rp);
+        }
+    }
+
+    /**
+     * The workers of concurrent races run simultaneously on the shared pool.
+     */
+    @Test
+    public void testSimultaneousWorkers() throws Exception {
+        int nb = 3;
+        Waiting.barrier = new CyclicBarrier(2 * nb);
+        DefaultParameters ps = new DefaultParameters();
+        ps.doOptimize(false);
+        ps.getMapper().mapConstraint(MinMTTR.class, Waiting.class);
+        PortfolioRunner p1 = new PortfolioRunner(nb);
+        PortfolioRunner p2 = new PortfolioRunner(nb);
+        ExecutorService callers = Executors.newFixedThreadPool(2);
+        try {
+            Future<ReconfigurationPlan> f1 = callers.submit(() -> p1.solve(ps, instance()));
+            Future<ReconfigurationPlan> f2 = callers.submit(() -> p2.solve(ps, instance()));
+            Assert.assertNotNull(f1.get(30, TimeUnit.SECONDS));
+            Assert.assertNotNull(f2.get(30, TimeUnit.SECONDS));
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testSolutionListeners() throws SchedulerException {
+        DefaultParameters ps = new DefaultParameters();
+        ps.doOptimize(true);
+        List<ReconfigurationPlan> plans = new CopyOnWriteArrayList<>();
+        List<Thread> threads = new CopyOnWriteArrayList<>();
+        BiConsumer<ReconfigurationProblem, ReconfigurationPlan> l = (rp, p) -> {
+            Assert.assertNotNull(rp);
+            plans.add(p);
+            threads.add(Thread.currentThread());
+        };
+        ps.addSolutionListener(l);
+        PortfolioRunner portfolio = new PortfolioRunner(4);
+        ReconfigurationPlan p = portfolio.solve(ps, instance());
+        Assert.assertNotNull(p);
+        //Only notified once, by the caller, with the resulting plan
+        Assert.assertEquals(plans.size(), 1);
+        Assert.assertSame(plans.get(0), p);
+        Assert.assertSame(threads.get(0), Thread.currentThread());
+        Assert.assertTrue(ps.removeSolutionListener(l));
+        Assert.assertTrue(ps.solutionListeners().isEmpty());
+    }
+}
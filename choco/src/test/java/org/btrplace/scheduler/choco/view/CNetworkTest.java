@@ -15,19 +15,33 @@ import org.btrplace.model.constraint.Fence;
 import org.btrplace.model.constraint.SatConstraint;
 import org.btrplace.model.constraint.migration.MinMTTRMig;
 import org.btrplace.model.view.ShareableResource;
+import org.btrplace.model.view.network.Link;
 import org.btrplace.model.view.network.Network;
+import org.btrplace.model.view.network.Routing;
 import org.btrplace.model.view.network.Switch;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.plan.event.MigrateVM;
 import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.SchedulerModelingException;
 import org.btrplace.scheduler.choco.ChocoScheduler;
 import org.btrplace.scheduler.choco.DefaultChocoScheduler;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.DefaultReconfigurationProblemBuilder;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.transition.RelocatableVM;
+import org.btrplace.scheduler.choco.transition.VMTransition;
+import org.chocosolver.solver.Cause;
+import org.chocosolver.solver.constraints.Constraint;
+import org.chocosolver.solver.variables.IntVar;
+import org.chocosolver.solver.variables.Variable;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Unit tests for {@link org.btrplace.scheduler.choco.view.CNetwork}.
@@ -133,4 +147,155 @@ public class CNetworkTest {
         Assert.assertNotNull(p);
 
     }
+
+    /**
+     * Make a two-racks datacenter. The core and the first rack switches have a limited capacity.
+     * The VMs are attached to the returned list, {@code 2} per node on the first {@code 6} nodes.
+     */
+    private static Network twoRacks(Model mo, List<Node> ns, List<VM> vms) {
+        Network net = new Network();
+        mo.attach(net);
+        Switch core = net.newSwitch(5000);
+        Switch r1 = net.newSwitch(3000);
+        Switch r2 = net.newSwitch();
+        net.connect(10000, core, r1, r2);
+        for (int i = 0; i < 8; i++) {
+            Node n = mo.newNode();
+            ns.add(n);
+            mo.getMapping().addOnlineNode(n);
+            net.connect(1000, i < 4 ? r1 : r2, n);
+        }
+        for (int i = 0; i < 12; i++) {
+            VM v = mo.newVM();
+            vms.add(v);
+            mo.getMapping().addRunningVM(v, ns.get(i / 2));
+            mo.getAttributes().put(v, "memUsed", 1000 + 100 * i);
+        }
+        return net;
+    }
+
+    /**
+     * The signature of the cumulative constraints posted by the view: the capacity then the migrated VMs, in order.
+     */
+    private static List<String> posted(ReconfigurationProblem rp, int from) {
+        Map<IntVar, VM> bws = new HashMap<>();
+        for (VMTransition t : rp.getVMActions()) {
+            bws.put(((RelocatableVM) t).getBandwidth(), t.getVM());
+        }
+        List<String> res = new ArrayList<>();
+        Constraint[] cstrs = rp.getModel().getCstrs();
+        for (int i = from; i < cstrs.length; i++) {
+            Variable[] vars = cstrs[i].getPropagator(0).getVars();
+            List<VM> migs = new ArrayList<>();
+            for (Variable v : vars) {
+                if (bws.containsKey(v)) {
+                    migs.add(bws.get(v));
+                }
+            }
+            res.add(((IntVar) vars[vars.length - 1]).getValue() + " " + migs);
+        }
+        return res;
+    }
+
+    /**
+     * The signature of the cumulative constraints posted by the view before the migrations were indexed
+     * per link and per switch.
+     */
+    private static List<String> reference(ReconfigurationProblem rp, Network net) {
+        Mapping map = rp.getSourceModel().getMapping();
+        List<String> res = new ArrayList<>();
+        for (Link l : net.getLinks()) {
+            List<VM> up = new ArrayList<>();
+            List<VM> down = new ArrayList<>();
+            for (VM vm : rp.getVMs()) {
+                VMTransition a = rp.getVMAction(vm);
+                if (a instanceof RelocatableVM
+                        && !a.getDSlice().getHoster().isInstantiatedTo(a.getCSlice().getHoster().getValue())) {
+                    Node src = map.getVMLocation(vm);
+                    Node dst = rp.getNode(a.getDSlice().getHoster().getValue());
+                    if (net.getRouting().getPath(src, dst).contains(l)) {
+                        if (net.getRouting().getLinkDirection(src, dst, l) == Routing.LinkDirection.UPLINK) {
+                            up.add(vm);
+                        } else {
+                            down.add(vm);
+                        }
+                    }
+                }
+            }
+            if (!up.isEmpty()) {
+                res.add(l.getCapacity() + " " + up);
+            }
+            if (!down.isEmpty()) {
+                res.add(l.getCapacity() + " " + down);
+            }
+        }
+        for (Switch sw : net.getSwitches()) {
+            if (sw.getCapacity() == Integer.MAX_VALUE) {
+                continue;
+            }
+            List<VM> migs = new ArrayList<>();
+            for (VM vm : rp.getVMs()) {
+                VMTransition a = rp.getVMAction(vm);
+                if (a instanceof RelocatableVM && a.getDSlice().getHoster().isInstantiated()
+                        && a.getCSlice().getHoster().getValue() != a.getDSlice().getHoster().getValue()) {
+                    Node src = map.getVMLocation(vm);
+                    Node dst = rp.getNode(a.getDSlice().getHoster().getValue());
+                    if (!Collections.disjoint(net.getConnectedLinks(sw), net.getRouting().getPath(src, dst))) {
+                        migs.add(vm);
+                    }
+                }
+            }
+            if (!migs.isEmpty()) {
+                res.add(sw.getCapacity() + " " + migs);
+            }
+        }
+        return res;
+    }
+
+    /**
+     * The cumulative constraints must be the ones posted when the links and the switches were scanned
+     * for every VM.
+     */
+    @Test
+    public void testSameCumulatives() throws Exception {
+        Model mo = new DefaultModel();
+        List<Node> ns = new ArrayList<>();
+        List<VM> vms = new ArrayList<>();
+        Network net = twoRacks(mo, ns, vms);
+        ReconfigurationProblem rp = new DefaultReconfigurationProblemBuilder(mo)
+                .setParams(new DefaultParameters())
+                .build();
+        //Inside the first rack, across the racks in both directions, inside the second rack, and staying VMs
+        int[] dsts = {1, 5, 0, 2, 7, 3, 4, 6, 6, 4, 7, 5};
+        for (int i = 0; i < dsts.length; i++) {
+            rp.getVMAction(vms.get(i)).getDSlice().getHoster().instantiateTo(rp.getNode(ns.get(dsts[i])), Cause.Null);
+        }
+        CNetwork v = new CNetwork(net);
+        Assert.assertTrue(v.inject(new DefaultParameters(), rp));
+        int from = rp.getModel().getNbCstrs();
+        Assert.assertTrue(v.beforeSolve(rp));
+        List<String> expected = reference(rp, net);
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(posted(rp, from), expected);
+    }
+
+    /**
+     * As before the indexing, the destination of every VM must be known.
+     */
+    @Test(expectedExceptions = SchedulerModelingException.class)
+    public void testUninstantiatedDestination() throws Exception {
+        Model mo = new DefaultModel();
+        List<Node> ns = new ArrayList<>();
+        List<VM> vms = new ArrayList<>();
+        Network net = twoRacks(mo, ns, vms);
+        ReconfigurationProblem rp = new DefaultReconfigurationProblemBuilder(mo)
+                .setParams(new DefaultParameters())
+                .build();
+        for (int i = 1; i < vms.size(); i++) {
+            rp.getVMAction(vms.get(i)).getDSlice().getHoster().instantiateTo(rp.getNode(ns.get(7)), Cause.Null);
+        }
+        CNetwork v = new CNetwork(net);
+        v.inject(new DefaultParameters(), rp);
+        v.beforeSolve(rp);
+    }
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.jmh;
+
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.ReconfigurationProblem;
+import org.btrplace.scheduler.choco.runner.single.InstanceSolverRunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bench the search of a solution for a specialised problem.
+ * See {@link ReconfigurationProblem#solve(int, boolean)}.
+ *
+ * @author Fabien Hermenier
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SearchBenchmark {
+
+    private ReconfigurationProblem rp;
+
+    private Parameters ps;
+
+    /**
+     * Prepare a runner, then build and specialise the problem.
+     *
+     * @param w the workload
+     * @throws SchedulerException if an error occurred
+     */
+    @Setup(Level.Invocation)
+    public void prepare(Workload w) throws SchedulerException {
+        InstanceSolverRunner runner = w.runner();
+        runner.buildRP();
+        runner.specialise();
+        rp = runner.getProblem();
+        ps = w.parameters();
+    }
+
+    /**
+     * Solve the problem.
+     *
+     * @return the computed plan. {@code null} if there is no solution
+     * @throws SchedulerException if an error occurred
+     */
+    @Benchmark
+    public ReconfigurationPlan solve() throws SchedulerException {
+        return rp.solve(ps.getTimeLimit(), ps.doOptimize());
+    }
+}
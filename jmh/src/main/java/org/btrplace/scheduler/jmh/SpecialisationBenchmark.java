@@ -0,0 +1,62 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.jmh;
+
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.runner.single.InstanceSolverRunner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bench the specialisation of the core problem.
+ * See {@link InstanceSolverRunner#specialise()}.
+ *
+ * @author Fabien Hermenier
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SpecialisationBenchmark {
+
+    private InstanceSolverRunner runner;
+
+    /**
+     * Prepare a runner and build the core problem.
+     *
+     * @param w the workload
+     * @throws SchedulerException if an error occurred
+     */
+    @Setup(Level.Invocation)
+    public void prepare(Workload w) throws SchedulerException {
+        runner = w.runner();
+        runner.buildRP();
+    }
+
+    /**
+     * Specialise the core problem.
+     *
+     * @return {@code false} if the problem is proven to have no solution
+     */
+    @Benchmark
+    public boolean specialise() {
+        return runner.specialise();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.jmh;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.Offline;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.constraint.Spread;
+import org.btrplace.model.view.ShareableResource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generator of synthetic instances.
+ * <p>
+ * There is one online node per {@link #VMS_PER_NODE} running VMs, with a {@code cpu} and a {@code mem} resource.
+ * VMs are placed in a round-robin manner so nodes are half-loaded. Every 20th node must go offline,
+ * so its VMs must be relocated, and every 10th triplet of VMs is spread.
+ * The generation is deterministic for a given amount of VMs.
+ *
+ * @author Fabien Hermenier
+ */
+public final class SyntheticInstances {
+
+    /**
+     * The number of VMs per node.
+     */
+    public static final int VMS_PER_NODE = 6;
+
+    private static final int[] CPU = {1, 2, 4};
+
+    private static final int[] MEM = {2, 4, 8};
+
+    private SyntheticInstances() {
+    }
+
+    /**
+     * Make a new instance.
+     *
+     * @param nbVMs the number of VMs.
+     * @return the resulting instance
+     */
+    public static Instance make(int nbVMs) {
+        Random rnd = new Random(nbVMs);
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        ShareableResource cpu = new ShareableResource("cpu", 32, 1);
+        ShareableResource mem = new ShareableResource("mem", 128, 2);
+
+        int nbNodes = Math.max(2, nbVMs / VMS_PER_NODE);
+        Node[] nodes = new Node[nbNodes];
+        for (int i = 0; i < nbNodes; i++) {
+            nodes[i] = mo.newNode();
+            map.addOnlineNode(nodes[i]);
+        }
+
+        VM[] vms = new VM[nbVMs];
+        for (int i = 0; i < nbVMs; i++) {
+            vms[i] = mo.newVM();
+            map.addRunningVM(vms[i], nodes[i % nbNodes]);
+            cpu.setConsumption(vms[i], CPU[rnd.nextInt(CPU.length)]);
+            mem.setConsumption(vms[i], MEM[rnd.nextInt(MEM.length)]);
+        }
+        mo.attach(cpu);
+        mo.attach(mem);
+
+        List<SatConstraint> cstrs = new ArrayList<>();
+        for (int i = 0; i < nbNodes; i += 20) {
+            cstrs.add(new Offline(nodes[i]));
+        }
+        for (int i = 0; i + 2 < nbVMs; i += 30) {
+            cstrs.add(new Spread(new HashSet<>(Arrays.asList(vms[i], vms[i + 1], vms[i + 2]))));
+        }
+        return new Instance(mo, cstrs, new MinMTTR());
+    }
+}
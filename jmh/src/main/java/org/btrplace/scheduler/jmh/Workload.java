@@ -0,0 +1,90 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.jmh;
+
+import org.btrplace.json.JSON;
+import org.btrplace.model.Instance;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.runner.single.InstanceSolverRunner;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.File;
+
+/**
+ * The instance to bench and the solver parameters.
+ * <p>
+ * An instance is either a file from the {@code std-perf} directory, identified by its name without the
+ * {@code .gz} extension, or a synthetic instance {@code synthetic-n} with {@code n} VMs
+ * (see {@link SyntheticInstances}).
+ * The {@code std-perf} directory is {@code bench/src/test/resources/std-perf} by default.
+ * It can be changed using the {@code btrplace.std-perf} system property.
+ *
+ * @author Fabien Hermenier
+ */
+@State(Scope.Benchmark)
+public class Workload {
+
+    /**
+     * The system property to set the directory of the std-perf instances.
+     */
+    public static final String STD_PERF = "btrplace.std-perf";
+
+    private static final String SYNTHETIC = "synthetic-";
+
+    /**
+     * The instance identifier.
+     */
+    @Param({"li3", "li4", "li5", "li6", "nr3", "nr4", "nr5", "nr6", "issue-100",
+            "synthetic-1000", "synthetic-10000", "synthetic-100000"})
+    public String instance;
+
+    /**
+     * Enable the repair mode.
+     */
+    @Param({"true"})
+    public boolean repair;
+
+    private Instance origin;
+
+    /**
+     * Load or generate the instance.
+     */
+    @Setup(Level.Trial)
+    public void load() {
+        if (instance.startsWith(SYNTHETIC)) {
+            origin = SyntheticInstances.make(Integer.parseInt(instance.substring(SYNTHETIC.length())));
+        } else {
+            File root = new File(System.getProperty(STD_PERF, "bench/src/test/resources/std-perf"));
+            origin = JSON.readInstance(new File(root, instance + ".gz"));
+        }
+    }
+
+    /**
+     * Get the solver parameters.
+     *
+     * @return fresh parameters
+     */
+    public Parameters parameters() {
+        return new DefaultParameters().doRepair(repair);
+    }
+
+    /**
+     * Make a runner for a copy of the instance.
+     * The copy prevents a solving process to alter the instance used by the next invocations.
+     *
+     * @return a runner that has not been started
+     */
+    public InstanceSolverRunner runner() {
+        Instance i = new Instance(origin.getModel().copy(), origin.getSatConstraints(), origin.getOptConstraint());
+        return new InstanceSolverRunner(parameters(), i);
+    }
+}
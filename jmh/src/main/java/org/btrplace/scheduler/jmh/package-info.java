@@ -0,0 +1,11 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+/**
+ * JMH benchmarks for the stages of the solving process:
+ * the core problem build, its specialisation, and the search.
+ */
+package org.btrplace.scheduler.jmh;
@@ -8,9 +8,12 @@ package org.btrplace.json;
 
 import org.btrplace.json.model.InstanceConverter;
 import org.btrplace.json.plan.ReconfigurationPlanConverter;
+import org.btrplace.json.stream.InstanceStreamConverter;
+import org.btrplace.json.stream.ReconfigurationPlanStreamConverter;
 import org.btrplace.model.Instance;
 import org.btrplace.plan.ReconfigurationPlan;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -18,6 +21,7 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
+import java.io.Writer;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
@@ -30,9 +34,30 @@ import static java.nio.charset.StandardCharsets.UTF_8;
  */
 public class JSON {
 
+    private static volatile boolean parallel;
+
     private JSON() {
     }
 
+    /**
+     * Convert the lists of constraints of the instances in parallel.
+     *
+     * @param b {@code true} to convert in parallel
+     * @see org.btrplace.json.model.constraint.ConstraintsConverter#setParallel(boolean)
+     */
+    public static void setParallel(boolean b) {
+        parallel = b;
+    }
+
+    /**
+     * Indicates if the lists of constraints of the instances are converted in parallel.
+     *
+     * @return {@code true} if parallel. {@code false} by default
+     */
+    public static boolean isParallel() {
+        return parallel;
+    }
+
     private static InputStreamReader makeIn(File f) throws IOException {
         if (f.getName().endsWith(".gz")) {
             return new InputStreamReader(new GZIPInputStream(new FileInputStream(f)), UTF_8);
@@ -40,11 +65,11 @@ public class JSON {
         return new InputStreamReader(new FileInputStream(f), UTF_8);
     }
 
-    private static OutputStreamWriter makeOut(File f) throws IOException {
+    private static Writer makeOut(File f) throws IOException {
         if (f.getName().endsWith(".gz")) {
-            return new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(f)), UTF_8);
+            return new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(new FileOutputStream(f)), UTF_8));
         }
-        return new OutputStreamWriter(new FileOutputStream(f), UTF_8);
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(f), UTF_8));
     }
 
     /**
@@ -72,8 +97,9 @@ public class JSON {
      */
     public static Instance readInstance(Reader r) {
         try {
-            InstanceConverter c = new InstanceConverter();
-            return c.fromJSON(r);
+            InstanceStreamConverter c = new InstanceStreamConverter();
+            c.getConstraintsConverter().setParallel(parallel);
+            return c.read(r);
         } catch (JSONConverterException e) {
             throw new IllegalArgumentException(e);
         }
@@ -87,7 +113,7 @@ public class JSON {
      * @throws IllegalArgumentException if an error occurred while writing the json
      */
     public static void write(Instance instance, File f) {
-        try (OutputStreamWriter out = makeOut(f)) {
+        try (Writer out = makeOut(f)) {
             write(instance, out);
         } catch (IOException e) {
             throw new IllegalArgumentException(e);
@@ -103,8 +129,9 @@ public class JSON {
      */
     public static void write(Instance instance, Appendable a) {
         try {
-            InstanceConverter c = new InstanceConverter();
-            c.toJSON(instance).writeJSONString(a);
+            InstanceStreamConverter c = new InstanceStreamConverter();
+            c.getConstraintsConverter().setParallel(parallel);
+            c.write(instance, a);
         } catch (IOException | JSONConverterException e) {
             throw new IllegalArgumentException(e);
         }
@@ -120,6 +147,7 @@ public class JSON {
     public static String toString(Instance instance) {
         try {
             InstanceConverter c = new InstanceConverter();
+            c.getConstraintsConverter().setParallel(parallel);
             return c.toJSON(instance).toJSONString();
         } catch (JSONConverterException e) {
             throw new IllegalArgumentException(e);
@@ -152,9 +180,8 @@ public class JSON {
      */
     public static ReconfigurationPlan readReconfigurationPlan(Reader r) {
         try {
-            ReconfigurationPlanConverter c =
-                ReconfigurationPlanConverter.newBundle();
-            return c.fromJSON(r);
+            ReconfigurationPlanStreamConverter c = new ReconfigurationPlanStreamConverter();
+            return c.read(r);
         } catch (JSONConverterException e) {
             throw new IllegalArgumentException(e);
         }
@@ -168,7 +195,7 @@ public class JSON {
      * @throws IllegalArgumentException if an error occurred while writing the json
      */
     public static void write(ReconfigurationPlan plan, File f) {
-        try (OutputStreamWriter out = makeOut(f)) {
+        try (Writer out = makeOut(f)) {
             write(plan, out);
         } catch (IOException e) {
             throw new IllegalArgumentException(e);
@@ -184,9 +211,8 @@ public class JSON {
      */
     public static void write(ReconfigurationPlan plan, Appendable a) {
         try {
-            ReconfigurationPlanConverter c =
-                ReconfigurationPlanConverter.newBundle();
-            c.toJSON(plan).writeJSONString(a);
+            ReconfigurationPlanStreamConverter c = new ReconfigurationPlanStreamConverter();
+            c.write(plan, a);
         } catch (IOException | JSONConverterException e) {
             throw new IllegalArgumentException(e);
         }
@@ -16,9 +16,7 @@ import org.btrplace.model.VM;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 
 /**
@@ -28,25 +26,6 @@ import java.util.Set;
  */
 public class JSONs {
 
-    /**
-     * The default cache for set of VMs and nodes.
-     */
-    private static final int DEFAULT_CACHE_SIZE = 1024;
-
-    private static Map<String, List<VM>> vmsCache = new LinkedHashMap<String, List<VM>>() {
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<String, List<VM>> foo) {
-            return size() == DEFAULT_CACHE_SIZE;
-        }
-    };
-
-    private static Map<String, List<Node>> nodesCache = new LinkedHashMap<String, List<Node>>() {
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<String, List<Node>> foo) {
-            return size() == DEFAULT_CACHE_SIZE;
-        }
-    };
-
     /**
      * Utility class.
      * No instantiation
@@ -58,21 +37,11 @@ public class JSONs {
      * Reset the cache of element sets.
      *
      * @param size the new cache size
+     * @deprecated the element sets are no longer cached. This method does nothing
      */
+    @Deprecated
     public static void resetCaches(int size) {
-        nodesCache = new LinkedHashMap<String, List<Node>>() {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<String, List<Node>> foo) {
-                return size() == size;
-            }
-        };
-
-        vmsCache = new LinkedHashMap<String, List<VM>>() {
-            @Override
-            protected boolean removeEldestEntry(Map.Entry<String, List<VM>> foo) {
-                return size() == size;
-            }
-        };
+        // No cache anymore
     }
 
     /**
@@ -177,48 +146,47 @@ public class JSONs {
 
     /**
      * Convert an array of VM identifiers to a set of VMs.
-     * This operation uses a cache of previously converted set of VMs.
+     * This operation is thread-safe as long as the model is not modified concurrently.
      * @param mo the associated model to browse
      * @param a the json array
      * @return the set of VMs
      * @throws JSONConverterException if a error occurred during the conversion
      */
     public static List<VM> vmsFromJSON(Model mo, JSONArray a) throws JSONConverterException {
-        String json = a.toJSONString();
-        List<VM> s = vmsCache.get(json);
-        if (s != null) {
-            return s;
-        }
-        s = new ArrayList<>(a.size());
-        for (Object o : a) {
-            s.add(getVM(mo, (int) o));
+        List<VM> s = new ArrayList<>(a.size());
+        for (int i = 0; i < a.size(); i++) {
+            s.add(getVM(mo, id(a, i)));
         }
-        vmsCache.put(json, s);
         return s;
     }
 
     /**
      * Convert an array of VM identifiers to a set of VMs.
-     * This operation uses a cache of previously converted set of nodes.
+     * This operation is thread-safe as long as the model is not modified concurrently.
      * @param mo the associated model to browse
      * @param a the json array
      * @return the set of nodes
      * @throws JSONConverterException if a error occurred during the conversion
      */
     public static List<Node> nodesFromJSON(Model mo, JSONArray a) throws JSONConverterException {
-        String json = a.toJSONString();
-        List<Node> s = nodesCache.get(json);
-        if (s != null) {
-            return s;
+        List<Node> s = new ArrayList<>(a.size());
+        for (int i = 0; i < a.size(); i++) {
+            s.add(getNode(mo, id(a, i)));
         }
-        s = new ArrayList<>(a.size());
-        for (Object o : a) {
-            s.add(getNode(mo, (int) o));
-        }
-        nodesCache.put(json, s);
         return s;
     }
 
+    /**
+     * Read an element identifier from an array.
+     */
+    private static int id(JSONArray a, int i) throws JSONConverterException {
+        Object o = a.get(i);
+        if (!(o instanceof Integer)) {
+            throw new JSONConverterException("Element identifier expected. Got '" + o + "'");
+        }
+        return (Integer) o;
+    }
+
     /**
      * Convert a collection of VMs to an array of VM identifiers.
      *
@@ -0,0 +1,173 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.binary;
+
+import org.btrplace.json.JSON;
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.model.Instance;
+import org.btrplace.plan.ReconfigurationPlan;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Utility class to ease the serialisation and the deserialisation of the main btrplace entities
+ * using the binary format. This is the binary counterpart of {@link JSON}.
+ *
+ * @author Fabien Hermenier
+ */
+public class Binary {
+
+    private Binary() {
+    }
+
+    private static InputStream makeIn(File f) throws IOException {
+        if (f.getName().endsWith(".gz")) {
+            return new GZIPInputStream(new FileInputStream(f));
+        }
+        return new BufferedInputStream(new FileInputStream(f));
+    }
+
+    private static OutputStream makeOut(File f) throws IOException {
+        if (f.getName().endsWith(".gz")) {
+            return new GZIPOutputStream(new FileOutputStream(f));
+        }
+        return new BufferedOutputStream(new FileOutputStream(f));
+    }
+
+    /**
+     * Read an instance from a file.
+     * A file ending with '.gz' is uncompressed first
+     *
+     * @param f the file to parse
+     * @return the resulting instance
+     * @throws IllegalArgumentException if an error occurred while reading the file
+     */
+    public static Instance readInstance(File f) {
+        try (InputStream in = makeIn(f)) {
+            return readInstance(in);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Read an instance.
+     *
+     * @param in the stream to read
+     * @return the resulting instance
+     * @throws IllegalArgumentException if an error occurred while reading the stream
+     */
+    public static Instance readInstance(InputStream in) {
+        try {
+            return new InstanceBinaryConverter().read(in);
+        } catch (JSONConverterException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Write an instance.
+     * The file is compressed if its name ends with '.gz'
+     *
+     * @param instance the instance to write
+     * @param f        the output file
+     * @throws IllegalArgumentException if an error occurred while writing the file
+     */
+    public static void write(Instance instance, File f) {
+        try (OutputStream out = makeOut(f)) {
+            write(instance, out);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Write an instance.
+     *
+     * @param instance the instance to write
+     * @param out      the stream to write on
+     * @throws IllegalArgumentException if an error occurred while writing the stream
+     */
+    public static void write(Instance instance, OutputStream out) {
+        try {
+            new InstanceBinaryConverter().write(instance, out);
+        } catch (IOException | JSONConverterException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Read a reconfiguration plan from a file.
+     * A file ending with '.gz' is uncompressed first
+     *
+     * @param f the file to parse
+     * @return the resulting plan
+     * @throws IllegalArgumentException if an error occurred while reading the file
+     */
+    public static ReconfigurationPlan readReconfigurationPlan(File f) {
+        try (InputStream in = makeIn(f)) {
+            return readReconfigurationPlan(in);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Read a reconfiguration plan.
+     *
+     * @param in the stream to read
+     * @return the resulting plan
+     * @throws IllegalArgumentException if an error occurred while reading the stream
+     */
+    public static ReconfigurationPlan readReconfigurationPlan(InputStream in) {
+        try {
+            return new ReconfigurationPlanBinaryConverter().read(in);
+        } catch (JSONConverterException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Write a reconfiguration plan.
+     * The file is compressed if its name ends with '.gz'
+     *
+     * @param plan the plan to write
+     * @param f    the output file
+     * @throws IllegalArgumentException if an error occurred while writing the file
+     */
+    public static void write(ReconfigurationPlan plan, File f) {
+        try (OutputStream out = makeOut(f)) {
+            write(plan, out);
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Write a reconfiguration plan.
+     *
+     * @param plan the plan to write
+     * @param out  the stream to write on
+     * @throws IllegalArgumentException if an error occurred while writing the stream
+     */
+    public static void write(ReconfigurationPlan plan, OutputStream out) {
+        try {
+            new ReconfigurationPlanBinaryConverter().write(plan, out);
+        } catch (IOException | JSONConverterException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.binary;
+
+import org.btrplace.json.JSONConverterException;
+
+import java.io.IOException;
+
+/**
+ * The header of a binary document: a magic number, the format version and the kind of document.
+ *
+ * @author Fabien Hermenier
+ */
+final class BinaryFormat {
+
+    /**
+     * The current version of the format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Kind of a document that contains an instance.
+     */
+    static final int INSTANCE = 1;
+
+    /**
+     * Kind of a document that contains a reconfiguration plan.
+     */
+    static final int PLAN = 2;
+
+    private static final byte[] MAGIC = {'B', 'T', 'R', 'P'};
+
+    private BinaryFormat() {
+    }
+
+    static void writeHeader(BinaryWriter out, int kind) throws IOException {
+        for (byte b : MAGIC) {
+            out.writeByte(b);
+        }
+        out.writeVarInt(VERSION);
+        out.writeByte(kind);
+    }
+
+    static void readHeader(BinaryReader in, int kind) throws JSONConverterException {
+        for (byte b : MAGIC) {
+            if (in.readByte() != b) {
+                throw new JSONConverterException("Not a btrplace binary document");
+            }
+        }
+        int v = in.readVarInt();
+        if (v != VERSION) {
+            throw new JSONConverterException("Unsupported format version '" + v + "'. Expected '" + VERSION + "'");
+        }
+        int k = in.readByte();
+        if (k != kind) {
+            throw new JSONConverterException("Unexpected document kind '" + k + "'. Expected '" + kind + "'");
+        }
+    }
+
+    static void checkEnd(BinaryReader in) throws JSONConverterException {
+        if (!in.atEnd()) {
+            throw new JSONConverterException("Unexpected content after the document");
+        }
+    }
+}
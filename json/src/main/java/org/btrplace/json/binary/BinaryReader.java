@@ -0,0 +1,240 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.binary;
+
+import net.minidev.json.JSONArray;
+import net.minidev.json.JSONObject;
+import org.btrplace.json.JSONConverterException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A reader for the binary format produced by a {@link BinaryWriter}.
+ *
+ * @author Fabien Hermenier
+ */
+public class BinaryReader implements Closeable {
+
+    private final InputStream in;
+
+    private final byte[] buf = new byte[8192];
+
+    private int pos = 0;
+
+    private int limit = 0;
+
+    private final List<String> strings = new ArrayList<>(64);
+
+    /**
+     * Make a new reader.
+     *
+     * @param i the stream to read. It is not buffered by the reader
+     */
+    public BinaryReader(InputStream i) {
+        in = i;
+    }
+
+    /**
+     * Read a raw byte.
+     *
+     * @return the byte, as an unsigned value
+     * @throws JSONConverterException if the end of the stream is reached or if an error occurred while reading
+     */
+    public int readByte() throws JSONConverterException {
+        if (pos == limit) {
+            fill();
+        }
+        return buf[pos++] & 0xFF;
+    }
+
+    /**
+     * Check if the end of the stream is reached.
+     *
+     * @return {@code true} iff there is nothing left to read
+     * @throws JSONConverterException if an error occurred while reading
+     */
+    public boolean atEnd() throws JSONConverterException {
+        if (pos < limit) {
+            return false;
+        }
+        try {
+            limit = in.read(buf, 0, buf.length);
+        } catch (IOException ex) {
+            throw new JSONConverterException(ex);
+        }
+        pos = 0;
+        if (limit <= 0) {
+            limit = 0;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Read an unsigned varint.
+     *
+     * @return the value
+     * @throws JSONConverterException if the varint is malformed
+     */
+    public int readVarInt() throws JSONConverterException {
+        int v = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = readByte();
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return v;
+            }
+        }
+        throw new JSONConverterException("Malformed varint");
+    }
+
+    /**
+     * Read a zig-zag encoded signed varint.
+     *
+     * @return the value
+     * @throws JSONConverterException if the varint is malformed
+     */
+    public int readSignedVarInt() throws JSONConverterException {
+        int v = readVarInt();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * Read a zig-zag encoded signed varlong.
+     *
+     * @return the value
+     * @throws JSONConverterException if the varlong is malformed
+     */
+    public long readSignedVarLong() throws JSONConverterException {
+        long v = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            int b = readByte();
+            v |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return (v >>> 1) ^ -(v & 1);
+            }
+        }
+        throw new JSONConverterException("Malformed varlong");
+    }
+
+    /**
+     * Read an array of integers preceded by its length.
+     *
+     * @return the values
+     * @throws JSONConverterException if an error occurred while reading
+     */
+    public int[] readInts() throws JSONConverterException {
+        int[] values = new int[readVarInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = readSignedVarInt();
+        }
+        return values;
+    }
+
+    /**
+     * Read an interned string.
+     *
+     * @return the string
+     * @throws JSONConverterException if the string refers to an unknown entry
+     */
+    public String readString() throws JSONConverterException {
+        int ref = readVarInt();
+        if (ref > 0) {
+            if (ref > strings.size()) {
+                throw new JSONConverterException("Unknown string reference '" + ref + "'");
+            }
+            return strings.get(ref - 1);
+        }
+        byte[] b = new byte[readVarInt()];
+        for (int i = 0; i < b.length; i++) {
+            b[i] = (byte) readByte();
+        }
+        String s = new String(b, UTF_8);
+        strings.add(s);
+        return s;
+    }
+
+    /**
+     * Read a json-smart value.
+     *
+     * @return a {@link JSONObject}, a {@link JSONArray}, a {@link String}, a {@link Number}, a {@link Boolean} or {@code null}
+     * @throws JSONConverterException if the value is malformed
+     */
+    public Object value() throws JSONConverterException {
+        int tag = readByte();
+        switch (tag) {
+            case BinaryWriter.NULL:
+                return null;
+            case BinaryWriter.TRUE:
+                return Boolean.TRUE;
+            case BinaryWriter.FALSE:
+                return Boolean.FALSE;
+            case BinaryWriter.INT:
+                return readSignedVarInt();
+            case BinaryWriter.LONG:
+                return readSignedVarLong();
+            case BinaryWriter.DOUBLE:
+                return Double.longBitsToDouble(readSignedVarLong());
+            case BinaryWriter.BIG_INTEGER:
+                return new BigInteger(readString());
+            case BinaryWriter.BIG_DECIMAL:
+                return new BigDecimal(readString());
+            case BinaryWriter.STRING:
+                return readString();
+            case BinaryWriter.OBJECT:
+                int nb = readVarInt();
+                JSONObject o = new JSONObject();
+                for (int i = 0; i < nb; i++) {
+                    String k = readString();
+                    o.put(k, value());
+                }
+                return o;
+            case BinaryWriter.ARRAY:
+                nb = readVarInt();
+                JSONArray a = new JSONArray();
+                for (int i = 0; i < nb; i++) {
+                    a.add(value());
+                }
+                return a;
+            default:
+                throw new JSONConverterException("Unknown value tag '" + tag + "'");
+        }
+    }
+
+    /**
+     * Read a json-smart object.
+     *
+     * @return the object
+     * @throws JSONConverterException if the next value is not an object
+     */
+    public JSONObject object() throws JSONConverterException {
+        Object o = value();
+        if (!(o instanceof JSONObject)) {
+            throw new JSONConverterException("Object expected");
+        }
+        return (JSONObject) o;
+    }
+
+    private void fill() throws JSONConverterException {
+        if (atEnd()) {
+            throw new JSONConverterException("Unexpected end of stream");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
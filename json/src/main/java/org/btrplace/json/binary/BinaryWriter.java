@@ -0,0 +1,223 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.binary;
+
+import gnu.trove.map.hash.TObjectIntHashMap;
+import net.minidev.json.JSONArray;
+import net.minidev.json.JSONObject;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Collection;
+import java.util.Map;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A writer for the binary format.
+ * <p>
+ * Integers are varint-encoded. Strings are interned: the first occurrence is written in full
+ * and the next ones are written as a reference to the first. Identifiers of constraints,
+ * actions and views, and the JSON keys, then cost a couple of bytes once the registry is warm.
+ * Arbitrary json-smart values can be written using {@link #value(Object)}.
+ *
+ * @author Fabien Hermenier
+ */
+public class BinaryWriter implements Closeable {
+
+    static final int NULL = 0;
+    static final int TRUE = 1;
+    static final int FALSE = 2;
+    static final int INT = 3;
+    static final int LONG = 4;
+    static final int DOUBLE = 5;
+    static final int STRING = 6;
+    static final int ARRAY = 7;
+    static final int OBJECT = 8;
+    static final int BIG_INTEGER = 9;
+    static final int BIG_DECIMAL = 10;
+
+    private final OutputStream out;
+
+    private final byte[] buf = new byte[8192];
+
+    private int pos = 0;
+
+    private final TObjectIntHashMap<String> strings = new TObjectIntHashMap<>(64, 0.5f, -1);
+
+    /**
+     * Make a new writer.
+     *
+     * @param o the stream to write on. It is not buffered by the writer
+     */
+    public BinaryWriter(OutputStream o) {
+        out = o;
+    }
+
+    /**
+     * Write a raw byte.
+     *
+     * @param b the byte
+     * @return the current writer
+     * @throws IOException if an error occurred while writing
+     */
+    public BinaryWriter writeByte(int b) throws IOException {
+        if (pos == buf.length) {
+            flushBuffer();
+        }
+        buf[pos++] = (byte) b;
+        return this;
+    }
+
+    /**
+     * Write an unsigned varint. A negative value takes 5 bytes.
+     *
+     * @param v the value
+     * @return the current writer
+     * @throws IOException if an error occurred while writing
+     */
+    public BinaryWriter writeVarInt(int v) throws IOException {
+        while ((v & ~0x7F) != 0) {
+            writeByte((v & 0x7F) | 0x80);
+            v >>>= 7;
+        }
+        return writeByte(v);
+    }
+
+    /**
+     * Write a signed varint using the zig-zag encoding.
+     *
+     * @param v the value
+     * @return the current writer
+     * @throws IOException if an error occurred while writing
+     */
+    public BinaryWriter writeSignedVarInt(int v) throws IOException {
+        return writeVarInt((v << 1) ^ (v >> 31));
+    }
+
+    /**
+     * Write a signed varlong using the zig-zag encoding.
+     *
+     * @param l the value
+     * @return the current writer
+     * @throws IOException if an error occurred while writing
+     */
+    public BinaryWriter writeSignedVarLong(long l) throws IOException {
+        long v = (l << 1) ^ (l >> 63);
+        while ((v & ~0x7FL) != 0) {
+            writeByte((int) ((v & 0x7F) | 0x80));
+            v >>>= 7;
+        }
+        return writeByte((int) v);
+    }
+
+    /**
+     * Write an array of integers, preceded by its length.
+     *
+     * @param values the values
+     * @param size   the number of values to write
+     * @return the current writer
+     * @throws IOException if an error occurred while writing
+     */
+    public BinaryWriter writeInts(int[] values, int size) throws IOException {
+        writeVarInt(size);
+        for (int i = 0; i < size; i++) {
+            writeSignedVarInt(values[i]);
+        }
+        return this;
+    }
+
+    /**
+     * Write an interned string.
+     *
+     * @param s the string. Cannot be {@code null}
+     * @return the current writer
+     * @throws IOException if an error occurred while writing
+     */
+    public BinaryWriter writeString(String s) throws IOException {
+        int ref = strings.get(s);
+        if (ref >= 0) {
+            return writeVarInt(ref + 1);
+        }
+        strings.put(s, strings.size());
+        writeVarInt(0);
+        byte[] b = s.getBytes(UTF_8);
+        writeVarInt(b.length);
+        for (byte x : b) {
+            writeByte(x);
+        }
+        return this;
+    }
+
+    /**
+     * Write a json-smart value.
+     *
+     * @param v a {@link JSONObject}, a {@link JSONArray}, a {@link String}, a {@link Number}, a {@link Boolean} or {@code null}
+     * @return the current writer
+     * @throws IOException if an error occurred while writing, or if the value is not supported
+     */
+    @SuppressWarnings("squid:S3776")
+    public BinaryWriter value(Object v) throws IOException {
+        if (v == null) {
+            writeByte(NULL);
+        } else if (v instanceof Boolean) {
+            writeByte((Boolean) v ? TRUE : FALSE);
+        } else if (v instanceof Integer || v instanceof Short || v instanceof Byte) {
+            writeByte(INT).writeSignedVarInt(((Number) v).intValue());
+        } else if (v instanceof Long) {
+            writeByte(LONG).writeSignedVarLong((Long) v);
+        } else if (v instanceof Double || v instanceof Float) {
+            writeByte(DOUBLE).writeSignedVarLong(Double.doubleToLongBits(((Number) v).doubleValue()));
+        } else if (v instanceof BigInteger) {
+            writeByte(BIG_INTEGER).writeString(v.toString());
+        } else if (v instanceof BigDecimal) {
+            writeByte(BIG_DECIMAL).writeString(v.toString());
+        } else if (v instanceof String) {
+            writeByte(STRING).writeString((String) v);
+        } else if (v instanceof Map) {
+            Map<?, ?> m = (Map<?, ?>) v;
+            writeByte(OBJECT).writeVarInt(m.size());
+            for (Map.Entry<?, ?> e : m.entrySet()) {
+                writeString(e.getKey().toString());
+                value(e.getValue());
+            }
+        } else if (v instanceof Collection) {
+            Collection<?> c = (Collection<?>) v;
+            writeByte(ARRAY).writeVarInt(c.size());
+            for (Object o : c) {
+                value(o);
+            }
+        } else {
+            throw new IOException("Unsupported value type '" + v.getClass().getName() + "'");
+        }
+        return this;
+    }
+
+    private void flushBuffer() throws IOException {
+        out.write(buf, 0, pos);
+        pos = 0;
+    }
+
+    /**
+     * Flush the pending bytes to the underlying stream.
+     *
+     * @throws IOException if an error occurred while writing
+     */
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        out.close();
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.binary;
+
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.model.InstanceConverter;
+import org.btrplace.json.model.constraint.ConstraintsConverter;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Model;
+import org.btrplace.model.constraint.OptConstraint;
+import org.btrplace.model.constraint.SatConstraint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Binary counterpart of {@link InstanceConverter}.
+ * <p>
+ * The model is converted using a {@link ModelBinaryConverter}. The constraints are written
+ * through their JSON converter so a document reads back to the same instance as its JSON version.
+ *
+ * @author Fabien Hermenier
+ */
+public class InstanceBinaryConverter {
+
+    private final ModelBinaryConverter moc;
+
+    private final ConstraintsConverter cc;
+
+    /**
+     * Make a new converter.
+     */
+    public InstanceBinaryConverter() {
+        moc = new ModelBinaryConverter();
+        cc = ConstraintsConverter.newBundle();
+    }
+
+    /**
+     * Get the converter used to serialise models.
+     *
+     * @return a converter
+     */
+    public ModelBinaryConverter getModelConverter() {
+        return moc;
+    }
+
+    /**
+     * Get the converter used to serialise constraints.
+     *
+     * @return a converter
+     */
+    public ConstraintsConverter getConstraintsConverter() {
+        return cc;
+    }
+
+    /**
+     * Read an instance.
+     *
+     * @param in the stream to read
+     * @return the resulting instance
+     * @throws JSONConverterException if an error occurred while reading the instance
+     */
+    public Instance read(InputStream in) throws JSONConverterException {
+        BinaryReader r = new BinaryReader(in);
+        BinaryFormat.readHeader(r, BinaryFormat.INSTANCE);
+        Instance i = read(r);
+        BinaryFormat.checkEnd(r);
+        return i;
+    }
+
+    /**
+     * Read an instance, without header.
+     *
+     * @param in the reader
+     * @return the resulting instance
+     * @throws JSONConverterException if an error occurred while reading the instance
+     */
+    public Instance read(BinaryReader in) throws JSONConverterException {
+        Model mo = moc.read(in);
+        int nb = in.readVarInt();
+        List<SatConstraint> cstrs = new ArrayList<>(nb);
+        for (int i = 0; i < nb; i++) {
+            cstrs.add((SatConstraint) cc.fromJSON(mo, in.object()));
+        }
+        OptConstraint obj = (OptConstraint) cc.fromJSON(mo, in.object());
+        return new Instance(mo, cstrs, obj);
+    }
+
+    /**
+     * Write an instance.
+     *
+     * @param i   the instance to write
+     * @param out the stream to write on
+     * @throws JSONConverterException if a constraint or a view cannot be converted
+     * @throws IOException            if an error occurred while writing
+     */
+    public void write(Instance i, OutputStream out) throws JSONConverterException, IOException {
+        BinaryWriter w = new BinaryWriter(out);
+        BinaryFormat.writeHeader(w, BinaryFormat.INSTANCE);
+        write(i, w);
+        w.flush();
+    }
+
+    /**
+     * Write an instance, without header.
+     *
+     * @param i   the instance to write
+     * @param out the writer
+     * @throws JSONConverterException if a constraint or a view cannot be converted
+     * @throws IOException            if an error occurred while writing
+     */
+    public void write(Instance i, BinaryWriter out) throws JSONConverterException, IOException {
+        moc.write(i.getModel(), out);
+        Collection<SatConstraint> cstrs = i.getSatConstraints();
+        out.writeVarInt(cstrs.size());
+        for (SatConstraint c : cstrs) {
+            out.value(cc.toJSON(c));
+        }
+        out.value(cc.toJSON(i.getOptConstraint()));
+    }
+}
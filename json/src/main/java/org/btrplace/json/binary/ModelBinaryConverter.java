@@ -0,0 +1,224 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.binary;
+
+import gnu.trove.list.array.TIntArrayList;
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.model.AttributesConverter;
+import org.btrplace.json.model.ModelConverter;
+import org.btrplace.json.model.view.ModelViewsConverter;
+import org.btrplace.json.model.view.ShareableResourceConverter;
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Element;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.ShareableResource;
+
+import java.io.IOException;
+import java.util.Collection;
+
+import static org.btrplace.json.JSONs.getNode;
+import static org.btrplace.json.JSONs.getVM;
+
+/**
+ * Binary counterpart of {@link ModelConverter}.
+ * <p>
+ * The mapping is written as varint-encoded arrays of identifiers. The {@link ShareableResource}s are
+ * written as columns: the element identifiers first, then their values. The attributes and the
+ * other views are written through their JSON converter.
+ *
+ * @author Fabien Hermenier
+ */
+public class ModelBinaryConverter {
+
+    private static final int GENERIC_VIEW = 0;
+
+    private static final int RESOURCE_VIEW = 1;
+
+    private final ModelViewsConverter viewsConverter;
+
+    /**
+     * Make a new converter that supports the views in {@link ModelViewsConverter#newBundle()}.
+     */
+    public ModelBinaryConverter() {
+        this(ModelViewsConverter.newBundle());
+    }
+
+    /**
+     * Make a new converter.
+     *
+     * @param c the converter to use for the views
+     */
+    public ModelBinaryConverter(ModelViewsConverter c) {
+        viewsConverter = c;
+    }
+
+    /**
+     * Get the converter that manage the views.
+     *
+     * @return the used converter
+     */
+    public ModelViewsConverter getViewsConverter() {
+        return viewsConverter;
+    }
+
+    /**
+     * Write a model.
+     *
+     * @param mo  the model to write
+     * @param out the writer
+     * @throws JSONConverterException if a view cannot be converted
+     * @throws IOException            if an error occurred while writing
+     */
+    public void write(Model mo, BinaryWriter out) throws JSONConverterException, IOException {
+        Mapping map = mo.getMapping();
+        writeIds(map.getOfflineNodes(), out);
+        writeIds(map.getReadyVMs(), out);
+        out.writeVarInt(map.getOnlineNodes().size());
+        for (Node n : map.getOnlineNodes()) {
+            out.writeSignedVarInt(n.id());
+            writeIds(map.getRunningVMs(n), out);
+            writeIds(map.getSleepingVMs(n), out);
+        }
+        out.value(AttributesConverter.toJSON(mo.getAttributes()));
+
+        Collection<ModelView> views = mo.getViews();
+        out.writeVarInt(views.size());
+        for (ModelView v : views) {
+            if (v.getClass() == ShareableResource.class && supportsResources()) {
+                out.writeByte(RESOURCE_VIEW);
+                writeResource((ShareableResource) v, out);
+            } else {
+                out.writeByte(GENERIC_VIEW);
+                out.value(viewsConverter.toJSON(v));
+            }
+        }
+    }
+
+    /**
+     * Read a model.
+     *
+     * @param in the reader
+     * @return the resulting model
+     * @throws JSONConverterException if an error occurred while reading the model
+     */
+    public Model read(BinaryReader in) throws JSONConverterException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        for (int id : in.readInts()) {
+            map.addOfflineNode(newNode(mo, id));
+        }
+        for (int id : in.readInts()) {
+            map.addReadyVM(newVM(mo, id));
+        }
+        int nb = in.readVarInt();
+        for (int i = 0; i < nb; i++) {
+            Node n = newNode(mo, in.readSignedVarInt());
+            map.addOnlineNode(n);
+            for (int id : in.readInts()) {
+                map.addRunningVM(newVM(mo, id), n);
+            }
+            for (int id : in.readInts()) {
+                map.addSleepingVM(newVM(mo, id), n);
+            }
+        }
+        mo.setAttributes(AttributesConverter.fromJSON(mo, in.object()));
+
+        nb = in.readVarInt();
+        for (int i = 0; i < nb; i++) {
+            int kind = in.readByte();
+            if (kind == RESOURCE_VIEW) {
+                mo.attach(readResource(in, mo));
+            } else if (kind == GENERIC_VIEW) {
+                mo.attach(viewsConverter.fromJSON(mo, in.object()));
+            } else {
+                throw new JSONConverterException("Unknown view kind '" + kind + "'");
+            }
+        }
+        return mo;
+    }
+
+    private boolean supportsResources() {
+        return viewsConverter.getSupportedJSONViews().contains(new ShareableResourceConverter().getJSONId());
+    }
+
+    private static void writeIds(Collection<? extends Element> elements, BinaryWriter out) throws IOException {
+        out.writeVarInt(elements.size());
+        for (Element e : elements) {
+            out.writeSignedVarInt(e.id());
+        }
+    }
+
+    private static void writeResource(ShareableResource rc, BinaryWriter out) throws IOException {
+        out.writeString(rc.getResourceIdentifier());
+        out.writeSignedVarInt(rc.getDefaultCapacity());
+        out.writeSignedVarInt(rc.getDefaultConsumption());
+        TIntArrayList ids = new TIntArrayList();
+        TIntArrayList values = new TIntArrayList();
+        collect(rc, true, ids, values);
+        out.writeInts(ids.toArray(), ids.size());
+        out.writeInts(values.toArray(), values.size());
+        ids.resetQuick();
+        values.resetQuick();
+        collect(rc, false, ids, values);
+        out.writeInts(ids.toArray(), ids.size());
+        out.writeInts(values.toArray(), values.size());
+    }
+
+    private static void collect(ShareableResource rc, boolean vms, TIntArrayList ids, TIntArrayList values) {
+        if (vms) {
+            rc.forEachVMId((id, v) -> ids.add(id) && values.add(v));
+        } else {
+            rc.forEachNodeId((id, v) -> ids.add(id) && values.add(v));
+        }
+    }
+
+    private static ShareableResource readResource(BinaryReader in, Model mo) throws JSONConverterException {
+        String rcId = in.readString();
+        int defCapacity = in.readSignedVarInt();
+        int defConsumption = in.readSignedVarInt();
+        ShareableResource rc = new ShareableResource(rcId, defCapacity, defConsumption);
+        int[] ids = in.readInts();
+        int[] values = readColumn(in, ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            rc.setConsumption(getVM(mo, ids[i]), values[i]);
+        }
+        ids = in.readInts();
+        values = readColumn(in, ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            rc.setCapacity(getNode(mo, ids[i]), values[i]);
+        }
+        return rc;
+    }
+
+    private static int[] readColumn(BinaryReader in, int expected) throws JSONConverterException {
+        int[] values = in.readInts();
+        if (values.length != expected) {
+            throw new JSONConverterException("Expected " + expected + " values but got " + values.length);
+        }
+        return values;
+    }
+
+    private static Node newNode(Model mo, int id) throws JSONConverterException {
+        Node n = mo.newNode(id);
+        if (n == null) {
+            throw JSONConverterException.nodeAlreadyDeclared(id);
+        }
+        return n;
+    }
+
+    private static VM newVM(Model mo, int id) throws JSONConverterException {
+        VM v = mo.newVM(id);
+        if (v == null) {
+            throw JSONConverterException.vmAlreadyDeclared(id);
+        }
+        return v;
+    }
+}
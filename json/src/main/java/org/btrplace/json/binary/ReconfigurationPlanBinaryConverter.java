@@ -0,0 +1,122 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.binary;
+
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.plan.ReconfigurationPlanConverter;
+import org.btrplace.model.Model;
+import org.btrplace.plan.DefaultReconfigurationPlan;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.event.Action;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Binary counterpart of {@link ReconfigurationPlanConverter}.
+ * <p>
+ * The origin model is converted using a {@link ModelBinaryConverter}. The actions and their events are
+ * written one at a time through their JSON converter.
+ *
+ * @author Fabien Hermenier
+ */
+public class ReconfigurationPlanBinaryConverter {
+
+    private final ModelBinaryConverter mc;
+
+    private final ReconfigurationPlanConverter actions;
+
+    /**
+     * Make a new converter that supports the actions and the events in {@link ReconfigurationPlanConverter#newBundle()}.
+     */
+    public ReconfigurationPlanBinaryConverter() {
+        this(ReconfigurationPlanConverter.newBundle());
+    }
+
+    /**
+     * Make a new converter.
+     *
+     * @param c the converter to use for the actions and the events
+     */
+    public ReconfigurationPlanBinaryConverter(ReconfigurationPlanConverter c) {
+        mc = new ModelBinaryConverter(c.getModelConverter().getViewsConverter());
+        actions = c;
+    }
+
+    /**
+     * Get the converter used to serialise the origin model.
+     *
+     * @return a converter
+     */
+    public ModelBinaryConverter getModelConverter() {
+        return mc;
+    }
+
+    /**
+     * Read a plan.
+     *
+     * @param in the stream to read
+     * @return the resulting plan
+     * @throws JSONConverterException if an error occurred while reading the plan
+     */
+    public ReconfigurationPlan read(InputStream in) throws JSONConverterException {
+        BinaryReader r = new BinaryReader(in);
+        BinaryFormat.readHeader(r, BinaryFormat.PLAN);
+        ReconfigurationPlan p = read(r);
+        BinaryFormat.checkEnd(r);
+        return p;
+    }
+
+    /**
+     * Read a plan, without header.
+     *
+     * @param in the reader
+     * @return the resulting plan
+     * @throws JSONConverterException if an error occurred while reading the plan
+     */
+    public ReconfigurationPlan read(BinaryReader in) throws JSONConverterException {
+        Model mo = mc.read(in);
+        ReconfigurationPlan plan = new DefaultReconfigurationPlan(mo);
+        int nb = in.readVarInt();
+        for (int i = 0; i < nb; i++) {
+            plan.add(actions.actionFromJSON(mo, in.object()));
+        }
+        return plan;
+    }
+
+    /**
+     * Write a plan.
+     *
+     * @param plan the plan to write
+     * @param out  the stream to write on
+     * @throws JSONConverterException if an action, an event or a view cannot be converted
+     * @throws IOException            if an error occurred while writing
+     */
+    public void write(ReconfigurationPlan plan, OutputStream out) throws JSONConverterException, IOException {
+        BinaryWriter w = new BinaryWriter(out);
+        BinaryFormat.writeHeader(w, BinaryFormat.PLAN);
+        write(plan, w);
+        w.flush();
+    }
+
+    /**
+     * Write a plan, without header.
+     *
+     * @param plan the plan to write
+     * @param out  the writer
+     * @throws JSONConverterException if an action, an event or a view cannot be converted
+     * @throws IOException            if an error occurred while writing
+     */
+    public void write(ReconfigurationPlan plan, BinaryWriter out) throws JSONConverterException, IOException {
+        mc.write(plan.getOrigin(), out);
+        out.writeVarInt(plan.getSize());
+        for (Action a : plan.getActions()) {
+            out.value(actions.actionToJSON(a));
+        }
+    }
+}
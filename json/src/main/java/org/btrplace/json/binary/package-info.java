@@ -0,0 +1,11 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+/**
+ * A compact binary format for instances and reconfiguration plans.
+ * A document reads back to the same entity as its JSON version.
+ */
+package org.btrplace.json.binary;
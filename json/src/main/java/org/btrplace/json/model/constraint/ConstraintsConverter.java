@@ -20,15 +20,21 @@ import org.btrplace.model.constraint.SatConstraint;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import static org.btrplace.json.JSONs.checkKeys;
 
 /**
  * Extensible converter for {@link org.btrplace.model.constraint.Constraint}.
+ * <p>
+ * In parallel mode, the lists of constraints are split into chunks that are converted
+ * on the current fork-join pool, or the common pool. The order of the constraints is preserved.
+ * This requires stateless converters and a model that is not modified during the conversion.
  *
  * @author Fabien Hermenier
  */
@@ -37,6 +43,13 @@ public class ConstraintsConverter {
   private final Map<Class<? extends Constraint>, ConstraintConverter<? extends Constraint>> java2json;
   private final Map<String, ConstraintConverter<? extends Constraint>> json2java;
 
+  /**
+   * The number of constraints converted per task in parallel mode.
+   */
+  public static final int CHUNK_SIZE = 1024;
+
+  private boolean parallel;
+
   /**
    * Make a new empty converter.
    */
@@ -99,6 +112,27 @@ public class ConstraintsConverter {
 
     }
 
+    /**
+     * Convert the lists of constraints in parallel.
+     * The default converters are stateless. When enabled, the registered converters must be stateless too.
+     *
+     * @param b {@code true} to convert in parallel
+     * @return the current converter
+     */
+    public ConstraintsConverter setParallel(boolean b) {
+        parallel = b;
+        return this;
+    }
+
+    /**
+     * Indicates if the lists of constraints are converted in parallel.
+     *
+     * @return {@code true} if parallel. {@code false} by default
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
     /**
      * Get the Java constraints that are supported by the converter.
      *
@@ -157,12 +191,15 @@ public class ConstraintsConverter {
      * @throws JSONConverterException if the conversion failed
      */
     public List<SatConstraint> listFromJSON(Model mo, JSONArray in) throws JSONConverterException {
-        List<SatConstraint> l = new ArrayList<>(in.size());
-        for (Object o : in) {
+        Object[] out = convert(in, o -> {
             if (!(o instanceof JSONObject)) {
                 throw new JSONConverterException("Expected an array of JSONObject but got an array of " + o.getClass().getName());
             }
-            l.add((SatConstraint) fromJSON(mo, (JSONObject) o));
+            return fromJSON(mo, (JSONObject) o);
+        });
+        List<SatConstraint> l = new ArrayList<>(out.length);
+        for (Object o : out) {
+            l.add((SatConstraint) o);
         }
         return l;
     }
@@ -174,10 +211,52 @@ public class ConstraintsConverter {
      * @throws JSONConverterException if the conversion failed
      */
     public JSONArray toJSON(Collection<SatConstraint> e) throws JSONConverterException {
+        List<SatConstraint> in = e instanceof List ? (List<SatConstraint>) e : new ArrayList<>(e);
+        Object[] out = convert(in, this::toJSON);
         JSONArray arr = new JSONArray();
-        for (SatConstraint cstr : e) {
-            arr.add(toJSON(cstr));
-        }
+        Collections.addAll(arr, out);
         return arr;
     }
+
+    @FunctionalInterface
+    private interface Conversion<I> {
+        Object convert(I in) throws JSONConverterException;
+    }
+
+    /**
+     * Convert a list of elements, in parallel if enabled.
+     * In case of failures, the exception of the first failing element is thrown.
+     *
+     * @param in the elements to convert
+     * @param f  the conversion
+     * @return the converted elements, in the same order
+     * @throws JSONConverterException if a conversion failed
+     */
+    private <I> Object[] convert(List<I> in, Conversion<I> f) throws JSONConverterException {
+        Object[] out = new Object[in.size()];
+        if (!parallel || in.size() <= CHUNK_SIZE) {
+            for (int i = 0; i < out.length; i++) {
+                out[i] = f.convert(in.get(i));
+            }
+            return out;
+        }
+        int nbChunks = (out.length + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        JSONConverterException[] errors = new JSONConverterException[nbChunks];
+        IntStream.range(0, nbChunks).parallel().forEach(c -> {
+            int to = Math.min(out.length, (c + 1) * CHUNK_SIZE);
+            try {
+                for (int i = c * CHUNK_SIZE; i < to; i++) {
+                    out[i] = f.convert(in.get(i));
+                }
+            } catch (JSONConverterException ex) {
+                errors[c] = ex;
+            }
+        });
+        for (JSONConverterException ex : errors) {
+            if (ex != null) {
+                throw ex;
+            }
+        }
+        return out;
+    }
 }
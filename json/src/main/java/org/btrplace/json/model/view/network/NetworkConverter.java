@@ -30,7 +30,8 @@ import static org.btrplace.json.JSONs.requiredString;
 /**
  * Serialize/Un-serialize a {@link org.btrplace.model.view.network.Network} view.
  * <p>
- * By default, it also registers a {@link DefaultRoutingConverter} and a {@link StaticRoutingConverter}.
+ * By default, it also registers a {@link DefaultRoutingConverter}, a {@link StaticRoutingConverter}
+ * and a {@link PrecomputedRoutingConverter}.
  *
  * @author Vincent Kherbache
  */
@@ -61,6 +62,7 @@ public class NetworkConverter implements ModelViewConverter<Network> {
         json2java = new HashMap<>();
         register(new DefaultRoutingConverter());
         register(new StaticRoutingConverter());
+        register(new PrecomputedRoutingConverter());
     }
 
     /**
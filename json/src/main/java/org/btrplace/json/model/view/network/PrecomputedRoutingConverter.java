@@ -0,0 +1,46 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.model.view.network;
+
+import net.minidev.json.JSONObject;
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.model.Model;
+import org.btrplace.model.view.network.PrecomputedRouting;
+/**
+ * A converter to (un-)serialise a {@link PrecomputedRouting}.
+ *
+ * @author Fabien Hermenier
+ */
+public class PrecomputedRoutingConverter implements RoutingConverter<PrecomputedRouting> {
+
+    @Override
+    public Class<PrecomputedRouting> getSupportedRouting() {
+        return PrecomputedRouting.class;
+    }
+
+    /**
+     * Return the routing identifier.
+     *
+     * @return {@code "precomputed"}
+     */
+    @Override
+    public String getJSONId() {
+        return "precomputed";
+    }
+
+    @Override
+    public PrecomputedRouting fromJSON(Model mo, JSONObject in) throws JSONConverterException {
+        return new PrecomputedRouting();
+    }
+
+    @Override
+    public JSONObject toJSON(PrecomputedRouting routing) {
+        JSONObject o = new JSONObject();
+        o.put("type", getJSONId());
+        return o;
+    }
+}
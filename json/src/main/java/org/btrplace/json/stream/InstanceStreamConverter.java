@@ -0,0 +1,190 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.stream;
+
+import net.minidev.json.JSONArray;
+import net.minidev.json.JSONObject;
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.model.InstanceConverter;
+import org.btrplace.json.model.constraint.ConstraintsConverter;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Model;
+import org.btrplace.model.constraint.OptConstraint;
+import org.btrplace.model.constraint.SatConstraint;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.btrplace.json.stream.ModelStreamConverter.asArray;
+import static org.btrplace.json.stream.ModelStreamConverter.asObject;
+import static org.btrplace.json.stream.ModelStreamConverter.checkPresent;
+
+/**
+ * Streaming counterpart of {@link InstanceConverter}. The JSON format is the same.
+ * <p>
+ * The model is converted using a {@link ModelStreamConverter} while the constraints
+ * are converted one at a time. When the constraints appear before the model, they are
+ * buffered until the model is read. When the constraints converter is in parallel mode
+ * (see {@link ConstraintsConverter#setParallel(boolean)}), the list of constraints is
+ * buffered and converted as a whole, in parallel.
+ *
+ * @author Fabien Hermenier
+ */
+public class InstanceStreamConverter {
+
+    private static final String MODEL_LABEL = "model";
+
+    private static final String CONSTRAINTS_LABEL = "constraints";
+
+    private static final String OBJ_LABEL = "objective";
+
+    private final ModelStreamConverter moc;
+
+    private final ConstraintsConverter cc;
+
+    /**
+     * Make a new converter.
+     */
+    public InstanceStreamConverter() {
+        moc = new ModelStreamConverter();
+        cc = ConstraintsConverter.newBundle();
+    }
+
+    /**
+     * Get the converter used to serialise models.
+     *
+     * @return a converter
+     */
+    public ModelStreamConverter getModelConverter() {
+        return moc;
+    }
+
+    /**
+     * Get the converter used to serialise constraints.
+     *
+     * @return a converter
+     */
+    public ConstraintsConverter getConstraintsConverter() {
+        return cc;
+    }
+
+    /**
+     * Read an instance.
+     *
+     * @param r the stream to read
+     * @return the resulting instance
+     * @throws JSONConverterException if an error occurred while reading the instance
+     */
+    public Instance read(Reader r) throws JSONConverterException {
+        JSONTokenReader in = new JSONTokenReader(r);
+        Instance i = read(in);
+        if (in.peek() != JSONTokenReader.Token.END_DOCUMENT) {
+            throw new JSONConverterException("Unexpected content after the instance");
+        }
+        return i;
+    }
+
+    /**
+     * Read an instance.
+     *
+     * @param in the reader, positioned before the instance
+     * @return the resulting instance
+     * @throws JSONConverterException if an error occurred while reading the instance
+     */
+    public Instance read(JSONTokenReader in) throws JSONConverterException {
+        Model mo = null;
+        List<SatConstraint> cstrs = null;
+        JSONArray pendingCstrs = null;
+        OptConstraint obj = null;
+        JSONObject pendingObj = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String k = in.nextName();
+            if (MODEL_LABEL.equals(k)) {
+                mo = moc.read(in);
+            } else if (CONSTRAINTS_LABEL.equals(k)) {
+                if (mo == null) {
+                    pendingCstrs = asArray(in.nextValue(), k);
+                } else {
+                    cstrs = readConstraints(in, mo);
+                }
+            } else if (OBJ_LABEL.equals(k)) {
+                if (mo == null) {
+                    pendingObj = asObject(in.nextValue(), k);
+                } else {
+                    obj = (OptConstraint) cc.fromJSON(mo, asObject(in.nextValue(), k));
+                }
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        checkPresent(mo != null, MODEL_LABEL);
+        checkPresent(cstrs != null || pendingCstrs != null, CONSTRAINTS_LABEL);
+        checkPresent(obj != null || pendingObj != null, OBJ_LABEL);
+        if (pendingCstrs != null) {
+            cstrs = cc.listFromJSON(mo, pendingCstrs);
+        }
+        if (pendingObj != null) {
+            obj = (OptConstraint) cc.fromJSON(mo, pendingObj);
+        }
+        return new Instance(mo, cstrs, obj);
+    }
+
+    private List<SatConstraint> readConstraints(JSONTokenReader in, Model mo) throws JSONConverterException {
+        if (cc.isParallel()) {
+            return cc.listFromJSON(mo, asArray(in.nextValue(), CONSTRAINTS_LABEL));
+        }
+        List<SatConstraint> l = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            l.add((SatConstraint) cc.fromJSON(mo, asObject(in.nextValue(), CONSTRAINTS_LABEL)));
+        }
+        in.endArray();
+        return l;
+    }
+
+    /**
+     * Write an instance.
+     *
+     * @param i the instance to write
+     * @param a the stream to write on
+     * @throws JSONConverterException if a constraint or a view cannot be converted
+     * @throws IOException            if an error occurred while writing
+     */
+    public void write(Instance i, Appendable a) throws JSONConverterException, IOException {
+        write(i, new JSONTokenWriter(a));
+    }
+
+    /**
+     * Write an instance.
+     *
+     * @param i   the instance to write
+     * @param out the writer
+     * @throws JSONConverterException if a constraint or a view cannot be converted
+     * @throws IOException            if an error occurred while writing
+     */
+    public void write(Instance i, JSONTokenWriter out) throws JSONConverterException, IOException {
+        out.beginObject();
+        out.name(MODEL_LABEL);
+        moc.write(i.getModel(), out);
+        out.name(CONSTRAINTS_LABEL);
+        if (cc.isParallel()) {
+            out.value(cc.toJSON(i.getSatConstraints()));
+        } else {
+            out.beginArray();
+            for (SatConstraint c : i.getSatConstraints()) {
+                out.value(cc.toJSON(c));
+            }
+            out.endArray();
+        }
+        out.name(OBJ_LABEL).value(cc.toJSON(i.getOptConstraint()));
+        out.endObject();
+    }
+}
@@ -0,0 +1,533 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.stream;
+
+import net.minidev.json.JSONArray;
+import net.minidev.json.JSONObject;
+import org.btrplace.json.JSONConverterException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigInteger;
+import java.util.Arrays;
+
+/**
+ * A pull parser that reads a JSON document token by token.
+ * <p>
+ * Only the current token is held in memory so the memory footprint does not depend on the document size.
+ * Sub-documents can still be materialised using {@link #nextValue()} with the same
+ * representation as the json-smart parser in RFC4627 mode.
+ *
+ * @author Fabien Hermenier
+ */
+public class JSONTokenReader implements Closeable {
+
+    /**
+     * The tokens.
+     */
+    public enum Token {
+        /**
+         * The opening of an object.
+         */
+        BEGIN_OBJECT,
+        /**
+         * The closing of an object.
+         */
+        END_OBJECT,
+        /**
+         * The opening of an array.
+         */
+        BEGIN_ARRAY,
+        /**
+         * The closing of an array.
+         */
+        END_ARRAY,
+        /**
+         * A key inside an object.
+         */
+        NAME,
+        /**
+         * A string value.
+         */
+        STRING,
+        /**
+         * A number value.
+         */
+        NUMBER,
+        /**
+         * A boolean value.
+         */
+        BOOLEAN,
+        /**
+         * A null value.
+         */
+        NULL,
+        /**
+         * The end of the document.
+         */
+        END_DOCUMENT
+    }
+
+    private static final int EMPTY_DOCUMENT = 0;
+    private static final int NONEMPTY_DOCUMENT = 1;
+    private static final int EMPTY_OBJECT = 2;
+    private static final int NONEMPTY_OBJECT = 3;
+    private static final int DANGLING_NAME = 4;
+    private static final int EMPTY_ARRAY = 5;
+    private static final int NONEMPTY_ARRAY = 6;
+
+    private final Reader in;
+
+    private final char[] buf = new char[8192];
+
+    private int pos = 0;
+
+    private int limit = 0;
+
+    private int[] scopes = new int[32];
+
+    private int depth = 1;
+
+    private Token peeked;
+
+    private boolean peekedBoolean;
+
+    private final StringBuilder sb = new StringBuilder();
+
+    /**
+     * Make a new reader.
+     *
+     * @param r the stream to read. It is not buffered by the reader
+     */
+    public JSONTokenReader(Reader r) {
+        in = r;
+        scopes[0] = EMPTY_DOCUMENT;
+    }
+
+    /**
+     * Get the type of the next token without consuming it.
+     *
+     * @return the token type
+     * @throws JSONConverterException if the document is malformed
+     */
+    public Token peek() throws JSONConverterException {
+        if (peeked == null) {
+            peeked = doPeek();
+        }
+        return peeked;
+    }
+
+    /**
+     * Check if the current object or array has another element.
+     *
+     * @return {@code true} iff there is another element
+     * @throws JSONConverterException if the document is malformed
+     */
+    public boolean hasNext() throws JSONConverterException {
+        Token t = peek();
+        return t != Token.END_OBJECT && t != Token.END_ARRAY && t != Token.END_DOCUMENT;
+    }
+
+    /**
+     * Consume the opening of an object.
+     *
+     * @throws JSONConverterException if the next token is not the opening of an object
+     */
+    public void beginObject() throws JSONConverterException {
+        expect(Token.BEGIN_OBJECT);
+        push(EMPTY_OBJECT);
+    }
+
+    /**
+     * Consume the closing of an object.
+     *
+     * @throws JSONConverterException if the next token is not the closing of an object
+     */
+    public void endObject() throws JSONConverterException {
+        expect(Token.END_OBJECT);
+        depth--;
+    }
+
+    /**
+     * Consume the opening of an array.
+     *
+     * @throws JSONConverterException if the next token is not the opening of an array
+     */
+    public void beginArray() throws JSONConverterException {
+        expect(Token.BEGIN_ARRAY);
+        push(EMPTY_ARRAY);
+    }
+
+    /**
+     * Consume the closing of an array.
+     *
+     * @throws JSONConverterException if the next token is not the closing of an array
+     */
+    public void endArray() throws JSONConverterException {
+        expect(Token.END_ARRAY);
+        depth--;
+    }
+
+    /**
+     * Consume a key.
+     *
+     * @return the key
+     * @throws JSONConverterException if the next token is not a key
+     */
+    public String nextName() throws JSONConverterException {
+        expect(Token.NAME);
+        return readString();
+    }
+
+    /**
+     * Consume a string or a number.
+     *
+     * @return the value as a string
+     * @throws JSONConverterException if the next token is neither a string nor a number
+     */
+    public String nextString() throws JSONConverterException {
+        Token t = peek();
+        peeked = null;
+        if (t == Token.STRING) {
+            return readString();
+        } else if (t == Token.NUMBER) {
+            return readNumber();
+        }
+        throw error("string expected but got " + t);
+    }
+
+    /**
+     * Consume an integer.
+     *
+     * @return the value
+     * @throws JSONConverterException if the next token is not an integer
+     */
+    public int nextInt() throws JSONConverterException {
+        String s = nextString();
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException ex) {
+            throw error("int expected but got '" + s + "'");
+        }
+    }
+
+    /**
+     * Consume a boolean.
+     *
+     * @return the value
+     * @throws JSONConverterException if the next token is not a boolean
+     */
+    public boolean nextBoolean() throws JSONConverterException {
+        expect(Token.BOOLEAN);
+        return peekedBoolean;
+    }
+
+    /**
+     * Consume a whole value, whatever its type.
+     *
+     * @return a {@link JSONObject}, a {@link JSONArray}, a {@link String}, a {@link Number}, a {@link Boolean} or {@code null}
+     * @throws JSONConverterException if the document is malformed
+     */
+    public Object nextValue() throws JSONConverterException {
+        switch (peek()) {
+            case BEGIN_OBJECT:
+                JSONObject o = new JSONObject();
+                beginObject();
+                while (hasNext()) {
+                    String k = nextName();
+                    o.put(k, nextValue());
+                }
+                endObject();
+                return o;
+            case BEGIN_ARRAY:
+                JSONArray a = new JSONArray();
+                beginArray();
+                while (hasNext()) {
+                    a.add(nextValue());
+                }
+                endArray();
+                return a;
+            case STRING:
+                return nextString();
+            case NUMBER:
+                peeked = null;
+                return toNumber(readNumber());
+            case BOOLEAN:
+                return nextBoolean();
+            case NULL:
+                peeked = null;
+                return null;
+            default:
+                throw error("value expected but got " + peek());
+        }
+    }
+
+    /**
+     * Consume a whole value without materialising it.
+     *
+     * @throws JSONConverterException if the document is malformed
+     */
+    public void skipValue() throws JSONConverterException {
+        int d = 0;
+        do {
+            Token t = peek();
+            switch (t) {
+                case BEGIN_OBJECT:
+                    beginObject();
+                    d++;
+                    break;
+                case BEGIN_ARRAY:
+                    beginArray();
+                    d++;
+                    break;
+                case END_OBJECT:
+                    endObject();
+                    d--;
+                    break;
+                case END_ARRAY:
+                    endArray();
+                    d--;
+                    break;
+                case NAME:
+                    nextName();
+                    break;
+                case END_DOCUMENT:
+                    throw error("unexpected end of document");
+                default:
+                    nextValue();
+                    break;
+            }
+        } while (d > 0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    private void expect(Token t) throws JSONConverterException {
+        if (peek() != t) {
+            throw error(t + " expected but got " + peeked);
+        }
+        peeked = null;
+    }
+
+    private void push(int scope) {
+        if (depth == scopes.length) {
+            scopes = Arrays.copyOf(scopes, depth * 2);
+        }
+        scopes[depth++] = scope;
+    }
+
+    @SuppressWarnings("squid:S3776")
+    private Token doPeek() throws JSONConverterException {
+        int scope = scopes[depth - 1];
+        int c;
+        if (scope == EMPTY_ARRAY || scope == NONEMPTY_ARRAY) {
+            scopes[depth - 1] = NONEMPTY_ARRAY;
+            c = nextNonWhitespace();
+            if (c == ']') {
+                return Token.END_ARRAY;
+            }
+            if (scope == NONEMPTY_ARRAY) {
+                if (c != ',') {
+                    throw error("',' or ']' expected");
+                }
+            } else if (c != -1) {
+                pos--;
+            }
+        } else if (scope == EMPTY_OBJECT || scope == NONEMPTY_OBJECT) {
+            scopes[depth - 1] = DANGLING_NAME;
+            c = nextNonWhitespace();
+            if (c == '}') {
+                return Token.END_OBJECT;
+            }
+            if (scope == NONEMPTY_OBJECT) {
+                if (c != ',') {
+                    throw error("',' or '}' expected");
+                }
+                c = nextNonWhitespace();
+            }
+            if (c != '"') {
+                throw error("key expected");
+            }
+            return Token.NAME;
+        } else if (scope == DANGLING_NAME) {
+            scopes[depth - 1] = NONEMPTY_OBJECT;
+            if (nextNonWhitespace() != ':') {
+                throw error("':' expected");
+            }
+        } else if (scope == EMPTY_DOCUMENT) {
+            scopes[depth - 1] = NONEMPTY_DOCUMENT;
+        } else {
+            if (nextNonWhitespace() == -1) {
+                return Token.END_DOCUMENT;
+            }
+            throw error("unexpected content after the document");
+        }
+
+        c = nextNonWhitespace();
+        switch (c) {
+            case '{':
+                return Token.BEGIN_OBJECT;
+            case '[':
+                return Token.BEGIN_ARRAY;
+            case '"':
+                return Token.STRING;
+            case 't':
+                literal("rue");
+                peekedBoolean = true;
+                return Token.BOOLEAN;
+            case 'f':
+                literal("alse");
+                peekedBoolean = false;
+                return Token.BOOLEAN;
+            case 'n':
+                literal("ull");
+                return Token.NULL;
+            case -1:
+                throw error("unexpected end of document");
+            default:
+                if (c == '-' || (c >= '0' && c <= '9')) {
+                    pos--;
+                    return Token.NUMBER;
+                }
+                throw error("unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private void literal(String rest) throws JSONConverterException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (read() != rest.charAt(i)) {
+                throw error("malformed literal");
+            }
+        }
+    }
+
+    private boolean fill() throws JSONConverterException {
+        try {
+            limit = in.read(buf, 0, buf.length);
+        } catch (IOException ex) {
+            throw new JSONConverterException(ex);
+        }
+        pos = 0;
+        if (limit <= 0) {
+            limit = 0;
+            return false;
+        }
+        return true;
+    }
+
+    private int read() throws JSONConverterException {
+        if (pos == limit && !fill()) {
+            return -1;
+        }
+        return buf[pos++];
+    }
+
+    private int nextNonWhitespace() throws JSONConverterException {
+        int c = read();
+        while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+            c = read();
+        }
+        return c;
+    }
+
+    /**
+     * Read a string. The opening quote is already consumed.
+     */
+    private String readString() throws JSONConverterException {
+        sb.setLength(0);
+        while (true) {
+            int c = read();
+            if (c == '"') {
+                return sb.toString();
+            } else if (c == '\\') {
+                sb.append(readEscaped());
+            } else if (c == -1) {
+                throw error("unterminated string");
+            } else {
+                sb.append((char) c);
+            }
+        }
+    }
+
+    private char readEscaped() throws JSONConverterException {
+        int c = read();
+        switch (c) {
+            case 'n':
+                return '\n';
+            case 't':
+                return '\t';
+            case 'r':
+                return '\r';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            case 'u':
+                int v = 0;
+                for (int i = 0; i < 4; i++) {
+                    int d = Character.digit(read(), 16);
+                    if (d < 0) {
+                        throw error("malformed unicode escape");
+                    }
+                    v = (v << 4) | d;
+                }
+                return (char) v;
+            case '"':
+            case '\\':
+            case '/':
+                return (char) c;
+            default:
+                throw error("malformed escape sequence");
+        }
+    }
+
+    private String readNumber() throws JSONConverterException {
+        sb.setLength(0);
+        while (true) {
+            int c = read();
+            if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+                sb.append((char) c);
+            } else {
+                if (c != -1) {
+                    pos--;
+                }
+                return sb.toString();
+            }
+        }
+    }
+
+    /**
+     * Convert a number like json-smart does: an {@link Integer} when possible,
+     * then a {@link Long}, then a {@link BigInteger}. A {@link Double} for decimals.
+     */
+    private Number toNumber(String s) throws JSONConverterException {
+        try {
+            if (s.indexOf('.') >= 0 || s.indexOf('e') >= 0 || s.indexOf('E') >= 0) {
+                return Double.valueOf(s);
+            }
+            if (s.length() < 19) {
+                long l = Long.parseLong(s);
+                if (l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE) {
+                    return (int) l;
+                }
+                return l;
+            }
+            BigInteger b = new BigInteger(s);
+            return b.bitLength() < 64 ? (Number) b.longValue() : b;
+        } catch (NumberFormatException ex) {
+            throw error("malformed number '" + s + "'");
+        }
+    }
+
+    private JSONConverterException error(String msg) {
+        return new JSONConverterException("Malformed JSON: " + msg);
+    }
+}
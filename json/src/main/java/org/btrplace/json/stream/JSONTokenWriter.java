@@ -0,0 +1,183 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.stream;
+
+import net.minidev.json.JSONValue;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A writer that emits a JSON document token by token.
+ * <p>
+ * Nothing is buffered so the memory footprint does not depend on the document size.
+ * Sub-documents made of json-smart values can still be written at once using {@link #value(Object)}.
+ *
+ * @author Fabien Hermenier
+ */
+public class JSONTokenWriter {
+
+    private final Appendable out;
+
+    /**
+     * For each opened object or array, {@code true} iff it has no element yet.
+     */
+    private boolean[] empty = new boolean[32];
+
+    private int depth = 0;
+
+    /**
+     * {@code true} iff a key has just been written.
+     */
+    private boolean dangling = false;
+
+    /**
+     * Make a new writer.
+     *
+     * @param a the stream to write on
+     */
+    public JSONTokenWriter(Appendable a) {
+        out = a;
+    }
+
+    /**
+     * Open an object.
+     *
+     * @return the current writer
+     * @throws IOException if an error occurred while writing
+     */
+    public JSONTokenWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    /**
+     * Close the current object.
+     *
+     * @return the current writer
+     * @throws IOException if an error occurred while writing
+     */
+    public JSONTokenWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    /**
+     * Open an array.
+     *
+     * @return the current writer
+     * @throws IOException if an error occurred while writing
+     */
+    public JSONTokenWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    /**
+     * Close the current array.
+     *
+     * @return the current writer
+     * @throws IOException if an error occurred while writing
+     */
+    public JSONTokenWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    /**
+     * Write a key inside the current object.
+     *
+     * @param k the key
+     * @return the current writer
+     * @throws IOException if an error occurred while writing
+     */
+    public JSONTokenWriter name(String k) throws IOException {
+        separate();
+        string(k);
+        out.append(':');
+        dangling = true;
+        return this;
+    }
+
+    /**
+     * Write an integer.
+     *
+     * @param v the value
+     * @return the current writer
+     * @throws IOException if an error occurred while writing
+     */
+    public JSONTokenWriter value(int v) throws IOException {
+        separate();
+        out.append(Integer.toString(v));
+        return this;
+    }
+
+    /**
+     * Write a string.
+     *
+     * @param v the value
+     * @return the current writer
+     * @throws IOException if an error occurred while writing
+     */
+    public JSONTokenWriter value(String v) throws IOException {
+        separate();
+        if (v == null) {
+            out.append("null");
+        } else {
+            string(v);
+        }
+        return this;
+    }
+
+    /**
+     * Write a value using json-smart.
+     *
+     * @param v a json-smart compatible value such as a {@link net.minidev.json.JSONObject}
+     * @return the current writer
+     * @throws IOException if an error occurred while writing
+     */
+    public JSONTokenWriter value(Object v) throws IOException {
+        separate();
+        JSONValue.writeJSONString(v, out);
+        return this;
+    }
+
+    private void string(String s) throws IOException {
+        out.append('"').append(JSONValue.escape(s)).append('"');
+    }
+
+    /**
+     * Write the separator preceding a key or a value if needed.
+     */
+    private void separate() throws IOException {
+        if (dangling) {
+            dangling = false;
+            return;
+        }
+        if (depth > 0) {
+            if (!empty[depth - 1]) {
+                out.append(',');
+            }
+            empty[depth - 1] = false;
+        }
+    }
+
+    private JSONTokenWriter open(char c) throws IOException {
+        separate();
+        out.append(c);
+        if (depth == empty.length) {
+            empty = Arrays.copyOf(empty, depth * 2);
+        }
+        empty[depth++] = true;
+        return this;
+    }
+
+    private JSONTokenWriter close(char c) throws IOException {
+        if (depth == 0) {
+            throw new IllegalStateException("Nothing to close");
+        }
+        depth--;
+        out.append(c);
+        return this;
+    }
+}
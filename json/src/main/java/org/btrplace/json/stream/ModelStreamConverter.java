@@ -0,0 +1,451 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.stream;
+
+import gnu.trove.list.array.TIntArrayList;
+import net.minidev.json.JSONArray;
+import net.minidev.json.JSONObject;
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.model.AttributesConverter;
+import org.btrplace.json.model.ModelConverter;
+import org.btrplace.json.model.view.ModelViewConverter;
+import org.btrplace.json.model.view.ModelViewsConverter;
+import org.btrplace.json.model.view.ShareableResourceConverter;
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.ShareableResource;
+
+import java.io.IOException;
+
+import static org.btrplace.json.JSONs.getNode;
+import static org.btrplace.json.JSONs.getVM;
+
+/**
+ * Streaming counterpart of {@link ModelConverter}. The JSON format is the same.
+ * <p>
+ * The mapping and the {@link ShareableResource}s are populated directly while the tokens are read, and
+ * written directly from the model, without an intermediary JSON tree. The other views are converted one
+ * at a time using their {@link ModelViewConverter}. The attributes, and the views that appear before the
+ * mapping, are buffered until the end of the model.
+ *
+ * @author Fabien Hermenier
+ */
+public class ModelStreamConverter {
+
+    private static final String OFFLINE_NODES = "offlineNodes";
+
+    private static final String READY_VMS = "readyVMs";
+
+    private static final String ONLINE_NODES = "onlineNodes";
+
+    private static final String RUNNING_VMS = "runningVMs";
+
+    private static final String SLEEPING_VMS = "sleepingVMs";
+
+    private static final String RC_ID = "rcId";
+
+    private static final String VMS_LABEL = "vms";
+
+    private final ModelViewsConverter viewsConverter;
+
+    private final ShareableResourceConverter rcConverter = new ShareableResourceConverter();
+
+    /**
+     * Make a new converter that supports the views in {@link ModelViewsConverter#newBundle()}.
+     */
+    public ModelStreamConverter() {
+        this(ModelViewsConverter.newBundle());
+    }
+
+    /**
+     * Make a new converter.
+     *
+     * @param c the converter to use for the views
+     */
+    public ModelStreamConverter(ModelViewsConverter c) {
+        viewsConverter = c;
+    }
+
+    /**
+     * Get the converter that manage the views.
+     *
+     * @return the used converter
+     */
+    public ModelViewsConverter getViewsConverter() {
+        return viewsConverter;
+    }
+
+    /**
+     * Read a model.
+     *
+     * @param in the reader, positioned before the model
+     * @return the resulting model
+     * @throws JSONConverterException if an error occurred while reading the model
+     */
+    public Model read(JSONTokenReader in) throws JSONConverterException {
+        Model mo = new DefaultModel();
+        boolean mapping = false;
+        boolean views = false;
+        JSONObject attrs = null;
+        JSONArray pendingViews = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String k = in.nextName();
+            if (ModelConverter.MAPPING_LABEL.equals(k)) {
+                readMapping(in, mo);
+                mapping = true;
+            } else if (ModelConverter.ATTRS_LABEL.equals(k)) {
+                attrs = asObject(in.nextValue(), k);
+            } else if (ModelConverter.VIEWS_LABEL.equals(k)) {
+                if (mapping) {
+                    readViews(in, mo);
+                } else {
+                    pendingViews = asArray(in.nextValue(), k);
+                }
+                views = true;
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        checkPresent(mapping, ModelConverter.MAPPING_LABEL);
+        checkPresent(attrs != null, ModelConverter.ATTRS_LABEL);
+        checkPresent(views, ModelConverter.VIEWS_LABEL);
+        if (pendingViews != null) {
+            for (Object v : pendingViews) {
+                mo.attach(viewsConverter.fromJSON(mo, asObject(v, ModelConverter.VIEWS_LABEL)));
+            }
+        }
+        mo.setAttributes(AttributesConverter.fromJSON(mo, attrs));
+        return mo;
+    }
+
+    /**
+     * Write a model.
+     *
+     * @param mo  the model to write
+     * @param out the writer
+     * @throws JSONConverterException if a view cannot be converted
+     * @throws IOException            if an error occurred while writing
+     */
+    public void write(Model mo, JSONTokenWriter out) throws JSONConverterException, IOException {
+        out.beginObject();
+        out.name(ModelConverter.MAPPING_LABEL);
+        writeMapping(mo.getMapping(), out);
+        out.name(ModelConverter.ATTRS_LABEL).value(AttributesConverter.toJSON(mo.getAttributes()));
+        out.name(ModelConverter.VIEWS_LABEL).beginArray();
+        for (ModelView v : mo.getViews()) {
+            if (v.getClass() == ShareableResource.class && supportsResources()) {
+                writeResource((ShareableResource) v, out);
+            } else {
+                out.value(viewsConverter.toJSON(v));
+            }
+        }
+        out.endArray();
+        out.endObject();
+    }
+
+    private boolean supportsResources() {
+        return viewsConverter.getSupportedJSONViews().contains(rcConverter.getJSONId());
+    }
+
+    private static void writeMapping(Mapping map, JSONTokenWriter out) throws IOException {
+        out.beginObject();
+        out.name(OFFLINE_NODES).beginArray();
+        for (Node n : map.getOfflineNodes()) {
+            out.value(n.id());
+        }
+        out.endArray();
+        out.name(READY_VMS);
+        writeVMs(map.getReadyVMs(), out);
+        out.name(ONLINE_NODES).beginObject();
+        for (Node n : map.getOnlineNodes()) {
+            out.name(Integer.toString(n.id())).beginObject();
+            out.name(RUNNING_VMS);
+            writeVMs(map.getRunningVMs(n), out);
+            out.name(SLEEPING_VMS);
+            writeVMs(map.getSleepingVMs(n), out);
+            out.endObject();
+        }
+        out.endObject();
+        out.endObject();
+    }
+
+    private static void writeVMs(Iterable<VM> vms, JSONTokenWriter out) throws IOException {
+        out.beginArray();
+        for (VM v : vms) {
+            out.value(v.id());
+        }
+        out.endArray();
+    }
+
+    /**
+     * Write a resource. The identifier comes first so the reader can populate the resource directly.
+     */
+    private void writeResource(ShareableResource rc, JSONTokenWriter out) throws IOException {
+        out.beginObject();
+        out.name(ModelViewConverter.IDENTIFIER).value(rcConverter.getJSONId());
+        out.name(RC_ID).value(rc.getResourceIdentifier());
+        out.name(ShareableResourceConverter.DEFAULT_CONSUMPTION).value(rc.getDefaultConsumption());
+        out.name(ShareableResourceConverter.DEFAULT_CAPACITY).value(rc.getDefaultCapacity());
+        out.name(VMS_LABEL).beginObject();
+        IOException[] err = new IOException[1];
+        rc.forEachVMId((id, c) -> entry(out, id, c, err));
+        rethrow(err);
+        out.endObject();
+        out.name(ShareableResourceConverter.NODES_LABEL).beginObject();
+        rc.forEachNodeId((id, c) -> entry(out, id, c, err));
+        rethrow(err);
+        out.endObject();
+        out.endObject();
+    }
+
+    private static boolean entry(JSONTokenWriter out, int id, int v, IOException[] err) {
+        try {
+            out.name(Integer.toString(id)).value(v);
+            return true;
+        } catch (IOException ex) {
+            err[0] = ex;
+            return false;
+        }
+    }
+
+    private static void rethrow(IOException[] err) throws IOException {
+        if (err[0] != null) {
+            throw err[0];
+        }
+    }
+
+    private static void readMapping(JSONTokenReader in, Model mo) throws JSONConverterException {
+        Mapping map = mo.getMapping();
+        boolean offline = false;
+        boolean ready = false;
+        boolean online = false;
+        in.beginObject();
+        while (in.hasNext()) {
+            String k = in.nextName();
+            if (OFFLINE_NODES.equals(k)) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    map.addOfflineNode(newNode(mo, in.nextInt()));
+                }
+                in.endArray();
+                offline = true;
+            } else if (READY_VMS.equals(k)) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    map.addReadyVM(newVM(mo, in.nextInt()));
+                }
+                in.endArray();
+                ready = true;
+            } else if (ONLINE_NODES.equals(k)) {
+                in.beginObject();
+                while (in.hasNext()) {
+                    Node n = newNode(mo, parseId(in.nextName()));
+                    map.addOnlineNode(n);
+                    readHostedVMs(in, mo, n);
+                }
+                in.endObject();
+                online = true;
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        checkPresent(offline, OFFLINE_NODES);
+        checkPresent(ready, READY_VMS);
+        checkPresent(online, ONLINE_NODES);
+    }
+
+    private static void readHostedVMs(JSONTokenReader in, Model mo, Node n) throws JSONConverterException {
+        Mapping map = mo.getMapping();
+        boolean running = false;
+        boolean sleeping = false;
+        in.beginObject();
+        while (in.hasNext()) {
+            String k = in.nextName();
+            if (RUNNING_VMS.equals(k)) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    map.addRunningVM(newVM(mo, in.nextInt()), n);
+                }
+                in.endArray();
+                running = true;
+            } else if (SLEEPING_VMS.equals(k)) {
+                in.beginArray();
+                while (in.hasNext()) {
+                    map.addSleepingVM(newVM(mo, in.nextInt()), n);
+                }
+                in.endArray();
+                sleeping = true;
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        checkPresent(running, RUNNING_VMS);
+        checkPresent(sleeping, SLEEPING_VMS);
+    }
+
+    private void readViews(JSONTokenReader in, Model mo) throws JSONConverterException {
+        in.beginArray();
+        while (in.hasNext()) {
+            mo.attach(readView(in, mo));
+        }
+        in.endArray();
+    }
+
+    /**
+     * Read a view. A resource is populated directly if its identifier comes first.
+     * Otherwise, the view is buffered and converted by its {@link ModelViewConverter}.
+     */
+    private ModelView readView(JSONTokenReader in, Model mo) throws JSONConverterException {
+        JSONObject o = new JSONObject();
+        in.beginObject();
+        if (in.hasNext()) {
+            String k = in.nextName();
+            Object v = in.nextValue();
+            if (ModelViewConverter.IDENTIFIER.equals(k) && rcConverter.getJSONId().equals(v) && supportsResources()) {
+                ShareableResource rc = readResource(in, mo);
+                in.endObject();
+                return rc;
+            }
+            o.put(k, v);
+        }
+        while (in.hasNext()) {
+            String k = in.nextName();
+            o.put(k, in.nextValue());
+        }
+        in.endObject();
+        return viewsConverter.fromJSON(mo, o);
+    }
+
+    /**
+     * Read the remaining keys of a resource.
+     * The values are buffered into primitive lists until the default values are known.
+     */
+    private static ShareableResource readResource(JSONTokenReader in, Model mo) throws JSONConverterException {
+        String rcId = null;
+        Integer defConsumption = null;
+        Integer defCapacity = null;
+        ShareableResource rc = null;
+        TIntArrayList vms = null;
+        TIntArrayList nodes = null;
+        while (in.hasNext()) {
+            String k = in.nextName();
+            if (RC_ID.equals(k)) {
+                rcId = in.nextString();
+            } else if (ShareableResourceConverter.DEFAULT_CONSUMPTION.equals(k)) {
+                defConsumption = in.nextInt();
+            } else if (ShareableResourceConverter.DEFAULT_CAPACITY.equals(k)) {
+                defCapacity = in.nextInt();
+            } else if (VMS_LABEL.equals(k) || ShareableResourceConverter.NODES_LABEL.equals(k)) {
+                if (rc == null && rcId != null && defConsumption != null && defCapacity != null) {
+                    rc = new ShareableResource(rcId, defCapacity, defConsumption);
+                }
+                TIntArrayList values = readValues(in, rc, mo, VMS_LABEL.equals(k));
+                if (VMS_LABEL.equals(k)) {
+                    vms = values;
+                } else {
+                    nodes = values;
+                }
+            } else {
+                in.skipValue();
+            }
+        }
+        checkPresent(vms != null, VMS_LABEL);
+        checkPresent(nodes != null, ShareableResourceConverter.NODES_LABEL);
+        checkPresent(defCapacity != null, ShareableResourceConverter.DEFAULT_CAPACITY);
+        checkPresent(defConsumption != null, ShareableResourceConverter.DEFAULT_CONSUMPTION);
+        checkPresent(rcId != null, RC_ID);
+        if (rc == null) {
+            rc = new ShareableResource(rcId, defCapacity, defConsumption);
+        }
+        for (int x = 0; x < vms.size(); x += 2) {
+            rc.setConsumption(getVM(mo, vms.get(x)), vms.get(x + 1));
+        }
+        for (int x = 0; x < nodes.size(); x += 2) {
+            rc.setCapacity(getNode(mo, nodes.get(x)), nodes.get(x + 1));
+        }
+        return rc;
+    }
+
+    /**
+     * Read the values of a resource.
+     *
+     * @param rc  the resource to populate. {@code null} to buffer the values
+     * @param vms {@code true} to read VM consumptions, {@code false} for node capacities
+     * @return the buffered (id, value) pairs. Empty when the resource was populated directly
+     */
+    private static TIntArrayList readValues(JSONTokenReader in, ShareableResource rc, Model mo, boolean vms)
+            throws JSONConverterException {
+        TIntArrayList buffer = new TIntArrayList(0);
+        in.beginObject();
+        while (in.hasNext()) {
+            int id = parseId(in.nextName());
+            int v = in.nextInt();
+            if (rc == null) {
+                buffer.add(id);
+                buffer.add(v);
+            } else if (vms) {
+                rc.setConsumption(getVM(mo, id), v);
+            } else {
+                rc.setCapacity(getNode(mo, id), v);
+            }
+        }
+        in.endObject();
+        return buffer;
+    }
+
+    private static Node newNode(Model mo, int id) throws JSONConverterException {
+        Node n = mo.newNode(id);
+        if (n == null) {
+            throw JSONConverterException.nodeAlreadyDeclared(id);
+        }
+        return n;
+    }
+
+    private static VM newVM(Model mo, int id) throws JSONConverterException {
+        VM v = mo.newVM(id);
+        if (v == null) {
+            throw JSONConverterException.vmAlreadyDeclared(id);
+        }
+        return v;
+    }
+
+    private static int parseId(String s) throws JSONConverterException {
+        try {
+            return Integer.parseInt(s);
+        } catch (NumberFormatException ex) {
+            throw new JSONConverterException("Unable to read an element identifier from '" + s + "'", ex);
+        }
+    }
+
+    static JSONObject asObject(Object o, String key) throws JSONConverterException {
+        if (!(o instanceof JSONObject)) {
+            throw new JSONConverterException("object expected at key '" + key + "'");
+        }
+        return (JSONObject) o;
+    }
+
+    static JSONArray asArray(Object o, String key) throws JSONConverterException {
+        if (!(o instanceof JSONArray)) {
+            throw new JSONConverterException("array expected at key '" + key + "'");
+        }
+        return (JSONArray) o;
+    }
+
+    static void checkPresent(boolean present, String key) throws JSONConverterException {
+        if (!present) {
+            throw new JSONConverterException("Missing key '" + key + "'");
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.stream;
+
+import net.minidev.json.JSONArray;
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.plan.ReconfigurationPlanConverter;
+import org.btrplace.model.Model;
+import org.btrplace.plan.DefaultReconfigurationPlan;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.event.Action;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import static org.btrplace.json.stream.ModelStreamConverter.asArray;
+import static org.btrplace.json.stream.ModelStreamConverter.asObject;
+import static org.btrplace.json.stream.ModelStreamConverter.checkPresent;
+
+/**
+ * Streaming counterpart of {@link ReconfigurationPlanConverter}. The JSON format is the same.
+ * <p>
+ * The origin model is converted using a {@link ModelStreamConverter} while the actions
+ * are read and written one at a time. When the actions appear before the origin model, they
+ * are buffered until the model is read.
+ *
+ * @author Fabien Hermenier
+ */
+public class ReconfigurationPlanStreamConverter {
+
+    private final ModelStreamConverter mc;
+
+    private final ReconfigurationPlanConverter actions;
+
+    /**
+     * Make a new converter that supports the actions and the events in {@link ReconfigurationPlanConverter#newBundle()}.
+     */
+    public ReconfigurationPlanStreamConverter() {
+        this(ReconfigurationPlanConverter.newBundle());
+    }
+
+    /**
+     * Make a new converter.
+     *
+     * @param c the converter to use for the actions and the events
+     */
+    public ReconfigurationPlanStreamConverter(ReconfigurationPlanConverter c) {
+        mc = new ModelStreamConverter(c.getModelConverter().getViewsConverter());
+        actions = c;
+    }
+
+    /**
+     * Get the converter used to serialise the origin model.
+     *
+     * @return a converter
+     */
+    public ModelStreamConverter getModelConverter() {
+        return mc;
+    }
+
+    /**
+     * Read a plan.
+     *
+     * @param r the stream to read
+     * @return the resulting plan
+     * @throws JSONConverterException if an error occurred while reading the plan
+     */
+    public ReconfigurationPlan read(Reader r) throws JSONConverterException {
+        JSONTokenReader in = new JSONTokenReader(r);
+        ReconfigurationPlan p = read(in);
+        if (in.peek() != JSONTokenReader.Token.END_DOCUMENT) {
+            throw new JSONConverterException("Unexpected content after the plan");
+        }
+        return p;
+    }
+
+    /**
+     * Read a plan.
+     *
+     * @param in the reader, positioned before the plan
+     * @return the resulting plan
+     * @throws JSONConverterException if an error occurred while reading the plan
+     */
+    public ReconfigurationPlan read(JSONTokenReader in) throws JSONConverterException {
+        ReconfigurationPlan plan = null;
+        JSONArray pending = null;
+        boolean read = false;
+        in.beginObject();
+        while (in.hasNext()) {
+            String k = in.nextName();
+            if (ReconfigurationPlanConverter.ORIGIN_LABEL.equals(k)) {
+                plan = new DefaultReconfigurationPlan(mc.read(in));
+            } else if (ReconfigurationPlanConverter.ACTIONS_LABEL.equals(k)) {
+                if (plan == null) {
+                    pending = asArray(in.nextValue(), k);
+                } else {
+                    readActions(in, plan);
+                }
+                read = true;
+            } else {
+                in.skipValue();
+            }
+        }
+        in.endObject();
+        checkPresent(plan != null, ReconfigurationPlanConverter.ORIGIN_LABEL);
+        checkPresent(read, ReconfigurationPlanConverter.ACTIONS_LABEL);
+        if (pending != null) {
+            Model mo = plan.getOrigin();
+            for (Object o : pending) {
+                plan.add(actions.actionFromJSON(mo, asObject(o, ReconfigurationPlanConverter.ACTIONS_LABEL)));
+            }
+        }
+        return plan;
+    }
+
+    private void readActions(JSONTokenReader in, ReconfigurationPlan plan) throws JSONConverterException {
+        Model mo = plan.getOrigin();
+        in.beginArray();
+        while (in.hasNext()) {
+            plan.add(actions.actionFromJSON(mo, asObject(in.nextValue(), ReconfigurationPlanConverter.ACTIONS_LABEL)));
+        }
+        in.endArray();
+    }
+
+    /**
+     * Write a plan.
+     *
+     * @param plan the plan to write
+     * @param a    the stream to write on
+     * @throws JSONConverterException if an action, an event or a view cannot be converted
+     * @throws IOException            if an error occurred while writing
+     */
+    public void write(ReconfigurationPlan plan, Appendable a) throws JSONConverterException, IOException {
+        write(plan, new JSONTokenWriter(a));
+    }
+
+    /**
+     * Write a plan.
+     *
+     * @param plan the plan to write
+     * @param out  the writer
+     * @throws JSONConverterException if an action, an event or a view cannot be converted
+     * @throws IOException            if an error occurred while writing
+     */
+    public void write(ReconfigurationPlan plan, JSONTokenWriter out) throws JSONConverterException, IOException {
+        out.beginObject();
+        out.name(ReconfigurationPlanConverter.ORIGIN_LABEL);
+        mc.write(plan.getOrigin(), out);
+        out.name(ReconfigurationPlanConverter.ACTIONS_LABEL).beginArray();
+        for (Action a : plan.getActions()) {
+            out.value(actions.actionToJSON(a));
+        }
+        out.endArray();
+        out.endObject();
+    }
+}
@@ -0,0 +1,11 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+/**
+ * Streaming converters that read and write instances and reconfiguration plans token by token,
+ * without materialising the whole JSON tree.
+ */
+package org.btrplace.json.stream;
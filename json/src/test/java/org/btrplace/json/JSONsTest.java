@@ -6,12 +6,21 @@
 
 package org.btrplace.json;
 
+import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.stream.IntStream;
 
 
 /**
@@ -84,4 +93,57 @@ public class JSONsTest {
         obj.put(storeKey, o);
         JSONs.requiredDouble(obj, readKey);
     }
+
+    @Test
+    public void testElementsFromJSON() throws JSONConverterException {
+        Model mo = new DefaultModel();
+        List<VM> vms = Arrays.asList(mo.newVM(), mo.newVM(), mo.newVM());
+        List<Node> nodes = Arrays.asList(mo.newNode(), mo.newNode());
+        Assert.assertEquals(JSONs.vmsFromJSON(mo, JSONs.vmsToJSON(vms)), vms);
+        Assert.assertEquals(JSONs.nodesFromJSON(mo, JSONs.nodesToJSON(nodes)), nodes);
+        Assert.assertTrue(JSONs.vmsFromJSON(mo, new JSONArray()).isEmpty());
+    }
+
+    @Test(expectedExceptions = {JSONConverterException.class})
+    public void testUndeclaredVM() throws JSONConverterException {
+        Model mo = new DefaultModel();
+        mo.newVM();
+        JSONArray a = new JSONArray();
+        a.add(5);
+        JSONs.vmsFromJSON(mo, a);
+    }
+
+    @Test(expectedExceptions = {JSONConverterException.class})
+    public void testBadNodeIdentifier() throws JSONConverterException {
+        Model mo = new DefaultModel();
+        mo.newNode();
+        JSONArray a = new JSONArray();
+        a.add("foo");
+        JSONs.nodesFromJSON(mo, a);
+    }
+
+    @Test
+    public void testConcurrentDecoding() {
+        // Each model declares its own VMs, so the decoded lists must never be mixed up
+        List<Model> models = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Model mo = new DefaultModel();
+            for (int j = 0; j <= i; j++) {
+                mo.newVM();
+            }
+            models.add(mo);
+        }
+        IntStream.range(0, 50 * 20).parallel().forEach(x -> {
+            Model mo = models.get(x % 50);
+            JSONArray a = new JSONArray();
+            for (int i = 0; i <= x % 50; i++) {
+                a.add(i);
+            }
+            try {
+                Assert.assertEquals(JSONs.vmsFromJSON(mo, a).size(), x % 50 + 1);
+            } catch (JSONConverterException ex) {
+                Assert.fail(ex.getMessage(), ex);
+            }
+        });
+    }
 }
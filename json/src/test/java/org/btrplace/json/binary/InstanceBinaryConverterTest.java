@@ -0,0 +1,133 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.binary;
+
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.model.InstanceConverter;
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.Online;
+import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ShareableResource;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Unit tests for {@link InstanceBinaryConverter}.
+ *
+ * @author Fabien Hermenier
+ */
+public class InstanceBinaryConverterTest {
+
+    private static Instance newInstance(int nbNodes, int nbVMs) {
+        Model mo = new DefaultModel();
+        Mapping ma = mo.getMapping();
+        ShareableResource cpu = new ShareableResource("cpu", 8, 1);
+        ShareableResource mem = new ShareableResource("mem", 64, 2);
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < nbNodes; i++) {
+            Node n = mo.newNode();
+            nodes.add(n);
+            if (i % 10 == 9) {
+                ma.addOfflineNode(n);
+            } else {
+                ma.addOnlineNode(n);
+                cpu.setCapacity(n, 16);
+            }
+        }
+        List<SatConstraint> cstrs = new ArrayList<>();
+        for (int i = 0; i < nbVMs; i++) {
+            VM v = mo.newVM();
+            Node n = nodes.get(i % nbNodes);
+            if (!ma.isOnline(n)) {
+                ma.addReadyVM(v);
+                cstrs.add(new Running(v));
+            } else if (i % 7 == 0) {
+                ma.addSleepingVM(v, n);
+            } else {
+                ma.addRunningVM(v, n);
+                cpu.setConsumption(v, i % 4);
+                mem.setConsumption(v, i % 8);
+                cstrs.add(new Fence(v, Collections.singletonList(n)));
+            }
+        }
+        mo.attach(cpu);
+        mo.attach(mem);
+        mo.getAttributes().put(nodes.get(0), "boot", 7);
+        mo.getAttributes().put(new VM(0), "template", "small");
+        mo.getAttributes().put(new VM(0), "ratio", 0.5);
+        cstrs.addAll(Online.newOnline(Collections.singletonList(nodes.get(0))));
+        return new Instance(mo, cstrs, new MinMTTR());
+    }
+
+    private static byte[] toBytes(Instance i) throws JSONConverterException, IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new InstanceBinaryConverter().write(i, out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void testConversion() throws JSONConverterException, IOException {
+        Instance i = newInstance(10, 30);
+        Instance res = new InstanceBinaryConverter().read(new ByteArrayInputStream(toBytes(i)));
+        Assert.assertEquals(res, i);
+        Assert.assertEquals(res.getModel().getAttributes(), i.getModel().getAttributes());
+        Assert.assertEquals(ShareableResource.get(res.getModel(), "cpu"), ShareableResource.get(i.getModel(), "cpu"));
+        Assert.assertEquals(ShareableResource.get(res.getModel(), "mem"), ShareableResource.get(i.getModel(), "mem"));
+    }
+
+    @Test
+    public void testEquivalenceWithJSON() throws JSONConverterException, IOException {
+        Instance i = newInstance(100, 1000);
+        InstanceConverter json = new InstanceConverter();
+        Instance fromJSON = json.fromJSON(json.toJSONString(i));
+        Instance fromBinary = new InstanceBinaryConverter().read(new ByteArrayInputStream(toBytes(fromJSON)));
+        Assert.assertEquals(fromBinary, fromJSON);
+        Assert.assertEquals(fromBinary.getModel(), fromJSON.getModel());
+    }
+
+    @Test
+    public void testCompactness() throws JSONConverterException, IOException {
+        Instance i = newInstance(100, 1000);
+        int txt = new InstanceConverter().toJSONString(i).getBytes(UTF_8).length;
+        Assert.assertTrue(toBytes(i).length * 2 < txt);
+    }
+
+    @Test(expectedExceptions = {JSONConverterException.class})
+    public void testBadMagic() throws JSONConverterException {
+        new InstanceBinaryConverter().read(new ByteArrayInputStream("{\"model\":{}}".getBytes(UTF_8)));
+    }
+
+    @Test(expectedExceptions = {JSONConverterException.class})
+    public void testBadVersion() throws JSONConverterException, IOException {
+        byte[] b = toBytes(newInstance(2, 2));
+        b[4] = (byte) (BinaryFormat.VERSION + 1);
+        new InstanceBinaryConverter().read(new ByteArrayInputStream(b));
+    }
+
+    @Test(expectedExceptions = {JSONConverterException.class})
+    public void testTruncated() throws JSONConverterException, IOException {
+        byte[] b = toBytes(newInstance(2, 2));
+        new InstanceBinaryConverter().read(new ByteArrayInputStream(b, 0, b.length - 1));
+    }
+}
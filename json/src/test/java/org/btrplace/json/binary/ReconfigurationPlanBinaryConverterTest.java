@@ -0,0 +1,78 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.binary;
+
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.plan.DefaultReconfigurationPlan;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.event.Action;
+import org.btrplace.plan.event.AllocateEvent;
+import org.btrplace.plan.event.BootVM;
+import org.btrplace.plan.event.MigrateVM;
+import org.btrplace.plan.event.ShutdownNode;
+import org.btrplace.plan.event.SubstitutedVMEvent;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Unit tests for {@link ReconfigurationPlanBinaryConverter}.
+ *
+ * @author Fabien Hermenier
+ */
+public class ReconfigurationPlanBinaryConverterTest {
+
+    @Test
+    public void testConversion() throws JSONConverterException, IOException {
+        Model mo = new DefaultModel();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        VM vm3 = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        Mapping map = mo.getMapping();
+        map.addOnlineNode(n1);
+        map.addOnlineNode(n2);
+        map.addOnlineNode(n3);
+        map.addReadyVM(vm1);
+        map.addRunningVM(vm2, n1);
+        map.addSleepingVM(vm3, n1);
+
+        ReconfigurationPlan plan = new DefaultReconfigurationPlan(mo);
+        plan.add(new BootVM(vm1, n2, 0, 2));
+        MigrateVM mig = new MigrateVM(vm2, n1, n2, 1, 5, 2000);
+        mig.addEvent(Action.Hook.PRE, new AllocateEvent(vm2, "cpu", 3));
+        mig.addEvent(Action.Hook.POST, new SubstitutedVMEvent(vm2, vm3));
+        plan.add(mig);
+        plan.add(new ShutdownNode(n3, 0, 4));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ReconfigurationPlanBinaryConverter conv = new ReconfigurationPlanBinaryConverter();
+        conv.write(plan, out);
+        ReconfigurationPlan res = conv.read(new ByteArrayInputStream(out.toByteArray()));
+        Assert.assertEquals(res, plan);
+        Assert.assertEquals(res.getOrigin(), plan.getOrigin());
+    }
+
+    @Test(expectedExceptions = {JSONConverterException.class})
+    public void testWrongKind() throws JSONConverterException, IOException {
+        Model mo = new DefaultModel();
+        mo.getMapping().addOnlineNode(mo.newNode());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ReconfigurationPlanBinaryConverter().write(new DefaultReconfigurationPlan(mo), out);
+        new InstanceBinaryConverter().read(new ByteArrayInputStream(out.toByteArray()));
+    }
+}
@@ -6,6 +6,7 @@
 
 package org.btrplace.json.model.constraint;
 
+import net.minidev.json.JSONArray;
 import net.minidev.json.JSONObject;
 import org.btrplace.json.JSONConverterException;
 import org.btrplace.model.Model;
@@ -16,7 +17,9 @@ import org.btrplace.model.constraint.SatConstraintChecker;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 
 
 /**
@@ -128,4 +131,38 @@ public class ConstraintsConverterTest {
         c.register(new MockConstraintConverter());
         c.fromJSON(null, ob);
     }
+
+    @Test(dependsOnMethods = {"testRegister"})
+    public void testParallelLists() throws JSONConverterException {
+        ConstraintsConverter c = new ConstraintsConverter();
+        c.register(new MockConstraintConverter());
+        Assert.assertFalse(c.isParallel());
+        Assert.assertSame(c.setParallel(true), c);
+        Assert.assertTrue(c.isParallel());
+
+        List<SatConstraint> l = new ArrayList<>();
+        for (int i = 0; i < ConstraintsConverter.CHUNK_SIZE * 5 + 3; i++) {
+            l.add(new MockSatConstraint(Integer.toString(i)));
+        }
+        JSONArray a = c.toJSON(l);
+        Assert.assertEquals(a.size(), l.size());
+        List<SatConstraint> res = c.listFromJSON(null, a);
+        Assert.assertEquals(res.size(), l.size());
+        for (int i = 0; i < l.size(); i++) {
+            Assert.assertEquals(((JSONObject) a.get(i)).get("value"), Integer.toString(i));
+            Assert.assertEquals(((MockSatConstraint) res.get(i)).str, Integer.toString(i));
+        }
+    }
+
+    @Test(dependsOnMethods = {"testRegister"}, expectedExceptions = {JSONConverterException.class})
+    public void testParallelListWithFailure() throws JSONConverterException {
+        ConstraintsConverter c = new ConstraintsConverter().setParallel(true);
+        c.register(new MockConstraintConverter());
+        JSONArray a = new JSONArray();
+        for (int i = 0; i < ConstraintsConverter.CHUNK_SIZE * 3; i++) {
+            a.add(c.toJSON(new MockSatConstraint("foo")));
+        }
+        a.set(ConstraintsConverter.CHUNK_SIZE * 2, "bar");
+        c.listFromJSON(null, a);
+    }
 }
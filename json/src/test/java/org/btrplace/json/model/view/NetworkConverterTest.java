@@ -15,6 +15,7 @@ import org.btrplace.model.Model;
 import org.btrplace.model.Node;
 import org.btrplace.model.view.network.Link;
 import org.btrplace.model.view.network.Network;
+import org.btrplace.model.view.network.PrecomputedRouting;
 import org.btrplace.model.view.network.StaticRouting;
 import org.btrplace.model.view.network.Switch;
 import org.testng.Assert;
@@ -90,4 +91,40 @@ public class NetworkConverterTest {
             }
         }
     }
+
+    @Test
+    public void precomputedRoutingTest() throws JSONConverterException {
+
+        Model mo = new DefaultModel();
+        Network net = new Network(new PrecomputedRouting());
+        Switch core = net.newSwitch(5000);
+        Switch s1 = net.newSwitch(1000);
+        Switch s2 = net.newSwitch();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        mo.getMapping().addOnlineNode(n1);
+        mo.getMapping().addOnlineNode(n2);
+        mo.getMapping().addOnlineNode(n3);
+        net.connect(1000, s1, n1, n2);
+        net.connect(2000, s2, n3);
+        net.connect(3000, core, s1, s2);
+        mo.attach(net);
+
+        ModelConverter mc = new ModelConverter();
+        JSONObject jo = mc.toJSON(mo);
+        System.err.println(jo);
+        Model mo2 = mc.fromJSON(jo);
+        Network net2 = Network.get(mo2);
+
+        Assert.assertEquals(net2.getRouting().getClass(), PrecomputedRouting.class);
+        Assert.assertEquals(net2.getLinks(), net.getLinks());
+        for (Node src : mo.getMapping().getAllNodes()) {
+            for (Node dst : mo.getMapping().getAllNodes()) {
+                Assert.assertEquals(net2.getRouting().getPath(src, dst), net.getRouting().getPath(src, dst));
+                Assert.assertEquals(net2.getRouting().getMaxBW(src, dst), net.getRouting().getMaxBW(src, dst));
+            }
+        }
+        Assert.assertEquals(net2.getRouting().getPath(n1, n3).size(), 4);
+    }
 }
@@ -0,0 +1,159 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.stream;
+
+import org.btrplace.json.JSON;
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.model.InstanceConverter;
+import org.btrplace.json.model.constraint.ConstraintsConverter;
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.Online;
+import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ShareableResource;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit tests for {@link InstanceStreamConverter}.
+ *
+ * @author Fabien Hermenier
+ */
+public class InstanceStreamConverterTest {
+
+    private static Instance newInstance() {
+        Model mo = new DefaultModel();
+        Mapping ma = mo.getMapping();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        VM vm3 = mo.newVM();
+        VM vm4 = mo.newVM();
+        ma.addOnlineNode(n1);
+        ma.addOnlineNode(n2);
+        ma.addOfflineNode(n3);
+        ma.addReadyVM(vm1);
+        ma.addRunningVM(vm2, n1);
+        ma.addRunningVM(vm3, n2);
+        ma.addSleepingVM(vm4, n2);
+
+        ShareableResource rc = new ShareableResource("cpu", 8, 1);
+        rc.setCapacity(n1, 4);
+        rc.setConsumption(vm2, 3);
+        mo.attach(rc);
+        mo.getAttributes().put(vm2, "template", "small");
+        mo.getAttributes().put(n1, "boot", 7);
+
+        List<SatConstraint> cstrs = new ArrayList<>();
+        cstrs.addAll(Online.newOnline(Collections.singletonList(n1)));
+        cstrs.add(new Running(vm1));
+        cstrs.add(new Fence(vm2, Collections.singletonList(n1)));
+        return new Instance(mo, cstrs, new MinMTTR());
+    }
+
+    @Test
+    public void testConversion() throws JSONConverterException, IOException {
+        Instance i = newInstance();
+        InstanceStreamConverter conv = new InstanceStreamConverter();
+        StringBuilder b = new StringBuilder();
+        conv.write(i, b);
+        Instance res = conv.read(new StringReader(b.toString()));
+        Assert.assertEquals(res, i);
+        Assert.assertEquals(ShareableResource.get(res.getModel(), "cpu"), ShareableResource.get(i.getModel(), "cpu"));
+    }
+
+    @Test
+    public void testCompatibility() throws JSONConverterException, IOException {
+        Instance i = newInstance();
+        InstanceConverter tree = new InstanceConverter();
+        InstanceStreamConverter stream = new InstanceStreamConverter();
+
+        //tree to stream
+        Instance res = stream.read(new StringReader(tree.toJSONString(i)));
+        Assert.assertEquals(res, i);
+        Assert.assertEquals(ShareableResource.get(res.getModel(), "cpu"), ShareableResource.get(i.getModel(), "cpu"));
+
+        //stream to tree
+        StringBuilder b = new StringBuilder();
+        stream.write(i, b);
+        Assert.assertEquals(tree.fromJSON(b.toString()), i);
+    }
+
+    @Test
+    public void testConstraintsBeforeModel() throws JSONConverterException {
+        String json = "{\"objective\":{\"id\":\"minimizeMTTR\"},"
+                + "\"constraints\":[{\"id\":\"running\",\"vm\":0}],"
+                + "\"model\":{\"views\":[{\"id\":\"shareableResource\",\"rcId\":\"mem\",\"defConsumption\":0,\"defCapacity\":16,\"vms\":{\"0\":2},\"nodes\":{}}],"
+                + "\"attributes\":{\"nodes\":{},\"vms\":{}},"
+                + "\"mapping\":{\"readyVMs\":[0],\"onlineNodes\":{\"0\":{\"runningVMs\":[],\"sleepingVMs\":[]}},\"offlineNodes\":[]}}}";
+        Instance i = new InstanceStreamConverter().read(new StringReader(json));
+        Model mo = i.getModel();
+        Assert.assertEquals(i.getSatConstraints(), Collections.singletonList(new Running(new VM(0))));
+        Assert.assertTrue(mo.getMapping().isReady(new VM(0)));
+        Assert.assertEquals(ShareableResource.get(mo, "mem").getConsumption(new VM(0)), 2);
+    }
+
+    @Test(expectedExceptions = {JSONConverterException.class})
+    public void testMissingModel() throws JSONConverterException {
+        new InstanceStreamConverter().read(new StringReader("{\"constraints\":[],\"objective\":{\"id\":\"minimizeMTTR\"}}"));
+    }
+
+    @Test(expectedExceptions = {JSONConverterException.class})
+    public void testTrailingContent() throws JSONConverterException, IOException {
+        StringBuilder b = new StringBuilder();
+        new InstanceStreamConverter().write(newInstance(), b);
+        b.append("{}");
+        new InstanceStreamConverter().read(new StringReader(b.toString()));
+    }
+
+    @Test
+    public void testParallelConversion() throws JSONConverterException, IOException {
+        Instance i = newInstance();
+        Model mo = i.getModel();
+        for (int x = 0; x < 3 * ConstraintsConverter.CHUNK_SIZE; x++) {
+            VM v = mo.newVM();
+            mo.getMapping().addReadyVM(v);
+            i.getSatConstraints().add(new Running(v));
+        }
+        InstanceStreamConverter seq = new InstanceStreamConverter();
+        InstanceStreamConverter par = new InstanceStreamConverter();
+        par.getConstraintsConverter().setParallel(true);
+
+        StringBuilder b = new StringBuilder();
+        seq.write(i, b);
+        StringBuilder pb = new StringBuilder();
+        par.write(i, pb);
+        Assert.assertEquals(pb.toString(), b.toString());
+        Instance res = par.read(new StringReader(b.toString()));
+        Assert.assertEquals(res.getSatConstraints(), i.getSatConstraints());
+        Assert.assertEquals(res, i);
+
+        //Through the facade
+        Assert.assertFalse(JSON.isParallel());
+        JSON.setParallel(true);
+        try {
+            Assert.assertEquals(JSON.readInstance(new StringReader(b.toString())), i);
+        } finally {
+            JSON.setParallel(false);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.json.stream;
+
+import org.btrplace.json.JSONConverterException;
+import org.btrplace.json.plan.ReconfigurationPlanConverter;
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.plan.DefaultReconfigurationPlan;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.plan.event.Action;
+import org.btrplace.plan.event.AllocateEvent;
+import org.btrplace.plan.event.BootVM;
+import org.btrplace.plan.event.MigrateVM;
+import org.btrplace.plan.event.ShutdownNode;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Unit tests for {@link ReconfigurationPlanStreamConverter}.
+ *
+ * @author Fabien Hermenier
+ */
+public class ReconfigurationPlanStreamConverterTest {
+
+    private static ReconfigurationPlan newPlan() {
+        Model mo = new DefaultModel();
+        VM vm1 = mo.newVM();
+        VM vm2 = mo.newVM();
+        Node n1 = mo.newNode();
+        Node n2 = mo.newNode();
+        Node n3 = mo.newNode();
+        Mapping map = mo.getMapping();
+        map.addOnlineNode(n1);
+        map.addOnlineNode(n2);
+        map.addOnlineNode(n3);
+        map.addReadyVM(vm1);
+        map.addRunningVM(vm2, n1);
+
+        ReconfigurationPlan plan = new DefaultReconfigurationPlan(mo);
+        plan.add(new BootVM(vm1, n2, 0, 2));
+        MigrateVM mig = new MigrateVM(vm2, n1, n2, 1, 5, 2000);
+        mig.addEvent(Action.Hook.PRE, new AllocateEvent(vm2, "cpu", 3));
+        plan.add(mig);
+        plan.add(new ShutdownNode(n3, 0, 4));
+        return plan;
+    }
+
+    @Test
+    public void testConversion() throws JSONConverterException, IOException {
+        ReconfigurationPlan plan = newPlan();
+        ReconfigurationPlanStreamConverter conv = new ReconfigurationPlanStreamConverter();
+        StringBuilder b = new StringBuilder();
+        conv.write(plan, b);
+        ReconfigurationPlan res = conv.read(new StringReader(b.toString()));
+        Assert.assertEquals(res, plan);
+        Assert.assertEquals(res.getOrigin(), plan.getOrigin());
+    }
+
+    @Test
+    public void testCompatibility() throws JSONConverterException, IOException {
+        ReconfigurationPlan plan = newPlan();
+        ReconfigurationPlanConverter tree = ReconfigurationPlanConverter.newBundle();
+        ReconfigurationPlanStreamConverter stream = new ReconfigurationPlanStreamConverter(tree);
+
+        Assert.assertEquals(stream.read(new StringReader(tree.toJSONString(plan))), plan);
+
+        StringBuilder b = new StringBuilder();
+        stream.write(plan, b);
+        Assert.assertEquals(tree.fromJSON(b.toString()), plan);
+    }
+
+    @Test
+    public void testActionsBeforeOrigin() throws JSONConverterException {
+        String json = "{\"actions\":[{\"id\":\"shutdownNode\",\"node\":0,\"start\":0,\"end\":3}],"
+                + "\"origin\":{\"mapping\":{\"offlineNodes\":[],\"readyVMs\":[],\"onlineNodes\":{\"0\":{\"runningVMs\":[],\"sleepingVMs\":[]}}},"
+                + "\"attributes\":{\"nodes\":{},\"vms\":{}},\"views\":[]}}";
+        ReconfigurationPlan plan = new ReconfigurationPlanStreamConverter().read(new StringReader(json));
+        Assert.assertEquals(plan.getSize(), 1);
+        Assert.assertEquals(plan.getActions().iterator().next(), new ShutdownNode(new Node(0), 0, 3));
+    }
+
+    @Test(expectedExceptions = {JSONConverterException.class})
+    public void testUnknownAction() throws JSONConverterException {
+        String json = "{\"origin\":{\"mapping\":{\"offlineNodes\":[],\"readyVMs\":[],\"onlineNodes\":{}},"
+                + "\"attributes\":{},\"views\":[]},\"actions\":[{\"id\":\"foo\"}]}";
+        new ReconfigurationPlanStreamConverter().read(new StringReader(json));
+    }
+}
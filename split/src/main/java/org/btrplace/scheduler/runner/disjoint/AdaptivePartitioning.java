@@ -0,0 +1,217 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.runner.disjoint;
+
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.runner.SolvingStatistics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * A {@link FixedSizePartitioning} that repairs the partitions without solution.
+ * <p>
+ * Once the partitions are solved, each partition that has no solution, either because it has
+ * none or because it did not compute one in time, is merged with the partition having the most
+ * spare resources. Only the merged partitions are solved again while the solutions of the other
+ * partitions are kept. The process repeats until every partition has a solution, the deadline
+ * is reached, or the maximum number of repairs is reached.
+ * <p>
+ * The spare resources of a partition are estimated using the {@link ShareableResource}s as the
+ * smallest ratio of free capacity among the resources on its online nodes. Ties are broken in
+ * favor of the closest partition.
+ * <p>
+ * The repaired partitions are only used for the current solving process: {@link #getPartitions()} still
+ * returns the partitions computed by the splitting step.
+ *
+ * @author Fabien Hermenier
+ */
+public class AdaptivePartitioning extends FixedSizePartitioning {
+
+    private int maxRepairs;
+
+    /**
+     * Make a new partitioning algorithm.
+     * By default, at most 3 repairs are performed.
+     *
+     * @param s the maximum partition size
+     */
+    public AdaptivePartitioning(int s) {
+        super(s);
+        maxRepairs = 3;
+    }
+
+    /**
+     * Get the maximum number of repairs.
+     *
+     * @return a positive number
+     */
+    public int getMaxRepairs() {
+        return maxRepairs;
+    }
+
+    /**
+     * Set the maximum number of repairs.
+     *
+     * @param n a positive number. {@code 0} to never repair
+     */
+    public void setMaxRepairs(int n) {
+        maxRepairs = n;
+    }
+
+    @Override
+    protected List<SolvingStatistics> solvePartitions(Parameters ps, Instance orig, List<Instance> partitions, long deadline)
+            throws SchedulerException {
+        List<Collection<Node>> nodeSets = new ArrayList<>(getPartitions());
+        List<Instance> parts = partitions;
+        List<SolvingStatistics> results = runPartitions(ps, parts, deadline, false);
+
+        for (int r = 0; r < maxRepairs && nodeSets.size() > 1
+                && (deadline < 0 || System.currentTimeMillis() < deadline); r++) {
+            int[] groups = regroup(orig.getModel(), nodeSets, results);
+            if (groups == null) {
+                //Every partition has a solution
+                break;
+            }
+            //The kept partitions first, then the merged ones
+            List<Collection<Node>> nextSets = new ArrayList<>();
+            List<SolvingStatistics> nextResults = new ArrayList<>();
+            TObjectIntMap<VM> launch = new TObjectIntHashMap<>();
+            int[] position = new int[nodeSets.size()];
+            for (int p = 0; p < nodeSets.size(); p++) {
+                if (groups[p] < 0) {
+                    position[p] = nextSets.size();
+                    nextSets.add(nodeSets.get(p));
+                    nextResults.add(results.get(p));
+                }
+            }
+            int nbKept = nextSets.size();
+            for (int p = 0; p < nodeSets.size(); p++) {
+                if (groups[p] >= 0) {
+                    int to = nbKept + groups[p];
+                    while (nextSets.size() <= to) {
+                        nextSets.add(new HashSet<>());
+                    }
+                    nextSets.get(to).addAll(nodeSets.get(p));
+                    position[p] = to;
+                }
+            }
+            //The VMs to launch stay in their partition so the kept solutions remain valid
+            for (int p = 0; p < parts.size(); p++) {
+                for (VM v : parts.get(p).getModel().getMapping().getReadyVMs()) {
+                    launch.put(v, position[p]);
+                }
+            }
+            parts = split(orig, nextSets, launch);
+            nextResults.addAll(runPartitions(ps, parts.subList(nbKept, parts.size()), deadline, false));
+            nodeSets = nextSets;
+            results = nextResults;
+        }
+        return results;
+    }
+
+    /**
+     * Group each failing partition with the partition having the most spare resources.
+     *
+     * @return for each partition, the index of its group. {@code -1} if it is kept as is.
+     * {@code null} if no partition is failing
+     */
+    private static int[] regroup(Model mo, List<Collection<Node>> nodeSets, List<SolvingStatistics> results) {
+        int nb = nodeSets.size();
+        boolean[] failing = new boolean[nb];
+        boolean any = false;
+        for (int p = 0; p < nb; p++) {
+            SolvingStatistics st = results.get(p);
+            failing[p] = st == null || st.lastSolution() == null;
+            any |= failing[p];
+        }
+        if (!any) {
+            return null;
+        }
+        double[] room = new double[nb];
+        for (int p = 0; p < nb; p++) {
+            room[p] = headroom(mo, nodeSets.get(p));
+        }
+
+        int[] groups = new int[nb];
+        Arrays.fill(groups, -1);
+        int nbGroups = 0;
+        for (int f = 0; f < nb; f++) {
+            if (!failing[f] || groups[f] >= 0) {
+                continue;
+            }
+            int best = -1;
+            for (int c = 0; c < nb; c++) {
+                if (c != f && groups[c] < 0 && (best < 0 || better(c, best, f, failing, room))) {
+                    best = c;
+                }
+            }
+            if (best < 0) {
+                //Every other partition is already merged, join the last group
+                groups[f] = nbGroups - 1;
+            } else {
+                groups[f] = nbGroups;
+                groups[best] = nbGroups;
+                nbGroups++;
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * Check if a candidate partition is a better merge target than another one for a failing partition.
+     * Partitions with a solution come first, then the ones having the most spare resources, then the closest ones.
+     */
+    private static boolean better(int c, int best, int f, boolean[] failing, double[] room) {
+        if (failing[c] != failing[best]) {
+            return !failing[c];
+        }
+        if (room[c] != room[best]) {
+            return room[c] > room[best];
+        }
+        return Math.abs(c - f) < Math.abs(best - f);
+    }
+
+    /**
+     * Estimate the spare resources on a set of nodes.
+     *
+     * @return the smallest ratio of free capacity among the resources. {@code 1} if there are no resources
+     */
+    private static double headroom(Model mo, Collection<Node> ns) {
+        Mapping map = mo.getMapping();
+        double room = 1;
+        for (ModelView v : mo.getViews()) {
+            if (!(v instanceof ShareableResource)) {
+                continue;
+            }
+            ShareableResource rc = (ShareableResource) v;
+            long capa = 0;
+            long used = 0;
+            for (Node n : ns) {
+                if (map.isOnline(n)) {
+                    capa += rc.getCapacity(n);
+                    used += rc.sumConsumptions(map.getRunningVMs(n), true);
+                }
+            }
+            room = Math.min(room, capa == 0 ? 0 : (capa - used) / (double) capa);
+        }
+        return room;
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.runner.disjoint;
+
+import gnu.trove.map.TObjectIntMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ModelView;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.Parameters;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * An extension of {@link FixedNodeSetsPartitioning} where the partitions of nodes
+ * are computed from the constraints to reduce the number of constraints that span
+ * multiple partitions.
+ * <p>
+ * The constraints are considered as hyper-edges connecting the nodes they involve directly, or
+ * through the hosts of their VMs. Starting from the smallest ones, the nodes of each hyper-edge
+ * are grouped together unless the group would exceed the maximum partition size or the maximum load.
+ * The groups are then packed into balanced partitions, the heaviest first.
+ * <p>
+ * The load of a node is the number of VMs it hosts, plus its usage ratio for each
+ * {@link ShareableResource}, plus one. The VMs to launch that are involved in a constraint are
+ * launched in the partition of the nodes the constraint involves.
+ *
+ * @author Fabien Hermenier
+ */
+public class ConstraintGraphPartitioning extends FixedNodeSetsPartitioning {
+
+    private int partSize;
+
+    private double imbalance;
+
+    /**
+     * Make a new partitioning algorithm.
+     * By default, the load of a partition may exceed the average load by 10%.
+     *
+     * @param s the maximum partition size, in number of nodes
+     */
+    public ConstraintGraphPartitioning(int s) {
+        super(new ArrayList<>());
+        partSize = s;
+        imbalance = 0.1;
+    }
+
+    /**
+     * Get the maximum partition size in terms of number of nodes.
+     *
+     * @return a value &gt; 0
+     */
+    public int getSize() {
+        return partSize;
+    }
+
+    /**
+     * Set the maximum partition size in terms of number of nodes.
+     *
+     * @param s a value &gt; 0
+     */
+    public void setSize(int s) {
+        this.partSize = s;
+    }
+
+    /**
+     * Get the tolerated load imbalance.
+     *
+     * @return a ratio &gt;= 0
+     */
+    public double getImbalance() {
+        return imbalance;
+    }
+
+    /**
+     * Set the tolerated load imbalance.
+     * A partition may then have a load up to {@code (1 + imbalance)} times the average load.
+     *
+     * @param r a ratio &gt;= 0
+     */
+    public void setImbalance(double r) {
+        this.imbalance = r;
+    }
+
+    @Override
+    public List<Instance> split(Parameters ps, Instance i) throws SchedulerException {
+        Model mo = i.getModel();
+        Mapping map = mo.getMapping();
+        List<Node> nodes = new ArrayList<>(map.getAllNodes());
+        TObjectIntMap<Node> index = new TObjectIntHashMap<>(nodes.size(), 0.5f, -1);
+        for (Node n : nodes) {
+            index.put(n, index.size());
+        }
+
+        double[] load = loads(mo, nodes);
+        double total = 0;
+        for (double l : load) {
+            total += l;
+        }
+        int nbParts = Math.max(1, (nodes.size() + partSize - 1) / partSize);
+        double maxLoad = total / nbParts * (1 + imbalance);
+
+        //Group the nodes connected by the constraints, the smallest constraints first
+        List<int[]> edges = new ArrayList<>();
+        for (SatConstraint c : i.getSatConstraints()) {
+            int[] e = edge(c, map, index);
+            if (e.length > 1 && e.length <= partSize) {
+                edges.add(e);
+            }
+        }
+        edges.sort(Comparator.comparingInt(e -> e.length));
+        Groups groups = new Groups(load);
+        for (int[] e : edges) {
+            groups.merge(e, partSize, maxLoad);
+        }
+
+        //Pack the groups into balanced partitions, the heaviest first
+        List<int[]> roots = groups.roots();
+        roots.sort((a, b) -> Double.compare(groups.load[b[0]], groups.load[a[0]]));
+        List<Collection<Node>> parts = new ArrayList<>();
+        List<double[]> partLoads = new ArrayList<>();
+        for (int p = 0; p < nbParts; p++) {
+            parts.add(new HashSet<>());
+            partLoads.add(new double[1]);
+        }
+        for (int[] g : roots) {
+            int r = g[0];
+            int best = -1;
+            for (int p = 0; p < parts.size(); p++) {
+                if (parts.get(p).size() + groups.size[r] <= partSize
+                        && (best < 0 || partLoads.get(p)[0] < partLoads.get(best)[0])) {
+                    best = p;
+                }
+            }
+            if (best < 0) {
+                best = parts.size();
+                parts.add(new HashSet<>());
+                partLoads.add(new double[1]);
+            }
+            for (int n : g) {
+                parts.get(best).add(nodes.get(n));
+            }
+            partLoads.get(best)[0] += groups.load[r];
+        }
+        parts.removeIf(Collection::isEmpty);
+        setPartitions(parts);
+        return split(i, parts, pinnedVMs(i, parts));
+    }
+
+    /**
+     * Get the nodes connected by a constraint.
+     *
+     * @return the distinct indexes of the involved nodes and of the hosts of the involved VMs
+     */
+    private static int[] edge(SatConstraint c, Mapping map, TObjectIntMap<Node> index) {
+        Set<Node> ns = new HashSet<>(c.getInvolvedNodes());
+        for (VM v : c.getInvolvedVMs()) {
+            Node n = map.getVMLocation(v);
+            if (n != null) {
+                ns.add(n);
+            }
+        }
+        return ns.stream().mapToInt(index::get).filter(x -> x >= 0).toArray();
+    }
+
+    /**
+     * Compute the load of each node.
+     */
+    private static double[] loads(Model mo, List<Node> nodes) {
+        Mapping map = mo.getMapping();
+        List<ShareableResource> rcs = new ArrayList<>();
+        for (ModelView v : mo.getViews()) {
+            if (v instanceof ShareableResource) {
+                rcs.add((ShareableResource) v);
+            }
+        }
+        double[] load = new double[nodes.size()];
+        for (int x = 0; x < nodes.size(); x++) {
+            Node n = nodes.get(x);
+            Set<VM> vms = map.getRunningVMs(n);
+            load[x] = 1 + vms.size() + map.getSleepingVMs(n).size();
+            for (ShareableResource rc : rcs) {
+                int capa = rc.getCapacity(n);
+                if (capa > 0) {
+                    load[x] += rc.sumConsumptions(vms, true) / (double) capa;
+                }
+            }
+        }
+        return load;
+    }
+
+    /**
+     * Pin the VMs to launch that are involved in a constraint to the partition
+     * that contains the most nodes connected by the constraint.
+     */
+    private static TObjectIntMap<VM> pinnedVMs(Instance i, List<Collection<Node>> parts) {
+        Mapping map = i.getModel().getMapping();
+        TObjectIntMap<Node> position = new TObjectIntHashMap<>(map.getNbNodes(), 0.5f, -1);
+        for (int p = 0; p < parts.size(); p++) {
+            for (Node n : parts.get(p)) {
+                position.put(n, p);
+            }
+        }
+        TObjectIntMap<VM> pinned = new TObjectIntHashMap<>();
+        for (SatConstraint c : i.getSatConstraints()) {
+            Set<Node> ns = new HashSet<>(c.getInvolvedNodes());
+            for (VM v : c.getInvolvedVMs()) {
+                Node host = map.getVMLocation(v);
+                if (host != null) {
+                    ns.add(host);
+                }
+            }
+            int[] hits = new int[parts.size()];
+            int best = -1;
+            for (Node n : ns) {
+                int p = position.get(n);
+                if (p < 0) {
+                    continue;
+                }
+                hits[p]++;
+                if (best < 0 || hits[p] > hits[best]) {
+                    best = p;
+                }
+            }
+            if (best < 0) {
+                continue;
+            }
+            for (VM v : c.getInvolvedVMs()) {
+                if (map.isReady(v) && !pinned.containsKey(v)) {
+                    pinned.put(v, best);
+                }
+            }
+        }
+        return pinned;
+    }
+
+    /**
+     * Union-find over the nodes, with the size and the load of each group.
+     */
+    private static class Groups {
+
+        private final int[] parent;
+
+        private final int[] size;
+
+        private final double[] load;
+
+        Groups(double[] loads) {
+            parent = new int[loads.length];
+            size = new int[loads.length];
+            load = loads.clone();
+            for (int x = 0; x < parent.length; x++) {
+                parent[x] = x;
+                size[x] = 1;
+            }
+        }
+
+        int find(int x) {
+            int r = x;
+            while (parent[r] != r) {
+                r = parent[r];
+            }
+            //Path compression
+            while (parent[x] != r) {
+                int nx = parent[x];
+                parent[x] = r;
+                x = nx;
+            }
+            return r;
+        }
+
+        /**
+         * Merge the groups of the given nodes unless the resulting group is too big.
+         */
+        void merge(int[] nodes, int maxSize, double maxLoad) {
+            Set<Integer> rs = new HashSet<>();
+            int s = 0;
+            double l = 0;
+            for (int n : nodes) {
+                int r = find(n);
+                if (rs.add(r)) {
+                    s += size[r];
+                    l += load[r];
+                }
+            }
+            if (rs.size() < 2 || s > maxSize || l > maxLoad) {
+                return;
+            }
+            int root = -1;
+            for (int r : rs) {
+                if (root < 0) {
+                    root = r;
+                } else {
+                    parent[r] = root;
+                }
+            }
+            size[root] = s;
+            load[root] = l;
+        }
+
+        /**
+         * Get the groups.
+         *
+         * @return the nodes of each group, the root first
+         */
+        List<int[]> roots() {
+            List<List<Integer>> members = new ArrayList<>();
+            int[] slot = new int[parent.length];
+            for (int x = 0; x < parent.length; x++) {
+                if (find(x) == x) {
+                    slot[x] = members.size();
+                    List<Integer> m = new ArrayList<>();
+                    m.add(x);
+                    members.add(m);
+                }
+            }
+            for (int x = 0; x < parent.length; x++) {
+                int r = find(x);
+                if (r != x) {
+                    members.get(slot[r]).add(x);
+                }
+            }
+            List<int[]> res = new ArrayList<>(members.size());
+            for (List<Integer> m : members) {
+                res.add(m.stream().mapToInt(Integer::intValue).toArray());
+            }
+            return res;
+        }
+    }
+}
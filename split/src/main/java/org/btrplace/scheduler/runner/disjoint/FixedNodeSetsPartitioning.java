@@ -6,7 +6,9 @@
 
 package org.btrplace.scheduler.runner.disjoint;
 
+import gnu.trove.map.TObjectIntMap;
 import gnu.trove.map.hash.TIntIntHashMap;
+import gnu.trove.map.hash.TObjectIntHashMap;
 import gnu.trove.set.hash.THashSet;
 import gnu.trove.set.hash.TIntHashSet;
 import org.btrplace.model.Instance;
@@ -110,11 +112,26 @@ public class FixedNodeSetsPartitioning extends StaticPartitioning {
 
     @Override
     public List<Instance> split(Parameters ps, Instance i) throws SchedulerException {
+        return split(i, partitions, new TObjectIntHashMap<>());
+    }
+
+    /**
+     * Split an instance using given node partitions.
+     *
+     * @param i        the instance to split
+     * @param nodeSets the node partitions
+     * @param launch   the partition index of some VMs to launch.
+     *                 The other VMs to launch are spread evenly
+     * @return a list of disjoint instances, one per node partition
+     * @throws SchedulerException if an error prevent the splitting process
+     */
+    protected List<Instance> split(Instance i, Collection<Collection<Node>> nodeSets, TObjectIntMap<VM> launch)
+            throws SchedulerException {
         Model mo = i.getModel();
 
         SynchronizedElementBuilder eb = new SynchronizedElementBuilder(mo);
 
-        List<Instance> parts = new ArrayList<>(partitions.size());
+        List<Instance> parts = new ArrayList<>(nodeSets.size());
 
         //nb of VMs
         int nbVMs = i.getModel().getMapping().getNbVMs();
@@ -126,8 +143,8 @@ public class FixedNodeSetsPartitioning extends StaticPartitioning {
 
         Set<VM> toLaunch = getVMsToLaunch(i);
 
-        for (Collection<Node> s : partitions) {
-            SubModel partModel = new SubModel(mo, eb, s, new HashSet<>(toLaunch.size() / partitions.size()));
+        for (Collection<Node> s : nodeSets) {
+            SubModel partModel = new SubModel(mo, eb, s, new HashSet<>(toLaunch.size() / nodeSets.size()));
 
             parts.add(new Instance(partModel, new THashSet<>(), i.getOptConstraint()));
 
@@ -140,14 +157,19 @@ public class FixedNodeSetsPartitioning extends StaticPartitioning {
             partNumber++;
         }
 
-        //Round-robin placement for the VMs to launch
+        //Round-robin placement for the VMs to launch that are not dispatched already
         int p = 0;
         for (VM v : toLaunch) {
-            if (!parts.get(p).getModel().getMapping().addReadyVM(v)) {
-                throw new SplitException(parts.get(p).getModel(), "Unable to dispatch the VM to launch '" + v + "'");
+            int to = p;
+            if (launch.containsKey(v)) {
+                to = launch.get(v);
+            } else {
+                p = (p + 1) % parts.size();
+            }
+            if (!parts.get(to).getModel().getMapping().addReadyVM(v)) {
+                throw new SplitException(parts.get(to).getModel(), "Unable to dispatch the VM to launch '" + v + "'");
             }
-            vmPosition.put(v.id(), p);
-            p = (p + 1) % parts.size();
+            vmPosition.put(v.id(), to);
         }
 
         //Split the constraints
@@ -11,6 +11,8 @@ import org.btrplace.plan.DefaultReconfigurationPlan;
 import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.plan.event.Action;
 import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.UnstatableProblemException;
+import org.btrplace.scheduler.choco.DefaultParameters;
 import org.btrplace.scheduler.choco.Parameters;
 import org.btrplace.scheduler.choco.runner.InstanceSolver;
 import org.btrplace.scheduler.choco.runner.SolvingStatistics;
@@ -19,11 +21,17 @@ import org.btrplace.scheduler.choco.runner.single.InstanceSolverRunner;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorCompletionService;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An abstract solver that decompose statically an instance
@@ -34,6 +42,21 @@ import java.util.concurrent.Executors;
  * <p>
  * The solving process relies on a master/worker paradigm with a number
  * of workers equals to the number of available cores by default.
+ * The workers are taken from a work-stealing pool owned by the solver, unless a dedicated executor is provided.
+ * The pool is created on demand. Its threads are daemon threads that terminate once idle, so they do not
+ * prevent the JVM from exiting. Callers that must control the lifecycle of the workers provide their own
+ * executor with {@link #setExecutorService(ExecutorService)}.
+ * <p>
+ * When a time limit is set, it is a deadline for the whole solving process. With the solver pool, the partitions
+ * still waiting are expected to be solved in successive waves of {@link #getWorkersCount()} partitions. Each
+ * partition then receives its share of the remaining time when it starts, so partitions that terminate early
+ * leave more time to the next ones. The parallelism of a dedicated executor is unknown, so each partition
+ * may use the whole remaining time. In any case, the partitions still running at the deadline are stopped and
+ * the ones that did not start before the deadline are not solved. Once a partition is proven to have no solution,
+ * the others are cancelled as the resulting plan cannot exist.
+ * <p>
+ * Concurrent calls to {@link #solve(Parameters, Instance)} are independent, except for
+ * {@link #getStatistics()} which reports the latest solving process, and for the workers they share.
  *
  * @author Fabien Hermenier
  */
@@ -41,9 +64,19 @@ public abstract class StaticPartitioning implements InstanceSolver {
 
     private int workersCount;
 
+    private ExecutorService executor;
+
+    /**
+     * The pool of the solver, having {@link #workersCount} workers. {@code null} until used.
+     */
+    private ExecutorService pool;
+
     private StaticPartitioningStatistics stats;
 
-    private List<InstanceSolverRunner> runners;
+    /**
+     * The running solving processes.
+     */
+    private final Set<Run> runs = ConcurrentHashMap.newKeySet();
 
     /**
      * Make a new partitioning algorithm.
@@ -67,10 +100,39 @@ public abstract class StaticPartitioning implements InstanceSolver {
      *
      * @param s a number &gt;= 1
      */
-    public void setWorkersCount(int s) {
+    public synchronized void setWorkersCount(int s) {
+        if (s != workersCount) {
+            //The running partitions complete on the previous pool, its threads then terminate
+            pool = null;
+        }
         this.workersCount = s;
     }
 
+    /**
+     * Set the executor that runs the partitions.
+     * The executor is not shut down by the solver.
+     *
+     * @param exe the executor. {@code null} to use the work-stealing pool of the solver
+     */
+    public void setExecutorService(ExecutorService exe) {
+        this.executor = exe;
+    }
+
+    /**
+     * Get the executor that runs the partitions.
+     *
+     * @return the executor provided by {@link #setExecutorService(ExecutorService)} if any,
+     * otherwise the work-stealing pool of the solver, having {@link #getWorkersCount()} workers.
+     */
+    public synchronized ExecutorService getExecutorService() {
+        if (executor != null) {
+            return executor;
+        }
+        if (pool == null) {
+            pool = Executors.newWorkStealingPool(workersCount);
+        }
+        return pool;
+    }
 
     @Override
     public ReconfigurationPlan solve(Parameters cra, Instance orig) throws SchedulerException {
@@ -80,43 +142,215 @@ public abstract class StaticPartitioning implements InstanceSolver {
         d += System.currentTimeMillis();
 
         stats.setSplittingStatistics(partitions.size(), d);
-        ExecutorService exe = Executors.newFixedThreadPool(this.workersCount);
-        CompletionService<SolvingStatistics> completionService = new ExecutorCompletionService<>(exe);
-        List<SolvingStatistics> results = new ArrayList<>(partitions.size());
 
-
-        runners = new ArrayList<>();
         long duration = -System.currentTimeMillis();
+        long deadline = cra.getTimeLimit() > 0 ? System.currentTimeMillis() + cra.getTimeLimit() * 1000L : -1;
+        List<SolvingStatistics> results = solvePartitions(cra, orig, partitions, deadline);
+        duration += System.currentTimeMillis();
+        stats.setSolvingDuration(duration);
+
+        return merge(orig, results);
+    }
+
+    /**
+     * Solve the partitions of an instance.
+     * By default, the partitions are solved once using {@link #runPartitions(Parameters, List, long, boolean)}
+     * and the process stops as soon as a partition fails.
+     *
+     * @param cra        the parameters for the solver
+     * @param orig       the instance that was split
+     * @param partitions the partitions to solve
+     * @param deadline   the moment the solving process must end, in milliseconds. A negative value for no deadline
+     * @return the statistics of the partitions to merge
+     * @throws SchedulerException if an error prevent the solving process
+     */
+    protected List<SolvingStatistics> solvePartitions(Parameters cra, Instance orig, List<Instance> partitions, long deadline)
+            throws SchedulerException {
+        return runPartitions(cra, partitions, deadline, true);
+    }
+
+    /**
+     * Solve partitions in parallel.
+     *
+     * @param cra        the parameters for the solver
+     * @param partitions the partitions to solve
+     * @param deadline   the moment the solving process must end, in milliseconds. A negative value for no deadline
+     * @param failFast   {@code true} to cancel every partition once one has no solution, or failed.
+     *                   {@code false} to report a partition that failed to compute a solution in time with its statistics
+     * @return the statistics of each partition, in the partitions order. An entry is {@code null} if the partition was cancelled
+     * @throws SchedulerException if an error prevent the solving process
+     */
+    protected final List<SolvingStatistics> runPartitions(Parameters cra, List<Instance> partitions, long deadline, boolean failFast)
+            throws SchedulerException {
+        ExecutorService exe;
+        int parallelism;
+        synchronized (this) {
+            exe = getExecutorService();
+            //The parallelism of a dedicated executor is unknown
+            parallelism = exe == executor ? -1 : workersCount;
+        }
+        CompletionService<SolvingStatistics> completionService = new ExecutorCompletionService<>(exe);
+        Run run = new Run(partitions.size(), parallelism);
+        runs.add(run);
+        List<Future<SolvingStatistics>> futures = new ArrayList<>(partitions.size());
         for (Instance partition : partitions) {
-            InstanceSolverRunner runner = new InstanceSolverRunner(cra, partition);
-            completionService.submit(runner);
-            runners.add(runner);
+            futures.add(completionService.submit(() -> solvePartition(run, cra, partition, deadline, failFast)));
         }
 
-        for (int i = 0; i < partitions.size(); i++) {
-            try {
-                results.add(completionService.take().get());
-            } catch (ExecutionException ignore) {
-                Throwable cause = ignore.getCause();
-                if (cause != null) {
-                    throw new SplitException(null, cause.getMessage(), ignore);
+        try {
+            for (int i = 0; i < partitions.size(); i++) {
+                SolvingStatistics res = next(run, completionService, deadline);
+                if (failFast && res != null && res.lastSolution() == null && res.completed()) {
+                    //No solution for this partition, so for the whole instance
+                    run.abort(futures);
                 }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new SplitException(orig.getModel(), e.getMessage(), e);
             }
+            List<SolvingStatistics> results = new ArrayList<>(partitions.size());
+            for (Future<SolvingStatistics> f : futures) {
+                results.add(f.isCancelled() ? null : f.get());
+            }
+            return results;
+        } catch (ExecutionException ignore) {
+            run.abort(futures);
+            Throwable cause = ignore.getCause();
+            throw new SplitException(null, cause != null ? cause.getMessage() : ignore.getMessage(), ignore);
+        } catch (InterruptedException e) {
+            run.abort(futures);
+            Thread.currentThread().interrupt();
+            throw new SplitException(null, e.getMessage(), e);
+        } finally {
+            runs.remove(run);
         }
-        duration += System.currentTimeMillis();
-        stats.setSolvingDuration(duration);
-        exe.shutdown();
+    }
 
-        return merge(orig, results);
+    /**
+     * Get the next solved partition.
+     * Once the deadline is reached, the running partitions are stopped.
+     *
+     * @return the statistics. {@code null} if the partition was cancelled
+     */
+    private static SolvingStatistics next(Run run, CompletionService<SolvingStatistics> completionService, long deadline)
+            throws InterruptedException, ExecutionException {
+        Future<SolvingStatistics> f = null;
+        if (deadline > 0) {
+            f = completionService.poll(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            if (f == null) {
+                //Deadline reached. Let the running partitions report their current solution
+                run.stop();
+            }
+        }
+        if (f == null) {
+            f = completionService.take();
+        }
+        return f.isCancelled() ? null : f.get();
+    }
+
+    /**
+     * Solve a partition with a share of the remaining time.
+     *
+     * @return the statistics. {@code null} if the partition was cancelled, or the deadline reached, before being solved
+     */
+    private static SolvingStatistics solvePartition(Run run, Parameters cra, Instance partition, long deadline,
+                                             boolean failFast) throws SchedulerException {
+        int waiting = run.pending.getAndDecrement();
+        if (run.stopped) {
+            return null;
+        }
+        Parameters ps = cra;
+        if (deadline > 0) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return null;
+            }
+            //With a known parallelism, the partitions still waiting are solved in successive waves of workers.
+            //The time limit is in seconds, the deadline stops the partitions that would exceed it
+            long share = remaining;
+            if (run.parallelism > 0) {
+                share /= (waiting + run.parallelism - 1) / run.parallelism;
+            }
+            ps = new DefaultParameters(cra).setTimeLimit((int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(share)));
+        }
+        InstanceSolverRunner runner = new InstanceSolverRunner(ps, partition);
+        if (!run.register(runner)) {
+            return null;
+        }
+        try {
+            return runner.call();
+        } catch (UnstatableProblemException ex) {
+            if (failFast) {
+                throw ex;
+            }
+            return runner.getStatistics();
+        }
+    }
+
+    /**
+     * The state of a solving process.
+     */
+    private static final class Run {
+
+        private final AtomicInteger pending;
+
+        /**
+         * The number of partitions solved simultaneously. {@code -1} if unknown.
+         */
+        private final int parallelism;
+
+        private final List<InstanceSolverRunner> runners = new CopyOnWriteArrayList<>();
+
+        /**
+         * {@code true} once the partitions must not be solved anymore.
+         */
+        private volatile boolean stopped;
+
+        Run(int nbPartitions, int parallelism) {
+            pending = new AtomicInteger(nbPartitions);
+            this.parallelism = parallelism;
+        }
+
+        /**
+         * Register a runner, unless the process is stopped.
+         *
+         * @return {@code false} iff the process is stopped so the runner must not be started
+         */
+        boolean register(InstanceSolverRunner runner) {
+            runners.add(runner);
+            if (stopped) {
+                runner.stop();
+                return false;
+            }
+            return true;
+        }
+
+        /**
+         * Stop the running partitions. The waiting ones are not solved.
+         */
+        void stop() {
+            stopped = true;
+            for (InstanceSolverRunner runner : runners) {
+                runner.stop();
+            }
+        }
+
+        /**
+         * Stop the running partitions and cancel the waiting ones.
+         */
+        void abort(List<Future<SolvingStatistics>> futures) {
+            stop();
+            for (Future<SolvingStatistics> f : futures) {
+                f.cancel(false);
+            }
+        }
     }
 
     private ReconfigurationPlan merge(Instance i, Collection<SolvingStatistics> results) throws SplitException {
         ReconfigurationPlan plan = new DefaultReconfigurationPlan(i.getModel());
         //Only if there is a solution
         for (SolvingStatistics result : results) {
+            if (result == null) {
+                //Cancelled partition
+                return null;
+            }
             getStatistics().addPartitionStatistics(result);
             ReconfigurationPlan p = result.lastSolution();
             if (p == null) {
@@ -149,10 +383,8 @@ public abstract class StaticPartitioning implements InstanceSolver {
 
     @Override
     public void stop() {
-        if (runners != null) {
-            for (InstanceSolverRunner runner: runners) {
-                runner.stop();
-            }
+        for (Run run : runs) {
+            run.stop();
         }
     }
 }
@@ -53,5 +53,9 @@ public class ElementSubSetTest {
         for (VM v : p1) {
             Assert.assertEquals(v.id() % 2, 0);
         }
+
+        //test toArray()
+        Assert.assertEquals(new ArrayList<>(p1), values.subList(0, 5));
+        Assert.assertEquals(p1.toArray(new VM[0]).length, 5);
     }
 }
@@ -0,0 +1,98 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.runner.disjoint;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Ban;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.view.ShareableResource;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.btrplace.scheduler.choco.Parameters;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Unit tests for {@link AdaptivePartitioning}.
+ *
+ * @author Fabien Hermenier
+ */
+public class AdaptivePartitioningTest {
+
+    @Test
+    public void testBasics() {
+        AdaptivePartitioning a = new AdaptivePartitioning(10);
+        Assert.assertEquals(a.getSize(), 10);
+        Assert.assertEquals(a.getMaxRepairs(), 3);
+        a.setMaxRepairs(5);
+        Assert.assertEquals(a.getMaxRepairs(), 5);
+    }
+
+    /**
+     * 4 single-node partitions. The VM on the first node must leave it. The
+     * first partition has no solution so it is merged with the emptiest one.
+     */
+    @Test
+    public void testRepair() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        ShareableResource cpu = new ShareableResource("cpu", 4, 1);
+        mo.attach(cpu);
+        List<Node> ns = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Node n = mo.newNode();
+            ns.add(n);
+            map.addOnlineNode(n);
+        }
+        VM v0 = mo.newVM();
+        map.addRunningVM(v0, ns.get(0));
+        cpu.setConsumption(v0, 3);
+        //n1 is full, n2 is empty, n3 is half full
+        for (int i = 0; i < 4; i++) {
+            map.addRunningVM(mo.newVM(), ns.get(1));
+        }
+        for (int i = 0; i < 2; i++) {
+            map.addRunningVM(mo.newVM(), ns.get(3));
+        }
+        VM ready = mo.newVM();
+        map.addReadyVM(ready);
+
+        List<SatConstraint> cstrs = new ArrayList<>(Running.newRunning(Collections.singletonList(ready)));
+        cstrs.add(new Ban(v0, Collections.singleton(ns.get(0))));
+        Instance i = new Instance(mo, cstrs, new MinMTTR());
+        Parameters ps = new DefaultParameters();
+
+        Assert.assertNull(new FixedSizePartitioning(1).solve(ps, i));
+
+        AdaptivePartitioning a = new AdaptivePartitioning(1);
+        ReconfigurationPlan p = a.solve(ps, i);
+        Assert.assertNotNull(p);
+        Mapping res = p.getResult().getMapping();
+        Assert.assertEquals(res.getVMLocation(v0), ns.get(2));
+        Assert.assertTrue(res.isRunning(ready));
+        Assert.assertEquals(res.getRunningVMs(ns.get(1)).size(), 4);
+        Assert.assertEquals(a.getStatistics().results().size(), 3);
+        //The repaired partitions are not kept
+        Assert.assertEquals(a.getPartitions().size(), 4);
+
+        //No repairs, no solution
+        a.setMaxRepairs(0);
+        Assert.assertNull(a.solve(ps, i));
+    }
+}
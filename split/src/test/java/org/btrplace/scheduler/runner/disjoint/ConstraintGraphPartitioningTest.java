@@ -0,0 +1,95 @@
+/*
+ * Copyright  2022 The BtrPlace Authors. All rights reserved.
+ * Use of this source code is governed by a LGPL-style
+ * license that can be found in the LICENSE.txt file.
+ */
+
+package org.btrplace.scheduler.runner.disjoint;
+
+import org.btrplace.model.DefaultModel;
+import org.btrplace.model.Instance;
+import org.btrplace.model.Mapping;
+import org.btrplace.model.Model;
+import org.btrplace.model.Node;
+import org.btrplace.model.VM;
+import org.btrplace.model.constraint.Fence;
+import org.btrplace.model.constraint.Gather;
+import org.btrplace.model.constraint.MinMTTR;
+import org.btrplace.model.constraint.Running;
+import org.btrplace.model.constraint.SatConstraint;
+import org.btrplace.model.constraint.Spread;
+import org.btrplace.plan.ReconfigurationPlan;
+import org.btrplace.scheduler.SchedulerException;
+import org.btrplace.scheduler.choco.DefaultParameters;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Unit tests for {@link ConstraintGraphPartitioning}.
+ *
+ * @author Fabien Hermenier
+ */
+public class ConstraintGraphPartitioningTest {
+
+    @Test
+    public void testBasics() {
+        ConstraintGraphPartitioning p = new ConstraintGraphPartitioning(10);
+        Assert.assertEquals(p.getSize(), 10);
+        p.setSize(20);
+        Assert.assertEquals(p.getSize(), 20);
+        Assert.assertEquals(p.getImbalance(), 0.1);
+        p.setImbalance(0.5);
+        Assert.assertEquals(p.getImbalance(), 0.5);
+    }
+
+    @Test
+    public void testSplitAndSolve() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Mapping map = mo.getMapping();
+        List<Node> ns = new ArrayList<>();
+        List<VM> vms = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            Node n = mo.newNode();
+            ns.add(n);
+            map.addOnlineNode(n);
+            VM v = mo.newVM();
+            vms.add(v);
+            map.addRunningVM(v, n);
+        }
+        VM ready = mo.newVM();
+        map.addReadyVM(ready);
+
+        List<SatConstraint> cstrs = new ArrayList<>();
+        cstrs.add(new Gather(Arrays.asList(vms.get(0), vms.get(5))));
+        cstrs.add(new Spread(new HashSet<>(Arrays.asList(vms.get(1), vms.get(4)))));
+        cstrs.add(new Fence(ready, Collections.singleton(ns.get(3))));
+        cstrs.add(new Running(ready));
+        Instance i = new Instance(mo, cstrs, new MinMTTR());
+
+        ConstraintGraphPartitioning p = new ConstraintGraphPartitioning(2);
+        List<Instance> parts = p.split(new DefaultParameters(), i);
+        Assert.assertEquals(parts.size(), 3);
+        for (Collection<Node> s : p.getPartitions()) {
+            Assert.assertTrue(s.size() <= 2);
+            Assert.assertEquals(s.contains(ns.get(0)), s.contains(ns.get(5)));
+            Assert.assertEquals(s.contains(ns.get(1)), s.contains(ns.get(4)));
+        }
+        //The VM to launch is in the partition of its fence
+        for (Instance part : parts) {
+            Assert.assertEquals(part.getModel().getMapping().contains(ready), part.getModel().getMapping().contains(ns.get(3)));
+        }
+
+        ReconfigurationPlan plan = p.solve(new DefaultParameters(), i);
+        Assert.assertNotNull(plan);
+        Mapping res = plan.getResult().getMapping();
+        Assert.assertEquals(res.getVMLocation(vms.get(0)), res.getVMLocation(vms.get(5)));
+        Assert.assertEquals(res.getVMLocation(ready), ns.get(3));
+    }
+}
@@ -20,6 +20,7 @@ import org.btrplace.plan.ReconfigurationPlan;
 import org.btrplace.scheduler.SchedulerException;
 import org.btrplace.scheduler.choco.DefaultChocoScheduler;
 import org.btrplace.scheduler.choco.Parameters;
+import org.btrplace.scheduler.choco.runner.SolvingStatistics;
 import org.btrplace.scheduler.runner.disjoint.model.SubModel;
 import org.testng.Assert;
 import org.testng.annotations.Test;
@@ -27,6 +28,8 @@ import org.testng.annotations.Test;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * Unit tests for {@link StaticPartitioning}.
@@ -48,6 +51,75 @@ public class StaticPartitioningTest {
         Assert.assertEquals(st.getWorkersCount(), 10);
     }
 
+    @Test
+    public void testExecutors() {
+        StaticPartitioning st1 = new FixedSizePartitioning(10);
+        StaticPartitioning st2 = new FixedSizePartitioning(20);
+        //Each solver has its own pool
+        Assert.assertNotSame(st1.getExecutorService(), st2.getExecutorService());
+        ExecutorService pool = st2.getExecutorService();
+        Assert.assertSame(st2.getExecutorService(), pool);
+        st2.setWorkersCount(st2.getWorkersCount());
+        Assert.assertSame(st2.getExecutorService(), pool);
+        st2.setWorkersCount(st2.getWorkersCount() + 1);
+        Assert.assertNotSame(st2.getExecutorService(), pool);
+
+        ExecutorService exe = Executors.newSingleThreadExecutor();
+        st1.setExecutorService(exe);
+        Assert.assertSame(st1.getExecutorService(), exe);
+        st1.setExecutorService(null);
+        Assert.assertNotSame(st1.getExecutorService(), exe);
+        exe.shutdown();
+    }
+
+    @Test
+    public void testSolveWithDeadline() throws SchedulerException {
+        Model mo = new DefaultModel();
+        for (int i = 0; i < 20; i++) {
+            Node n = mo.newNode();
+            mo.getMapping().addOnlineNode(n);
+            mo.getMapping().addReadyVM(mo.newVM());
+        }
+        FixedSizePartitioning st = new FixedSizePartitioning(2);
+        st.setWorkersCount(2);
+        Parameters p = new DefaultChocoScheduler().setTimeLimit(10);
+        ReconfigurationPlan plan = st.solve(p, new Instance(mo, Running.newRunning(mo.getMapping().getAllVMs()), new MinMTTR()));
+        Assert.assertNotNull(plan);
+        Assert.assertEquals(plan.getResult().getMapping().getRunningVMs().size(), 20);
+        Assert.assertEquals(st.getStatistics().getNbParts(), 10);
+        //Every partition got a share of the global time limit
+        for (SolvingStatistics s : st.getStatistics().results()) {
+            Assert.assertTrue(s.getParameters().getTimeLimit() <= 10);
+        }
+    }
+
+    /**
+     * The parallelism of a dedicated executor is unknown, so the partitions are not given a share of the time.
+     */
+    @Test
+    public void testSolveWithDeadlineOnExecutor() throws SchedulerException {
+        Model mo = new DefaultModel();
+        for (int i = 0; i < 20; i++) {
+            Node n = mo.newNode();
+            mo.getMapping().addOnlineNode(n);
+            mo.getMapping().addReadyVM(mo.newVM());
+        }
+        FixedSizePartitioning st = new FixedSizePartitioning(2);
+        st.setWorkersCount(1);
+        ExecutorService exe = Executors.newFixedThreadPool(2);
+        try {
+            st.setExecutorService(exe);
+            Parameters p = new DefaultChocoScheduler().setTimeLimit(10);
+            ReconfigurationPlan plan = st.solve(p, new Instance(mo, Running.newRunning(mo.getMapping().getAllVMs()), new MinMTTR()));
+            Assert.assertNotNull(plan);
+            for (SolvingStatistics s : st.getStatistics().results()) {
+                Assert.assertTrue(s.getParameters().getTimeLimit() > 5);
+            }
+        } finally {
+            exe.shutdown();
+        }
+    }
+
     @Test
     public void testParallelSolve() throws SchedulerException {
 
@@ -134,4 +206,33 @@ public class StaticPartitioningTest {
         Parameters p = new DefaultChocoScheduler();
         st.solve(p, i0);
     }
+
+    @Test
+    public void testPartitionsAfterDeadline() throws SchedulerException {
+        Model mo = new DefaultModel();
+        Node n = mo.newNode();
+        VM v = mo.newVM();
+        mo.getMapping().addOnlineNode(n);
+        mo.getMapping().addReadyVM(v);
+        Instance i = new Instance(mo, Running.newRunning(Collections.singletonList(v)), new MinMTTR());
+
+        StaticPartitioning st = new StaticPartitioning() {
+            @Override
+            public List<Instance> split(Parameters ps, Instance i) {
+                return Arrays.asList(i, i);
+            }
+
+            @Override
+            protected List<SolvingStatistics> solvePartitions(Parameters cra, Instance orig, List<Instance> partitions, long deadline)
+                    throws SchedulerException {
+                //The deadline is already reached
+                return runPartitions(cra, partitions, System.currentTimeMillis() - 1, false);
+            }
+        };
+        st.setWorkersCount(1);
+        Parameters p = new DefaultChocoScheduler().setTimeLimit(5);
+        long st0 = System.currentTimeMillis();
+        Assert.assertNull(st.solve(p, i));
+        Assert.assertTrue(System.currentTimeMillis() - st0 < 1000);
+    }
 }